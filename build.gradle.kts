@@ -28,6 +28,7 @@ dependencies {
     implementation("com.fasterxml.jackson.core:jackson-databind:2.11.2")
     implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-yaml:2.11.2")
     implementation("com.sparkjava:spark-core:2.9.3")
+    implementation("org.hdrhistogram:HdrHistogram:2.1.12")
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.6.0")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine")
 }
@@ -37,11 +38,52 @@ tasks.getByName<Test>("test") {
 }
 
 tasks {
+    register<JavaExec>("failoverBenchmark") {
+        description = "Measures unavailability, election and client reconnect time when the leader is killed."
+        classpath = sourceSets.test.get().runtimeClasspath
+        mainClass.set("rsm.benchmark.FailoverBenchmark")
+        systemProperties(System.getProperties().filterKeys { (it as String).startsWith("rsm.benchmark.") }.mapKeys { it.key as String })
+    }
+
+    register<JavaExec>("gatewayThroughputBenchmark") {
+        description = "Compares SET throughput of the HTTP and binary TCP gateways."
+        classpath = sourceSets.test.get().runtimeClasspath
+        mainClass.set("rsm.benchmark.GatewayThroughputBenchmark")
+        systemProperties(System.getProperties().filterKeys { (it as String).startsWith("rsm.benchmark.") }.mapKeys { it.key as String })
+    }
+
+    register<JavaExec>("durabilityBenchmark") {
+        description = "Reports SET throughput and latency percentiles of each durability mode on local disk."
+        classpath = sourceSets.test.get().runtimeClasspath
+        mainClass.set("rsm.benchmark.DurabilityBenchmark")
+        systemProperties(System.getProperties().filterKeys { (it as String).startsWith("rsm.benchmark.") }.mapKeys { it.key as String })
+    }
+
+    register<JavaExec>("coldStartBenchmark") {
+        description = "Reports time to ready and time to steady state latency of a freshly started cluster and client."
+        classpath = sourceSets.test.get().runtimeClasspath
+        mainClass.set("rsm.benchmark.ColdStartBenchmark")
+        systemProperties(System.getProperties().filterKeys { (it as String).startsWith("rsm.benchmark.") }.mapKeys { it.key as String })
+    }
+
+    register<JavaExec>("embeddedCluster") {
+        description = "Runs a localhost cluster in one JVM on a shared media driver, e.g. --args=\"5\" for 5 nodes."
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("rsm.node.EmbeddedClusterMain")
+    }
+
+    register<JavaExec>("logReplay") {
+        description = "Replays a node's recorded cluster log into a fresh service, e.g. --args=\"0\" for node 0 " +
+                "or --args=\"0 FSYNC rsm-data\" for a persistent node."
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("rsm.tools.LogReplayTool")
+    }
+
     register<ShadowJar>("rsmClient") {
         destinationDirectory.set(buildDir)
         archiveFileName.set("rsm-client.jar")
         manifest {
-            attributes["Main-Class"] = "rsm.client.ReplicationStateMachineMain"
+            attributes["Main-Class"] = "rsm.client.ReplicatedStateMachineClientMain"
         }
         from(sourceSets.main.get().output)
         from(project.configurations.implementation)
@@ -56,4 +98,44 @@ tasks {
         from(sourceSets.main.get().output)
         from(project.configurations.implementation)
     }
-}
\ No newline at end of file
+
+    register<ShadowJar>("rsmReadReplica") {
+        destinationDirectory.set(buildDir)
+        archiveFileName.set("rsm-read-replica.jar")
+        manifest {
+            attributes["Main-Class"] = "rsm.replica.ReadReplicaMain"
+        }
+        from(sourceSets.main.get().output)
+        from(project.configurations.implementation)
+    }
+
+    register<ShadowJar>("rsmCdcExporter") {
+        destinationDirectory.set(buildDir)
+        archiveFileName.set("rsm-cdc-exporter.jar")
+        manifest {
+            attributes["Main-Class"] = "rsm.cdc.CdcExporterMain"
+        }
+        from(sourceSets.main.get().output)
+        from(project.configurations.implementation)
+    }
+
+    register<JavaExec>("rsmNodeCds") {
+        description = "Creates the AppCDS archive rsm-node.jsa next to the rsmNode jar, run it with -XX:SharedArchiveFile."
+        val jar = named<ShadowJar>("rsmNode")
+        dependsOn(jar)
+        classpath = files(jar.flatMap { it.archiveFile })
+        mainClass.set("rsm.tools.ClassDataSharingTraining")
+        args("node")
+        jvmArgs("-XX:ArchiveClassesAtExit=$buildDir/rsm-node.jsa")
+    }
+
+    register<JavaExec>("rsmClientCds") {
+        description = "Creates the AppCDS archive rsm-client.jsa next to the rsmClient jar, for its client and HTTP gateway."
+        val jar = named<ShadowJar>("rsmClient")
+        dependsOn(jar)
+        classpath = files(jar.flatMap { it.archiveFile })
+        mainClass.set("rsm.tools.ClassDataSharingTraining")
+        args("client")
+        jvmArgs("-XX:ArchiveClassesAtExit=$buildDir/rsm-client.jsa")
+    }
+}
@@ -0,0 +1,73 @@
+package rsm.cdc;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The point up to which change-data-capture records are durable: the log position of the last exported entry and
+ * where the next record goes. It is replaced atomically after the segment it refers to has been forced to disk.
+ */
+public class CdcCheckpoint {
+
+    private final long logPosition;
+    private final long segmentIndex;
+    private final int segmentOffset;
+
+    public CdcCheckpoint(final long logPosition, final long segmentIndex, final int segmentOffset) {
+        this.logPosition = logPosition;
+        this.segmentIndex = segmentIndex;
+        this.segmentOffset = segmentOffset;
+    }
+
+    /**
+     * Reads the checkpoint of a directory.
+     *
+     * @param dir the segments are in.
+     * @return the checkpoint, or null if nothing has been checkpointed yet.
+     */
+    public static CdcCheckpoint read(final File dir) {
+        final File file = new File(dir, CdcSegments.CHECKPOINT_FILE_NAME);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+            return new CdcCheckpoint(in.readLong(), in.readLong(), in.readInt());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(final File dir) {
+        final File tmpFile = new File(dir, CdcSegments.CHECKPOINT_FILE_NAME + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmpFile.toPath()))) {
+                out.writeLong(logPosition);
+                out.writeLong(segmentIndex);
+                out.writeInt(segmentOffset);
+            }
+
+            Files.move(tmpFile.toPath(), new File(dir, CdcSegments.CHECKPOINT_FILE_NAME).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long logPosition() {
+        return logPosition;
+    }
+
+    public long segmentIndex() {
+        return segmentIndex;
+    }
+
+    public int segmentOffset() {
+        return segmentOffset;
+    }
+}
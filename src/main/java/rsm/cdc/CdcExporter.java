@@ -0,0 +1,361 @@
+package rsm.cdc;
+
+import io.aeron.Aeron;
+import io.aeron.ChannelUri;
+import io.aeron.FragmentAssembler;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.cluster.ConsensusModule;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
+import org.agrona.concurrent.status.CountersReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rsm.common.ClusterNodeConfig;
+import rsm.node.ClusterLogDecoder;
+import rsm.node.ClusterLogListener;
+import rsm.node.ClusterLogRecording;
+import rsm.node.MessageType;
+import rsm.node.ReplicatedStateMachine;
+import rsm.node.ReplicatedStateMachineClusteredService;
+import rsm.node.RequestApplier;
+import rsm.node.TransactionCodec;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static rsm.node.ReplicatedStateMachineClusteredService.MESSAGE_TYPE_POSITION;
+import static rsm.node.ReplicatedStateMachineClusteredService.VALUE_POSITION;
+
+/**
+ * Exports every committed write of a long value to change-data-capture segment files as
+ * {@code (log position, timestamp, key, value)} records, see {@link CdcSegments}.
+ * <p>
+ * The exporter runs on the host of a follower and attaches to that node's media driver. It replays the node's log
+ * recording from its local archive over IPC, bounded by the node's commit position counter, so only committed entries
+ * are exported and the leader and the consensus path do no extra work. Requests go through the same
+ * {@link RequestApplier} as the service, so only those it applied are exported. A SET is exported with the default key
+ * and a committed transaction as one record per write, all at the log position of the transaction. Each key that
+ * expires is exported as an {@link CdcSegments#EXPIRY_RECORD} at the log position of the request or timer event that
+ * expired it, ahead of the records of that request, so consumers delete keys exactly when the cluster does. Byte
+ * values are not exported, as records hold a long value: SET_BYTES requests are applied to keep the state and the
+ * deduplication table in step with the cluster's but produce no records.
+ * <p>
+ * The role of the node is checked on every poll. While the node is the leader the replay is closed and the export
+ * pauses, and when it is a follower again, or after the replay fails, the export resumes from the last log position
+ * applied, keeping the state built so far. The state is only rebuilt from the start of the log if that position is not
+ * in the node's latest log recording.
+ * <p>
+ * Records are checkpointed in batches. On restart the log is replayed from its start to rebuild the deduplication
+ * table, and records are only written again after the checkpointed log position. The rate limit must be configured as
+ * it is on the cluster nodes.
+ */
+public class CdcExporter implements ClusterLogListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CdcExporter.class);
+
+    public static final int REPLAY_STREAM_ID = 1301;
+    public static final int CHECKPOINT_RECORDS = 4096;
+    public static final long CHECKPOINT_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(100);
+    public static final long REPLAY_CONNECT_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(5);
+    private static final int FRAGMENT_LIMIT = 256;
+
+    private final int nodeId;
+    private final CdcSegmentWriter segmentWriter;
+    private final ExecutorService exporterExecutor = Executors.newSingleThreadExecutor();
+    private final IdleStrategy idleStrategy = new SleepingMillisIdleStrategy();
+    private final ClusterLogDecoder clusterLogDecoder = new ClusterLogDecoder(this, ClusterNodeConfig.CLUSTER_TIME_UNIT);
+    private RequestApplier requestApplier;
+    private Aeron aeron;
+    private AeronArchive archive;
+    private Subscription replaySubscription;
+    private FragmentAssembler fragmentAssembler;
+    private long replayStartNs;
+    private boolean isReplayConnected;
+    private boolean isPaused;
+    private int roleCounterId = CountersReader.NULL_COUNTER_ID;
+    private long recordingId = Aeron.NULL_VALUE;
+    private long appliedPosition = AeronArchive.NULL_POSITION;
+    private int uncheckpointedRecords;
+    private long lastExportedPosition;
+    private long lastCheckpointNs;
+    private long replayLogPosition;
+    private long replayTimestamp;
+    private boolean isReplayExported;
+    private volatile boolean running;
+    private volatile long exportedPosition;
+
+    /**
+     * @param nodeId        of the node, on the same host, whose log is exported while it is a follower.
+     * @param outputDir     to write the segments and checkpoint to.
+     * @param segmentLength of each segment file.
+     */
+    public CdcExporter(final int nodeId, final File outputDir, final int segmentLength) {
+        this.nodeId = nodeId;
+        this.segmentWriter = new CdcSegmentWriter(outputDir, segmentLength);
+        this.lastExportedPosition = segmentWriter.checkpointPosition();
+        this.exportedPosition = lastExportedPosition;
+    }
+
+    public void start() {
+        aeron = Aeron.connect(new Aeron.Context()
+                .aeronDirectoryName(ClusterNodeConfig.shmDirForName("rsm-cluster-node-" + nodeId)));
+
+        running = true;
+        exporterExecutor.execute(this::export);
+        log.info("Exporting committed log of node {} from position {}", nodeId, exportedPosition);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        exporterExecutor.shutdown();
+        try {
+            exporterExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        closeReplay();
+        segmentWriter.close();
+        CloseHelper.close(aeron);
+    }
+
+    /**
+     * Gets the log position up to which records have been exported and checkpointed.
+     *
+     * @return the durable export position.
+     */
+    public long getExportedPosition() {
+        return exportedPosition;
+    }
+
+    private void export() {
+        while (running) {
+            try {
+                if (isLeader()) {
+                    pause();
+                    continue;
+                }
+
+                if (replaySubscription == null) {
+                    startReplay();
+                }
+
+                final int fragments = replaySubscription.poll(fragmentAssembler, FRAGMENT_LIMIT);
+                if (replaySubscription.imageCount() > 0) {
+                    isReplayConnected = true;
+                } else if (isReplayConnected) {
+                    throw new IllegalStateException("Replay of node " + nodeId + " ended");
+                } else if (System.nanoTime() - replayStartNs > REPLAY_CONNECT_TIMEOUT_NS) {
+                    throw new IllegalStateException("Replay of node " + nodeId + " did not connect");
+                }
+
+                maybeCheckpoint(fragments == 0);
+                idleStrategy.idle(fragments);
+            } catch (final Exception ex) {
+                log.warn("CDC export of node {} failed, resuming from position {}", nodeId, appliedPosition, ex);
+                closeReplay();
+                sleepBeforeRetry();
+            }
+        }
+
+        maybeCheckpoint(true);
+    }
+
+    /**
+     * Gets whether the node is the leader, whose log is not exported so the export adds no work to the consensus path.
+     */
+    private boolean isLeader() {
+        final CountersReader countersReader = aeron.countersReader();
+        if (roleCounterId == CountersReader.NULL_COUNTER_ID) {
+            roleCounterId = findCounterId(countersReader, ConsensusModule.Configuration.CLUSTER_NODE_ROLE_TYPE_ID);
+            if (roleCounterId == CountersReader.NULL_COUNTER_ID) {
+                return false;
+            }
+        }
+
+        return countersReader.getCounterValue(roleCounterId) == Cluster.Role.LEADER.code();
+    }
+
+    private void pause() {
+        if (!isPaused) {
+            log.info("Node {} is the leader, pausing CDC export at position {}", nodeId, appliedPosition);
+            isPaused = true;
+            maybeCheckpoint(true);
+            closeReplay();
+        }
+
+        sleepBeforeRetry();
+    }
+
+    private void startReplay() {
+        archive = AeronArchive.connect(new AeronArchive.Context()
+                .aeron(aeron)
+                .controlRequestChannel(AeronArchive.Configuration.localControlChannel())
+                .controlRequestStreamId(AeronArchive.Configuration.localControlStreamId())
+                .controlResponseChannel("aeron:ipc"));
+
+        final ClusterLogRecording recording = ClusterLogRecording.findLatest(archive);
+        if (recording == null) {
+            throw new IllegalStateException("No cluster log recording in the archive of node " + nodeId);
+        }
+
+        final int commitPositionCounterId = findCounterId(
+                aeron.countersReader(), ConsensusModule.Configuration.COMMIT_POSITION_TYPE_ID);
+        if (commitPositionCounterId == CountersReader.NULL_COUNTER_ID) {
+            throw new IllegalStateException("No commit position counter on node " + nodeId);
+        }
+
+        final long recordingPosition = currentRecordingPosition(recording.recordingId());
+        if (recording.recordingId() != recordingId ||
+                appliedPosition < recording.startPosition() ||
+                appliedPosition > recordingPosition) {
+            log.info("Building the state of node {} from position {} of log recording {}",
+                    nodeId, recording.startPosition(), recording.recordingId());
+            requestApplier = RequestApplier.forCluster(ReplicatedStateMachineClusteredService.DEFAULT_DEDUPLICATION_TABLE_CAPACITY);
+            requestApplier.replicatedStateMachine().expiryListener(this::onExpiry);
+            recordingId = recording.recordingId();
+            appliedPosition = recording.startPosition();
+        }
+
+        final long replaySessionId = archive.startBoundedReplay(
+                recordingId,
+                appliedPosition,
+                AeronArchive.NULL_LENGTH,
+                commitPositionCounterId,
+                "aeron:ipc",
+                REPLAY_STREAM_ID);
+        replaySubscription = aeron.addSubscription(
+                ChannelUri.addSessionId("aeron:ipc", (int) replaySessionId), REPLAY_STREAM_ID);
+        fragmentAssembler = new FragmentAssembler(clusterLogDecoder);
+        replayStartNs = System.nanoTime();
+        isReplayConnected = false;
+
+        if (isPaused) {
+            log.info("Node {} is a follower, resuming CDC export from position {}", nodeId, appliedPosition);
+            isPaused = false;
+        }
+    }
+
+    private long currentRecordingPosition(final long recordingId) {
+        final long recordingPosition = archive.getRecordingPosition(recordingId);
+        return recordingPosition != AeronArchive.NULL_POSITION ? recordingPosition : archive.getStopPosition(recordingId);
+    }
+
+    private void maybeCheckpoint(final boolean isIdle) {
+        if (uncheckpointedRecords == 0) {
+            return;
+        }
+
+        final long nowNs = System.nanoTime();
+        if (isIdle || uncheckpointedRecords >= CHECKPOINT_RECORDS || nowNs - lastCheckpointNs >= CHECKPOINT_INTERVAL_NS) {
+            segmentWriter.checkpoint(lastExportedPosition);
+            exportedPosition = lastExportedPosition;
+            uncheckpointedRecords = 0;
+            lastCheckpointNs = nowNs;
+        }
+    }
+
+    @Override
+    public void onSessionMessage(final long logPosition,
+                                 final long clusterSessionId,
+                                 final long timestamp,
+                                 final DirectBuffer buffer,
+                                 final int offset,
+                                 final int length,
+                                 final Header header) {
+        onReplayPosition(logPosition, timestamp);
+        final int result = requestApplier.apply(
+                clusterSessionId, clusterLogDecoder.timeUnit().toNanos(timestamp), buffer, offset, length);
+        appliedPosition = logPosition;
+        if (result != RequestApplier.APPLIED || !isReplayExported) {
+            return;
+        }
+
+        final MessageType messageType = MessageType.fromCode(buffer.getChar(offset + MESSAGE_TYPE_POSITION));
+        if (messageType == MessageType.SET) {
+            append(
+                    logPosition,
+                    timestamp,
+                    CdcSegments.WRITE_RECORD,
+                    ReplicatedStateMachine.DEFAULT_KEY,
+                    buffer.getLong(offset + VALUE_POSITION));
+        } else if (messageType == MessageType.TRANSACTION) {
+            final int preconditionCount = TransactionCodec.preconditionCount(buffer, offset);
+            final int writeCount = TransactionCodec.writeCount(buffer, offset);
+            for (int i = 0; i < writeCount; i++) {
+                final int writeOffset = TransactionCodec.writeOffset(offset, preconditionCount, i);
+                append(
+                        logPosition,
+                        timestamp,
+                        CdcSegments.WRITE_RECORD,
+                        buffer.getLong(writeOffset + TransactionCodec.WRITE_KEY_OFFSET),
+                        buffer.getLong(writeOffset + TransactionCodec.WRITE_VALUE_OFFSET));
+            }
+        }
+    }
+
+    /**
+     * Expires keys so the state follows the cluster's, exporting each expired key.
+     */
+    @Override
+    public void onTimerEvent(final long logPosition, final long correlationId, final long timestamp) {
+        onReplayPosition(logPosition, timestamp);
+        requestApplier.onTimerEvent(clusterLogDecoder.timeUnit().toNanos(timestamp));
+        appliedPosition = logPosition;
+    }
+
+    /**
+     * Notes the log entry being applied, which is only exported if it is after the checkpointed log position. Decided
+     * once per entry, as the records of an entry advance the last exported position to its own.
+     */
+    private void onReplayPosition(final long logPosition, final long timestamp) {
+        replayLogPosition = logPosition;
+        replayTimestamp = timestamp;
+        isReplayExported = logPosition > lastExportedPosition;
+    }
+
+    private void onExpiry(final long key) {
+        if (isReplayExported) {
+            append(replayLogPosition, replayTimestamp, CdcSegments.EXPIRY_RECORD, key, 0L);
+        }
+    }
+
+    private void append(final long logPosition, final long timestamp, final int type, final long key, final long value) {
+        segmentWriter.append(logPosition, timestamp, type, key, value);
+        lastExportedPosition = logPosition;
+        uncheckpointedRecords++;
+    }
+
+    private void closeReplay() {
+        CloseHelper.quietCloseAll(replaySubscription, archive);
+        replaySubscription = null;
+        archive = null;
+    }
+
+    private void sleepBeforeRetry() {
+        try {
+            Thread.sleep(1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int findCounterId(final CountersReader countersReader, final int typeId) {
+        final int[] counterId = {CountersReader.NULL_COUNTER_ID};
+        countersReader.forEach((id, counterTypeId, keyBuffer, label) -> {
+            if (counterTypeId == typeId) {
+                counterId[0] = id;
+            }
+        });
+
+        return counterId[0];
+    }
+}
@@ -0,0 +1,26 @@
+package rsm.cdc;
+
+import org.agrona.concurrent.SigInt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+public class CdcExporterMain {
+
+    private static final Logger log = LoggerFactory.getLogger(CdcExporterMain.class);
+
+    public static void main(String[] args) {
+        final int nodeId = Integer.parseInt(args[0]);
+        final File outputDir = new File(args[1]);
+        final int segmentLength = args.length > 2 ? Integer.parseInt(args[2]) : CdcSegments.DEFAULT_SEGMENT_LENGTH;
+
+        final CdcExporter cdcExporter = new CdcExporter(nodeId, outputDir, segmentLength);
+
+        log.info("Starting CDC export of node {} to {}", nodeId, outputDir);
+
+        cdcExporter.start();
+
+        SigInt.register(cdcExporter::close);
+    }
+}
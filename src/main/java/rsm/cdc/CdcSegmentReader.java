@@ -0,0 +1,89 @@
+package rsm.cdc;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+import static rsm.cdc.CdcSegments.*;
+
+/**
+ * Reads change-data-capture records in order from the segments of a directory, following the writer as it appends.
+ * Records past the last checkpoint may be discarded if the writer restarts, so consumers that need durable records
+ * should not read beyond {@link CdcCheckpoint#logPosition()}.
+ */
+public class CdcSegmentReader implements AutoCloseable {
+
+    private final File dir;
+    private final UnsafeBuffer buffer = new UnsafeBuffer(0, 0);
+    private MappedByteBuffer mappedSegment;
+    private long segmentIndex;
+    private int segmentOffset;
+
+    public CdcSegmentReader(final File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Reads the records appended since the last poll.
+     *
+     * @param handler to pass the records to.
+     * @param limit   on the number of records read.
+     * @return the number of records read.
+     */
+    public int poll(final RecordHandler handler, final int limit) {
+        int records = 0;
+        while (records < limit) {
+            if (mappedSegment == null || segmentOffset + RECORD_LENGTH > buffer.capacity()) {
+                if (!mapNextSegment()) {
+                    break;
+                }
+            }
+
+            final long logPosition = buffer.getLongVolatile(segmentOffset + LOG_POSITION_OFFSET);
+            if (logPosition == 0L) {
+                break;
+            }
+
+            handler.onRecord(
+                    logPosition,
+                    buffer.getLong(segmentOffset + TIMESTAMP_OFFSET),
+                    buffer.getInt(segmentOffset + TYPE_OFFSET),
+                    buffer.getLong(segmentOffset + KEY_OFFSET),
+                    buffer.getLong(segmentOffset + VALUE_OFFSET));
+            segmentOffset += RECORD_LENGTH;
+            records++;
+        }
+
+        return records;
+    }
+
+    @Override
+    public void close() {
+        if (mappedSegment != null) {
+            IoUtil.unmap(mappedSegment);
+            mappedSegment = null;
+        }
+    }
+
+    private boolean mapNextSegment() {
+        final long nextIndex = mappedSegment == null ? segmentIndex : segmentIndex + 1;
+        final File file = segmentFile(dir, nextIndex);
+        if (!file.exists()) {
+            return false;
+        }
+
+        close();
+        mappedSegment = IoUtil.mapExistingFile(file, "cdc segment");
+        buffer.wrap(mappedSegment);
+        segmentIndex = nextIndex;
+        segmentOffset = 0;
+        return true;
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void onRecord(long logPosition, long timestamp, int type, long key, long value);
+    }
+}
@@ -0,0 +1,103 @@
+package rsm.cdc;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+import static rsm.cdc.CdcSegments.*;
+
+/**
+ * Appends change-data-capture records to memory-mapped segment files, rolling to a new segment when one is full.
+ * Records become durable in batches: {@link #checkpoint(long)} forces the current segment to disk and then records
+ * the checkpoint, so a restarted writer resumes exactly after the last checkpointed record.
+ */
+public class CdcSegmentWriter implements AutoCloseable {
+
+    private final File dir;
+    private final int segmentLength;
+    private final UnsafeBuffer buffer = new UnsafeBuffer(0, 0);
+    private MappedByteBuffer mappedSegment;
+    private long segmentIndex;
+    private int segmentOffset;
+    private long checkpointPosition;
+
+    /**
+     * Opens the segments of a directory, discarding any record written after the last checkpoint.
+     *
+     * @param dir           to write the segments to, created if missing.
+     * @param segmentLength of each segment, rounded down to a whole number of records.
+     */
+    public CdcSegmentWriter(final File dir, final int segmentLength) {
+        this.dir = dir;
+        this.segmentLength = segmentLength - (segmentLength % RECORD_LENGTH);
+        IoUtil.ensureDirectoryExists(dir, "cdc");
+
+        final CdcCheckpoint checkpoint = CdcCheckpoint.read(dir);
+        if (checkpoint == null) {
+            mapSegment(0L);
+        } else {
+            mapSegment(checkpoint.segmentIndex());
+            segmentOffset = checkpoint.segmentOffset();
+            checkpointPosition = checkpoint.logPosition();
+            buffer.setMemory(segmentOffset, this.segmentLength - segmentOffset, (byte) 0);
+            for (long i = segmentIndex + 1; segmentFile(dir, i).exists(); i++) {
+                IoUtil.delete(segmentFile(dir, i), false);
+            }
+        }
+    }
+
+    /**
+     * Gets the log position of the last checkpointed record, from which the log must be exported on restart.
+     *
+     * @return the checkpointed log position, or 0 if nothing has been checkpointed.
+     */
+    public long checkpointPosition() {
+        return checkpointPosition;
+    }
+
+    public void append(final long logPosition, final long timestamp, final int type, final long key, final long value) {
+        if (segmentOffset + RECORD_LENGTH > segmentLength) {
+            mappedSegment.force();
+            IoUtil.unmap(mappedSegment);
+            mapSegment(segmentIndex + 1);
+            segmentOffset = 0;
+        }
+
+        buffer.putLong(segmentOffset + TIMESTAMP_OFFSET, timestamp);
+        buffer.putLong(segmentOffset + KEY_OFFSET, key);
+        buffer.putLong(segmentOffset + VALUE_OFFSET, value);
+        buffer.putInt(segmentOffset + TYPE_OFFSET, type);
+        buffer.putLongOrdered(segmentOffset + LOG_POSITION_OFFSET, logPosition);
+        segmentOffset += RECORD_LENGTH;
+    }
+
+    /**
+     * Makes the records appended so far durable.
+     *
+     * @param logPosition the log has been exported up to.
+     */
+    public void checkpoint(final long logPosition) {
+        mappedSegment.force();
+        new CdcCheckpoint(logPosition, segmentIndex, segmentOffset).write(dir);
+        checkpointPosition = logPosition;
+    }
+
+    @Override
+    public void close() {
+        if (mappedSegment != null) {
+            IoUtil.unmap(mappedSegment);
+            mappedSegment = null;
+        }
+    }
+
+    private void mapSegment(final long segmentIndex) {
+        final File file = segmentFile(dir, segmentIndex);
+        mappedSegment = file.exists() ?
+                IoUtil.mapExistingFile(file, "cdc segment") :
+                IoUtil.mapNewFile(file, segmentLength);
+        buffer.wrap(mappedSegment);
+        this.segmentIndex = segmentIndex;
+    }
+}
@@ -0,0 +1,38 @@
+package rsm.cdc;
+
+import org.agrona.BitUtil;
+
+import java.io.File;
+
+/**
+ * Layout of the change-data-capture segment files written by {@link CdcSegmentWriter}.
+ * <p>
+ * Segments are fixed length files named by their zero-padded index, holding fixed length records of
+ * {@code [long logPosition][long timestamp][long key][long value][int type][int reserved]} in little-endian order. A
+ * {@link #WRITE_RECORD} sets the key to the value, an {@link #EXPIRY_RECORD} deletes the key, which expired at that
+ * log position, and has a zero value. The log position of a record is written last with ordered semantics, so a reader
+ * tailing a segment treats a zero log position as the end of the exported records.
+ */
+public final class CdcSegments {
+
+    public static final int LOG_POSITION_OFFSET = 0;
+    public static final int TIMESTAMP_OFFSET = BitUtil.SIZE_OF_LONG;
+    public static final int KEY_OFFSET = BitUtil.SIZE_OF_LONG * 2;
+    public static final int VALUE_OFFSET = BitUtil.SIZE_OF_LONG * 3;
+    public static final int TYPE_OFFSET = BitUtil.SIZE_OF_LONG * 4;
+    public static final int RECORD_LENGTH = BitUtil.SIZE_OF_LONG * 5;
+
+    public static final int WRITE_RECORD = 0;
+    public static final int EXPIRY_RECORD = 1;
+
+    public static final int DEFAULT_SEGMENT_LENGTH = 64 * 1024 * 1024;
+    public static final String SEGMENT_SUFFIX = ".cdc";
+    public static final String CHECKPOINT_FILE_NAME = "checkpoint";
+
+    private CdcSegments() {
+    }
+
+    public static File segmentFile(final File dir, final long segmentIndex) {
+        return new File(dir, String.format("%020d%s", segmentIndex, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,61 @@
+package rsm.client;
+
+/**
+ * Thrown when a request cannot be admitted or offered to the cluster within the limits of the {@link ClientConfig}.
+ * <p>
+ * Whether the cluster applied the request depends on the {@link Reason}. A request refused with
+ * {@link Reason#IN_FLIGHT_LIMIT} was never sent and one answered with {@link Reason#RATE_LIMITED} was ignored by the
+ * cluster, so neither was applied and both can be retried once load subsides. A request is registered as pending
+ * before it is offered, so while the offer is retried a new leader can have the client resubmit it; after the other
+ * reasons it may therefore have been applied, and retrying it as a new request may apply it twice unless the write is
+ * idempotent. See {@link #mayHaveBeenApplied()}.
+ */
+public class BackPressureException extends RuntimeException {
+
+    public enum Reason {
+        /**
+         * The client already has {@link ClientConfig#maxInFlightRequests()} requests outstanding.
+         */
+        IN_FLIGHT_LIMIT,
+
+        /**
+         * The ingress publication to the leader is back pressured.
+         */
+        BACK_PRESSURED,
+
+        /**
+         * The session has no connected ingress publication, usually while a new leader is being elected.
+         */
+        NOT_CONNECTED,
+
+        /**
+         * The session was closed and is being replaced.
+         */
+        CLOSED,
+
+        /**
+         * The cluster rejected the request because the session exceeded its rate limit.
+         */
+        RATE_LIMITED
+    }
+
+    private final Reason reason;
+
+    public BackPressureException(final Reason reason, final String message) {
+        super(message, null, false, false);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Gets whether the request may have been applied by the cluster despite the exception.
+     *
+     * @return false if the request was certainly not applied, true if it may have been.
+     */
+    public boolean mayHaveBeenApplied() {
+        return reason != Reason.IN_FLIGHT_LIMIT && reason != Reason.RATE_LIMITED;
+    }
+}
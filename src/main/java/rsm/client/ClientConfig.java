@@ -0,0 +1,229 @@
+package rsm.client;
+
+import rsm.node.DeduplicationTable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tunable behaviour of a {@link ReplicatedStateMachineClient}. Defaults match the behaviour of a client constructed
+ * without a configuration.
+ */
+public class ClientConfig
+{
+    public static final long DEFAULT_MESSAGE_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(30);
+    public static final long DEFAULT_FAST_RECONNECT_MESSAGE_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(2);
+    public static final long DEFAULT_NOT_CONNECTED_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(1);
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 1024;
+    public static final long DEFAULT_ADMISSION_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(30);
+    public static final int DEFAULT_EGRESS_PORT = 19001;
+
+    /**
+     * How a request is admitted when the in-flight window is full or the cluster pushes back.
+     */
+    public enum AdmissionPolicy
+    {
+        /**
+         * Throw a {@link BackPressureException} as soon as the window is full or an offer is back pressured.
+         */
+        FAIL_FAST,
+
+        /**
+         * Wait up to {@link #admissionTimeoutNs()} for room in the window and for the offer to succeed.
+         */
+        BOUNDED_WAIT
+    }
+
+    private boolean fastReconnect = false;
+    private long messageTimeoutNs = DEFAULT_MESSAGE_TIMEOUT_NS;
+    private long notConnectedTimeoutNs = DEFAULT_NOT_CONNECTED_TIMEOUT_NS;
+    private boolean tracing = false;
+    private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+    private AdmissionPolicy admissionPolicy = AdmissionPolicy.BOUNDED_WAIT;
+    private long admissionTimeoutNs = DEFAULT_ADMISSION_TIMEOUT_NS;
+    private int egressPort = DEFAULT_EGRESS_PORT;
+    private String aeronDirectoryName = null;
+
+    /**
+     * Creates a configuration for the fast-reconnect mode with its default timeouts.
+     *
+     * @return a fast-reconnect configuration.
+     */
+    public static ClientConfig fastReconnectConfig()
+    {
+        return new ClientConfig()
+                .fastReconnect(true)
+                .messageTimeoutNs(DEFAULT_FAST_RECONNECT_MESSAGE_TIMEOUT_NS);
+    }
+
+    /**
+     * Creates a copy of this configuration, such as a template for each session of a pool.
+     *
+     * @return a new configuration with the same settings.
+     */
+    public ClientConfig copy()
+    {
+        return new ClientConfig()
+                .fastReconnect(fastReconnect)
+                .messageTimeoutNs(messageTimeoutNs)
+                .notConnectedTimeoutNs(notConnectedTimeoutNs)
+                .tracing(tracing)
+                .maxInFlightRequests(maxInFlightRequests)
+                .admissionPolicy(admissionPolicy)
+                .admissionTimeoutNs(admissionTimeoutNs)
+                .egressPort(egressPort)
+                .aeronDirectoryName(aeronDirectoryName);
+    }
+
+    /**
+     * Whether the client reacts to leader changes and session events as soon as they are received. Pending requests
+     * are then resubmitted to the new leader immediately, and a session whose ingress stays disconnected for longer
+     * than {@link #notConnectedTimeoutNs()} is replaced instead of waiting for {@link #messageTimeoutNs()} to elapse.
+     *
+     * @return true if fast reconnect is enabled.
+     */
+    public boolean fastReconnect()
+    {
+        return fastReconnect;
+    }
+
+    public ClientConfig fastReconnect(final boolean fastReconnect)
+    {
+        this.fastReconnect = fastReconnect;
+        return this;
+    }
+
+    /**
+     * Timeout for the cluster to respond while connecting a session.
+     *
+     * @return the message timeout in nanoseconds.
+     * @see io.aeron.cluster.client.AeronCluster.Context#messageTimeoutNs()
+     */
+    public long messageTimeoutNs()
+    {
+        return messageTimeoutNs;
+    }
+
+    public ClientConfig messageTimeoutNs(final long messageTimeoutNs)
+    {
+        this.messageTimeoutNs = messageTimeoutNs;
+        return this;
+    }
+
+    /**
+     * How long offers may keep failing with {@code NOT_CONNECTED} before a fast-reconnect client replaces its session.
+     *
+     * @return the not connected timeout in nanoseconds.
+     */
+    public long notConnectedTimeoutNs()
+    {
+        return notConnectedTimeoutNs;
+    }
+
+    public ClientConfig notConnectedTimeoutNs(final long notConnectedTimeoutNs)
+    {
+        this.notConnectedTimeoutNs = notConnectedTimeoutNs;
+        return this;
+    }
+
+    /**
+     * Whether requests are stamped with their send time so responses report the per-hop latencies recorded in
+     * {@link ReplicatedStateMachineClient#getTraceHistograms()}.
+     *
+     * @return true if tracing is enabled.
+     */
+    public boolean tracing()
+    {
+        return tracing;
+    }
+
+    public ClientConfig tracing(final boolean tracing)
+    {
+        this.tracing = tracing;
+        return this;
+    }
+
+    /**
+     * Maximum number of requests the client has outstanding with the cluster at any time, at most
+     * {@link DeduplicationTable#WINDOW}.
+     *
+     * @return the size of the in-flight window.
+     */
+    public int maxInFlightRequests()
+    {
+        return maxInFlightRequests;
+    }
+
+    public ClientConfig maxInFlightRequests(final int maxInFlightRequests)
+    {
+        if (maxInFlightRequests > DeduplicationTable.WINDOW)
+        {
+            throw new IllegalArgumentException("Max in flight requests must be at most the cluster's deduplication " +
+                    "window of " + DeduplicationTable.WINDOW + ": " + maxInFlightRequests);
+        }
+
+        this.maxInFlightRequests = maxInFlightRequests;
+        return this;
+    }
+
+    public AdmissionPolicy admissionPolicy()
+    {
+        return admissionPolicy;
+    }
+
+    public ClientConfig admissionPolicy(final AdmissionPolicy admissionPolicy)
+    {
+        this.admissionPolicy = admissionPolicy;
+        return this;
+    }
+
+    /**
+     * How long a request may wait for admission and for its offer to succeed before a {@link BackPressureException}
+     * is thrown. Offers that are not connected or closed are retried for this long under both policies.
+     *
+     * @return the admission timeout in nanoseconds.
+     */
+    public long admissionTimeoutNs()
+    {
+        return admissionTimeoutNs;
+    }
+
+    public ClientConfig admissionTimeoutNs(final long admissionTimeoutNs)
+    {
+        this.admissionTimeoutNs = admissionTimeoutNs;
+        return this;
+    }
+
+    /**
+     * UDP port on the client host the cluster sends responses to. Clients running on the same host need distinct
+     * ports.
+     *
+     * @return the egress port.
+     */
+    public int egressPort()
+    {
+        return egressPort;
+    }
+
+    public ClientConfig egressPort(final int egressPort)
+    {
+        this.egressPort = egressPort;
+        return this;
+    }
+
+    /**
+     * Directory of an already running media driver to connect through. When null, the client launches and owns an
+     * embedded media driver of its own.
+     *
+     * @return the Aeron directory name, or null if the client launches its own media driver.
+     */
+    public String aeronDirectoryName()
+    {
+        return aeronDirectoryName;
+    }
+
+    public ClientConfig aeronDirectoryName(final String aeronDirectoryName)
+    {
+        this.aeronDirectoryName = aeronDirectoryName;
+        return this;
+    }
+}
@@ -0,0 +1,107 @@
+package rsm.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the outcomes of admitting and offering requests in a {@link ReplicatedStateMachineClient}.
+ */
+public class ClientCounters {
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong backPressured = new AtomicLong();
+    private final AtomicLong adminAction = new AtomicLong();
+    private final AtomicLong notConnected = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    void onAdmitted() {
+        admitted.incrementAndGet();
+    }
+
+    void onRejected() {
+        rejected.incrementAndGet();
+    }
+
+    void onBackPressured() {
+        backPressured.incrementAndGet();
+    }
+
+    void onAdminAction() {
+        adminAction.incrementAndGet();
+    }
+
+    void onNotConnected() {
+        notConnected.incrementAndGet();
+    }
+
+    void onClosed() {
+        closed.incrementAndGet();
+    }
+
+    void onTimedOut() {
+        timedOut.incrementAndGet();
+    }
+
+    void onRateLimited() {
+        rateLimited.incrementAndGet();
+    }
+
+    /**
+     * @return requests admitted into the in-flight window.
+     */
+    public long admitted() {
+        return admitted.get();
+    }
+
+    /**
+     * @return requests rejected because the in-flight window stayed full.
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return offers that failed with {@link io.aeron.Publication#BACK_PRESSURED}.
+     */
+    public long backPressured() {
+        return backPressured.get();
+    }
+
+    /**
+     * @return offers that failed with {@link io.aeron.Publication#ADMIN_ACTION}.
+     */
+    public long adminAction() {
+        return adminAction.get();
+    }
+
+    /**
+     * @return offers that failed with {@link io.aeron.Publication#NOT_CONNECTED}.
+     */
+    public long notConnected() {
+        return notConnected.get();
+    }
+
+    /**
+     * @return offers that failed with {@link io.aeron.Publication#CLOSED} or
+     * {@link io.aeron.Publication#MAX_POSITION_EXCEEDED}.
+     */
+    public long closed() {
+        return closed.get();
+    }
+
+    /**
+     * @return requests abandoned because they could not be offered within the admission timeout.
+     */
+    public long timedOut() {
+        return timedOut.get();
+    }
+
+    /**
+     * @return requests the cluster rejected because the session exceeded its rate limit.
+     */
+    public long rateLimited() {
+        return rateLimited.get();
+    }
+}
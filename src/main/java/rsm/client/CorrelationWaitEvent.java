@@ -0,0 +1,46 @@
+package rsm.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a synchronous request that waited at least the threshold for its response.
+ * <p>
+ * Registered eagerly so that {@link #isRecorded()} reflects the recordings in progress before any instance exists,
+ * which lets callers skip creating one on every request.
+ */
+@Name("rsm.client.CorrelationWait")
+@Label("Correlation Wait")
+@Category({"Replicated State Machine", "Client"})
+@Description("Time a synchronous request waited for the response with its correlation ID")
+@StackTrace(false)
+@Threshold("10 ms")
+final class CorrelationWaitEvent extends Event {
+
+    private static final EventType EVENT_TYPE;
+
+    static {
+        FlightRecorder.register(CorrelationWaitEvent.class);
+        EVENT_TYPE = EventType.getEventType(CorrelationWaitEvent.class);
+    }
+
+    @Label("Client ID")
+    long clientId;
+
+    @Label("Correlation ID")
+    long correlationId;
+
+    @Label("Replying Node ID")
+    int nodeId;
+
+    static boolean isRecorded() {
+        return EVENT_TYPE.isEnabled();
+    }
+}
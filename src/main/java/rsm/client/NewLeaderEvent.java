@@ -0,0 +1,51 @@
+package rsm.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a client's session being directed to a newly elected leader, after which the requests
+ * still awaiting a response are resubmitted.
+ * <p>
+ * Registered when the class is loaded so {@link #isRecorded()} holds before the first leader change, when the client
+ * would otherwise have to create an instance to find out.
+ */
+@Name("rsm.client.NewLeader")
+@Label("New Leader")
+@Category({"Replicated State Machine", "Client"})
+@Description("Client session directed to a new leader")
+@StackTrace(false)
+final class NewLeaderEvent extends Event {
+
+    private static final EventType EVENT_TYPE;
+
+    static {
+        FlightRecorder.register(NewLeaderEvent.class);
+        EVENT_TYPE = EventType.getEventType(NewLeaderEvent.class);
+    }
+
+    @Label("Client ID")
+    long clientId;
+
+    @Label("Cluster Session ID")
+    long clusterSessionId;
+
+    @Label("Leadership Term ID")
+    long leadershipTermId;
+
+    @Label("Leader Member ID")
+    int leaderMemberId;
+
+    @Label("Pending Requests")
+    int pendingRequests;
+
+    static boolean isRecorded() {
+        return EVENT_TYPE.isEnabled();
+    }
+}
@@ -0,0 +1,49 @@
+package rsm.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning the retries of a request the cluster did not accept on the first offer, from the
+ * first failed offer until the request was offered or given up on.
+ * <p>
+ * Registered when the class is loaded; the client only creates one once an offer fails and {@link #isRecorded()}.
+ */
+@Name("rsm.client.OfferBackPressure")
+@Label("Offer Back Pressure")
+@Category({"Replicated State Machine", "Client"})
+@Description("Retries of a request that could not be offered to the cluster straight away")
+@StackTrace(false)
+final class OfferBackPressureEvent extends Event {
+
+    private static final EventType EVENT_TYPE;
+
+    static {
+        FlightRecorder.register(OfferBackPressureEvent.class);
+        EVENT_TYPE = EventType.getEventType(OfferBackPressureEvent.class);
+    }
+
+    @Label("Client ID")
+    long clientId;
+
+    @Label("Last Offer Result")
+    @Description("Result of the last failed offer: -1 not connected, -2 back pressured, -3 admin action, -4 closed, " +
+            "-5 max position exceeded")
+    long lastOfferResult;
+
+    @Label("Failed Offers")
+    int failedOffers;
+
+    @Label("Offered")
+    boolean offered;
+
+    static boolean isRecorded() {
+        return EVENT_TYPE.isEnabled();
+    }
+}
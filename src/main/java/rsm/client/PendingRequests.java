@@ -0,0 +1,264 @@
+package rsm.client;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+
+/**
+ * Requests that have been sent to the cluster but not yet consumed by the caller, held in a ring of reusable slots
+ * indexed by request ID. The encoded request is kept until the response arrives so it can be resubmitted after a
+ * leader change or a reconnect. At most {@code maxInFlight} slots are claimed at any time.
+ * <p>
+ * Request IDs handed out by {@link #tryClaimNext(ResponseListener, long)} are only taken by a successful claim, so
+ * every request ID below the newest one minus the capacity of the ring has been released by its caller. This is what
+ * bounds the window of request IDs the cluster has to track per client.
+ */
+public class PendingRequests {
+
+    public static final long NULL_REQUEST_ID = -1L;
+
+    private static final byte FREE = 0;
+    private static final byte PENDING = 1;
+    private static final byte COMPLETED = 2;
+
+    private final int mask;
+    private final int maxInFlight;
+    private final long[] requestIds;
+    private final byte[] states;
+    private final long[] responseValues;
+    private final int[] responseNodeIds;
+    private final int[] responseStatuses;
+    private final MutableDirectBuffer[] responseBytes;
+    private final int[] responseBytesLengths;
+    private final MutableDirectBuffer[] encodedRequests;
+    private final int[] encodedLengths;
+    private final ResponseListener[] listeners;
+    private final long[] contexts;
+    private long highestRequestId = NULL_REQUEST_ID;
+    private long nextRequestId = 1L;
+    private int pendingCount;
+    private int inFlightCount;
+
+    public PendingRequests(final int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in flight must be positive: " + maxInFlight);
+        }
+
+        final int capacity = BitUtil.findNextPositivePowerOfTwo(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.mask = capacity - 1;
+        this.requestIds = new long[capacity];
+        this.states = new byte[capacity];
+        this.responseValues = new long[capacity];
+        this.responseNodeIds = new int[capacity];
+        this.responseStatuses = new int[capacity];
+        this.responseBytes = new MutableDirectBuffer[capacity];
+        this.responseBytesLengths = new int[capacity];
+        this.encodedRequests = new MutableDirectBuffer[capacity];
+        this.encodedLengths = new int[capacity];
+        this.listeners = new ResponseListener[capacity];
+        this.contexts = new long[capacity];
+
+        for (int i = 0; i < capacity; i++) {
+            requestIds[i] = NULL_REQUEST_ID;
+            encodedRequests[i] = new ExpandableArrayBuffer(64);
+        }
+    }
+
+    /**
+     * Claims the slot for the next request ID in sequence. The ID is only taken if the slot is claimed, so IDs are
+     * assigned without gaps in the order they were claimed.
+     *
+     * @param listener to notify of the response, or null if the caller waits for it.
+     * @param context  to pass to the listener.
+     * @return the request ID, whose buffer is {@link #encodedRequest(long)}, or {@link #NULL_REQUEST_ID} if the window
+     * is full or the slot is still held by an earlier request.
+     */
+    public synchronized long tryClaimNext(final ResponseListener listener, final long context) {
+        final long requestId = nextRequestId;
+        final int index = index(requestId);
+        if (inFlightCount >= maxInFlight || states[index] != FREE) {
+            return NULL_REQUEST_ID;
+        }
+
+        requestIds[index] = requestId;
+        states[index] = PENDING;
+        encodedLengths[index] = 0;
+        listeners[index] = listener;
+        contexts[index] = context;
+        highestRequestId = requestId;
+        pendingCount++;
+        inFlightCount++;
+        nextRequestId++;
+
+        return requestId;
+    }
+
+    /**
+     * Gets the buffer to encode a claimed request into.
+     */
+    public synchronized MutableDirectBuffer encodedRequest(final long requestId) {
+        return encodedRequests[index(requestId)];
+    }
+
+    /**
+     * Records the encoded length of a claimed request, which makes it eligible for resubmission.
+     */
+    public synchronized void commit(final long requestId, final int length) {
+        final int index = index(requestId);
+        if (requestIds[index] == requestId) {
+            encodedLengths[index] = length;
+        }
+    }
+
+    /**
+     * Completes a request with the response from the cluster. Responses for unknown or already completed requests,
+     * such as the reply to a resubmitted duplicate, are ignored.
+     *
+     * @return true if a pending request was completed.
+     */
+    public boolean complete(final long requestId, final long value, final int nodeId) {
+        return complete(requestId, value, nodeId, 0);
+    }
+
+    /**
+     * Completes a request with the response from the cluster and its status.
+     *
+     * @return true if a pending request was completed.
+     */
+    public boolean complete(final long requestId, final long value, final int nodeId, final int status) {
+        return complete(requestId, value, nodeId, status, null, 0, 0);
+    }
+
+    /**
+     * Completes a request with the response from the cluster, its status and a byte value or transaction result, which
+     * is copied into the slot of the request.
+     *
+     * @return true if a pending request was completed.
+     */
+    public synchronized boolean complete(final long requestId,
+                                         final long value,
+                                         final int nodeId,
+                                         final int status,
+                                         final DirectBuffer bytesBuffer,
+                                         final int bytesOffset,
+                                         final int bytesLength) {
+        final int index = index(requestId);
+        if (requestIds[index] != requestId || states[index] != PENDING) {
+            return false;
+        }
+
+        states[index] = COMPLETED;
+        responseValues[index] = value;
+        responseNodeIds[index] = nodeId;
+        responseStatuses[index] = status;
+        responseBytesLengths[index] = 0;
+        if (bytesBuffer != null && bytesLength > 0) {
+            if (responseBytes[index] == null) {
+                responseBytes[index] = new ExpandableArrayBuffer(bytesLength);
+            }
+            responseBytes[index].putBytes(0, bytesBuffer, bytesOffset, bytesLength);
+            responseBytesLengths[index] = bytesLength;
+        }
+        pendingCount--;
+
+        return true;
+    }
+
+    public synchronized boolean isCompleted(final long requestId) {
+        final int index = index(requestId);
+        return requestIds[index] == requestId && states[index] == COMPLETED;
+    }
+
+    public synchronized long responseValue(final long requestId) {
+        return responseValues[index(requestId)];
+    }
+
+    public synchronized int responseNodeId(final long requestId) {
+        return responseNodeIds[index(requestId)];
+    }
+
+    public synchronized int responseStatus(final long requestId) {
+        return responseStatuses[index(requestId)];
+    }
+
+    /**
+     * Gets a copy of the byte value a request was completed with.
+     *
+     * @return the byte value, empty if the response carried none.
+     */
+    public synchronized byte[] responseBytes(final long requestId) {
+        final int index = index(requestId);
+        final byte[] bytes = new byte[responseBytesLengths[index]];
+        if (bytes.length > 0) {
+            responseBytes[index].getBytes(0, bytes);
+        }
+
+        return bytes;
+    }
+
+    public synchronized ResponseListener listener(final long requestId) {
+        return listeners[index(requestId)];
+    }
+
+    public synchronized long context(final long requestId) {
+        return contexts[index(requestId)];
+    }
+
+    /**
+     * Frees the slot of a request once its caller is done with it, whether or not it was completed.
+     */
+    public synchronized void release(final long requestId) {
+        final int index = index(requestId);
+        if (requestIds[index] != requestId) {
+            return;
+        }
+
+        if (states[index] == PENDING) {
+            pendingCount--;
+        }
+
+        requestIds[index] = NULL_REQUEST_ID;
+        states[index] = FREE;
+        listeners[index] = null;
+        inFlightCount--;
+    }
+
+    public synchronized int pendingCount() {
+        return pendingCount;
+    }
+
+    public synchronized int inFlightCount() {
+        return inFlightCount;
+    }
+
+    /**
+     * Visits the requests still awaiting a response in ascending request ID order, the order they were first sent.
+     *
+     * @param consumer of the pending requests.
+     * @return the number of requests visited.
+     */
+    public synchronized int forEachPending(final PendingRequestConsumer consumer) {
+        int count = 0;
+        final long fromRequestId = Math.max(0L, highestRequestId - mask);
+        for (long requestId = fromRequestId; requestId <= highestRequestId; requestId++) {
+            final int index = index(requestId);
+            if (requestIds[index] == requestId && states[index] == PENDING && encodedLengths[index] > 0) {
+                consumer.accept(requestId, encodedRequests[index], encodedLengths[index]);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private int index(final long requestId) {
+        return (int) (requestId & mask);
+    }
+
+    @FunctionalInterface
+    public interface PendingRequestConsumer {
+        void accept(long requestId, MutableDirectBuffer encodedRequest, int length);
+    }
+}
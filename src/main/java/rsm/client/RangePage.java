@@ -0,0 +1,59 @@
+package rsm.client;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import rsm.node.RangeCodec;
+
+/**
+ * One page of the keys within a range, in ascending order with their value and version. If the range holds more keys
+ * than fit in the page, {@link #nextKey()} is where the next page starts.
+ */
+public class RangePage {
+
+    private final UnsafeBuffer page;
+
+    RangePage(final byte[] page) {
+        this.page = new UnsafeBuffer(page);
+    }
+
+    public int entryCount() {
+        return page.getInt(RangeCodec.PAGE_ENTRY_COUNT_OFFSET);
+    }
+
+    public boolean hasMore() {
+        return page.getInt(RangeCodec.PAGE_HAS_MORE_OFFSET) != 0;
+    }
+
+    /**
+     * Gets the first key after this page.
+     *
+     * @return the from key of the next page.
+     * @throws IllegalStateException if this is the last page of the range.
+     */
+    public long nextKey() {
+        if (!hasMore()) {
+            throw new IllegalStateException("Last page of the range");
+        }
+
+        return page.getLong(RangeCodec.PAGE_NEXT_KEY_OFFSET);
+    }
+
+    public long key(final int index) {
+        return page.getLong(entryOffset(index) + RangeCodec.PAGE_ENTRY_KEY_OFFSET);
+    }
+
+    public long value(final int index) {
+        return page.getLong(entryOffset(index) + RangeCodec.PAGE_ENTRY_VALUE_OFFSET);
+    }
+
+    public long version(final int index) {
+        return page.getLong(entryOffset(index) + RangeCodec.PAGE_ENTRY_VERSION_OFFSET);
+    }
+
+    private int entryOffset(final int index) {
+        if (index < 0 || index >= entryCount()) {
+            throw new IndexOutOfBoundsException("Entry " + index + " of " + entryCount());
+        }
+
+        return RangeCodec.PAGE_ENTRIES_OFFSET + index * RangeCodec.PAGE_ENTRY_LENGTH;
+    }
+}
@@ -1,32 +1,38 @@
 package rsm.client;
 
 import io.aeron.ChannelUriStringBuilder;
+import io.aeron.Publication;
 import io.aeron.cluster.client.AeronCluster;
 import io.aeron.cluster.client.EgressListener;
 import io.aeron.cluster.codecs.EventCode;
 import io.aeron.driver.MediaDriver;
 import io.aeron.driver.ThreadingMode;
+import io.aeron.exceptions.AeronException;
 import io.aeron.logbuffer.Header;
 import org.agrona.BitUtil;
 import org.agrona.DirectBuffer;
-import org.agrona.ExpandableDirectByteBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.SleepingMillisIdleStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rsm.common.ClusterNodeConfig;
+import rsm.common.TraceClock;
+import rsm.node.BytesValueCodec;
 import rsm.node.MessageType;
+import rsm.node.RangeCodec;
+import rsm.node.ReplicatedStateMachine;
 
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 import static io.aeron.CommonContext.UDP_MEDIA;
 import static org.awaitility.Awaitility.await;
+import static rsm.node.ReplicatedStateMachineClusteredService.*;
 
 public class ReplicatedStateMachineClient implements EgressListener {
 
@@ -36,87 +42,601 @@ public class ReplicatedStateMachineClient implements EgressListener {
     private MediaDriver mediaDriver;
     private AeronCluster clusterClient;
     private final IdleStrategy idleStrategy = new SleepingMillisIdleStrategy();
-    private final AtomicLong lastReceivedCorrelationId = new AtomicLong(0L);
-    private final AtomicLong lastReceivedValue = new AtomicLong(0L);
     private final AtomicInteger lastReplyingNodeId = new AtomicInteger(-1);
     private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
     private final String clientHostName;
+    private final ClientConfig config;
+    private final long clientId = ThreadLocalRandom.current().nextLong();
+    private final TraceHistograms traceHistograms = new TraceHistograms();
+    private final ClientCounters counters = new ClientCounters();
+    private final PendingRequests pendingRequests;
+    private final Object sessionLock = new Object();
+    private volatile boolean resubmitRequested;
+    private volatile boolean reconnectRequested;
+    private String ingressEndpoints;
+    private String aeronDirectoryName;
+    private String egressChannel;
+    private volatile long lastNewLeaderTimeNs;
+    private volatile long lastReconnectTimeNs;
 
     public ReplicatedStateMachineClient(final String clientHostName, final List<String> clusterNodeHostnames) {
+        this(clientHostName, clusterNodeHostnames, new ClientConfig());
+    }
+
+    public ReplicatedStateMachineClient(final String clientHostName,
+                                        final List<String> clusterNodeHostnames,
+                                        final ClientConfig config) {
         this.clientHostName = clientHostName;
         this.clusterNodeHostnames = clusterNodeHostnames;
+        this.config = config;
+        this.pendingRequests = new PendingRequests(config.maxInFlightRequests());
     }
 
     public void start() {
-        final String ingressEndpoints = ClusterNodeConfig.ingressEndpoints(clusterNodeHostnames);
-
-        this.mediaDriver = MediaDriver.launchEmbedded(new MediaDriver.Context()
-                .aeronDirectoryName(ClusterNodeConfig.shmDirForName("rsm-client"))
-                .errorHandler(Throwable::printStackTrace)
-                .threadingMode(ThreadingMode.SHARED)
-                .dirDeleteOnStart(true)
-                .dirDeleteOnShutdown(true));
+        this.ingressEndpoints = ClusterNodeConfig.ingressEndpoints(clusterNodeHostnames);
+
+        if (config.aeronDirectoryName() == null) {
+            this.mediaDriver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+                    .aeronDirectoryName(ClusterNodeConfig.shmDirForName("rsm-client"))
+                    .errorHandler(Throwable::printStackTrace)
+                    .threadingMode(ThreadingMode.SHARED)
+                    .dirDeleteOnStart(true)
+                    .dirDeleteOnShutdown(true));
+            this.aeronDirectoryName = mediaDriver.aeronDirectoryName();
+        } else {
+            this.aeronDirectoryName = config.aeronDirectoryName();
+        }
 
-        final String egressChannel = new ChannelUriStringBuilder()
+        this.egressChannel = new ChannelUriStringBuilder()
                 .media(UDP_MEDIA)
-                .endpoint(clientHostName + ":" + 19001)
+                .endpoint(clientHostName + ":" + config.egressPort())
                 .build();
 
-        this.clusterClient = AeronCluster.connect(
+        this.clusterClient = connect();
+
+        this.executor.scheduleAtFixedRate(this::pollEgress, 0L, 10L, TimeUnit.NANOSECONDS);
+        this.executor.scheduleAtFixedRate(this::maintainSession, 0L, 1_000_000L, TimeUnit.NANOSECONDS);
+    }
+
+    public void stop() {
+        executor.shutdown();
+        synchronized (sessionLock) {
+            clusterClient.close();
+        }
+        if (mediaDriver != null) {
+            mediaDriver.close();
+        }
+    }
+
+    public long getValue() {
+        final long correlationId = claim();
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        if (log.isTraceEnabled()) {
+            log.trace("Sending GET value request with correlation ID: {}", correlationId);
+        }
+
+        encodeHeader(buffer, correlationId, MessageType.GET);
+
+        return send(correlationId, buffer, VALUE_POSITION);
+    }
+
+    /**
+     * Gets the current value along with the node that replied, which stays correct when the client is shared by
+     * concurrent callers, unlike {@link #getLastReplyingNodeId()}.
+     *
+     * @return the value and the ID of the node that replied to this request.
+     */
+    public ValueResult getValueResult() {
+        final long correlationId = claim();
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        encodeHeader(buffer, correlationId, MessageType.GET);
+
+        return sendForResult(correlationId, buffer, VALUE_POSITION);
+    }
+
+    public long setValue(final long value) {
+        final long correlationId = claim();
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        if (log.isTraceEnabled()) {
+            log.trace("Sending SET value request with correlation ID: {}", correlationId);
+        }
+
+        encodeHeader(buffer, correlationId, MessageType.SET);
+        buffer.putLong(VALUE_POSITION, value);
+
+        return send(correlationId, buffer, VALUE_POSITION + BitUtil.SIZE_OF_LONG);
+    }
+
+    /**
+     * Sets the value and returns it along with the node that replied, see {@link #getValueResult()}.
+     *
+     * @param value to set.
+     * @return the value after the request was applied and the ID of the node that replied to this request.
+     */
+    public ValueResult setValueResult(final long value) {
+        final long correlationId = claim();
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        encodeHeader(buffer, correlationId, MessageType.SET);
+        buffer.putLong(VALUE_POSITION, value);
+
+        return sendForResult(correlationId, buffer, VALUE_POSITION + BitUtil.SIZE_OF_LONG);
+    }
+
+    /**
+     * Sets the value that expires a number of milliseconds after it was applied, when it reads as 0 again.
+     *
+     * @param value to set.
+     * @param ttlMs after which the value expires, which must be positive.
+     * @return the value as applied.
+     */
+    public long setValue(final long value, final long ttlMs) {
+        if (ttlMs <= 0) {
+            throw new IllegalArgumentException("TTL must be positive: " + ttlMs);
+        }
+
+        final long correlationId = claim();
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        if (log.isTraceEnabled()) {
+            log.trace("Sending SET value request with correlation ID: {} and TTL: {}ms", correlationId, ttlMs);
+        }
+
+        encodeHeader(buffer, correlationId, MessageType.SET);
+        buffer.putShort(FLAGS_POSITION, (short) (buffer.getShort(FLAGS_POSITION) | TTL_FLAG));
+        buffer.putLong(VALUE_POSITION, value);
+        buffer.putLong(SET_TTL_POSITION, ttlMs);
+
+        return send(correlationId, buffer, SET_TTL_POSITION + BitUtil.SIZE_OF_LONG);
+    }
+
+    /**
+     * Gets the current byte value of a key.
+     *
+     * @param key to read the byte value of.
+     * @return a copy of the byte value, empty if none was set or the key expired.
+     */
+    public byte[] getBytesValue(final long key) {
+        final long correlationId = claim();
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        if (log.isTraceEnabled()) {
+            log.trace("Sending GET_BYTES value request with correlation ID: {} for key: {}", correlationId, key);
+        }
+
+        encodeHeader(buffer, correlationId, MessageType.GET_BYTES);
+        buffer.putLong(BytesValueCodec.KEY_POSITION, key);
+
+        return sendForBytes(correlationId, buffer, BytesValueCodec.LENGTH_POSITION);
+    }
+
+    /**
+     * Sets the byte value of a key, which increments its version and clears any TTL it had.
+     *
+     * @param key   to write the byte value of.
+     * @param value to set, at most {@link ReplicatedStateMachine#MAX_BYTES_VALUE_LENGTH} bytes, empty to clear it.
+     * @return the byte value after the request was applied.
+     */
+    public byte[] setBytesValue(final long key, final byte[] value) {
+        if (value.length > ReplicatedStateMachine.MAX_BYTES_VALUE_LENGTH) {
+            throw new IllegalArgumentException("Value of " + value.length + " bytes is longer than " +
+                    ReplicatedStateMachine.MAX_BYTES_VALUE_LENGTH);
+        }
+
+        final long correlationId = claim();
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        if (log.isTraceEnabled()) {
+            log.trace("Sending SET_BYTES value request with correlation ID: {} for key: {}", correlationId, key);
+        }
+
+        encodeHeader(buffer, correlationId, MessageType.SET_BYTES);
+        buffer.putLong(BytesValueCodec.KEY_POSITION, key);
+        buffer.putInt(BytesValueCodec.LENGTH_POSITION, value.length);
+        buffer.putBytes(BytesValueCodec.BYTES_VALUE_POSITION, value);
+
+        return sendForBytes(correlationId, buffer, BytesValueCodec.BYTES_VALUE_POSITION + value.length);
+    }
+
+    /**
+     * Applies a transaction atomically as a single cluster log entry.
+     *
+     * @param transaction to apply.
+     * @return whether the transaction committed, and the value and version of the keys it named.
+     */
+    public TransactionResult transact(final Transaction transaction) {
+        final long correlationId = claim();
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        if (log.isTraceEnabled()) {
+            log.trace("Sending TRANSACTION request with correlation ID: {}", correlationId);
+        }
+
+        encodeHeader(buffer, correlationId, MessageType.TRANSACTION);
+        final int bodyLength = transaction.encode(buffer);
+
+        try {
+            sendAndWait(correlationId, buffer, bodyLength);
+
+            final TransactionResult.Outcome outcome = switch (pendingRequests.responseStatus(correlationId))
+            {
+                case RESPONSE_STATUS_ABORTED -> TransactionResult.Outcome.ABORTED;
+                case RESPONSE_STATUS_DUPLICATE -> TransactionResult.Outcome.DUPLICATE;
+                default -> TransactionResult.Outcome.COMMITTED;
+            };
+
+            return new TransactionResult(
+                    outcome, (int) pendingRequests.responseValue(correlationId), pendingRequests.responseBytes(correlationId));
+        } finally {
+            pendingRequests.release(correlationId);
+        }
+    }
+
+    /**
+     * Reads one page of the keys at or after one key and before another.
+     *
+     * @param fromKey    lowest key to read, inclusive.
+     * @param toKey      key to stop before, exclusive.
+     * @param maxEntries to read, capped by the cluster at {@link RangeCodec#MAX_PAGE_ENTRIES}.
+     * @return the keys in ascending order with their value and version, and where the next page starts.
+     */
+    public RangePage rangePage(final long fromKey, final long toKey, final int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive: " + maxEntries);
+        }
+
+        final long correlationId = claim();
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        if (log.isTraceEnabled()) {
+            log.trace("Sending RANGE request with correlation ID: {} from key: {} to key: {}", correlationId, fromKey, toKey);
+        }
+
+        encodeHeader(buffer, correlationId, MessageType.RANGE);
+        buffer.putLong(RangeCodec.FROM_KEY_POSITION, fromKey);
+        buffer.putLong(RangeCodec.TO_KEY_POSITION, toKey);
+        buffer.putInt(RangeCodec.MAX_ENTRIES_POSITION, maxEntries);
+        buffer.putInt(RangeCodec.MAX_ENTRIES_POSITION + BitUtil.SIZE_OF_INT, 0);
+
+        return new RangePage(sendForBytes(correlationId, buffer, RangeCodec.REQUEST_BODY_LENGTH));
+    }
+
+    /**
+     * Visits every key at or after one key and before another in ascending order, reading them a page of
+     * {@link RangeCodec#MAX_PAGE_ENTRIES} at a time. Each page is read at its own point in the log, so the scan is not
+     * a snapshot of the range.
+     *
+     * @param fromKey  lowest key to visit, inclusive.
+     * @param toKey    key to stop before, exclusive.
+     * @param consumer of key, value and version triples.
+     * @return the number of keys visited.
+     */
+    public long range(final long fromKey, final long toKey, final ReplicatedStateMachine.KeyConsumer consumer) {
+        long count = 0;
+        long pageFromKey = fromKey;
+        while (true) {
+            final RangePage page = rangePage(pageFromKey, toKey, RangeCodec.MAX_PAGE_ENTRIES);
+            for (int i = 0; i < page.entryCount(); i++) {
+                consumer.accept(page.key(i), page.value(i), page.version(i));
+            }
+            count += page.entryCount();
+
+            if (!page.hasMore()) {
+                return count;
+            }
+            pageFromKey = page.nextKey();
+        }
+    }
+
+    /**
+     * Requests the current value without waiting for the response.
+     *
+     * @param listener to notify of the response on the egress polling thread.
+     * @param context  to pass to the listener, such as the caller's own request ID.
+     * @return the correlation ID of the request.
+     * @throws BackPressureException if the request could not be admitted or offered.
+     */
+    public long getValueAsync(final ResponseListener listener, final long context) {
+        final long correlationId = claim(listener, context);
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        encodeHeader(buffer, correlationId, MessageType.GET);
+
+        return sendAsync(correlationId, buffer, VALUE_POSITION);
+    }
+
+    /**
+     * Sets the value without waiting for the response.
+     *
+     * @param value    to set.
+     * @param listener to notify of the response on the egress polling thread.
+     * @param context  to pass to the listener, such as the caller's own request ID.
+     * @return the correlation ID of the request.
+     * @throws BackPressureException if the request could not be admitted or offered.
+     */
+    public long setValueAsync(final long value, final ResponseListener listener, final long context) {
+        final long correlationId = claim(listener, context);
+        final MutableDirectBuffer buffer = pendingRequests.encodedRequest(correlationId);
+
+        encodeHeader(buffer, correlationId, MessageType.SET);
+        buffer.putLong(VALUE_POSITION, value);
+
+        return sendAsync(correlationId, buffer, VALUE_POSITION + BitUtil.SIZE_OF_LONG);
+    }
+
+    public long getClientId() {
+        return clientId;
+    }
+
+    public ClientConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Gets the counters of admission and offer outcomes.
+     *
+     * @return the client counters.
+     */
+    public ClientCounters getCounters() {
+        return counters;
+    }
+
+    /**
+     * Gets the number of requests admitted into the in-flight window and not yet completed.
+     *
+     * @return the number of outstanding requests.
+     */
+    public int getInFlightCount() {
+        return pendingRequests.inFlightCount();
+    }
+
+    /**
+     * Gets the per-hop latencies of requests sent while {@link ClientConfig#tracing()} is enabled.
+     *
+     * @return the trace histograms.
+     */
+    public TraceHistograms getTraceHistograms() {
+        return traceHistograms;
+    }
+
+    /**
+     * Gets the {@link System#nanoTime()} at which the last new leader event was received.
+     *
+     * @return the time of the last new leader event or 0 if there has been none.
+     */
+    public long getLastNewLeaderTimeNs() {
+        return lastNewLeaderTimeNs;
+    }
+
+    /**
+     * Gets the {@link System#nanoTime()} at which the session was last replaced by a new one.
+     *
+     * @return the time of the last reconnect or 0 if the client never reconnected.
+     */
+    public long getLastReconnectTimeNs() {
+        return lastReconnectTimeNs;
+    }
+
+    private AeronCluster connect() {
+        final AeronCluster aeronCluster = AeronCluster.connect(
                 new AeronCluster.Context()
-                        .messageTimeoutNs(TimeUnit.SECONDS.toNanos(30))
+                        .messageTimeoutNs(config.messageTimeoutNs())
                         .egressListener(this)
                         .egressChannel(egressChannel)
-                        .aeronDirectoryName(mediaDriver.aeronDirectoryName())
+                        .aeronDirectoryName(aeronDirectoryName)
                         .ingressEndpoints(ingressEndpoints));
 
-        await().until(() -> clusterClient.egressSubscription().isConnected());
+        await().until(() -> aeronCluster.egressSubscription().isConnected());
 
-        this.executor.scheduleAtFixedRate(clusterClient::pollEgress, 0L, 10L, TimeUnit.NANOSECONDS);
-        this.executor.scheduleAtFixedRate(clusterClient::sendKeepAlive, 0L, 1_000_000L, TimeUnit.NANOSECONDS);
+        return aeronCluster;
     }
 
-    public void stop() {
-        clusterClient.close();
-        mediaDriver.close();
+    private long claim() {
+        return claim(null, 0L);
     }
 
-    public long getValue() {
-        final MutableDirectBuffer buffer = new ExpandableDirectByteBuffer();
-        final long correlationId = System.nanoTime();
+    /**
+     * Claims a slot in the in-flight window and takes the next correlation ID with it, so that concurrent callers
+     * offer IDs at most one window apart and the cluster's window of request IDs per client covers all of them.
+     */
+    private long claim(final ResponseListener listener, final long context) {
+        long correlationId = pendingRequests.tryClaimNext(listener, context);
+        if (correlationId == PendingRequests.NULL_REQUEST_ID) {
+            if (config.admissionPolicy() == ClientConfig.AdmissionPolicy.FAIL_FAST) {
+                counters.onRejected();
+                throw new BackPressureException(BackPressureException.Reason.IN_FLIGHT_LIMIT, "In-flight window is full");
+            }
+
+            final long deadlineNs = System.nanoTime() + config.admissionTimeoutNs();
+            while ((correlationId = pendingRequests.tryClaimNext(listener, context)) == PendingRequests.NULL_REQUEST_ID) {
+                if (System.nanoTime() - deadlineNs > 0) {
+                    counters.onRejected();
+                    throw new BackPressureException(BackPressureException.Reason.IN_FLIGHT_LIMIT, "In-flight window stayed full");
+                }
+                idleStrategy.idle();
+            }
+        }
 
-        log.info("Sending GET value request with correlation ID: {}", correlationId);
+        counters.onAdmitted();
+        return correlationId;
+    }
 
+    private void encodeHeader(final MutableDirectBuffer buffer, final long correlationId, final MessageType messageType) {
         buffer.putLong(0, correlationId);
-        buffer.putChar(BitUtil.SIZE_OF_LONG, MessageType.GET.getCharCode());
+        buffer.putChar(MESSAGE_TYPE_POSITION, messageType.getCharCode());
+        buffer.putShort(FLAGS_POSITION, config.tracing() ? TRACE_FLAG : 0);
+        buffer.putLong(CLIENT_ID_POSITION, clientId);
+    }
 
-        offer(buffer, buffer.capacity());
+    private long send(final long correlationId, final MutableDirectBuffer buffer, final int bodyLength) {
+        try {
+            sendAndWait(correlationId, buffer, bodyLength);
+            return pendingRequests.responseValue(correlationId);
+        } finally {
+            pendingRequests.release(correlationId);
+        }
+    }
 
-        waitForCorrelationId(correlationId);
+    private ValueResult sendForResult(final long correlationId, final MutableDirectBuffer buffer, final int bodyLength) {
+        try {
+            sendAndWait(correlationId, buffer, bodyLength);
+            return new ValueResult(
+                    pendingRequests.responseValue(correlationId), pendingRequests.responseNodeId(correlationId));
+        } finally {
+            pendingRequests.release(correlationId);
+        }
+    }
 
-        return lastReceivedValue.get();
+    private byte[] sendForBytes(final long correlationId, final MutableDirectBuffer buffer, final int bodyLength) {
+        try {
+            sendAndWait(correlationId, buffer, bodyLength);
+            return pendingRequests.responseBytes(correlationId);
+        } finally {
+            pendingRequests.release(correlationId);
+        }
     }
 
-    public long setValue(final long value) {
-        final MutableDirectBuffer buffer = new ExpandableDirectByteBuffer();
-        final long correlationId = System.nanoTime();
+    /**
+     * Sends a request and waits for its response. A {@code RESPONSE_STATUS_DUPLICATE} response answers a resubmitted
+     * request whose first copy was applied but whose response was lost, so it counts as a success.
+     */
+    private void sendAndWait(final long correlationId, final MutableDirectBuffer buffer, final int bodyLength) {
+        commitAndOffer(correlationId, buffer, bodyLength);
+        waitForCorrelationId(correlationId);
 
-        log.info("Sending SET value request with correlation ID: {}", correlationId);
+        final int status = pendingRequests.responseStatus(correlationId);
+        if (status == RESPONSE_STATUS_RATE_LIMITED) {
+            throw new BackPressureException(BackPressureException.Reason.RATE_LIMITED, "Session exceeded its rate limit");
+        } else if (status == RESPONSE_STATUS_INVALID) {
+            throw new IllegalArgumentException("Cluster rejected request " + correlationId + " as invalid");
+        }
+    }
 
-        buffer.putLong(0, correlationId);
-        buffer.putChar(BitUtil.SIZE_OF_LONG, MessageType.SET.getCharCode());
-        buffer.putLong(BitUtil.SIZE_OF_LONG * 2, value);
+    private long sendAsync(final long correlationId, final MutableDirectBuffer buffer, final int bodyLength) {
+        try {
+            commitAndOffer(correlationId, buffer, bodyLength);
+        } catch (final RuntimeException ex) {
+            pendingRequests.release(correlationId);
+            throw ex;
+        }
 
-        offer(buffer, buffer.capacity());
+        return correlationId;
+    }
 
-        waitForCorrelationId(correlationId);
+    private void commitAndOffer(final long correlationId, final MutableDirectBuffer buffer, final int bodyLength) {
+        int length = bodyLength;
+        if (config.tracing()) {
+            buffer.putLong(length, TraceClock.epochNanos());
+            length += TRACE_TRAILER_LENGTH;
+        }
 
-        return lastReceivedValue.get();
+        pendingRequests.commit(correlationId, length);
+        offer(buffer, length);
     }
 
     private void waitForCorrelationId(final long correlationId) {
-        while (lastReceivedCorrelationId.get() != correlationId) {
-            idleStrategy.idle(clusterClient.pollEgress());
+        final CorrelationWaitEvent waitEvent = CorrelationWaitEvent.isRecorded() ? new CorrelationWaitEvent() : null;
+        if (waitEvent != null) {
+            waitEvent.begin();
+        }
+
+        while (!pendingRequests.isCompleted(correlationId)) {
+            idleStrategy.idle(pollEgress());
+        }
+
+        if (waitEvent != null) {
+            waitEvent.end();
+            if (waitEvent.shouldCommit()) {
+                waitEvent.clientId = clientId;
+                waitEvent.correlationId = correlationId;
+                waitEvent.nodeId = pendingRequests.responseNodeId(correlationId);
+                waitEvent.commit();
+            }
+        }
+    }
+
+    private int pollEgress() {
+        synchronized (sessionLock) {
+            return clusterClient.isClosed() ? 0 : clusterClient.pollEgress();
+        }
+    }
+
+    /**
+     * Keeps the session alive, replaces it if the cluster closed it, and resubmits the requests still awaiting a
+     * response once the session is directed to a new leader. Resubmitted requests carry their original correlation ID,
+     * so the cluster applies each of them at most once. Any failure is logged and retried on the next run, as an
+     * exception would cancel the periodic task.
+     */
+    private void maintainSession() {
+        try {
+            if ((reconnectRequested || isSessionClosed()) && !reconnect()) {
+                return;
+            }
+
+            synchronized (sessionLock) {
+                clusterClient.sendKeepAlive();
+
+                if (resubmitRequested) {
+                    resubmitRequested = false;
+                    final int resubmitted = pendingRequests.forEachPending(this::resubmit);
+                    log.info("Resubmitted {} pending requests", resubmitted);
+                }
+            }
+        } catch (final RuntimeException ex) {
+            log.error("Failed to maintain the session of client {}, will retry", clientId, ex);
+        }
+    }
+
+    /**
+     * Connects a new session without holding the session lock, so callers keep offering to the current session while
+     * the connect blocks, then publishes the new session and closes the old one. A session connected after the client
+     * stopped is closed instead.
+     */
+    private boolean reconnect() {
+        log.info("Reconnecting client {} to the cluster", clientId);
+        final AeronCluster newClusterClient;
+        try {
+            newClusterClient = connect();
+        } catch (final AeronException ex) {
+            log.warn("Failed to reconnect client {} to the cluster, will retry", clientId, ex);
+            return false;
+        }
+
+        final AeronCluster oldClusterClient;
+        synchronized (sessionLock) {
+            if (executor.isShutdown()) {
+                newClusterClient.close();
+                return false;
+            }
+            oldClusterClient = clusterClient;
+            clusterClient = newClusterClient;
+            lastReconnectTimeNs = System.nanoTime();
+            reconnectRequested = false;
+            resubmitRequested = true;
+        }
+        oldClusterClient.close();
+
+        return true;
+    }
+
+    private boolean isSessionClosed() {
+        synchronized (sessionLock) {
+            return clusterClient.isClosed();
+        }
+    }
+
+    private void resubmit(final long correlationId, final DirectBuffer encodedRequest, final int length) {
+        if (clusterClient.offer(encodedRequest, 0, length) < 0) {
+            resubmitRequested = true;
+        }
+    }
+
+    private void maintainSessionNow() {
+        if (config.fastReconnect() && !executor.isShutdown()) {
+            executor.execute(this::maintainSession);
         }
     }
 
@@ -129,14 +649,44 @@ public class ReplicatedStateMachineClient implements EgressListener {
                           final Header header) {
 
         final long correlationId = buffer.getLong(offset);
-        final long value = buffer.getLong(offset + BitUtil.SIZE_OF_LONG);
-        final int nodeId = buffer.getInt(offset + BitUtil.SIZE_OF_LONG * 2);
+        final long value = buffer.getLong(offset + RESPONSE_VALUE_POSITION);
+        final int nodeId = buffer.getInt(offset + RESPONSE_NODE_ID_POSITION);
+        final short status = buffer.getShort(offset + RESPONSE_STATUS_POSITION);
+        final short flags = buffer.getShort(offset + RESPONSE_FLAGS_POSITION);
+        final boolean isTraced = (flags & TRACE_FLAG) != 0;
+
+        if (log.isTraceEnabled()) {
+            log.trace("Received message with correlation ID: {} and value: {}", correlationId, value);
+        }
 
-        log.info("Received message with correlation ID: {} and value: {}", correlationId, value);
+        if (isTraced) {
+            traceHistograms.record(
+                    buffer.getLong(offset + RESPONSE_TRACE_SEND_TIME_POSITION),
+                    buffer.getLong(offset + RESPONSE_TRACE_LOG_TIME_POSITION),
+                    buffer.getLong(offset + RESPONSE_TRACE_APPLY_TIME_POSITION),
+                    TraceClock.epochNanos());
+        }
+
+        final boolean hasTrailer = (flags & (BYTES_VALUE_FLAG | TRANSACTION_RESULT_FLAG | RANGE_PAGE_FLAG)) != 0;
+        final int trailerOffset = isTraced ? TRACED_RESPONSE_LENGTH : RESPONSE_LENGTH;
+        if (pendingRequests.complete(correlationId, value, nodeId, status,
+                hasTrailer ? buffer : null, offset + trailerOffset, hasTrailer ? length - trailerOffset : 0)) {
+            lastReplyingNodeId.set(nodeId);
+            if (status == RESPONSE_STATUS_RATE_LIMITED) {
+                counters.onRateLimited();
+            }
 
-        lastReceivedCorrelationId.set(correlationId);
-        lastReceivedValue.set(value);
-        lastReplyingNodeId.set(nodeId);
+            final ResponseListener listener = pendingRequests.listener(correlationId);
+            if (listener != null) {
+                final long context = pendingRequests.context(correlationId);
+                pendingRequests.release(correlationId);
+                if (status == RESPONSE_STATUS_RATE_LIMITED) {
+                    listener.onRejected(context, BackPressureException.Reason.RATE_LIMITED);
+                } else {
+                    listener.onResponse(context, value, nodeId);
+                }
+            }
+        }
     }
 
     @Override
@@ -147,31 +697,149 @@ public class ReplicatedStateMachineClient implements EgressListener {
                                final EventCode code,
                                final String detail) {
         log.info("Received session event with code: {}", code);
+
+        if (code == EventCode.CLOSED || code == EventCode.ERROR) {
+            reconnectRequested = true;
+            maintainSessionNow();
+        }
     }
 
     @Override
     public void onNewLeader(final long clusterSessionId, final long leadershipTermId, final int leaderMemberId, final String ingressEndpoints) {
         log.info("Received onNewLeader event. New leader: {}", leaderMemberId);
+        lastNewLeaderTimeNs = System.nanoTime();
+
+        final NewLeaderEvent newLeaderEvent = NewLeaderEvent.isRecorded() ? new NewLeaderEvent() : null;
+        if (newLeaderEvent != null && newLeaderEvent.shouldCommit()) {
+            newLeaderEvent.clientId = clientId;
+            newLeaderEvent.clusterSessionId = clusterSessionId;
+            newLeaderEvent.leadershipTermId = leadershipTermId;
+            newLeaderEvent.leaderMemberId = leaderMemberId;
+            newLeaderEvent.pendingRequests = pendingRequests.inFlightCount();
+            newLeaderEvent.commit();
+        }
+
+        resubmitRequested = true;
+        maintainSessionNow();
     }
 
-    private void offer(final MutableDirectBuffer buffer, final int length)
+    /**
+     * Offers a request to the cluster, handling each failure according to its cause. {@code ADMIN_ACTION} is retried
+     * immediately, {@code BACK_PRESSURED} fails fast or waits depending on the {@link ClientConfig.AdmissionPolicy},
+     * and {@code NOT_CONNECTED}, {@code CLOSED} and {@code MAX_POSITION_EXCEEDED} wait for the session to be redirected
+     * or replaced. Nothing is retried beyond the admission timeout.
+     */
+    private void offer(final DirectBuffer buffer, final int length)
     {
-        long result;
-        do
+        final long deadlineNs = System.nanoTime() + config.admissionTimeoutNs();
+        long notConnectedSinceNs = 0L;
+        OfferBackPressureEvent backPressureEvent = null;
+        while (true)
         {
-            result = clusterClient.offer(buffer, 0, length);
-            if (result < 0)
+            final long result;
+            synchronized (sessionLock)
+            {
+                result = clusterClient.offer(buffer, 0, length);
+                clusterClient.pollEgress();
+            }
+
+            if (result > 0)
+            {
+                if (log.isTraceEnabled())
+                {
+                    log.trace("Offered. Result: {}", result);
+                }
+                if (backPressureEvent != null)
+                {
+                    recordBackPressure(backPressureEvent, true);
+                }
+                return;
+            }
+
+            if (backPressureEvent == null && OfferBackPressureEvent.isRecorded())
+            {
+                backPressureEvent = new OfferBackPressureEvent();
+                backPressureEvent.begin();
+            }
+            if (backPressureEvent != null)
+            {
+                backPressureEvent.failedOffers++;
+                backPressureEvent.lastOfferResult = result;
+            }
+
+            final BackPressureException.Reason reason;
+            if (result == Publication.ADMIN_ACTION)
+            {
+                counters.onAdminAction();
+                continue;
+            }
+            else if (result == Publication.BACK_PRESSURED)
+            {
+                counters.onBackPressured();
+                reason = BackPressureException.Reason.BACK_PRESSURED;
+                if (config.admissionPolicy() == ClientConfig.AdmissionPolicy.FAIL_FAST)
+                {
+                    recordBackPressure(backPressureEvent, false);
+                    throw new BackPressureException(reason, "Ingress is back pressured");
+                }
+            }
+            else if (result == Publication.NOT_CONNECTED)
+            {
+                counters.onNotConnected();
+                reason = BackPressureException.Reason.NOT_CONNECTED;
+                final long nowNs = System.nanoTime();
+                if (notConnectedSinceNs == 0L)
+                {
+                    notConnectedSinceNs = nowNs;
+                }
+                else if (config.fastReconnect() && nowNs - notConnectedSinceNs > config.notConnectedTimeoutNs())
+                {
+                    notConnectedSinceNs = 0L;
+                    reconnectRequested = true;
+                    maintainSessionNow();
+                }
+            }
+            else
             {
-                log.info("Potentially unexpected offer result on client side: {}", result);
+                counters.onClosed();
+                reason = BackPressureException.Reason.CLOSED;
+                reconnectRequested = true;
+                maintainSessionNow();
             }
-            idleStrategy.idle((int) result);
-            clusterClient.pollEgress();
+
+            if (System.nanoTime() - deadlineNs > 0)
+            {
+                counters.onTimedOut();
+                recordBackPressure(backPressureEvent, false);
+                throw new BackPressureException(reason, "Request could not be offered within the admission timeout");
+            }
+
+            idleStrategy.idle();
         }
-        while (result < 0);
+    }
 
-        log.info("Offered. Result: {}", result);
+    private void recordBackPressure(final OfferBackPressureEvent backPressureEvent, final boolean offered)
+    {
+        if (backPressureEvent == null)
+        {
+            return;
+        }
+
+        backPressureEvent.end();
+        if (backPressureEvent.shouldCommit())
+        {
+            backPressureEvent.clientId = clientId;
+            backPressureEvent.offered = offered;
+            backPressureEvent.commit();
+        }
     }
 
+    /**
+     * Gets the node that sent the latest response to any caller of this client. Use {@link #getValueResult()} or a
+     * {@link ResponseListener} for the node that replied to a particular request.
+     *
+     * @return the ID of the node, or -1 before the first response.
+     */
     public int getLastReplyingNodeId() {
         return lastReplyingNodeId.get();
     }
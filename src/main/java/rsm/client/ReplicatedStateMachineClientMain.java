@@ -4,12 +4,16 @@ import org.agrona.concurrent.SigInt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rsm.common.ClusterTopologyConfiguration;
+import rsm.common.FlightRecording;
+import rsm.common.StartupTiming;
 
 public class ReplicatedStateMachineClientMain {
 
     private static final Logger log = LoggerFactory.getLogger(ReplicatedStateMachineClientMain.class);
 
     public static void main(String[] args) {
+        FlightRecording.startIfConfigured();
+
         final String clientHostName = args[0];
         final String topologyConfigFile = args[1];
         final ClusterTopologyConfiguration topologyConfig = ClusterTopologyConfiguration.fromYaml(topologyConfigFile);
@@ -20,7 +24,8 @@ public class ReplicatedStateMachineClientMain {
 
         client.start();
 
-        log.info("Client started");
+        log.info("Client ready {} ms after JVM start, class data sharing archive: {}",
+                StartupTiming.millisSinceJvmStart(), StartupTiming.sharedArchiveFile());
 
         client.setValue(100);
 
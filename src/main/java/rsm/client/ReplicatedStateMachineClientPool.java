@@ -0,0 +1,129 @@
+package rsm.client;
+
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import rsm.common.ClusterNodeConfig;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of {@link ReplicatedStateMachineClient}s, each with its own cluster session, egress port and polling
+ * thread, that callers are spread across so throughput is not capped by a single session.
+ * <p>
+ * Sessions of a pool created with {@link #create} share one embedded media driver whose conductor, sender and receiver
+ * run on dedicated threads. Requests go to the session with the fewest outstanding requests, ties being broken round
+ * robin.
+ */
+public class ReplicatedStateMachineClientPool {
+
+    private final ReplicatedStateMachineClient[] clients;
+    private final MediaDriver.Context mediaDriverContext;
+    private final AtomicInteger nextStartIndex = new AtomicInteger();
+    private MediaDriver mediaDriver;
+
+    /**
+     * Creates a pool of one client that manages its own media driver.
+     *
+     * @param client to dispatch all requests to.
+     */
+    public ReplicatedStateMachineClientPool(final ReplicatedStateMachineClient client) {
+        this.clients = new ReplicatedStateMachineClient[]{client};
+        this.mediaDriverContext = null;
+    }
+
+    private ReplicatedStateMachineClientPool(final ReplicatedStateMachineClient[] clients,
+                                             final MediaDriver.Context mediaDriverContext) {
+        this.clients = clients;
+        this.mediaDriverContext = mediaDriverContext;
+    }
+
+    /**
+     * Creates a pool of sessions sharing an embedded media driver. Session {@code i} receives its responses on
+     * {@code config.egressPort() + i}.
+     *
+     * @param clientHostName       host the cluster sends responses to.
+     * @param clusterNodeHostnames of the cluster nodes.
+     * @param sessions             number of sessions in the pool.
+     * @param config               template for the configuration of each session.
+     * @return the pool, which still has to be started.
+     */
+    public static ReplicatedStateMachineClientPool create(final String clientHostName,
+                                                          final List<String> clusterNodeHostnames,
+                                                          final int sessions,
+                                                          final ClientConfig config) {
+        if (sessions <= 0) {
+            throw new IllegalArgumentException("Sessions must be positive: " + sessions);
+        }
+
+        final MediaDriver.Context mediaDriverContext = new MediaDriver.Context()
+                .aeronDirectoryName(ClusterNodeConfig.shmDirForName("rsm-client-pool"))
+                .errorHandler(Throwable::printStackTrace)
+                .threadingMode(ThreadingMode.DEDICATED)
+                .dirDeleteOnStart(true)
+                .dirDeleteOnShutdown(true);
+
+        final ReplicatedStateMachineClient[] clients = new ReplicatedStateMachineClient[sessions];
+        for (int i = 0; i < sessions; i++) {
+            final ClientConfig sessionConfig = config.copy()
+                    .egressPort(config.egressPort() + i)
+                    .aeronDirectoryName(mediaDriverContext.aeronDirectoryName());
+            clients[i] = new ReplicatedStateMachineClient(clientHostName, clusterNodeHostnames, sessionConfig);
+        }
+
+        return new ReplicatedStateMachineClientPool(clients, mediaDriverContext);
+    }
+
+    public void start() {
+        if (mediaDriverContext != null) {
+            mediaDriver = MediaDriver.launchEmbedded(mediaDriverContext);
+        }
+
+        for (final ReplicatedStateMachineClient client : clients) {
+            client.start();
+        }
+    }
+
+    public void stop() {
+        for (final ReplicatedStateMachineClient client : clients) {
+            client.stop();
+        }
+
+        if (mediaDriver != null) {
+            mediaDriver.close();
+        }
+    }
+
+    /**
+     * Picks the session to send the next request on.
+     *
+     * @return the client with the fewest outstanding requests.
+     */
+    public ReplicatedStateMachineClient next() {
+        if (clients.length == 1) {
+            return clients[0];
+        }
+
+        final int startIndex = Math.floorMod(nextStartIndex.getAndIncrement(), clients.length);
+        ReplicatedStateMachineClient leastOutstanding = clients[startIndex];
+        int leastInFlight = leastOutstanding.getInFlightCount();
+        for (int i = 1; i < clients.length && leastInFlight > 0; i++) {
+            final ReplicatedStateMachineClient client = clients[(startIndex + i) % clients.length];
+            final int inFlight = client.getInFlightCount();
+            if (inFlight < leastInFlight) {
+                leastOutstanding = client;
+                leastInFlight = inFlight;
+            }
+        }
+
+        return leastOutstanding;
+    }
+
+    public int size() {
+        return clients.length;
+    }
+
+    public ReplicatedStateMachineClient client(final int index) {
+        return clients[index];
+    }
+}
@@ -0,0 +1,25 @@
+package rsm.client;
+
+/**
+ * Receives the response to a request sent with one of the asynchronous methods of
+ * {@link ReplicatedStateMachineClient}. It is invoked on the client's egress polling thread, so it must not block.
+ */
+@FunctionalInterface
+public interface ResponseListener {
+
+    /**
+     * @param context the caller supplied with the request.
+     * @param value   of the state machine after the request was applied.
+     * @param nodeId  of the cluster node that replied.
+     */
+    void onResponse(long context, long value, int nodeId);
+
+    /**
+     * Called instead of {@link #onResponse(long, long, int)} when the cluster rejected the request without applying it.
+     *
+     * @param context the caller supplied with the request.
+     * @param reason  the request was rejected for.
+     */
+    default void onRejected(long context, BackPressureException.Reason reason) {
+    }
+}
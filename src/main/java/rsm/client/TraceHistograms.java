@@ -0,0 +1,54 @@
+package rsm.client;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import rsm.common.TraceClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-hop latencies of traced requests, recorded in nanoseconds:
+ * <ul>
+ *     <li>ingress to log - from the client sending the request to the cluster appending it to the log</li>
+ *     <li>log to apply - from the log append to the service applying the request</li>
+ *     <li>apply to egress receipt - from the service applying the request to the client receiving the response</li>
+ * </ul>
+ * Every time is read from the {@link TraceClock}, which the consensus module also uses for the cluster timestamp the log
+ * append time comes from, so the hops have nanosecond resolution and compare times from the same clock.
+ */
+public class TraceHistograms {
+
+    private static final long HIGHEST_TRACKABLE_VALUE_NS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Histogram ingressToLog = new ConcurrentHistogram(HIGHEST_TRACKABLE_VALUE_NS, 3);
+    private final Histogram logToApply = new ConcurrentHistogram(HIGHEST_TRACKABLE_VALUE_NS, 3);
+    private final Histogram applyToEgressReceipt = new ConcurrentHistogram(HIGHEST_TRACKABLE_VALUE_NS, 3);
+
+    public void record(final long sendTimeNs, final long logTimeNs, final long applyTimeNs, final long receiveTimeNs) {
+        recordHop(ingressToLog, logTimeNs - sendTimeNs);
+        recordHop(logToApply, applyTimeNs - logTimeNs);
+        recordHop(applyToEgressReceipt, receiveTimeNs - applyTimeNs);
+    }
+
+    public Histogram ingressToLog() {
+        return ingressToLog.copy();
+    }
+
+    public Histogram logToApply() {
+        return logToApply.copy();
+    }
+
+    public Histogram applyToEgressReceipt() {
+        return applyToEgressReceipt.copy();
+    }
+
+    public void reset() {
+        ingressToLog.reset();
+        logToApply.reset();
+        applyToEgressReceipt.reset();
+    }
+
+    private static void recordHop(final Histogram histogram, final long latencyNs) {
+        histogram.recordValue(Math.min(HIGHEST_TRACKABLE_VALUE_NS, Math.max(0L, latencyNs)));
+    }
+}
@@ -0,0 +1,115 @@
+package rsm.client;
+
+import org.agrona.BitUtil;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.LongArrayList;
+import rsm.node.TransactionCodec;
+
+/**
+ * Preconditions and writes that the cluster applies atomically as a single log entry: either every precondition holds
+ * against the state before the transaction and all writes are applied, or none are.
+ * <p>
+ * The value and version of every key named in the transaction are returned in the {@link TransactionResult}, in the
+ * order the preconditions and writes were added, so a key can be read with {@link #read(long)} to prepare the next
+ * transaction.
+ */
+public class Transaction {
+
+    private final IntArrayList preconditionKinds = new IntArrayList();
+    private final LongArrayList preconditionKeys = new LongArrayList();
+    private final LongArrayList preconditionOperands = new LongArrayList();
+    private final LongArrayList writeKeys = new LongArrayList();
+    private final LongArrayList writeValues = new LongArrayList();
+    private final LongArrayList writeTtls = new LongArrayList();
+
+    /**
+     * Requires the value of a key to equal an expected value.
+     */
+    public Transaction expectValue(final long key, final long expectedValue) {
+        return addPrecondition(TransactionCodec.VALUE_EQUALS, key, expectedValue);
+    }
+
+    /**
+     * Requires the version of a key to equal an expected version, 0 meaning the key was never written.
+     */
+    public Transaction expectVersion(final long key, final long expectedVersion) {
+        return addPrecondition(TransactionCodec.VERSION_EQUALS, key, expectedVersion);
+    }
+
+    /**
+     * Reads a key into the result without constraining the transaction.
+     */
+    public Transaction read(final long key) {
+        return addPrecondition(TransactionCodec.READ, key, 0L);
+    }
+
+    public Transaction write(final long key, final long value) {
+        return write(key, value, 0L);
+    }
+
+    /**
+     * Writes a key that expires a number of milliseconds after the transaction is applied, 0 for never.
+     */
+    public Transaction write(final long key, final long value, final long ttlMs) {
+        if (ttlMs < 0) {
+            throw new IllegalArgumentException("TTL must not be negative: " + ttlMs);
+        }
+        if (writeKeys.size() == TransactionCodec.MAX_WRITES) {
+            throw new IllegalStateException("A transaction holds at most " + TransactionCodec.MAX_WRITES + " writes");
+        }
+
+        writeKeys.addLong(key);
+        writeValues.addLong(value);
+        writeTtls.addLong(ttlMs);
+        return this;
+    }
+
+    public int preconditionCount() {
+        return preconditionKinds.size();
+    }
+
+    public int writeCount() {
+        return writeKeys.size();
+    }
+
+    /**
+     * Encodes the body of the transaction request.
+     *
+     * @param buffer to encode into, holding the request header.
+     * @return the length of the request including its header.
+     */
+    int encode(final MutableDirectBuffer buffer) {
+        final int preconditionCount = preconditionCount();
+        buffer.putInt(TransactionCodec.PRECONDITION_COUNT_POSITION, preconditionCount);
+        buffer.putInt(TransactionCodec.WRITE_COUNT_POSITION, writeCount());
+
+        for (int i = 0; i < preconditionCount; i++) {
+            final int preconditionOffset = TransactionCodec.preconditionOffset(0, i);
+            buffer.putInt(preconditionOffset + TransactionCodec.PRECONDITION_KIND_OFFSET, preconditionKinds.getInt(i));
+            buffer.putInt(preconditionOffset + TransactionCodec.PRECONDITION_KIND_OFFSET + BitUtil.SIZE_OF_INT, 0);
+            buffer.putLong(preconditionOffset + TransactionCodec.PRECONDITION_KEY_OFFSET, preconditionKeys.getLong(i));
+            buffer.putLong(preconditionOffset + TransactionCodec.PRECONDITION_OPERAND_OFFSET, preconditionOperands.getLong(i));
+        }
+
+        for (int i = 0; i < writeCount(); i++) {
+            final int writeOffset = TransactionCodec.writeOffset(0, preconditionCount, i);
+            buffer.putLong(writeOffset + TransactionCodec.WRITE_KEY_OFFSET, writeKeys.getLong(i));
+            buffer.putLong(writeOffset + TransactionCodec.WRITE_VALUE_OFFSET, writeValues.getLong(i));
+            buffer.putLong(writeOffset + TransactionCodec.WRITE_TTL_OFFSET, writeTtls.getLong(i));
+        }
+
+        return TransactionCodec.requestBodyLength(preconditionCount, writeCount());
+    }
+
+    private Transaction addPrecondition(final int kind, final long key, final long operand) {
+        if (preconditionKinds.size() == TransactionCodec.MAX_PRECONDITIONS) {
+            throw new IllegalStateException("A transaction holds at most " + TransactionCodec.MAX_PRECONDITIONS + " preconditions");
+        }
+
+        preconditionKinds.addInt(kind);
+        preconditionKeys.addLong(key);
+        preconditionOperands.addLong(operand);
+        return this;
+    }
+}
@@ -0,0 +1,81 @@
+package rsm.client;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import rsm.node.TransactionCodec;
+
+/**
+ * Outcome of a {@link Transaction} together with the value and version of each key it named, as they were after the
+ * transaction was applied or aborted. Entries are indexed in the order the preconditions and then the writes were
+ * added to the transaction.
+ */
+public class TransactionResult {
+
+    /**
+     * How the cluster disposed of a transaction.
+     */
+    public enum Outcome
+    {
+        /**
+         * Every precondition held and all writes were applied.
+         */
+        COMMITTED,
+
+        /**
+         * A precondition did not hold and no write was applied.
+         */
+        ABORTED,
+
+        /**
+         * The transaction is a resubmission of one the cluster had already disposed of, whose outcome was not
+         * retained. The entries reflect the current state.
+         */
+        DUPLICATE
+    }
+
+    private final Outcome outcome;
+    private final int failedPreconditionIndex;
+    private final UnsafeBuffer result;
+
+    TransactionResult(final Outcome outcome, final int failedPreconditionIndex, final byte[] result) {
+        this.outcome = outcome;
+        this.failedPreconditionIndex = failedPreconditionIndex;
+        this.result = new UnsafeBuffer(result);
+    }
+
+    public Outcome outcome() {
+        return outcome;
+    }
+
+    public boolean isCommitted() {
+        return outcome == Outcome.COMMITTED;
+    }
+
+    /**
+     * Gets the index of the precondition that did not hold.
+     *
+     * @return the precondition index, or -1 unless the transaction was aborted.
+     */
+    public int failedPreconditionIndex() {
+        return failedPreconditionIndex;
+    }
+
+    public int entryCount() {
+        return result.capacity() == 0 ? 0 : result.getInt(TransactionCodec.RESULT_ENTRY_COUNT_OFFSET);
+    }
+
+    public long value(final int index) {
+        return result.getLong(entryOffset(index) + TransactionCodec.RESULT_ENTRY_VALUE_OFFSET);
+    }
+
+    public long version(final int index) {
+        return result.getLong(entryOffset(index) + TransactionCodec.RESULT_ENTRY_VERSION_OFFSET);
+    }
+
+    private int entryOffset(final int index) {
+        if (index < 0 || index >= entryCount()) {
+            throw new IndexOutOfBoundsException("Entry " + index + " of " + entryCount());
+        }
+
+        return TransactionCodec.RESULT_ENTRIES_OFFSET + index * TransactionCodec.RESULT_ENTRY_LENGTH;
+    }
+}
@@ -0,0 +1,24 @@
+package rsm.client;
+
+/**
+ * Value of the state machine after a request was applied, with the ID of the cluster node that replied to that
+ * request.
+ */
+public class ValueResult {
+
+    private final long value;
+    private final int nodeId;
+
+    ValueResult(final long value, final int nodeId) {
+        this.value = value;
+        this.nodeId = nodeId;
+    }
+
+    public long value() {
+        return value;
+    }
+
+    public int nodeId() {
+        return nodeId;
+    }
+}
@@ -25,34 +25,105 @@ public class ClusterNodeConfig
     public static final int MEMBER_FACING_PORT_OFFSET = 3;
     public static final int LOG_PORT_OFFSET = 4;
     public static final int TRANSFER_PORT_OFFSET = 5;
+    public static final int METRICS_PORT_OFFSET = 6;
+
+    /**
+     * Parent of the node directories of persistent {@link DurabilityMode}s, relative to the working directory.
+     */
+    public static final String DEFAULT_DATA_DIR = "rsm-data";
+
+    /**
+     * Unit of the consensus module's clock on every node, and so of the timestamps in the cluster log. Followers that
+     * replay the log must convert its timestamps with the same unit. The clock reads the {@link TraceClock}, so traced
+     * requests get the log append time with the same resolution and epoch as their other hops.
+     */
+    public static final TimeUnit CLUSTER_TIME_UNIT = TimeUnit.NANOSECONDS;
+
+    /**
+     * Sustained rate of messages per second each session may have applied, 0 for unlimited. Every node and every
+     * follower of the log applies this limit, so they all reject the same requests.
+     */
+    public static final long RATE_LIMIT_MESSAGES_PER_SECOND = 0L;
+
+    /**
+     * Number of messages a session may send at once after being idle, 0 for one second's worth.
+     */
+    public static final long RATE_LIMIT_BURST = 0L;
+
+    /**
+     * Whether keys are kept in an ordered index so range requests can be served. Without the index range requests are
+     * rejected as invalid, so every node and every follower of the log must agree on it.
+     */
+    public static final boolean ORDERED_KEY_INDEX_ENABLED = true;
+
+    /**
+     * Distance between the IPC stream IDs of nodes sharing a media driver, so that node {@code n} uses the default
+     * stream IDs plus {@code n * SHARED_DRIVER_STREAM_ID_STRIDE}.
+     */
+    public static final int SHARED_DRIVER_STREAM_ID_STRIDE = 1000;
+
+    /**
+     * Term length of the publications of a media driver shared by several nodes, the minimum Aeron allows.
+     */
+    public static final int SHARED_DRIVER_TERM_LENGTH = 64 * 1024;
 
     private final MediaDriver.Context mediaDriverContext;
     private final Archive.Context archiveContext;
     private final AeronArchive.Context aeronArchiveContext;
     private final ConsensusModule.Context consensusModuleContext;
     private final ClusteredServiceContainer.Context clusteredServiceContext;
+    private final String hostname;
+    private final int metricsPort;
+    private boolean isMediaDriverShared;
+    private int warmupIterations;
 
     ClusterNodeConfig(
             final MediaDriver.Context mediaDriverContext,
             final Archive.Context archiveContext,
             final AeronArchive.Context aeronArchiveContext,
             final ConsensusModule.Context consensusModuleContext,
-            final ClusteredServiceContainer.Context clusteredServiceContext)
+            final ClusteredServiceContainer.Context clusteredServiceContext,
+            final String hostname,
+            final int metricsPort)
     {
         this.mediaDriverContext = mediaDriverContext;
         this.archiveContext = archiveContext;
         this.aeronArchiveContext = aeronArchiveContext;
         this.consensusModuleContext = consensusModuleContext;
         this.clusteredServiceContext = clusteredServiceContext;
+        this.hostname = hostname;
+        this.metricsPort = metricsPort;
     }
 
     public static ClusterNodeConfig create(
             final int nodeId,
             final List<String> clusterHostnames,
             final ClusteredService clusteredService)
+    {
+        return create(nodeId, clusterHostnames, clusteredService, DurabilityMode.MEMORY, DEFAULT_DATA_DIR);
+    }
+
+    /**
+     * Creates the configuration of a node that keeps its state as durably as a mode requires. The media driver's
+     * directory stays under {@code /dev/shm} whatever the mode, since it only holds IPC buffers.
+     *
+     * @param nodeId           of the node.
+     * @param clusterHostnames of all nodes, indexed by node ID.
+     * @param clusteredService to run on the node.
+     * @param durabilityMode   of the node's archive and cluster directories.
+     * @param dataDir          parent of the node's directories in persistent modes.
+     * @return the node configuration.
+     */
+    public static ClusterNodeConfig create(
+            final int nodeId,
+            final List<String> clusterHostnames,
+            final ClusteredService clusteredService,
+            final DurabilityMode durabilityMode,
+            final String dataDir)
     {
         final String aeronDir = shmDirForName("rsm-cluster-node-" + nodeId);
-        final String baseDir = shmDirForName("rsm-cluster-driver-" + nodeId);
+        final File baseDir = baseDir(nodeId, durabilityMode, dataDir);
+        final boolean deleteOnStart = !durabilityMode.isPersistent();
         final String nodeHostname = clusterHostnames.get(nodeId);
 
         final String archiveControlChannel = udpChannel(nodeId, nodeHostname, ARCHIVE_CONTROL_PORT_OFFSET);
@@ -74,10 +145,14 @@ public class ClusterNodeConfig
                 .dirDeleteOnStart(true);
 
         archiveContext
-                .archiveDir(new File(baseDir, "archive"))
+                .archiveDir(archiveDir(baseDir))
                 .controlChannel(archiveControlChannel)
                 .localControlChannel(archiveLogControlChannel)
                 .recordingEventsEnabled(false)
+                .fileSyncLevel(durabilityMode.fileSyncLevel())
+                .catalogFileSyncLevel(durabilityMode.catalogFileSyncLevel())
+                .segmentFileLength(durabilityMode.segmentFileLength())
+                .deleteArchiveOnStart(deleteOnStart)
                 .threadingMode(ArchiveThreadingMode.SHARED);
 
         aeronArchiveContext
@@ -92,6 +167,7 @@ public class ClusterNodeConfig
 
         consensusModuleContext
                 .sessionTimeoutNs(TimeUnit.MINUTES.toNanos(60))
+                .clusterClock(new TraceClusterClock(CLUSTER_TIME_UNIT))
                 .errorHandler(Throwable::printStackTrace)
                 .clusterMemberId(nodeId)
                 .clusterMembers(clusterMembers)
@@ -100,7 +176,7 @@ public class ClusterNodeConfig
                 .ingressChannel(ingressChannel)
                 .logChannel(consensusModuleLogChannel)
                 .archiveContext(aeronArchiveContext.clone())
-                .deleteDirOnStart(true);
+                .deleteDirOnStart(deleteOnStart);
 
         serviceContainerContext
                 .aeronDirectoryName(aeronDir)
@@ -109,7 +185,108 @@ public class ClusterNodeConfig
                 .clusteredService(clusteredService)
                 .errorHandler(Throwable::printStackTrace);
 
-        return new ClusterNodeConfig(mediaDriverContext, archiveContext, aeronArchiveContext, consensusModuleContext, serviceContainerContext);
+        return new ClusterNodeConfig(
+                mediaDriverContext,
+                archiveContext,
+                aeronArchiveContext,
+                consensusModuleContext,
+                serviceContainerContext,
+                nodeHostname,
+                calculatePort(nodeId, METRICS_PORT_OFFSET));
+    }
+
+    /**
+     * Creates the context of a media driver to be shared by all the nodes of a cluster running in one process. It
+     * runs a single thread and allocates sparse terms of {@link #SHARED_DRIVER_TERM_LENGTH} bytes, so that a dense
+     * cluster costs little more memory than one node.
+     *
+     * @param aeronDirectoryName of the shared driver.
+     * @return the media driver context.
+     */
+    public static MediaDriver.Context sharedMediaDriverContext(final String aeronDirectoryName)
+    {
+        return new MediaDriver.Context()
+                .aeronDirectoryName(aeronDirectoryName)
+                .threadingMode(ThreadingMode.SHARED)
+                .termBufferSparseFile(true)
+                .publicationTermBufferLength(SHARED_DRIVER_TERM_LENGTH)
+                .ipcTermBufferLength(SHARED_DRIVER_TERM_LENGTH)
+                .multicastFlowControlSupplier(new MinMulticastFlowControlSupplier())
+                .dirDeleteOnStart(true)
+                .dirDeleteOnShutdown(true);
+    }
+
+    /**
+     * Points the node's archive, consensus module and service container at a media driver shared with other nodes in
+     * the same process instead of a driver of its own. The node's member ID becomes the cluster ID that scopes its
+     * counters in the shared driver, and the streams its components exchange over IPC are offset by
+     * {@link #SHARED_DRIVER_STREAM_ID_STRIDE} per member ID. Streams between members keep their IDs, which all members
+     * must agree on.
+     *
+     * @param aeronDirectoryName of the shared driver.
+     * @return this for a fluent API.
+     */
+    public ClusterNodeConfig shareMediaDriver(final String aeronDirectoryName)
+    {
+        final int nodeId = consensusModuleContext.clusterMemberId();
+        final int streamIdOffset = nodeId * SHARED_DRIVER_STREAM_ID_STRIDE;
+
+        mediaDriverContext.aeronDirectoryName(aeronDirectoryName);
+
+        archiveContext
+                .aeronDirectoryName(aeronDirectoryName)
+                .localControlStreamId(archiveContext.localControlStreamId() + streamIdOffset);
+
+        aeronArchiveContext.aeronDirectoryName(aeronDirectoryName);
+
+        consensusModuleContext
+                .aeronDirectoryName(aeronDirectoryName)
+                .clusterId(nodeId)
+                .serviceStreamId(consensusModuleContext.serviceStreamId() + streamIdOffset)
+                .consensusModuleStreamId(consensusModuleContext.consensusModuleStreamId() + streamIdOffset)
+                .snapshotStreamId(consensusModuleContext.snapshotStreamId() + streamIdOffset)
+                .replayStreamId(consensusModuleContext.replayStreamId() + streamIdOffset);
+        consensusModuleContext.archiveContext().aeronDirectoryName(aeronDirectoryName);
+
+        clusteredServiceContext
+                .aeronDirectoryName(aeronDirectoryName)
+                .clusterId(nodeId)
+                .serviceStreamId(clusteredServiceContext.serviceStreamId() + streamIdOffset)
+                .consensusModuleStreamId(clusteredServiceContext.consensusModuleStreamId() + streamIdOffset)
+                .snapshotStreamId(clusteredServiceContext.snapshotStreamId() + streamIdOffset)
+                .replayStreamId(clusteredServiceContext.replayStreamId() + streamIdOffset);
+        clusteredServiceContext.archiveContext().aeronDirectoryName(aeronDirectoryName);
+
+        isMediaDriverShared = true;
+        return this;
+    }
+
+    /**
+     * Gets whether the node runs against a media driver shared with other nodes rather than launching its own.
+     *
+     * @return true if {@link #shareMediaDriver(String)} was applied.
+     */
+    public boolean isMediaDriverShared()
+    {
+        return isMediaDriverShared;
+    }
+
+    /**
+     * Sets the number of iterations of warm-up requests the node runs through a throwaway service before launching its
+     * service container, 0 by default.
+     *
+     * @param warmupIterations to run, 0 to start cold.
+     * @return this for a fluent API.
+     */
+    public ClusterNodeConfig warmupIterations(final int warmupIterations)
+    {
+        this.warmupIterations = warmupIterations;
+        return this;
+    }
+
+    public int warmupIterations()
+    {
+        return warmupIterations;
     }
 
     /**
@@ -167,6 +344,26 @@ public class ClusterNodeConfig
         return clusteredServiceContext;
     }
 
+    /**
+     * Gets the hostname of the node.
+     *
+     * @return the hostname the node's endpoints are bound to.
+     */
+    public String hostname()
+    {
+        return hostname;
+    }
+
+    /**
+     * Gets the port on which the node serves its metrics over HTTP.
+     *
+     * @return the metrics port.
+     */
+    public int metricsPort()
+    {
+        return metricsPort;
+    }
+
 
     public static int calculatePort(final int nodeId, final int offset)
     {
@@ -225,6 +422,37 @@ public class ClusterNodeConfig
         return sb.toString();
     }
 
+    /**
+     * Resolves the directory a node keeps its archive, consensus module and service directories under.
+     *
+     * @param nodeId         of the node.
+     * @param durabilityMode the node runs with.
+     * @param dataDir        parent of the node's directories in persistent modes.
+     * @return the node's base directory.
+     */
+    public static File baseDir(final int nodeId, final DurabilityMode durabilityMode, final String dataDir)
+    {
+        return durabilityMode.baseDir(dataDir, "rsm-cluster-driver-" + nodeId);
+    }
+
+    /**
+     * Resolves the archive directory of a node, e.g. for tools that open a stopped node's archive.
+     *
+     * @param nodeId         of the node.
+     * @param durabilityMode the node runs with.
+     * @param dataDir        parent of the node's directories in persistent modes.
+     * @return the node's archive directory.
+     */
+    public static File archiveDir(final int nodeId, final DurabilityMode durabilityMode, final String dataDir)
+    {
+        return archiveDir(baseDir(nodeId, durabilityMode, dataDir));
+    }
+
+    private static File archiveDir(final File baseDir)
+    {
+        return new File(baseDir, "archive");
+    }
+
     public static String shmDirForName(String name)
     {
         return "/dev/shm" + File.separator + name;
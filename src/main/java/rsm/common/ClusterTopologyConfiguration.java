@@ -15,6 +15,8 @@ import java.util.Map;
 public class ClusterTopologyConfiguration
 {
     private Map<Integer, String> nodes;
+    private DurabilityMode durabilityMode = DurabilityMode.MEMORY;
+    private String dataDir = ClusterNodeConfig.DEFAULT_DATA_DIR;
 
     public static ClusterTopologyConfiguration fromYaml(final String fileName)
     {
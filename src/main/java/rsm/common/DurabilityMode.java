@@ -0,0 +1,101 @@
+package rsm.common;
+
+import java.io.File;
+
+/**
+ * How durably a node keeps its archived log and cluster state, traded against the latency of committing SETs.
+ * <p>
+ * A mode decides where the archive, consensus module and service directories live, how the archive syncs recordings
+ * and its catalog to storage, and the length of archive segment files. The consensus module counts a log position
+ * towards the commit quorum once the archive has recorded it, so with {@link #FSYNC} a SET is only acknowledged after
+ * a majority of nodes have forced it to storage.
+ */
+public enum DurabilityMode
+{
+    /**
+     * Everything is kept under {@code /dev/shm}, so it does not survive a restart of the host, and is deleted when a
+     * node starts. Segments are small since they occupy memory.
+     */
+    MEMORY(false, 0, 0, 16 * 1024 * 1024),
+
+    /**
+     * Directories live on disk and are kept across restarts. Writes are flushed to disk by the OS in the background,
+     * so an acknowledged SET can be lost if a majority of hosts fail before their page cache is written back.
+     */
+    ASYNC(true, 0, 1, 128 * 1024 * 1024),
+
+    /**
+     * Directories live on disk and are kept across restarts. Every recorded write forces its data to disk, and every
+     * catalog update forces data and metadata, before the position counts towards the commit quorum.
+     */
+    FSYNC(true, 1, 2, 128 * 1024 * 1024);
+
+    private final boolean isPersistent;
+    private final int fileSyncLevel;
+    private final int catalogFileSyncLevel;
+    private final int segmentFileLength;
+
+    DurabilityMode(
+            final boolean isPersistent,
+            final int fileSyncLevel,
+            final int catalogFileSyncLevel,
+            final int segmentFileLength)
+    {
+        this.isPersistent = isPersistent;
+        this.fileSyncLevel = fileSyncLevel;
+        this.catalogFileSyncLevel = catalogFileSyncLevel;
+        this.segmentFileLength = segmentFileLength;
+    }
+
+    /**
+     * Gets whether the node's directories are on disk and kept when it starts.
+     *
+     * @return true if state survives a restart.
+     */
+    public boolean isPersistent()
+    {
+        return isPersistent;
+    }
+
+    /**
+     * Gets the sync level of archive recordings: 0 for none, 1 for data, 2 for data and metadata.
+     *
+     * @return the file sync level.
+     */
+    public int fileSyncLevel()
+    {
+        return fileSyncLevel;
+    }
+
+    /**
+     * Gets the sync level of the archive catalog, which must be at least the {@link #fileSyncLevel()}.
+     *
+     * @return the catalog file sync level.
+     */
+    public int catalogFileSyncLevel()
+    {
+        return catalogFileSyncLevel;
+    }
+
+    /**
+     * Gets the length of archive segment files, a power of two multiple of the log term length.
+     *
+     * @return the segment file length in bytes.
+     */
+    public int segmentFileLength()
+    {
+        return segmentFileLength;
+    }
+
+    /**
+     * Resolves the directory a node keeps its state under.
+     *
+     * @param dataDir parent directory of persistent modes, ignored by {@link #MEMORY}.
+     * @param name    of the node's directory.
+     * @return the base directory.
+     */
+    public File baseDir(final String dataDir, final String name)
+    {
+        return isPersistent ? new File(dataDir, name) : new File(ClusterNodeConfig.shmDirForName(name));
+    }
+}
@@ -0,0 +1,99 @@
+package rsm.common;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Starts a flight recording with the settings of the {@code rsm.jfc} profile when a process is asked for one with the
+ * {@value #FILE_PROPERTY} system property.
+ * <p>
+ * The recording keeps the last {@value #MAX_AGE_PROPERTY} minutes, default {@value #DEFAULT_MAX_AGE_MINUTES}, and is
+ * written to the file when the JVM exits. It is named {@value #RECORDING_NAME}, so it can be dumped while running with
+ * {@code jcmd <pid> JFR.dump name=rsm filename=<file>} right after a latency spike.
+ */
+public final class FlightRecording
+{
+    public static final String FILE_PROPERTY = "rsm.jfr.file";
+    public static final String MAX_AGE_PROPERTY = "rsm.jfr.maxAgeMinutes";
+    public static final long DEFAULT_MAX_AGE_MINUTES = 30;
+    public static final String RECORDING_NAME = "rsm";
+    public static final String SETTINGS_RESOURCE = "/rsm.jfc";
+
+    private FlightRecording()
+    {
+    }
+
+    /**
+     * Starts the recording if the {@value #FILE_PROPERTY} system property names a file.
+     *
+     * @return the recording, or null if none was asked for.
+     */
+    public static Recording startIfConfigured()
+    {
+        final String file = System.getProperty(FILE_PROPERTY);
+        if (file == null)
+        {
+            return null;
+        }
+
+        final Recording recording = new Recording(settings());
+        recording.setName(RECORDING_NAME);
+        recording.setMaxAge(Duration.ofMinutes(Long.getLong(MAX_AGE_PROPERTY, DEFAULT_MAX_AGE_MINUTES)));
+        recording.setDumpOnExit(true);
+        try
+        {
+            recording.setDestination(Path.of(file));
+        }
+        catch (final IOException ex)
+        {
+            throw new UncheckedIOException("Cannot record to " + file, ex);
+        }
+        recording.start();
+
+        return recording;
+    }
+
+    /**
+     * Gets the JDK's profile settings overridden by those of the {@code rsm.jfc} profile.
+     *
+     * @return the event settings.
+     */
+    public static Map<String, String> settings()
+    {
+        try (InputStream inputStream = FlightRecording.class.getResourceAsStream(SETTINGS_RESOURCE))
+        {
+            if (inputStream == null)
+            {
+                throw new IllegalStateException("No " + SETTINGS_RESOURCE + " on the class path");
+            }
+
+            final Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("profile").getSettings());
+            try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8))
+            {
+                settings.putAll(Configuration.create(reader).getSettings());
+            }
+
+            return settings;
+        }
+        catch (final IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        catch (final ParseException ex)
+        {
+            throw new IllegalStateException("Invalid " + SETTINGS_RESOURCE, ex);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package rsm.common;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Time since the JVM started, for processes to report how long they took to become ready. It includes JVM startup and
+ * class loading, which class data sharing archives shorten, and any warm-up the process runs before it is ready.
+ */
+public final class StartupTiming
+{
+    private static final String SHARED_ARCHIVE_FILE_OPTION = "-XX:SharedArchiveFile=";
+
+    private StartupTiming()
+    {
+    }
+
+    public static long millisSinceJvmStart()
+    {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * Gets the application class data sharing archive the JVM was started with.
+     *
+     * @return the archive given by {@code -XX:SharedArchiveFile}, or "none".
+     */
+    public static String sharedArchiveFile()
+    {
+        for (final String argument : ManagementFactory.getRuntimeMXBean().getInputArguments())
+        {
+            if (argument.startsWith(SHARED_ARCHIVE_FILE_OPTION))
+            {
+                return argument.substring(SHARED_ARCHIVE_FILE_OPTION.length());
+            }
+        }
+
+        return "none";
+    }
+}
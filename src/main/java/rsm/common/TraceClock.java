@@ -0,0 +1,31 @@
+package rsm.common;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Epoch time with nanosecond resolution for tracing messages across processes.
+ * <p>
+ * The epoch offset of {@link System#nanoTime()} is sampled once when the class is loaded, from the wall clock with the
+ * finest resolution the platform offers rather than milliseconds, so reading the clock does not allocate and processes
+ * on the same host agree to within that resolution. Timestamps from different hosts are only comparable to the extent their wall clocks are synchronised.
+ */
+public final class TraceClock
+{
+    private static final long EPOCH_OFFSET_NS = epochOffsetNs();
+
+    private TraceClock()
+    {
+    }
+
+    public static long epochNanos()
+    {
+        return System.nanoTime() + EPOCH_OFFSET_NS;
+    }
+
+    private static long epochOffsetNs()
+    {
+        final Instant now = Instant.now();
+        return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano() - System.nanoTime();
+    }
+}
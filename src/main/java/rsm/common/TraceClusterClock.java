@@ -0,0 +1,29 @@
+package rsm.common;
+
+import io.aeron.cluster.ClusterClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster clock that reads the {@link TraceClock}, so the timestamps the consensus module puts in the log can be
+ * compared with the trace timestamps of clients and services.
+ */
+public final class TraceClusterClock implements ClusterClock
+{
+    private final TimeUnit timeUnit;
+
+    public TraceClusterClock(final TimeUnit timeUnit)
+    {
+        this.timeUnit = timeUnit;
+    }
+
+    public TimeUnit timeUnit()
+    {
+        return timeUnit;
+    }
+
+    public long time()
+    {
+        return timeUnit.convert(TraceClock.epochNanos(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,321 @@
+package rsm.gateway;
+
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rsm.client.BackPressureException;
+import rsm.client.ClientConfig;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.client.ResponseListener;
+import rsm.node.MessageType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static rsm.gateway.BinaryGatewayCodec.*;
+
+/**
+ * TCP front end to the cluster speaking the {@link BinaryGatewayCodec} framing.
+ * <p>
+ * A single selector thread reads requests from all connections and forwards them with the asynchronous client API,
+ * so any number of requests can be pipelined on a connection. Responses are encoded on the client's polling thread
+ * into the connection's outbound buffer and written out by the selector thread.
+ * <p>
+ * The client must use {@link ClientConfig.AdmissionPolicy#FAIL_FAST}, see {@link #clientConfig()}, so that a full
+ * in-flight window or a back pressured ingress is answered straight away instead of stalling the selector thread and
+ * with it every connection.
+ * <p>
+ * A connection whose peer reads its responses slower than it sends requests stops being read once
+ * {@link #READ_PAUSE_THRESHOLD} bytes of responses are waiting to be written, and is read again when they drain.
+ * Responses to the requests still in flight are buffered up to {@link #MAX_OUTBOUND_CAPACITY} bytes, beyond which the
+ * connection is closed.
+ */
+public class BinaryGateway implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryGateway.class);
+    public static final int DEFAULT_PORT = 8081;
+    private static final int BUFFER_CAPACITY = 64 * 1024;
+    static final int READ_PAUSE_THRESHOLD = BUFFER_CAPACITY;
+    static final int MAX_OUTBOUND_CAPACITY = 16 * BUFFER_CAPACITY;
+
+    private final ReplicatedStateMachineClient client;
+    private final int port;
+    private final Queue<Connection> pendingFlushes = new ConcurrentLinkedQueue<>();
+    private volatile boolean running;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+
+    public BinaryGateway(final ReplicatedStateMachineClient client) {
+        this(client, DEFAULT_PORT);
+    }
+
+    public BinaryGateway(final ReplicatedStateMachineClient client, final int port) {
+        if (client.getConfig().admissionPolicy() != ClientConfig.AdmissionPolicy.FAIL_FAST) {
+            throw new IllegalArgumentException("Binary gateway needs a client with the FAIL_FAST admission policy");
+        }
+
+        this.client = client;
+        this.port = port;
+    }
+
+    /**
+     * Creates the configuration of a client for the gateway to forward requests with.
+     *
+     * @return a client configuration with the {@link ClientConfig.AdmissionPolicy#FAIL_FAST} admission policy.
+     */
+    public static ClientConfig clientConfig() {
+        return new ClientConfig().admissionPolicy(ClientConfig.AdmissionPolicy.FAIL_FAST);
+    }
+
+    public void start() {
+        client.start();
+
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        running = true;
+        selectorThread = new Thread(this::run, "binary-gateway");
+        selectorThread.start();
+
+        log.info("Binary gateway listening on port {}", port);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (selectorThread != null) {
+            try {
+                selectorThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        CloseHelper.quietClose(serverChannel);
+        CloseHelper.quietClose(selector);
+        client.stop();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select(100);
+
+                Connection connection;
+                while ((connection = pendingFlushes.poll()) != null) {
+                    connection.flush();
+                }
+
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+
+                    final Connection keyConnection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        keyConnection.read();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        keyConnection.flush();
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Binary gateway selector failed", e);
+            }
+        }
+
+        for (final SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection) {
+                connection.close();
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+
+        final Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        log.info("Accepted binary gateway connection from {}", channel.getRemoteAddress());
+    }
+
+    private static byte status(final BackPressureException.Reason reason) {
+        return reason == BackPressureException.Reason.RATE_LIMITED ? STATUS_RATE_LIMITED : STATUS_BACK_PRESSURED;
+    }
+
+    private final class Connection implements ResponseListener {
+
+        private final SocketChannel channel;
+        private final ByteBuffer inbound = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+        private final UnsafeBuffer inboundBuffer = new UnsafeBuffer(inbound);
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private ByteBuffer outbound = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+        private UnsafeBuffer outboundBuffer = new UnsafeBuffer(outbound);
+        private SelectionKey key;
+        private volatile boolean closed;
+
+        private Connection(final SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void read() {
+            final int bytesRead;
+            try {
+                bytesRead = channel.read(inbound);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+
+            if (bytesRead < 0) {
+                close();
+                return;
+            }
+
+            final int available = inbound.position();
+            int offset = 0;
+            while (available - offset >= LENGTH_FIELD_LENGTH) {
+                final int bodyLength = bodyLength(inboundBuffer, offset);
+                if (bodyLength < MIN_REQUEST_LENGTH || bodyLength > MAX_REQUEST_LENGTH) {
+                    log.warn("Closing connection after frame of invalid length {}", bodyLength);
+                    close();
+                    return;
+                }
+                if (available - offset < LENGTH_FIELD_LENGTH + bodyLength) {
+                    break;
+                }
+
+                onRequest(offset + LENGTH_FIELD_LENGTH, bodyLength);
+                offset += LENGTH_FIELD_LENGTH + bodyLength;
+            }
+
+            inbound.limit(available).position(offset);
+            inbound.compact();
+        }
+
+        private void onRequest(final int offset, final int length) {
+            final long requestId = inboundBuffer.getLong(offset + REQUEST_ID_OFFSET, BYTE_ORDER);
+            final byte type = inboundBuffer.getByte(offset + REQUEST_TYPE_OFFSET);
+
+            try {
+                if (type == (byte) MessageType.GET.getCharCode()) {
+                    client.getValueAsync(this, requestId);
+                } else if (type == (byte) MessageType.SET.getCharCode() && length == SET_REQUEST_LENGTH) {
+                    client.setValueAsync(inboundBuffer.getLong(offset + REQUEST_VALUE_OFFSET, BYTE_ORDER), this, requestId);
+                } else {
+                    respond(requestId, STATUS_BAD_REQUEST, 0L, -1);
+                }
+            } catch (final BackPressureException ex) {
+                respond(requestId, status(ex.getReason()), 0L, -1);
+            }
+        }
+
+        @Override
+        public void onResponse(final long context, final long value, final int nodeId) {
+            respond(context, STATUS_OK, value, nodeId);
+        }
+
+        @Override
+        public void onRejected(final long context, final BackPressureException.Reason reason) {
+            respond(context, status(reason), 0L, -1);
+        }
+
+        private void respond(final long requestId, final byte status, final long value, final int nodeId) {
+            if (closed) {
+                return;
+            }
+
+            synchronized (this) {
+                if (outbound.remaining() < LENGTH_FIELD_LENGTH + RESPONSE_LENGTH) {
+                    if (outbound.capacity() == MAX_OUTBOUND_CAPACITY) {
+                        log.warn("Closing connection with {} bytes of responses its peer does not read", outbound.position());
+                        close();
+                        return;
+                    }
+
+                    final ByteBuffer expanded = ByteBuffer.allocateDirect(Math.min(outbound.capacity() * 2, MAX_OUTBOUND_CAPACITY));
+                    outbound.flip();
+                    expanded.put(outbound);
+                    outbound = expanded;
+                    outboundBuffer = new UnsafeBuffer(outbound);
+                }
+
+                final int position = outbound.position();
+                outbound.position(position + encodeResponse(outboundBuffer, position, requestId, status, value, nodeId));
+            }
+
+            if (flushScheduled.compareAndSet(false, true)) {
+                pendingFlushes.offer(this);
+                selector.wakeup();
+            }
+        }
+
+        private void flush() {
+            flushScheduled.set(false);
+            if (closed) {
+                return;
+            }
+
+            synchronized (this) {
+                outbound.flip();
+                try {
+                    channel.write(outbound);
+                } catch (IOException e) {
+                    close();
+                    return;
+                } finally {
+                    outbound.compact();
+                }
+
+                final int pending = outbound.position();
+                key.interestOps((pending < READ_PAUSE_THRESHOLD ? SelectionKey.OP_READ : 0) |
+                        (pending > 0 ? SelectionKey.OP_WRITE : 0));
+            }
+        }
+
+        private void close() {
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            CloseHelper.quietClose(channel);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package rsm.gateway;
+
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import static rsm.gateway.BinaryGatewayCodec.*;
+
+/**
+ * Reference client for the {@link BinaryGateway}.
+ * <p>
+ * Requests are buffered by {@link #sendGet()} and {@link #sendSet(long)} and written by {@link #flush()}, so callers
+ * can pipeline as many requests as they like before reading the responses with {@link #receive(ResponseHandler)}.
+ * {@link #getValue()} and {@link #setValue(long)} are blocking conveniences for one request at a time. The client is
+ * not thread safe.
+ */
+public class BinaryGatewayClient implements AutoCloseable {
+
+    private static final int BUFFER_CAPACITY = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final ByteBuffer outbound = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+    private final UnsafeBuffer outboundBuffer = new UnsafeBuffer(outbound);
+    private final ByteBuffer inbound = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+    private final UnsafeBuffer inboundBuffer = new UnsafeBuffer(inbound);
+    private final SingleResponse singleResponse = new SingleResponse();
+    private long nextRequestId;
+
+    public BinaryGatewayClient(final String hostname, final int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(hostname, port));
+        this.channel.socket().setTcpNoDelay(true);
+    }
+
+    public long sendGet() throws IOException {
+        ensureOutboundCapacity(LENGTH_FIELD_LENGTH + GET_REQUEST_LENGTH);
+        final long requestId = ++nextRequestId;
+        final int position = outbound.position();
+        outbound.position(position + encodeGetRequest(outboundBuffer, position, requestId));
+
+        return requestId;
+    }
+
+    public long sendSet(final long value) throws IOException {
+        ensureOutboundCapacity(LENGTH_FIELD_LENGTH + SET_REQUEST_LENGTH);
+        final long requestId = ++nextRequestId;
+        final int position = outbound.position();
+        outbound.position(position + encodeSetRequest(outboundBuffer, position, requestId, value));
+
+        return requestId;
+    }
+
+    public void flush() throws IOException {
+        outbound.flip();
+        while (outbound.hasRemaining()) {
+            channel.write(outbound);
+        }
+        outbound.clear();
+    }
+
+    /**
+     * Blocks until at least one response has been received and dispatches all responses received so far.
+     *
+     * @param handler of the responses.
+     * @return the number of responses dispatched.
+     */
+    public int receive(final ResponseHandler handler) throws IOException {
+        int count = 0;
+        while (count == 0) {
+            if (channel.read(inbound) < 0) {
+                throw new EOFException("Binary gateway closed the connection");
+            }
+
+            final int available = inbound.position();
+            int offset = 0;
+            int frameLength;
+            while ((frameLength = completeFrameLength(inboundBuffer, offset, available - offset)) > 0) {
+                final int bodyOffset = offset + LENGTH_FIELD_LENGTH;
+                handler.onResponse(
+                        inboundBuffer.getLong(bodyOffset + REQUEST_ID_OFFSET, BYTE_ORDER),
+                        inboundBuffer.getByte(bodyOffset + RESPONSE_STATUS_OFFSET),
+                        inboundBuffer.getLong(bodyOffset + RESPONSE_VALUE_OFFSET, BYTE_ORDER),
+                        inboundBuffer.getInt(bodyOffset + RESPONSE_NODE_ID_OFFSET, BYTE_ORDER));
+                offset += frameLength;
+                count++;
+            }
+
+            inbound.limit(available).position(offset);
+            inbound.compact();
+        }
+
+        return count;
+    }
+
+    public long getValue() throws IOException {
+        return awaitResponse(sendGet());
+    }
+
+    public long setValue(final long value) throws IOException {
+        return awaitResponse(sendSet(value));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long awaitResponse(final long requestId) throws IOException {
+        flush();
+        singleResponse.requestId = requestId;
+        singleResponse.received = false;
+        while (!singleResponse.received) {
+            receive(singleResponse);
+        }
+
+        if (singleResponse.status != STATUS_OK) {
+            throw new IOException("Request " + requestId + " failed with status " + singleResponse.status);
+        }
+
+        return singleResponse.value;
+    }
+
+    private void ensureOutboundCapacity(final int length) throws IOException {
+        if (outbound.remaining() < length) {
+            flush();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ResponseHandler {
+        void onResponse(long requestId, byte status, long value, int nodeId);
+    }
+
+    private static final class SingleResponse implements ResponseHandler {
+        private long requestId;
+        private boolean received;
+        private byte status;
+        private long value;
+
+        @Override
+        public void onResponse(final long requestId, final byte status, final long value, final int nodeId) {
+            if (requestId == this.requestId) {
+                this.received = true;
+                this.status = status;
+                this.value = value;
+            }
+        }
+    }
+}
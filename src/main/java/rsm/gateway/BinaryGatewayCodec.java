@@ -0,0 +1,111 @@
+package rsm.gateway;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import rsm.node.MessageType;
+
+import java.nio.ByteOrder;
+
+/**
+ * Length-prefixed binary framing spoken by the {@link BinaryGateway}. All fields are little endian, whatever the native
+ * order of either end, see {@link #BYTE_ORDER}.
+ * <pre>
+ * frame    := length:int32 body
+ * request  := requestId:int64 type:int8 [value:int64 if type is SET]
+ * response := requestId:int64 status:int8 value:int64 nodeId:int32
+ * </pre>
+ * The request type is the character code of the {@link MessageType}. Request IDs are chosen by the caller and echoed
+ * back, so requests can be pipelined on a connection and matched to their responses in any order. The length of a
+ * request frame must be that of a GET or SET request; the gateway closes a connection that sends any other length.
+ */
+public final class BinaryGatewayCodec {
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    public static final int LENGTH_FIELD_LENGTH = BitUtil.SIZE_OF_INT;
+
+    public static final int REQUEST_ID_OFFSET = 0;
+    public static final int REQUEST_TYPE_OFFSET = REQUEST_ID_OFFSET + BitUtil.SIZE_OF_LONG;
+    public static final int REQUEST_VALUE_OFFSET = REQUEST_TYPE_OFFSET + BitUtil.SIZE_OF_BYTE;
+    public static final int GET_REQUEST_LENGTH = REQUEST_VALUE_OFFSET;
+    public static final int SET_REQUEST_LENGTH = REQUEST_VALUE_OFFSET + BitUtil.SIZE_OF_LONG;
+
+    public static final int RESPONSE_STATUS_OFFSET = REQUEST_ID_OFFSET + BitUtil.SIZE_OF_LONG;
+    public static final int RESPONSE_VALUE_OFFSET = RESPONSE_STATUS_OFFSET + BitUtil.SIZE_OF_BYTE;
+    public static final int RESPONSE_NODE_ID_OFFSET = RESPONSE_VALUE_OFFSET + BitUtil.SIZE_OF_LONG;
+    public static final int RESPONSE_LENGTH = RESPONSE_NODE_ID_OFFSET + BitUtil.SIZE_OF_INT;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_BACK_PRESSURED = 1;
+    public static final byte STATUS_BAD_REQUEST = 2;
+    public static final byte STATUS_RATE_LIMITED = 3;
+
+    public static final int MIN_REQUEST_LENGTH = GET_REQUEST_LENGTH;
+    public static final int MAX_REQUEST_LENGTH = SET_REQUEST_LENGTH;
+
+    private BinaryGatewayCodec() {
+    }
+
+    public static int encodeGetRequest(final MutableDirectBuffer buffer, final int offset, final long requestId) {
+        final int bodyOffset = offset + LENGTH_FIELD_LENGTH;
+        buffer.putInt(offset, GET_REQUEST_LENGTH, BYTE_ORDER);
+        buffer.putLong(bodyOffset + REQUEST_ID_OFFSET, requestId, BYTE_ORDER);
+        buffer.putByte(bodyOffset + REQUEST_TYPE_OFFSET, (byte) MessageType.GET.getCharCode());
+
+        return LENGTH_FIELD_LENGTH + GET_REQUEST_LENGTH;
+    }
+
+    public static int encodeSetRequest(final MutableDirectBuffer buffer, final int offset, final long requestId, final long value) {
+        final int bodyOffset = offset + LENGTH_FIELD_LENGTH;
+        buffer.putInt(offset, SET_REQUEST_LENGTH, BYTE_ORDER);
+        buffer.putLong(bodyOffset + REQUEST_ID_OFFSET, requestId, BYTE_ORDER);
+        buffer.putByte(bodyOffset + REQUEST_TYPE_OFFSET, (byte) MessageType.SET.getCharCode());
+        buffer.putLong(bodyOffset + REQUEST_VALUE_OFFSET, value, BYTE_ORDER);
+
+        return LENGTH_FIELD_LENGTH + SET_REQUEST_LENGTH;
+    }
+
+    public static int encodeResponse(final MutableDirectBuffer buffer,
+                                     final int offset,
+                                     final long requestId,
+                                     final byte status,
+                                     final long value,
+                                     final int nodeId) {
+        final int bodyOffset = offset + LENGTH_FIELD_LENGTH;
+        buffer.putInt(offset, RESPONSE_LENGTH, BYTE_ORDER);
+        buffer.putLong(bodyOffset + REQUEST_ID_OFFSET, requestId, BYTE_ORDER);
+        buffer.putByte(bodyOffset + RESPONSE_STATUS_OFFSET, status);
+        buffer.putLong(bodyOffset + RESPONSE_VALUE_OFFSET, value, BYTE_ORDER);
+        buffer.putInt(bodyOffset + RESPONSE_NODE_ID_OFFSET, nodeId, BYTE_ORDER);
+
+        return LENGTH_FIELD_LENGTH + RESPONSE_LENGTH;
+    }
+
+    /**
+     * Gets the length of the body of the frame at an offset, as given by its length field.
+     *
+     * @param buffer holding received bytes.
+     * @param offset of the frame's length field, which must have been received.
+     * @return the body length, which may be negative or too long if the peer is faulty.
+     */
+    public static int bodyLength(final DirectBuffer buffer, final int offset) {
+        return buffer.getInt(offset, BYTE_ORDER);
+    }
+
+    /**
+     * Gets the length of the complete frame at an offset.
+     *
+     * @param buffer    holding received bytes.
+     * @param offset    of the frame's length field.
+     * @param available number of received bytes from the offset onwards.
+     * @return the length of the frame including its length field, or 0 if the frame has not been fully received.
+     */
+    public static int completeFrameLength(final DirectBuffer buffer, final int offset, final int available) {
+        if (available < LENGTH_FIELD_LENGTH) {
+            return 0;
+        }
+
+        final int frameLength = LENGTH_FIELD_LENGTH + bodyLength(buffer, offset);
+        return available < frameLength ? 0 : frameLength;
+    }
+}
@@ -0,0 +1,31 @@
+package rsm.gateway;
+
+import lombok.extern.slf4j.Slf4j;
+import org.agrona.concurrent.SigInt;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.common.ClusterTopologyConfiguration;
+import rsm.common.FlightRecording;
+
+@Slf4j
+public class BinaryGatewayMain {
+
+    public static void main(String[] args) {
+        FlightRecording.startIfConfigured();
+
+        final String clientHostName = args[0];
+        final String topologyConfigFile = args[1];
+        final int port = args.length > 2 ? Integer.parseInt(args[2]) : BinaryGateway.DEFAULT_PORT;
+        final ClusterTopologyConfiguration topologyConfig = ClusterTopologyConfiguration.fromYaml(topologyConfigFile);
+
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(
+                clientHostName, topologyConfig.getNodeHostnames(), BinaryGateway.clientConfig());
+
+        log.info("Starting binary gateway on port {} using topology configuration {}", port, topologyConfigFile);
+
+        final BinaryGateway binaryGateway = new BinaryGateway(client, port);
+
+        binaryGateway.start();
+
+        SigInt.register(binaryGateway::close);
+    }
+}
@@ -0,0 +1,149 @@
+package rsm.gateway;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import rsm.client.BackPressureException;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.client.ResponseListener;
+import rsm.gateway.dto.BulkOperation;
+
+import java.io.IOException;
+
+/**
+ * Forwards the operations of one bulk request to the cluster with up to {@link #WINDOW} of them in flight, and writes
+ * a result line per operation, in request order, as soon as it and all operations before it have completed.
+ * <p>
+ * All operations of a stream go through one client, and so one cluster session, so they are applied in request order
+ * and a GET reads the SETs before it in the stream.
+ * <p>
+ * Result lines are NDJSON objects with the operation's {@code index} and either the {@code value} and
+ * {@code serverNodeId} of the response or an {@code error}.
+ */
+class BulkOperationStream implements ResponseListener {
+
+    static final int WINDOW = 256;
+
+    private static final byte PENDING = 0;
+    private static final byte OK = 1;
+    private static final byte BACK_PRESSURED = 2;
+    private static final byte BAD_REQUEST = 3;
+    private static final byte RATE_LIMITED = 4;
+
+    private final ReplicatedStateMachineClient client;
+    private final JsonGenerator generator;
+    private final byte[] outcomes = new byte[WINDOW];
+    private final long[] values = new long[WINDOW];
+    private final int[] nodeIds = new int[WINDOW];
+    private long submitted;
+    private long written;
+
+    BulkOperationStream(final ReplicatedStateMachineClient client, final JsonGenerator generator) {
+        this.client = client;
+        this.generator = generator;
+    }
+
+    void submit(final BulkOperation operation) throws IOException, InterruptedException {
+        while (submitted - written >= WINDOW) {
+            writeCompleted(true);
+        }
+
+        final long index = submitted++;
+        synchronized (this) {
+            outcomes[slot(index)] = PENDING;
+        }
+
+        try {
+            if ("set".equalsIgnoreCase(operation.getOp())) {
+                client.setValueAsync(operation.getValue(), this, index);
+            } else if ("get".equalsIgnoreCase(operation.getOp())) {
+                client.getValueAsync(this, index);
+            } else {
+                complete(index, BAD_REQUEST, 0L, -1);
+            }
+        } catch (final BackPressureException ex) {
+            complete(index, BACK_PRESSURED, 0L, -1);
+        }
+
+        writeCompleted(false);
+    }
+
+    void finish() throws IOException, InterruptedException {
+        while (written < submitted) {
+            writeCompleted(true);
+        }
+        generator.flush();
+    }
+
+    @Override
+    public void onResponse(final long context, final long value, final int nodeId) {
+        complete(context, OK, value, nodeId);
+    }
+
+    @Override
+    public void onRejected(final long context, final BackPressureException.Reason reason) {
+        complete(context, RATE_LIMITED, 0L, -1);
+    }
+
+    private synchronized void complete(final long index, final byte outcome, final long value, final int nodeId) {
+        final int slot = slot(index);
+        outcomes[slot] = outcome;
+        values[slot] = value;
+        nodeIds[slot] = nodeId;
+        notifyAll();
+    }
+
+    /**
+     * Writes the results that are ready in request order.
+     *
+     * @param block whether to wait for the next result if it is not ready yet.
+     */
+    private void writeCompleted(final boolean block) throws IOException, InterruptedException {
+        boolean wroteAny = false;
+        while (written < submitted) {
+            final int slot = slot(written);
+            final byte outcome;
+            final long value;
+            final int nodeId;
+            synchronized (this) {
+                if (outcomes[slot] == PENDING) {
+                    if (!block || wroteAny) {
+                        break;
+                    }
+                    wait(100);
+                    continue;
+                }
+
+                outcome = outcomes[slot];
+                value = values[slot];
+                nodeId = nodeIds[slot];
+            }
+
+            writeResult(written++, outcome, value, nodeId);
+            wroteAny = true;
+        }
+
+        if (wroteAny) {
+            generator.flush();
+        }
+    }
+
+    private void writeResult(final long index, final byte outcome, final long value, final int nodeId) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("index", index);
+        switch (outcome)
+        {
+            case OK -> {
+                generator.writeNumberField("value", value);
+                generator.writeNumberField("serverNodeId", nodeId);
+            }
+            case BACK_PRESSURED -> generator.writeStringField("error", "BACK_PRESSURED");
+            case RATE_LIMITED -> generator.writeStringField("error", "RATE_LIMITED");
+            default -> generator.writeStringField("error", "BAD_REQUEST");
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static int slot(final long index) {
+        return (int) (index % WINDOW);
+    }
+}
@@ -1,62 +1,157 @@
 package rsm.gateway;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import rsm.client.BackPressureException;
 import rsm.client.ReplicatedStateMachineClient;
+import rsm.client.ReplicatedStateMachineClientPool;
+import rsm.client.ValueResult;
+import rsm.gateway.dto.BulkOperation;
 import rsm.gateway.dto.ValueResponse;
 import rsm.gateway.dto.SetValueRequest;
 import spark.Request;
 import spark.Response;
 
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import static spark.Spark.*;
 
 
 public class HttpGateway {
 
-    private final ReplicatedStateMachineClient client;
+    private static final String REQUEST_EVENT_ATTRIBUTE = "rsm.requestEvent";
+
+    private final ReplicatedStateMachineClientPool clientPool;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public HttpGateway(final ReplicatedStateMachineClient client) {
-        this.client = client;
+        this(new ReplicatedStateMachineClientPool(client));
+    }
+
+    public HttpGateway(final ReplicatedStateMachineClientPool clientPool) {
+        this.clientPool = clientPool;
     }
 
     public void start() {
-        client.start();
+        clientPool.start();
         registerRoutes();
     }
 
     private void registerRoutes() {
         port(8080);
+        before(HttpGateway::beginRequestEvent);
         get("/value", this::getValue);
         put("/value", this::setValue);
+        post("/values/bulk", this::bulk);
+        exception(BackPressureException.class, (exception, request, response) -> {
+            response.status(503);
+            response.body(exception.getReason().name());
+        });
+        afterAfter(HttpGateway::commitRequestEvent);
         awaitInitialization();
     }
 
+    private static void beginRequestEvent(final Request request, final Response response) {
+        if (HttpRequestEvent.isRecorded()) {
+            final HttpRequestEvent requestEvent = new HttpRequestEvent();
+            requestEvent.begin();
+            request.attribute(REQUEST_EVENT_ATTRIBUTE, requestEvent);
+        }
+    }
+
+    private static void commitRequestEvent(final Request request, final Response response) {
+        final HttpRequestEvent requestEvent = request.attribute(REQUEST_EVENT_ATTRIBUTE);
+        if (requestEvent == null) {
+            return;
+        }
+
+        requestEvent.end();
+        if (requestEvent.shouldCommit()) {
+            requestEvent.method = request.requestMethod();
+            requestEvent.path = request.pathInfo();
+            requestEvent.status = response.status();
+            requestEvent.commit();
+        }
+    }
+
     private Object getValue(final Request request, final Response response) throws JsonProcessingException {
-        final long value = client.getValue();
-        final int nodeId = client.getLastReplyingNodeId();
+        final ValueResult result = clientPool.next().getValueResult();
 
         final ValueResponse valueResponse = new ValueResponse();
-        valueResponse.setValue(value);
-        valueResponse.setServerNodeId(nodeId);
+        valueResponse.setValue(result.value());
+        valueResponse.setServerNodeId(result.nodeId());
 
         return objectMapper.writeValueAsString(valueResponse);
     }
 
     private Object setValue(final Request request, final Response response) throws JsonProcessingException {
         final SetValueRequest setValueRequest = objectMapper.readValue(request.body(), SetValueRequest.class);
-        final long value = client.setValue(setValueRequest.getValue());
-        final int nodeId = client.getLastReplyingNodeId();
+        final ValueResult result = clientPool.next().setValueResult(setValueRequest.getValue());
 
         final ValueResponse valueResponse = new ValueResponse();
-        valueResponse.setValue(value);
-        valueResponse.setServerNodeId(nodeId);
+        valueResponse.setValue(result.value());
+        valueResponse.setServerNodeId(result.nodeId());
 
         return objectMapper.writeValueAsString(valueResponse);
     }
 
+    /**
+     * Applies a stream of operations given either as NDJSON or as a JSON array of {@link BulkOperation}s. The body is
+     * parsed incrementally, operations are pipelined to the cluster, and a result line per operation is streamed back
+     * as NDJSON in request order as soon as it completes. The whole request is forwarded through one client of the
+     * pool.
+     */
+    private Object bulk(final Request request, final Response response) throws IOException, InterruptedException {
+        response.status(200);
+        response.type("application/x-ndjson");
+
+        final OutputStream outputStream = response.raw().getOutputStream();
+        try (JsonParser parser = objectMapper.getFactory().createParser(unbufferedBody(request));
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            final BulkOperationStream operationStream = new BulkOperationStream(clientPool.next(), generator);
+
+            JsonToken token = parser.nextToken();
+            final boolean isArray = token == JsonToken.START_ARRAY;
+            if (isArray) {
+                token = parser.nextToken();
+            }
+
+            while (token == JsonToken.START_OBJECT) {
+                operationStream.submit(objectMapper.readValue(parser, BulkOperation.class));
+                token = parser.nextToken();
+            }
+
+            if (token != null && !(isArray && token == JsonToken.END_ARRAY)) {
+                throw new IOException("Unexpected token in bulk request: " + token);
+            }
+
+            operationStream.finish();
+        }
+
+        return "";
+    }
+
+    /**
+     * Spark's request wrapper caches the whole body on first access, so bulk bodies are read from the underlying
+     * servlet request to keep them streaming.
+     */
+    private static InputStream unbufferedBody(final Request request) throws IOException {
+        final HttpServletRequest raw = request.raw();
+        final ServletRequest underlying = raw instanceof HttpServletRequestWrapper wrapper ? wrapper.getRequest() : raw;
+        return underlying.getInputStream();
+    }
+
     public void close() {
-        client.stop();
+        clientPool.stop();
         stop();
     }
 }
@@ -2,8 +2,11 @@ package rsm.gateway;
 
 import lombok.extern.slf4j.Slf4j;
 import org.agrona.concurrent.SigInt;
-import rsm.client.ReplicatedStateMachineClient;
+import rsm.client.ClientConfig;
+import rsm.client.ReplicatedStateMachineClientPool;
 import rsm.common.ClusterTopologyConfiguration;
+import rsm.common.FlightRecording;
+import rsm.common.StartupTiming;
 
 import static spark.route.HttpMethod.get;
 
@@ -11,22 +14,26 @@ import static spark.route.HttpMethod.get;
 public class HttpGatewayMain {
 
     public static void main(String[] args) {
+        FlightRecording.startIfConfigured();
+
         final String clientHostName = args[0];
         final String topologyConfigFile = args[1];
         final ClusterTopologyConfiguration topologyConfig = ClusterTopologyConfiguration.fromYaml(topologyConfigFile);
 
-        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(clientHostName, topologyConfig.getNodeHostnames());
+        final int sessions = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        final ReplicatedStateMachineClientPool clientPool = ReplicatedStateMachineClientPool.create(
+                clientHostName, topologyConfig.getNodeHostnames(), sessions, new ClientConfig());
 
-        log.info("Starting client using topology configuration {}", topologyConfigFile);
+        log.info("Starting client with {} sessions using topology configuration {}", sessions, topologyConfigFile);
 
-        final HttpGateway httpGateway = new HttpGateway(client);
+        final HttpGateway httpGateway = new HttpGateway(clientPool);
 
         httpGateway.start();
 
+        log.info("HTTP gateway ready {} ms after JVM start, class data sharing archive: {}",
+                StartupTiming.millisSinceJvmStart(), StartupTiming.sharedArchiveFile());
 
-        SigInt.register(() -> {
-            httpGateway.close();
-            client.stop();
-        });
+        SigInt.register(httpGateway::close);
     }
 }
@@ -0,0 +1,47 @@
+package rsm.gateway;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for an HTTP request handled by the {@link HttpGateway}, from its first filter to after its
+ * response status was set.
+ * <p>
+ * Registered when the class is loaded, so the gateway can check {@link #isRecorded()} and skip creating an event for
+ * every request while no recording enables it.
+ */
+@Name("rsm.gateway.HttpRequest")
+@Label("HTTP Request")
+@Category({"Replicated State Machine", "Gateway"})
+@Description("Handling of an HTTP request by the gateway")
+@StackTrace(false)
+@Threshold("10 ms")
+final class HttpRequestEvent extends Event {
+
+    private static final EventType EVENT_TYPE;
+
+    static {
+        FlightRecorder.register(HttpRequestEvent.class);
+        EVENT_TYPE = EventType.getEventType(HttpRequestEvent.class);
+    }
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    static boolean isRecorded() {
+        return EVENT_TYPE.isEnabled();
+    }
+}
@@ -0,0 +1,9 @@
+package rsm.gateway.dto;
+
+import lombok.Data;
+
+@Data
+public class BulkOperation {
+    private String op;
+    private long value;
+}
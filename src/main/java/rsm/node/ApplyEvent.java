@@ -0,0 +1,57 @@
+package rsm.node;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a session message whose application to the state machine took at least the threshold.
+ * <p>
+ * The event is registered when the class is loaded and only instantiated while a recording enables it, so messages
+ * are applied without allocating when nothing is recording.
+ */
+@Name("rsm.node.Apply")
+@Label("Apply")
+@Category({"Replicated State Machine", "Cluster Service"})
+@Description("Application of a session message to the state machine")
+@StackTrace(false)
+@Threshold("1 ms")
+final class ApplyEvent extends Event {
+
+    private static final String[] RESULT_NAMES = {"APPLIED", "DUPLICATE", "RATE_LIMITED", "INVALID", "ABORTED"};
+    private static final EventType EVENT_TYPE;
+
+    static {
+        FlightRecorder.register(ApplyEvent.class);
+        EVENT_TYPE = EventType.getEventType(ApplyEvent.class);
+    }
+
+    @Label("Message Type")
+    String messageType;
+
+    @Label("Result")
+    String result;
+
+    @Label("Correlation ID")
+    long correlationId;
+
+    @Label("Cluster Session ID")
+    long clusterSessionId;
+
+    @Label("Log Position")
+    long logPosition;
+
+    static boolean isRecorded() {
+        return EVENT_TYPE.isEnabled();
+    }
+
+    void result(final int result) {
+        this.result = RESULT_NAMES[result];
+    }
+}
@@ -0,0 +1,55 @@
+package rsm.node;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+
+import static rsm.node.ReplicatedStateMachineClusteredService.VALUE_POSITION;
+
+/**
+ * Layout of the body of {@link MessageType#GET_BYTES} and {@link MessageType#SET_BYTES} requests.
+ * <pre>
+ * get body := key:int64
+ * set body := key:int64 length:int32 value:byte[length]
+ * </pre>
+ * The body starts at {@link ReplicatedStateMachineClusteredService#VALUE_POSITION} and always holds the key.
+ */
+public final class BytesValueCodec {
+
+    public static final int KEY_POSITION = VALUE_POSITION;
+    public static final int LENGTH_POSITION = KEY_POSITION + BitUtil.SIZE_OF_LONG;
+    public static final int BYTES_VALUE_POSITION = LENGTH_POSITION + BitUtil.SIZE_OF_INT;
+
+    private BytesValueCodec() {
+    }
+
+    public static long key(final DirectBuffer buffer, final int offset) {
+        return buffer.getLong(offset + KEY_POSITION);
+    }
+
+    public static int valueLength(final DirectBuffer buffer, final int offset) {
+        return buffer.getInt(offset + LENGTH_POSITION);
+    }
+
+    /**
+     * Checks the length of a byte value request and the length of the value it sets.
+     *
+     * @param messageType of the request, {@link MessageType#GET_BYTES} or {@link MessageType#SET_BYTES}.
+     * @param buffer      containing the request.
+     * @param offset      of the request.
+     * @param length      of the request, which may include a trace trailer.
+     * @return true if the request is well formed.
+     */
+    public static boolean isValid(final MessageType messageType, final DirectBuffer buffer, final int offset, final int length) {
+        if (messageType == MessageType.GET_BYTES) {
+            return length >= LENGTH_POSITION;
+        }
+
+        if (length < BYTES_VALUE_POSITION) {
+            return false;
+        }
+
+        final int valueLength = valueLength(buffer, offset);
+        return valueLength >= 0 && valueLength <= ReplicatedStateMachine.MAX_BYTES_VALUE_LENGTH &&
+                BYTES_VALUE_POSITION + valueLength <= length;
+    }
+}
@@ -0,0 +1,86 @@
+package rsm.node;
+
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.codecs.MessageHeaderDecoder;
+import io.aeron.cluster.codecs.SessionMessageHeaderDecoder;
+import io.aeron.cluster.codecs.TimerEventDecoder;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes fragments of a replayed cluster log recording and passes the client session messages and timer events to a
+ * {@link ClusterLogListener}. Session open and close events and consensus module actions are skipped.
+ * <p>
+ * Fragments must be reassembled, e.g. by wrapping the decoder in a {@link io.aeron.FragmentAssembler}.
+ */
+public class ClusterLogDecoder implements FragmentHandler {
+
+    private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
+    private final SessionMessageHeaderDecoder sessionMessageHeaderDecoder = new SessionMessageHeaderDecoder();
+    private final TimerEventDecoder timerEventDecoder = new TimerEventDecoder();
+    private final ClusterLogListener listener;
+    private final TimeUnit timeUnit;
+
+    /**
+     * Creates a decoder for the log of a cluster.
+     *
+     * @param listener to pass the decoded entries to.
+     * @param timeUnit of the consensus module's clock that stamped the log, e.g.
+     *                 {@link rsm.common.ClusterNodeConfig#CLUSTER_TIME_UNIT}.
+     */
+    public ClusterLogDecoder(final ClusterLogListener listener, final TimeUnit timeUnit) {
+        this.listener = listener;
+        this.timeUnit = timeUnit;
+    }
+
+    /**
+     * Gets the unit of the timestamps passed to the listener.
+     *
+     * @return the time unit of the log.
+     */
+    public TimeUnit timeUnit() {
+        return timeUnit;
+    }
+
+    @Override
+    public void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header) {
+        messageHeaderDecoder.wrap(buffer, offset);
+        if (messageHeaderDecoder.schemaId() != MessageHeaderDecoder.SCHEMA_ID) {
+            return;
+        }
+
+        switch (messageHeaderDecoder.templateId())
+        {
+            case SessionMessageHeaderDecoder.TEMPLATE_ID -> {
+                sessionMessageHeaderDecoder.wrap(
+                        buffer,
+                        offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                        messageHeaderDecoder.blockLength(),
+                        messageHeaderDecoder.version());
+
+                listener.onSessionMessage(
+                        header.position(),
+                        sessionMessageHeaderDecoder.clusterSessionId(),
+                        sessionMessageHeaderDecoder.timestamp(),
+                        buffer,
+                        offset + AeronCluster.SESSION_HEADER_LENGTH,
+                        length - AeronCluster.SESSION_HEADER_LENGTH,
+                        header);
+            }
+            case TimerEventDecoder.TEMPLATE_ID -> {
+                timerEventDecoder.wrap(
+                        buffer,
+                        offset + MessageHeaderDecoder.ENCODED_LENGTH,
+                        messageHeaderDecoder.blockLength(),
+                        messageHeaderDecoder.version());
+
+                listener.onTimerEvent(header.position(), timerEventDecoder.correlationId(), timerEventDecoder.timestamp());
+            }
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package rsm.node;
+
+import io.aeron.logbuffer.Header;
+import org.agrona.DirectBuffer;
+
+/**
+ * Receives the entries of a cluster log decoded by a {@link ClusterLogDecoder}.
+ */
+@FunctionalInterface
+public interface ClusterLogListener {
+
+    /**
+     * A message a client session appended to the log.
+     *
+     * @param logPosition      of the end of the entry in the log.
+     * @param clusterSessionId of the session that sent the message.
+     * @param timestamp        at which the leader appended the message, in the {@link ClusterLogDecoder#timeUnit()}.
+     * @param buffer           containing the message.
+     * @param offset           of the message body, after the session header.
+     * @param length           of the message body.
+     * @param header           of the last fragment of the entry.
+     */
+    void onSessionMessage(
+            long logPosition, long clusterSessionId, long timestamp, DirectBuffer buffer, int offset, int length, Header header);
+
+    /**
+     * A timer scheduled by the clustered service that fired.
+     *
+     * @param logPosition   of the end of the entry in the log.
+     * @param correlationId the timer was scheduled with.
+     * @param timestamp     at which the timer fired, in the {@link ClusterLogDecoder#timeUnit()}.
+     */
+    default void onTimerEvent(final long logPosition, final long correlationId, final long timestamp) {
+    }
+}
@@ -0,0 +1,58 @@
+package rsm.node;
+
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.cluster.ConsensusModule;
+
+/**
+ * The archive recording of a node's cluster log. The consensus module extends the same recording in every leadership
+ * term, so a node's archive holds one log recording unless it was restarted with its archive kept.
+ */
+public class ClusterLogRecording {
+
+    private final long recordingId;
+    private final long startPosition;
+    private final long stopPosition;
+
+    private ClusterLogRecording(final long recordingId, final long startPosition, final long stopPosition) {
+        this.recordingId = recordingId;
+        this.startPosition = startPosition;
+        this.stopPosition = stopPosition;
+    }
+
+    /**
+     * Finds the most recent cluster log recording in an archive.
+     *
+     * @param archive to search.
+     * @return the log recording, or null if the archive has none.
+     */
+    public static ClusterLogRecording findLatest(final AeronArchive archive) {
+        final ClusterLogRecording[] latest = new ClusterLogRecording[1];
+        archive.listRecordingsForUri(0L, Integer.MAX_VALUE, "", ConsensusModule.Configuration.logStreamId(),
+                (controlSessionId, correlationId, recordingId, startTimestamp, stopTimestamp, startPosition,
+                 stopPosition, initialTermId, segmentFileLength, termBufferLength, mtuLength, sessionId, streamId,
+                 strippedChannel, originalChannel, sourceIdentity) -> {
+                    if (latest[0] == null || recordingId > latest[0].recordingId) {
+                        latest[0] = new ClusterLogRecording(recordingId, startPosition, stopPosition);
+                    }
+                });
+
+        return latest[0];
+    }
+
+    public long recordingId() {
+        return recordingId;
+    }
+
+    public long startPosition() {
+        return startPosition;
+    }
+
+    /**
+     * Gets the position the recording stopped at when it was listed.
+     *
+     * @return the stop position, or {@link AeronArchive#NULL_POSITION} if the recording was still active.
+     */
+    public long stopPosition() {
+        return stopPosition;
+    }
+}
@@ -0,0 +1,334 @@
+package rsm.node;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
+
+/**
+ * Bounded table of the requests applied per client, used to make client retries exactly-once.
+ * <p>
+ * Request IDs are assigned in sequence by a client but concurrent callers can offer them out of order, so each client
+ * has a sliding window of the last {@link #WINDOW} request IDs up to the highest one applied, with a bit set for each
+ * ID that was applied. A request is a duplicate if its bit is set or it is too old for the window. A client never has
+ * more than {@link #WINDOW} requests outstanding, so a request that is too old for the window has already been
+ * answered or abandoned by its caller.
+ * <p>
+ * Once the table holds {@code capacity} clients the client that applied a request the least recently is evicted. Only
+ * its highest applied request ID is kept, for up to {@link #EVICTED_CAPACITY_FACTOR} times {@code capacity} evicted
+ * clients, so a client that comes back counts every request ID up to that one as applied. Eviction only depends on the
+ * order of the log, so every replica evicts the same clients.
+ */
+public class DeduplicationTable {
+
+    public static final long NULL_REQUEST_ID = -1L;
+
+    /**
+     * Number of request IDs up to the highest applied one that are tracked per client, which bounds the number of
+     * requests a client can have in flight.
+     */
+    public static final int WINDOW = 1024;
+    public static final int WINDOW_WORDS = WINDOW / Long.SIZE;
+
+    /**
+     * Number of evicted clients whose highest applied request ID is kept, per client the table holds.
+     */
+    public static final int EVICTED_CAPACITY_FACTOR = 4;
+
+    private static final int WINDOW_MASK = WINDOW - 1;
+    private static final long NULL_ENTRY = -1L;
+    private static final int NULL_INDEX = -1;
+
+    private final Long2LongHashMap entryByClientId = new Long2LongHashMap(NULL_ENTRY);
+    private final long[] clientIds;
+    private final long[] highestRequestIds;
+    private final long[] windows;
+    private final int[] lessRecent;
+    private final int[] moreRecent;
+    private int leastRecent = NULL_INDEX;
+    private int mostRecent = NULL_INDEX;
+    private int size;
+
+    private final Long2LongHashMap evictedEntryByClientId = new Long2LongHashMap(NULL_ENTRY);
+    private final long[] evictedClientIds;
+    private final long[] evictedHighestRequestIds;
+    private int evictedHead;
+    private int evictedCount;
+
+    public DeduplicationTable(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.clientIds = new long[capacity];
+        this.highestRequestIds = new long[capacity];
+        this.windows = new long[capacity * WINDOW_WORDS];
+        this.lessRecent = new int[capacity];
+        this.moreRecent = new int[capacity];
+        this.evictedClientIds = new long[capacity * EVICTED_CAPACITY_FACTOR];
+        this.evictedHighestRequestIds = new long[capacity * EVICTED_CAPACITY_FACTOR];
+    }
+
+    /**
+     * Records a request as applied unless it has been applied before.
+     *
+     * @param clientId  of the client that issued the request.
+     * @param requestId ID of the request within the client, assigned in sequence.
+     * @return true if the request is new and should be applied, false if it is a duplicate.
+     */
+    public boolean tryRecord(final long clientId, final long requestId) {
+        final long entry = entryByClientId.get(clientId);
+        final int index;
+        if (entry != NULL_ENTRY) {
+            index = (int) entry;
+        } else {
+            final long evictedEntry = evictedEntryByClientId.get(clientId);
+            if (evictedEntry == NULL_ENTRY) {
+                final int newEntry = add(clientId);
+                highestRequestIds[newEntry] = requestId;
+                setApplied(newEntry, requestId);
+                return true;
+            }
+
+            final long evictedHighestRequestId = evictedHighestRequestIds[(int) evictedEntry];
+            if (requestId <= evictedHighestRequestId) {
+                return false;
+            }
+
+            evictedEntryByClientId.remove(clientId);
+            index = add(clientId);
+            highestRequestIds[index] = evictedHighestRequestId;
+            fillWindow(index, -1L);
+        }
+
+        final long highestRequestId = highestRequestIds[index];
+        if (requestId > highestRequestId) {
+            slideWindow(index, highestRequestId, requestId);
+            highestRequestIds[index] = requestId;
+        } else if (highestRequestId - requestId >= WINDOW || isApplied(index, requestId)) {
+            return false;
+        }
+
+        setApplied(index, requestId);
+        touch(index);
+        return true;
+    }
+
+    /**
+     * Restores the entry of a client from a snapshot, as the client that applied a request the most recently.
+     *
+     * @param clientId         of the client.
+     * @param highestRequestId highest request ID applied for the client.
+     * @param buffer           holding the {@link #WINDOW_WORDS} words of the window of the client.
+     * @param offset           of the window in the buffer.
+     */
+    public void restore(final long clientId, final long highestRequestId, final DirectBuffer buffer, final int offset) {
+        final int index;
+        if (entryByClientId.containsKey(clientId)) {
+            index = (int) entryByClientId.get(clientId);
+            touch(index);
+        } else {
+            evictedEntryByClientId.remove(clientId);
+            index = add(clientId);
+        }
+
+        highestRequestIds[index] = highestRequestId;
+        for (int i = 0; i < WINDOW_WORDS; i++) {
+            windows[index * WINDOW_WORDS + i] = buffer.getLong(offset + i * Long.BYTES);
+        }
+    }
+
+    /**
+     * Restores an evicted client from a snapshot, as the most recently evicted one.
+     *
+     * @param clientId         of the client.
+     * @param highestRequestId highest request ID applied for the client.
+     */
+    public void restoreEvicted(final long clientId, final long highestRequestId) {
+        addEvicted(clientId, highestRequestId);
+    }
+
+    /**
+     * Copies the window of a client into a buffer, in the form {@link #restore(long, long, DirectBuffer, int)} reads.
+     *
+     * @param clientId of the client.
+     * @param buffer   to copy the {@link #WINDOW_WORDS} words of the window into.
+     * @param offset   in the buffer to copy the window to.
+     */
+    public void copyWindow(final long clientId, final MutableDirectBuffer buffer, final int offset) {
+        final int index = (int) entryByClientId.get(clientId);
+        for (int i = 0; i < WINDOW_WORDS; i++) {
+            buffer.putLong(offset + i * Long.BYTES, windows[index * WINDOW_WORDS + i]);
+        }
+    }
+
+    /**
+     * Highest request ID applied for a client, whether it is in the table or evicted.
+     *
+     * @param clientId of the client.
+     * @return the highest request ID applied, or {@link #NULL_REQUEST_ID} if the client is unknown.
+     */
+    public long highestRequestId(final long clientId) {
+        final long entry = entryByClientId.get(clientId);
+        if (entry != NULL_ENTRY) {
+            return highestRequestIds[(int) entry];
+        }
+
+        final long evictedEntry = evictedEntryByClientId.get(clientId);
+        return evictedEntry == NULL_ENTRY ? NULL_REQUEST_ID : evictedHighestRequestIds[(int) evictedEntry];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return clientIds.length;
+    }
+
+    public int evictedSize() {
+        return evictedEntryByClientId.size();
+    }
+
+    /**
+     * Visits the entries from the client that applied a request the least recently to the one that did the most
+     * recently, which is the order to replay them in when restoring.
+     *
+     * @param consumer of client ID and highest applied request ID pairs.
+     */
+    public void forEach(final EntryConsumer consumer) {
+        for (int index = leastRecent; index != NULL_INDEX; index = moreRecent[index]) {
+            consumer.accept(clientIds[index], highestRequestIds[index]);
+        }
+    }
+
+    /**
+     * Visits the evicted clients from the first to the last evicted, which is the order to replay them in when
+     * restoring.
+     *
+     * @param consumer of client ID and highest applied request ID pairs.
+     */
+    public void forEachEvicted(final EntryConsumer consumer) {
+        for (int i = 0; i < evictedCount; i++) {
+            final int slot = (evictedHead + i) % evictedClientIds.length;
+            if (isEvictedSlotLive(slot)) {
+                consumer.accept(evictedClientIds[slot], evictedHighestRequestIds[slot]);
+            }
+        }
+    }
+
+    private int add(final long clientId) {
+        final int index;
+        if (size == clientIds.length) {
+            index = leastRecent;
+            unlink(index);
+            entryByClientId.remove(clientIds[index]);
+            addEvicted(clientIds[index], highestRequestIds[index]);
+        } else {
+            index = size++;
+        }
+
+        clientIds[index] = clientId;
+        entryByClientId.put(clientId, index);
+        fillWindow(index, 0L);
+        linkMostRecent(index);
+
+        return index;
+    }
+
+    /**
+     * Appends an evicted client to a ring of slots, overwriting the first evicted one when full. A client that was
+     * admitted again leaves its slot behind, which no longer maps to the slot and is skipped.
+     */
+    private void addEvicted(final long clientId, final long highestRequestId) {
+        final int slot;
+        if (evictedCount == evictedClientIds.length) {
+            slot = evictedHead;
+            if (isEvictedSlotLive(slot)) {
+                evictedEntryByClientId.remove(evictedClientIds[slot]);
+            }
+            evictedHead = (evictedHead + 1) % evictedClientIds.length;
+        } else {
+            slot = (evictedHead + evictedCount) % evictedClientIds.length;
+            evictedCount++;
+        }
+
+        evictedClientIds[slot] = clientId;
+        evictedHighestRequestIds[slot] = highestRequestId;
+        evictedEntryByClientId.put(clientId, slot);
+    }
+
+    private boolean isEvictedSlotLive(final int slot) {
+        return evictedEntryByClientId.get(evictedClientIds[slot]) == slot;
+    }
+
+    private void touch(final int index) {
+        if (index != mostRecent) {
+            unlink(index);
+            linkMostRecent(index);
+        }
+    }
+
+    private void linkMostRecent(final int index) {
+        lessRecent[index] = mostRecent;
+        moreRecent[index] = NULL_INDEX;
+        if (mostRecent == NULL_INDEX) {
+            leastRecent = index;
+        } else {
+            moreRecent[mostRecent] = index;
+        }
+        mostRecent = index;
+    }
+
+    private void unlink(final int index) {
+        final int less = lessRecent[index];
+        final int more = moreRecent[index];
+        if (less == NULL_INDEX) {
+            leastRecent = more;
+        } else {
+            moreRecent[less] = more;
+        }
+
+        if (more == NULL_INDEX) {
+            mostRecent = less;
+        } else {
+            lessRecent[more] = less;
+        }
+    }
+
+    private void fillWindow(final int index, final long word) {
+        for (int i = 0; i < WINDOW_WORDS; i++) {
+            windows[index * WINDOW_WORDS + i] = word;
+        }
+    }
+
+    /**
+     * Clears the bits of the IDs the window slides over as its highest request ID advances, which have not been
+     * applied yet.
+     */
+    private void slideWindow(final int index, final long highestRequestId, final long requestId) {
+        if (requestId - highestRequestId >= WINDOW) {
+            fillWindow(index, 0L);
+            return;
+        }
+
+        for (long id = highestRequestId + 1; id < requestId; id++) {
+            final int bit = (int) (id & WINDOW_MASK);
+            windows[index * WINDOW_WORDS + (bit >>> 6)] &= ~(1L << bit);
+        }
+    }
+
+    private boolean isApplied(final int index, final long requestId) {
+        final int bit = (int) (requestId & WINDOW_MASK);
+        return (windows[index * WINDOW_WORDS + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    private void setApplied(final int index, final long requestId) {
+        final int bit = (int) (requestId & WINDOW_MASK);
+        windows[index * WINDOW_WORDS + (bit >>> 6)] |= 1L << bit;
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long clientId, long highestRequestId);
+    }
+}
@@ -0,0 +1,142 @@
+package rsm.node;
+
+import io.aeron.cluster.service.Cluster;
+import io.aeron.driver.MediaDriver;
+import org.agrona.CloseHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rsm.common.ClusterNodeConfig;
+import rsm.common.DurabilityMode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs every node of a localhost cluster in one process against a single shared media driver.
+ * <p>
+ * A cluster of separate {@link ReplicatedStateMachineClusterNode}s launches a media driver with its own directory,
+ * conductor and term buffers per node. Here one driver serves all nodes with a single thread and small sparse terms,
+ * and each node only adds the archive, consensus module and service container threads, which makes clusters of 3 to 5
+ * nodes cheap to start in tests, benchmarks and dense staging environments. Nodes can still be stopped one at a time
+ * to exercise failover.
+ */
+public class EmbeddedCluster implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedCluster.class);
+
+    public static final String LOCALHOST = "localhost";
+    public static final String AERON_DIRECTORY_NAME = ClusterNodeConfig.shmDirForName("rsm-embedded-cluster");
+
+    private final List<String> hostnames;
+    private final MediaDriver mediaDriver;
+    private final List<ReplicatedStateMachineClusterNode> nodes = new ArrayList<>();
+    private final List<ReplicatedStateMachineClusterNode> runningNodes = new ArrayList<>();
+
+    private EmbeddedCluster(final List<String> hostnames, final MediaDriver mediaDriver) {
+        this.hostnames = hostnames;
+        this.mediaDriver = mediaDriver;
+    }
+
+    /**
+     * Launches a cluster whose nodes keep their state in memory.
+     *
+     * @param nodeCount number of nodes.
+     * @return the running cluster.
+     */
+    public static EmbeddedCluster launch(final int nodeCount) {
+        return launch(nodeCount, DurabilityMode.MEMORY, ClusterNodeConfig.DEFAULT_DATA_DIR);
+    }
+
+    /**
+     * Launches a cluster whose nodes keep their state as durably as a mode requires.
+     *
+     * @param nodeCount      number of nodes.
+     * @param durabilityMode of the nodes' archive and cluster directories.
+     * @param dataDir        parent of the nodes' directories in persistent modes.
+     * @return the running cluster.
+     */
+    public static EmbeddedCluster launch(final int nodeCount, final DurabilityMode durabilityMode, final String dataDir) {
+        final List<String> hostnames = Collections.nCopies(nodeCount, LOCALHOST);
+        final EmbeddedCluster cluster = new EmbeddedCluster(
+                hostnames, MediaDriver.launch(ClusterNodeConfig.sharedMediaDriverContext(AERON_DIRECTORY_NAME)));
+
+        try {
+            for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+                final ReplicatedStateMachineClusterNode node = new ReplicatedStateMachineClusterNode(ClusterNodeConfig
+                        .create(nodeId, hostnames, new ReplicatedStateMachineClusteredService(), durabilityMode, dataDir)
+                        .shareMediaDriver(AERON_DIRECTORY_NAME));
+                node.start();
+                cluster.nodes.add(node);
+                cluster.runningNodes.add(node);
+            }
+        } catch (final RuntimeException ex) {
+            cluster.close();
+            throw ex;
+        }
+
+        log.info("Launched embedded cluster of {} nodes sharing media driver {}", nodeCount, AERON_DIRECTORY_NAME);
+        return cluster;
+    }
+
+    /**
+     * Gets the hostnames of the nodes, indexed by node ID, to connect clients with.
+     *
+     * @return the node hostnames.
+     */
+    public List<String> hostnames() {
+        return hostnames;
+    }
+
+    /**
+     * Gets the nodes, indexed by node ID, including any that were stopped.
+     *
+     * @return the nodes.
+     */
+    public List<ReplicatedStateMachineClusterNode> nodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * Stops a node, e.g. the leader to trigger an election among the others.
+     *
+     * @param nodeId of the node to stop.
+     */
+    public void stop(final int nodeId) {
+        final ReplicatedStateMachineClusterNode node = nodes.get(nodeId);
+        if (runningNodes.remove(node)) {
+            node.stop();
+        }
+    }
+
+    /**
+     * Finds the current leader among the nodes still running.
+     *
+     * @return the leader, or null if no running node has been elected.
+     */
+    public ReplicatedStateMachineClusterNode leader() {
+        for (final ReplicatedStateMachineClusterNode node : runningNodes) {
+            if (node.getRole() == Cluster.Role.LEADER) {
+                return node;
+            }
+        }
+
+        return null;
+    }
+
+    public MediaDriver mediaDriver() {
+        return mediaDriver;
+    }
+
+    /**
+     * Stops the nodes still running and then the shared media driver.
+     */
+    @Override
+    public void close() {
+        for (int i = runningNodes.size() - 1; i >= 0; i--) {
+            runningNodes.get(i).stop();
+        }
+        runningNodes.clear();
+        CloseHelper.close(mediaDriver);
+    }
+}
@@ -0,0 +1,34 @@
+package rsm.node;
+
+import org.agrona.concurrent.SigInt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rsm.common.ClusterNodeConfig;
+import rsm.common.DurabilityMode;
+import rsm.common.FlightRecording;
+
+/**
+ * Runs a localhost cluster of {@code nodeCount} nodes, default 3, in this process against one shared media driver.
+ * <p>
+ * Usage: {@code EmbeddedClusterMain [nodeCount [durabilityMode [dataDir]]]}
+ */
+public class EmbeddedClusterMain {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedClusterMain.class);
+
+    public static void main(String[] args) {
+        FlightRecording.startIfConfigured();
+
+        final int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        final DurabilityMode durabilityMode = args.length > 1 ? DurabilityMode.valueOf(args[1]) : DurabilityMode.MEMORY;
+        final String dataDir = args.length > 2 ? args[2] : ClusterNodeConfig.DEFAULT_DATA_DIR;
+
+        log.info("Starting embedded cluster of {} nodes in durability mode {}", nodeCount, durabilityMode);
+
+        final EmbeddedCluster embeddedCluster = EmbeddedCluster.launch(nodeCount, durabilityMode, dataDir);
+
+        log.info("Embedded cluster started");
+
+        SigInt.register(embeddedCluster::close);
+    }
+}
@@ -2,7 +2,7 @@ package rsm.node;
 
 public enum MessageType {
 
-    GET('g'), SET('s');
+    GET('g'), SET('s'), GET_BYTES('G'), SET_BYTES('S'), TRANSACTION('t'), RANGE('r');
 
     private final char charCode;
 
@@ -15,6 +15,10 @@ public enum MessageType {
         {
             case 'g' -> GET;
             case 's' -> SET;
+            case 'G' -> GET_BYTES;
+            case 'S' -> SET_BYTES;
+            case 't' -> TRANSACTION;
+            case 'r' -> RANGE;
             default -> throw new IllegalStateException("Unexpected value: " + charCode);
         };
     }
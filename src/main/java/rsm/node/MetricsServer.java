@@ -0,0 +1,190 @@
+package rsm.node;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.aeron.archive.status.RecordingPos;
+import io.aeron.cluster.ConsensusModule;
+import io.aeron.driver.status.SystemCounterDescriptor;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.status.CountersReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the counters of a node's media driver in the Prometheus text exposition format.
+ * <p>
+ * Scrapes run on the HTTP server's own thread and only read the CnC counters file, so they never touch the clustered
+ * service thread. Well known consensus module, archive and {@link ServiceCounters service} counters are exported as
+ * named metrics, and every counter is also exported as a generic {@code rsm_aeron_counter} sample labelled with its
+ * ID, type ID and label.
+ */
+public class MetricsServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsServer.class);
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final CountersReader countersReader;
+    private final HttpServer httpServer;
+
+    public MetricsServer(final String hostname, final int port, final CountersReader countersReader) {
+        this.countersReader = countersReader;
+        try {
+            this.httpServer = HttpServer.create(new InetSocketAddress(hostname, port), 0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.httpServer.createContext("/metrics", this::handle);
+    }
+
+    public void start() {
+        httpServer.start();
+        log.info("Serving metrics on {}", httpServer.getAddress());
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    /**
+     * Renders the current value of all counters.
+     *
+     * @return the metrics in the Prometheus text exposition format.
+     */
+    public String scrape() {
+        final StringBuilder sb = new StringBuilder(16 * 1024);
+
+        appendGauge(sb, "rsm_consensus_module_state", ConsensusModule.Configuration.CONSENSUS_MODULE_STATE_TYPE_ID, null);
+        appendGauge(sb, "rsm_cluster_node_role", ConsensusModule.Configuration.CLUSTER_NODE_ROLE_TYPE_ID, null);
+        appendGauge(sb, "rsm_election_state", ConsensusModule.Configuration.ELECTION_STATE_TYPE_ID, null);
+        appendGauge(sb, "rsm_commit_position", ConsensusModule.Configuration.COMMIT_POSITION_TYPE_ID, null);
+        appendGauge(sb, "rsm_archive_recording_position", RecordingPos.RECORDING_POSITION_TYPE_ID,
+                (keyBuffer, label) -> "recording_id=\"" + keyBuffer.getLong(0) + "\"");
+        appendGauge(sb, "rsm_applied_position", ServiceCounters.APPLIED_POSITION_TYPE_ID, null);
+        appendGauge(sb, "rsm_driver_system_counter", SystemCounterDescriptor.SYSTEM_COUNTER_TYPE_ID,
+                (keyBuffer, label) -> "label=\"" + escape(label) + "\"");
+        appendCounter(sb, "rsm_messages_applied_total", ServiceCounters.MESSAGES_APPLIED_TYPE_ID,
+                (keyBuffer, label) -> "type=\"" + MessageType.fromCode((char) keyBuffer.getInt(0)) + "\"");
+        appendCounter(sb, "rsm_egress_offer_failures_total", ServiceCounters.EGRESS_OFFER_FAILURES_TYPE_ID, null);
+        appendCounter(sb, "rsm_role_changes_total", ServiceCounters.ROLE_CHANGES_TYPE_ID, null);
+        appendCounter(sb, "rsm_session_messages_admitted_total", ServiceCounters.SESSION_MESSAGES_ADMITTED_TYPE_ID,
+                (keyBuffer, label) -> "session=\"" + keyBuffer.getLong(0) + "\"");
+        appendCounter(sb, "rsm_session_messages_rate_limited_total", ServiceCounters.SESSION_MESSAGES_RATE_LIMITED_TYPE_ID,
+                (keyBuffer, label) -> "session=\"" + keyBuffer.getLong(0) + "\"");
+        appendGauge(sb, "rsm_value_slab_bytes", ServiceCounters.VALUE_SLAB_BYTES_TYPE_ID,
+                (keyBuffer, label) -> "kind=\"" + slabBytesKind(keyBuffer.getInt(0)) + "\"");
+        appendSlabFragmentation(sb);
+        appendCounter(sb, "rsm_keys_expired_total", ServiceCounters.KEYS_EXPIRED_TYPE_ID, null);
+        appendGauge(sb, "rsm_expiring_keys", ServiceCounters.EXPIRING_KEYS_TYPE_ID, null);
+        appendApplyLatencyHistogram(sb);
+
+        sb.append("# TYPE rsm_aeron_counter gauge\n");
+        countersReader.forEach((counterId, typeId, keyBuffer, label) ->
+                sb.append("rsm_aeron_counter{id=\"").append(counterId)
+                        .append("\",type_id=\"").append(typeId)
+                        .append("\",label=\"").append(escape(label))
+                        .append("\"} ").append(countersReader.getCounterValue(counterId)).append('\n'));
+
+        return sb.toString();
+    }
+
+    private void appendGauge(final StringBuilder sb, final String name, final int typeId, final SampleLabels sampleLabels) {
+        appendFamily(sb, name, "gauge", typeId, sampleLabels);
+    }
+
+    private void appendCounter(final StringBuilder sb, final String name, final int typeId, final SampleLabels sampleLabels) {
+        appendFamily(sb, name, "counter", typeId, sampleLabels);
+    }
+
+    private void appendFamily(final StringBuilder sb,
+                              final String name,
+                              final String type,
+                              final int typeId,
+                              final SampleLabels sampleLabels) {
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        countersReader.forEach((counterId, counterTypeId, keyBuffer, label) -> {
+            if (counterTypeId != typeId) {
+                return;
+            }
+
+            sb.append(name);
+            if (sampleLabels != null) {
+                sb.append('{').append(sampleLabels.labels(keyBuffer, label)).append('}');
+            }
+            sb.append(' ').append(countersReader.getCounterValue(counterId)).append('\n');
+        });
+    }
+
+    private void appendApplyLatencyHistogram(final StringBuilder sb) {
+        final long[] buckets = new long[ServiceCounters.APPLY_LATENCY_BUCKETS];
+        final long[] sumNs = new long[1];
+        countersReader.forEach((counterId, typeId, keyBuffer, label) -> {
+            if (typeId == ServiceCounters.APPLY_LATENCY_BUCKET_TYPE_ID) {
+                buckets[keyBuffer.getInt(0)] += countersReader.getCounterValue(counterId);
+            } else if (typeId == ServiceCounters.APPLY_LATENCY_SUM_TYPE_ID) {
+                sumNs[0] += countersReader.getCounterValue(counterId);
+            }
+        });
+
+        sb.append("# TYPE rsm_apply_latency_seconds histogram\n");
+        long cumulativeCount = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulativeCount += buckets[i];
+            final long upperBoundNs = ServiceCounters.applyLatencyBucketUpperBoundNs(i);
+            final String le = upperBoundNs == Long.MAX_VALUE ? "+Inf" : Double.toString(upperBoundNs / 1e9);
+            sb.append("rsm_apply_latency_seconds_bucket{le=\"").append(le).append("\"} ").append(cumulativeCount).append('\n');
+        }
+        sb.append("rsm_apply_latency_seconds_sum ").append(sumNs[0] / 1e9).append('\n');
+        sb.append("rsm_apply_latency_seconds_count ").append(cumulativeCount).append('\n');
+    }
+
+    /**
+     * Exports the share of the value slabs' reserved memory that holds no value bytes.
+     */
+    private void appendSlabFragmentation(final StringBuilder sb) {
+        final long[] slabBytes = new long[3];
+        countersReader.forEach((counterId, typeId, keyBuffer, label) -> {
+            if (typeId == ServiceCounters.VALUE_SLAB_BYTES_TYPE_ID) {
+                slabBytes[keyBuffer.getInt(0)] = countersReader.getCounterValue(counterId);
+            }
+        });
+
+        final long reservedBytes = slabBytes[ServiceCounters.SLAB_RESERVED_BYTES];
+        final long usedBytes = slabBytes[ServiceCounters.SLAB_USED_BYTES];
+        sb.append("# TYPE rsm_value_slab_fragmentation_ratio gauge\n");
+        sb.append("rsm_value_slab_fragmentation_ratio ")
+                .append(reservedBytes == 0 ? 0.0d : 1.0d - (double) usedBytes / reservedBytes).append('\n');
+    }
+
+    private static String slabBytesKind(final int key) {
+        return switch (key)
+        {
+            case ServiceCounters.SLAB_RESERVED_BYTES -> "reserved";
+            case ServiceCounters.SLAB_ALLOCATED_BYTES -> "allocated";
+            default -> "used";
+        };
+    }
+
+    static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @FunctionalInterface
+    private interface SampleLabels {
+        String labels(DirectBuffer keyBuffer, String label);
+    }
+}
@@ -0,0 +1,248 @@
+package rsm.node;
+
+import java.util.Arrays;
+
+/**
+ * Set of long keys kept in ascending signed order, for scanning the keys within a range.
+ * <p>
+ * The index is a B+ tree of two levels: keys are held in sorted leaves of up to {@link #LEAF_CAPACITY}, and a
+ * directory of the first key of every leaf, itself sorted, is binary searched to find the leaf a key belongs in. A full
+ * leaf is split in two and a leaf that has shrunk to fit together with a neighbour within half a leaf is merged with
+ * it, so sparse leaves do not pile up as keys are removed. Adding or removing a key moves at most a leaf of keys and, on a
+ * split or merge, the directory entries after it. Scanning a range costs one binary search and then a sequential read
+ * of the leaves it spans.
+ * <p>
+ * Leaves given up by merges are pooled and reused by splits, so the index does not allocate once it has grown to the
+ * number of keys. Not thread safe.
+ */
+public class OrderedKeyIndex {
+
+    public static final int LEAF_CAPACITY = 256;
+
+    private static final int MERGE_THRESHOLD = LEAF_CAPACITY / 2;
+    private static final int INITIAL_LEAF_CAPACITY = 4;
+
+    private long[][] leaves = new long[INITIAL_LEAF_CAPACITY][];
+    private int[] leafSizes = new int[INITIAL_LEAF_CAPACITY];
+    private long[] leafFirstKeys = new long[INITIAL_LEAF_CAPACITY];
+    private int leafCount;
+    private long[][] freeLeaves = new long[INITIAL_LEAF_CAPACITY][];
+    private int freeLeafCount;
+    private int size;
+
+    /**
+     * Adds a key.
+     *
+     * @param key to add.
+     * @return true if the key was added, false if it was already present.
+     */
+    public boolean add(final long key) {
+        if (leafCount == 0) {
+            insertLeaf(0, newLeaf());
+        }
+
+        int leafIndex = leafIndex(key);
+        final int position = Arrays.binarySearch(leaves[leafIndex], 0, leafSizes[leafIndex], key);
+        if (position >= 0) {
+            return false;
+        }
+
+        int insertPosition = -position - 1;
+        if (leafSizes[leafIndex] == LEAF_CAPACITY) {
+            split(leafIndex);
+            if (insertPosition > LEAF_CAPACITY / 2) {
+                leafIndex++;
+                insertPosition -= LEAF_CAPACITY / 2;
+            }
+        }
+
+        final long[] leaf = leaves[leafIndex];
+        final int leafSize = leafSizes[leafIndex];
+        System.arraycopy(leaf, insertPosition, leaf, insertPosition + 1, leafSize - insertPosition);
+        leaf[insertPosition] = key;
+        leafSizes[leafIndex] = leafSize + 1;
+        leafFirstKeys[leafIndex] = leaf[0];
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key to remove.
+     * @return true if the key was removed, false if it was not present.
+     */
+    public boolean remove(final long key) {
+        if (leafCount == 0) {
+            return false;
+        }
+
+        final int leafIndex = leafIndex(key);
+        final long[] leaf = leaves[leafIndex];
+        final int leafSize = leafSizes[leafIndex];
+        final int position = Arrays.binarySearch(leaf, 0, leafSize, key);
+        if (position < 0) {
+            return false;
+        }
+
+        System.arraycopy(leaf, position + 1, leaf, position, leafSize - position - 1);
+        leafSizes[leafIndex] = leafSize - 1;
+        size--;
+
+        if (leafSize == 1) {
+            removeLeaf(leafIndex);
+        } else {
+            leafFirstKeys[leafIndex] = leaf[0];
+            if (leafIndex + 1 < leafCount && leafSizes[leafIndex] + leafSizes[leafIndex + 1] <= MERGE_THRESHOLD) {
+                merge(leafIndex);
+            } else if (leafIndex > 0 && leafSizes[leafIndex - 1] + leafSizes[leafIndex] <= MERGE_THRESHOLD) {
+                merge(leafIndex - 1);
+            }
+        }
+
+        return true;
+    }
+
+    public boolean contains(final long key) {
+        if (leafCount == 0) {
+            return false;
+        }
+
+        final int leafIndex = leafIndex(key);
+        return Arrays.binarySearch(leaves[leafIndex], 0, leafSizes[leafIndex], key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the keys at or after one key and before another, in ascending order, into an array.
+     *
+     * @param fromKey  lowest key to copy, inclusive.
+     * @param toKey    key to stop before, exclusive.
+     * @param dst      to copy the keys into from index 0.
+     * @param maxCount of keys to copy, at most the length of the array.
+     * @return the number of keys copied, fewer than the maximum only if the range held no more.
+     */
+    public int copyRange(final long fromKey, final long toKey, final long[] dst, final int maxCount) {
+        if (leafCount == 0 || fromKey >= toKey) {
+            return 0;
+        }
+
+        int count = 0;
+        int leafIndex = leafIndex(fromKey);
+        int position = Arrays.binarySearch(leaves[leafIndex], 0, leafSizes[leafIndex], fromKey);
+        if (position < 0) {
+            position = -position - 1;
+        }
+
+        while (count < maxCount && leafIndex < leafCount) {
+            final long[] leaf = leaves[leafIndex];
+            final int leafSize = leafSizes[leafIndex];
+            while (position < leafSize && count < maxCount) {
+                final long key = leaf[position++];
+                if (key >= toKey) {
+                    return count;
+                }
+                dst[count++] = key;
+            }
+            leafIndex++;
+            position = 0;
+        }
+
+        return count;
+    }
+
+    /**
+     * Removes every key, keeping the leaves for reuse.
+     */
+    public void clear() {
+        while (leafCount > 0) {
+            removeLeaf(leafCount - 1);
+        }
+        size = 0;
+    }
+
+    /**
+     * Finds the leaf a key is in or belongs in: the last leaf whose first key is not above it, or the first leaf.
+     */
+    private int leafIndex(final long key) {
+        int low = 0;
+        int high = leafCount - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (leafFirstKeys[middle] <= key) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private void split(final int leafIndex) {
+        final long[] leaf = leaves[leafIndex];
+        final long[] upperLeaf = newLeaf();
+        final int half = LEAF_CAPACITY / 2;
+        System.arraycopy(leaf, half, upperLeaf, 0, LEAF_CAPACITY - half);
+        leafSizes[leafIndex] = half;
+
+        insertLeaf(leafIndex + 1, upperLeaf);
+        leafSizes[leafIndex + 1] = LEAF_CAPACITY - half;
+        leafFirstKeys[leafIndex + 1] = upperLeaf[0];
+    }
+
+    /**
+     * Moves the keys of the leaf after a leaf into it and removes the emptied leaf.
+     */
+    private void merge(final int leafIndex) {
+        final int leafSize = leafSizes[leafIndex];
+        final int nextLeafSize = leafSizes[leafIndex + 1];
+        System.arraycopy(leaves[leafIndex + 1], 0, leaves[leafIndex], leafSize, nextLeafSize);
+        leafSizes[leafIndex] = leafSize + nextLeafSize;
+        removeLeaf(leafIndex + 1);
+    }
+
+    private void insertLeaf(final int leafIndex, final long[] leaf) {
+        if (leafCount == leaves.length) {
+            final int newCapacity = leafCount * 2;
+            leaves = Arrays.copyOf(leaves, newCapacity);
+            leafSizes = Arrays.copyOf(leafSizes, newCapacity);
+            leafFirstKeys = Arrays.copyOf(leafFirstKeys, newCapacity);
+        }
+
+        final int moved = leafCount - leafIndex;
+        System.arraycopy(leaves, leafIndex, leaves, leafIndex + 1, moved);
+        System.arraycopy(leafSizes, leafIndex, leafSizes, leafIndex + 1, moved);
+        System.arraycopy(leafFirstKeys, leafIndex, leafFirstKeys, leafIndex + 1, moved);
+        leaves[leafIndex] = leaf;
+        leafSizes[leafIndex] = 0;
+        leafCount++;
+    }
+
+    private void removeLeaf(final int leafIndex) {
+        if (freeLeafCount == freeLeaves.length) {
+            freeLeaves = Arrays.copyOf(freeLeaves, freeLeafCount * 2);
+        }
+        freeLeaves[freeLeafCount++] = leaves[leafIndex];
+
+        final int moved = leafCount - leafIndex - 1;
+        System.arraycopy(leaves, leafIndex + 1, leaves, leafIndex, moved);
+        System.arraycopy(leafSizes, leafIndex + 1, leafSizes, leafIndex, moved);
+        System.arraycopy(leafFirstKeys, leafIndex + 1, leafFirstKeys, leafIndex, moved);
+        leaves[--leafCount] = null;
+    }
+
+    private long[] newLeaf() {
+        if (freeLeafCount > 0) {
+            final long[] leaf = freeLeaves[--freeLeafCount];
+            freeLeaves[freeLeafCount] = null;
+            return leaf;
+        }
+
+        return new long[LEAF_CAPACITY];
+    }
+}
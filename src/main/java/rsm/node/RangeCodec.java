@@ -0,0 +1,77 @@
+package rsm.node;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+
+import static rsm.node.ReplicatedStateMachineClusteredService.VALUE_POSITION;
+
+/**
+ * Layout of the body of {@link MessageType#RANGE} requests and of the page trailer of their responses.
+ * <pre>
+ * request body := fromKey:int64 toKey:int64 maxEntries:int32 pad:int32
+ * page         := entryCount:int32 hasMore:int32 nextKey:int64 (key:int64 value:int64 version:int64)*
+ * </pre>
+ * The body starts at {@link ReplicatedStateMachineClusteredService#VALUE_POSITION}. A page holds, in ascending order,
+ * the keys at or after {@code fromKey} and before {@code toKey} with their value and version, up to the smaller of
+ * {@code maxEntries} and {@link #MAX_PAGE_ENTRIES}. If the range holds more keys {@code hasMore} is 1 and
+ * {@code nextKey} is the first key left out, which is the {@code fromKey} of the request for the next page.
+ * <p>
+ * Each page is read at the point of its request in the log, so a scan of several pages sees keys written between its
+ * requests only if they lie ahead of the page being read.
+ */
+public final class RangeCodec {
+
+    /**
+     * Most entries a page holds, which bounds both the work of a range request on the service thread and the length of
+     * its response.
+     */
+    public static final int MAX_PAGE_ENTRIES = 256;
+
+    public static final int FROM_KEY_POSITION = VALUE_POSITION;
+    public static final int TO_KEY_POSITION = FROM_KEY_POSITION + BitUtil.SIZE_OF_LONG;
+    public static final int MAX_ENTRIES_POSITION = TO_KEY_POSITION + BitUtil.SIZE_OF_LONG;
+    public static final int REQUEST_BODY_LENGTH = MAX_ENTRIES_POSITION + BitUtil.SIZE_OF_LONG;
+
+    public static final int PAGE_ENTRY_COUNT_OFFSET = 0;
+    public static final int PAGE_HAS_MORE_OFFSET = BitUtil.SIZE_OF_INT;
+    public static final int PAGE_NEXT_KEY_OFFSET = BitUtil.SIZE_OF_LONG;
+    public static final int PAGE_ENTRIES_OFFSET = BitUtil.SIZE_OF_LONG * 2;
+    public static final int PAGE_ENTRY_KEY_OFFSET = 0;
+    public static final int PAGE_ENTRY_VALUE_OFFSET = BitUtil.SIZE_OF_LONG;
+    public static final int PAGE_ENTRY_VERSION_OFFSET = BitUtil.SIZE_OF_LONG * 2;
+    public static final int PAGE_ENTRY_LENGTH = BitUtil.SIZE_OF_LONG * 3;
+
+    private RangeCodec() {
+    }
+
+    public static long fromKey(final DirectBuffer buffer, final int offset) {
+        return buffer.getLong(offset + FROM_KEY_POSITION);
+    }
+
+    public static long toKey(final DirectBuffer buffer, final int offset) {
+        return buffer.getLong(offset + TO_KEY_POSITION);
+    }
+
+    /**
+     * Gets the number of entries a request asks for, capped at {@link #MAX_PAGE_ENTRIES}.
+     */
+    public static int maxEntries(final DirectBuffer buffer, final int offset) {
+        return Math.min(buffer.getInt(offset + MAX_ENTRIES_POSITION), MAX_PAGE_ENTRIES);
+    }
+
+    public static int pageLength(final int entryCount) {
+        return PAGE_ENTRIES_OFFSET + entryCount * PAGE_ENTRY_LENGTH;
+    }
+
+    /**
+     * Checks the length and the entry count of a range request.
+     *
+     * @param buffer containing the request.
+     * @param offset of the request.
+     * @param length of the request, which may include a trace trailer.
+     * @return true if the request is well formed.
+     */
+    public static boolean isValid(final DirectBuffer buffer, final int offset, final int length) {
+        return length >= REQUEST_BODY_LENGTH && buffer.getInt(offset + MAX_ENTRIES_POSITION) > 0;
+    }
+}
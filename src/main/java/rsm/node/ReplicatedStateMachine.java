@@ -1,16 +1,368 @@
 package rsm.node;
 
-import org.agrona.collections.MutableLong;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.Long2LongHashMap;
 
+import java.util.Arrays;
+
+/**
+ * The replicated state: a long value and a byte value by key. Key {@link #DEFAULT_KEY} is the register read and written
+ * by plain GET and SET requests and by byte value requests that name no key. Every key has a version counting the
+ * writes of either value applied to it, a key that was never written has value and version 0 and an empty byte value.
+ * <p>
+ * A write may give a key a deadline, in ticks of the caller's choosing, after which the key expires and reads as if it
+ * had never been written. Deadlines are kept in a {@link TimingWheel} over the slots of the keys and are only acted on
+ * when {@link #expire(long)} advances it.
+ * <p>
+ * Keyed values are held in parallel arrays of slots indexed through a primitive map, and the slots of expired keys are
+ * reused, so writes do not allocate once the arrays have grown to the number of live keys. Byte values are held in a
+ * {@link SlabAllocator}, each slot holding the handle of its key's byte value, and are only copied between it and the
+ * buffers they arrive in or leave through. The byte value of a key is freed when the key expires.
+ * <p>
+ * Keys can also be kept in an {@link OrderedKeyIndex}, at the cost of maintaining it whenever a key is first written or
+ * expires, so the keys within a range can be scanned in order with {@link #copyKeysInRange}.
+ */
 public class ReplicatedStateMachine {
 
-    private final MutableLong value = new MutableLong();
+    public static final long DEFAULT_KEY = 0L;
+    public static final int MAX_BYTES_VALUE_LENGTH = 4096;
+
+    private static final int NULL_SLOT = -1;
+    private static final int INITIAL_SLOT_CAPACITY = 16;
+
+    private final Long2LongHashMap slotByKey = new Long2LongHashMap(NULL_SLOT);
+    private long[] slotKeys = new long[INITIAL_SLOT_CAPACITY];
+    private long[] slotValues = new long[INITIAL_SLOT_CAPACITY];
+    private long[] slotVersions = new long[INITIAL_SLOT_CAPACITY];
+    private long[] slotBytesHandles = new long[INITIAL_SLOT_CAPACITY];
+    private int[] slotBytesLengths = new int[INITIAL_SLOT_CAPACITY];
+    private int slotCount;
+    private final IntArrayList freeSlots = new IntArrayList();
+    private final TimingWheel expiryWheel = new TimingWheel(INITIAL_SLOT_CAPACITY);
+    private final TimingWheel.ExpiryHandler expiryHandler = this::onExpiry;
+    private final SlabAllocator slabAllocator = new SlabAllocator(MAX_BYTES_VALUE_LENGTH, SlabAllocator.DEFAULT_SLAB_LENGTH);
+    private final OrderedKeyIndex orderedKeyIndex;
+    private int bytesValueCount;
+    private ExpiryListener expiryListener;
+
+    public ReplicatedStateMachine() {
+        this(true);
+    }
+
+    /**
+     * @param isOrderedKeyIndexEnabled whether keys are indexed in order for range scans.
+     */
+    public ReplicatedStateMachine(final boolean isOrderedKeyIndexEnabled) {
+        this.orderedKeyIndex = isOrderedKeyIndexEnabled ? new OrderedKeyIndex() : null;
+    }
 
     public void setValue(final long value) {
-        this.value.set(value);
+        setValue(DEFAULT_KEY, value);
     }
 
     public long getValue() {
-        return value.get();
+        return getValue(DEFAULT_KEY);
+    }
+
+    /**
+     * Writes the value of a key and increments its version. Any deadline the key had is cleared.
+     */
+    public void setValue(final long key, final long value) {
+        final int slot = slot(key);
+        slotValues[slot] = value;
+        slotVersions[slot]++;
+        expiryWheel.cancel(slot);
+    }
+
+    /**
+     * Writes the value of a key, increments its version and sets the tick at which the key expires.
+     */
+    public void setValue(final long key, final long value, final long deadlineTick) {
+        final int slot = slot(key);
+        slotValues[slot] = value;
+        slotVersions[slot]++;
+        expiryWheel.schedule(slot, deadlineTick);
+    }
+
+    public long getValue(final long key) {
+        final int slot = (int) slotByKey.get(key);
+        return slot == NULL_SLOT ? 0L : slotValues[slot];
+    }
+
+    public long getVersion(final long key) {
+        final int slot = (int) slotByKey.get(key);
+        return slot == NULL_SLOT ? 0L : slotVersions[slot];
+    }
+
+    /**
+     * Restores the value and version of a key from a snapshot.
+     */
+    public void restore(final long key, final long value, final long version) {
+        final int slot = slot(key);
+        slotValues[slot] = value;
+        slotVersions[slot] = version;
+    }
+
+    public int keyCount() {
+        return slotByKey.size();
+    }
+
+    /**
+     * Visits every key that has been written.
+     *
+     * @param consumer of key, value and version triples.
+     */
+    public void forEachKey(final KeyConsumer consumer) {
+        final Long2LongHashMap.ValueIterator slots = slotByKey.values().iterator();
+        while (slots.hasNext()) {
+            final int slot = (int) slots.nextValue();
+            consumer.accept(slotKeys[slot], slotValues[slot], slotVersions[slot]);
+        }
+    }
+
+    public boolean isOrderedKeyIndexEnabled() {
+        return orderedKeyIndex != null;
+    }
+
+    /**
+     * Copies the keys at or after one key and before another, in ascending order, into an array.
+     *
+     * @param fromKey  lowest key to copy, inclusive.
+     * @param toKey    key to stop before, exclusive.
+     * @param dst      to copy the keys into from index 0.
+     * @param maxCount of keys to copy, at most the length of the array.
+     * @return the number of keys copied.
+     * @throws IllegalStateException if the ordered key index is not enabled.
+     */
+    public int copyKeysInRange(final long fromKey, final long toKey, final long[] dst, final int maxCount) {
+        if (orderedKeyIndex == null) {
+            throw new IllegalStateException("Ordered key index is not enabled");
+        }
+
+        return orderedKeyIndex.copyRange(fromKey, toKey, dst, maxCount);
+    }
+
+    /**
+     * Advances the expiry wheel, removing every key whose deadline is at or before a tick.
+     *
+     * @param nowTick the current tick.
+     * @return the number of keys that expired.
+     */
+    public int expire(final long nowTick) {
+        return expiryWheel.advance(nowTick, expiryHandler);
+    }
+
+    /**
+     * Sets the listener notified of each key as it expires, before it is removed, or null for none.
+     */
+    public void expiryListener(final ExpiryListener expiryListener) {
+        this.expiryListener = expiryListener;
+    }
+
+    public int expiringKeyCount() {
+        return expiryWheel.size();
+    }
+
+    /**
+     * Gets the tick the expiry wheel was last advanced to.
+     *
+     * @return the expiry tick.
+     */
+    public long expiryTick() {
+        return expiryWheel.currentTick();
+    }
+
+    /**
+     * Restores the tick of the expiry wheel from a snapshot, before any deadline is restored.
+     */
+    public void expiryTick(final long expiryTick) {
+        expiryWheel.currentTick(expiryTick);
+    }
+
+    /**
+     * Restores the deadline of a key from a snapshot, after its value has been restored.
+     */
+    public void restoreExpiry(final long key, final long deadlineTick) {
+        expiryWheel.schedule(slot(key), deadlineTick);
+    }
+
+    /**
+     * Visits every key that has a deadline.
+     *
+     * @param consumer of key and deadline tick pairs.
+     */
+    public void forEachExpiry(final ExpiryConsumer consumer) {
+        final Long2LongHashMap.ValueIterator slots = slotByKey.values().iterator();
+        while (slots.hasNext()) {
+            final int slot = (int) slots.nextValue();
+            if (expiryWheel.isScheduled(slot)) {
+                consumer.accept(slotKeys[slot], expiryWheel.deadline(slot));
+            }
+        }
+    }
+
+    private void onExpiry(final int slot) {
+        if (expiryListener != null) {
+            expiryListener.onExpiry(slotKeys[slot]);
+        }
+        if (slotBytesHandles[slot] != SlabAllocator.NULL_HANDLE) {
+            slabAllocator.free(slotBytesHandles[slot], slotBytesLengths[slot]);
+            slotBytesHandles[slot] = SlabAllocator.NULL_HANDLE;
+            slotBytesLengths[slot] = 0;
+            bytesValueCount--;
+        }
+        slotByKey.remove(slotKeys[slot]);
+        if (orderedKeyIndex != null) {
+            orderedKeyIndex.remove(slotKeys[slot]);
+        }
+        freeSlots.addInt(slot);
+    }
+
+    private int slot(final long key) {
+        int slot = (int) slotByKey.get(key);
+        if (slot == NULL_SLOT) {
+            if (!freeSlots.isEmpty()) {
+                slot = freeSlots.popInt();
+            } else {
+                if (slotCount == slotKeys.length) {
+                    final int newCapacity = slotCount * 2;
+                    slotKeys = Arrays.copyOf(slotKeys, newCapacity);
+                    slotValues = Arrays.copyOf(slotValues, newCapacity);
+                    slotVersions = Arrays.copyOf(slotVersions, newCapacity);
+                    slotBytesHandles = Arrays.copyOf(slotBytesHandles, newCapacity);
+                    slotBytesLengths = Arrays.copyOf(slotBytesLengths, newCapacity);
+                    expiryWheel.ensureCapacity(newCapacity);
+                }
+                slot = slotCount++;
+            }
+
+            slotKeys[slot] = key;
+            slotValues[slot] = 0L;
+            slotVersions[slot] = 0L;
+            slotBytesHandles[slot] = SlabAllocator.NULL_HANDLE;
+            slotBytesLengths[slot] = 0;
+            slotByKey.put(key, slot);
+            if (orderedKeyIndex != null) {
+                orderedKeyIndex.add(key);
+            }
+        }
+
+        return slot;
+    }
+
+    /**
+     * Replaces the byte value of a key with a copy of a range of a buffer and increments its version. Any deadline the
+     * key had is cleared. A value in the same size class as the current one is written over it, otherwise its slot is
+     * swapped for one of the right size class.
+     *
+     * @param key    to write the byte value of.
+     * @param buffer containing the value.
+     * @param offset of the value.
+     * @param length of the value, at most {@link #MAX_BYTES_VALUE_LENGTH}, 0 to clear it.
+     */
+    public void setBytesValue(final long key, final DirectBuffer buffer, final int offset, final int length) {
+        final int slot = slot(key);
+        copyBytesValue(slot, buffer, offset, length);
+        slotVersions[slot]++;
+        expiryWheel.cancel(slot);
+    }
+
+    /**
+     * Restores the byte value of a key from a snapshot, leaving its version as restored with its value.
+     */
+    public void restoreBytesValue(final long key, final DirectBuffer buffer, final int offset, final int length) {
+        copyBytesValue(slot(key), buffer, offset, length);
+    }
+
+    public int getBytesValueLength(final long key) {
+        final int slot = (int) slotByKey.get(key);
+        return slot == NULL_SLOT ? 0 : slotBytesLengths[slot];
+    }
+
+    /**
+     * Copies the byte value of a key into a buffer.
+     *
+     * @param key    to read the byte value of.
+     * @param buffer to copy the value into, which must have room for {@link #getBytesValueLength(long)} bytes.
+     * @param offset to copy the value to.
+     */
+    public void getBytesValue(final long key, final MutableDirectBuffer buffer, final int offset) {
+        final int slot = (int) slotByKey.get(key);
+        if (slot != NULL_SLOT && slotBytesLengths[slot] > 0) {
+            slabAllocator.copyOut(slotBytesHandles[slot], buffer, offset, slotBytesLengths[slot]);
+        }
+    }
+
+    /**
+     * Gets the number of keys with a byte value that is not empty.
+     *
+     * @return the number of byte values.
+     */
+    public int bytesValueCount() {
+        return bytesValueCount;
+    }
+
+    /**
+     * Visits every key with a byte value that is not empty.
+     *
+     * @param consumer of key and byte value length pairs, which can read the value with
+     *                 {@link #getBytesValue(long, MutableDirectBuffer, int)}.
+     */
+    public void forEachBytesValue(final BytesValueConsumer consumer) {
+        final Long2LongHashMap.ValueIterator slots = slotByKey.values().iterator();
+        while (slots.hasNext()) {
+            final int slot = (int) slots.nextValue();
+            if (slotBytesLengths[slot] > 0) {
+                consumer.accept(slotKeys[slot], slotBytesLengths[slot]);
+            }
+        }
+    }
+
+    private void copyBytesValue(final int slot, final DirectBuffer buffer, final int offset, final int length) {
+        final long handle = slotBytesHandles[slot];
+        final int currentLength = slotBytesLengths[slot];
+        if (handle != SlabAllocator.NULL_HANDLE && length > 0 && slabAllocator.fits(handle, length)) {
+            slabAllocator.resize(handle, currentLength, length);
+        } else {
+            if (handle != SlabAllocator.NULL_HANDLE) {
+                slabAllocator.free(handle, currentLength);
+                bytesValueCount--;
+            }
+            slotBytesHandles[slot] = length > 0 ? slabAllocator.allocate(length) : SlabAllocator.NULL_HANDLE;
+            if (length > 0) {
+                bytesValueCount++;
+            }
+        }
+
+        if (length > 0) {
+            slabAllocator.copyIn(slotBytesHandles[slot], buffer, offset, length);
+        }
+        slotBytesLengths[slot] = length;
+    }
+
+    public SlabAllocator slabAllocator() {
+        return slabAllocator;
+    }
+
+    @FunctionalInterface
+    public interface KeyConsumer {
+        void accept(long key, long value, long version);
+    }
+
+    @FunctionalInterface
+    public interface BytesValueConsumer {
+        void accept(long key, int length);
+    }
+
+    @FunctionalInterface
+    public interface ExpiryConsumer {
+        void accept(long key, long deadlineTick);
+    }
+
+    @FunctionalInterface
+    public interface ExpiryListener {
+        void onExpiry(long key);
     }
 }
@@ -1,8 +1,12 @@
 package rsm.node;
 
+import io.aeron.Aeron;
+import io.aeron.archive.Archive;
 import io.aeron.cluster.ClusteredMediaDriver;
+import io.aeron.cluster.ConsensusModule;
 import io.aeron.cluster.service.Cluster;
 import io.aeron.cluster.service.ClusteredServiceContainer;
+import org.agrona.CloseHelper;
 import org.agrona.ErrorHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,13 +15,26 @@ import rsm.common.ClusterNodeConfig;
 import java.io.File;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * A cluster member: its archive, consensus module and service container, and a metrics server over its counters.
+ * <p>
+ * The node launches a media driver of its own unless its configuration shares the media driver of an
+ * {@link EmbeddedCluster}, in which case it launches the archive and consensus module against that driver and has no
+ * metrics server, as the shared driver's counters belong to every node.
+ * <p>
+ * If the configuration asks for warm-up iterations, the node runs them through a {@link ServiceWarmup} against its
+ * media driver before it launches its service container, so its service is compiled by the time it applies the log.
+ */
 public class ReplicatedStateMachineClusterNode {
 
     private static final Logger log = LoggerFactory.getLogger(ReplicatedStateMachineClusterNode.class);
     private final ClusterNodeConfig clusterNodeConfig;
     private ClusteredMediaDriver clusteredMediaDriver;
+    private Archive archive;
+    private ConsensusModule consensusModule;
     private ClusteredServiceContainer serviceContainer;
-
+    private MetricsServer metricsServer;
+    private long warmupDurationNs;
 
     public ReplicatedStateMachineClusterNode(final ClusterNodeConfig clusterNodeConfig) {
         this.clusterNodeConfig = clusterNodeConfig;
@@ -25,24 +42,58 @@ public class ReplicatedStateMachineClusterNode {
 
     public void start() {
         clusterNodeConfig.mediaDriverContext().errorHandler(errorHandler("Media Driver"));
-        clusterNodeConfig.archiveContext().deleteArchiveOnStart(true).errorHandler(errorHandler("Archive"));
+        clusterNodeConfig.archiveContext().errorHandler(errorHandler("Archive"));
         clusterNodeConfig.aeronArchiveContext().errorHandler(errorHandler("Aeron Archive"));
-        clusterNodeConfig.consensusModuleContext().deleteDirOnStart(true).errorHandler(errorHandler("Consensus Module"));
+        clusterNodeConfig.consensusModuleContext().errorHandler(errorHandler("Consensus Module"));
         clusterNodeConfig.clusteredServiceContext().errorHandler(errorHandler("Clustered Service"));
 
+        clusterNodeConfig.consensusModuleContext().sessionTimeoutNs(TimeUnit.MINUTES.toNanos(1));
+
+        if (clusterNodeConfig.isMediaDriverShared()) {
+            warmUp();
+            this.archive = Archive.launch(clusterNodeConfig.archiveContext());
+            this.consensusModule = ConsensusModule.launch(clusterNodeConfig.consensusModuleContext());
+            this.serviceContainer = ClusteredServiceContainer.launch(clusterNodeConfig.clusteredServiceContext());
+            return;
+        }
+
         this.clusteredMediaDriver = ClusteredMediaDriver.launch(
                 clusterNodeConfig.mediaDriverContext(),
                 clusterNodeConfig.archiveContext(),
-                clusterNodeConfig.consensusModuleContext()
-                        .sessionTimeoutNs(TimeUnit.MINUTES.toNanos(1)));
+                clusterNodeConfig.consensusModuleContext());
+
+        warmUp();
 
         this.serviceContainer = ClusteredServiceContainer.launch(
                 clusterNodeConfig.clusteredServiceContext());
+
+        this.metricsServer = new MetricsServer(
+                clusterNodeConfig.hostname(),
+                clusterNodeConfig.metricsPort(),
+                clusteredMediaDriver.mediaDriver().context().countersManager());
+        this.metricsServer.start();
+    }
+
+    private void warmUp() {
+        final int iterations = clusterNodeConfig.warmupIterations();
+        if (iterations <= 0) {
+            return;
+        }
+
+        final long startNs = System.nanoTime();
+        final long responses;
+        try (Aeron aeron = Aeron.connect(new Aeron.Context()
+                .aeronDirectoryName(clusterNodeConfig.mediaDriverContext().aeronDirectoryName()))) {
+            responses = ServiceWarmup.warmUp(aeron, iterations);
+        }
+        warmupDurationNs = System.nanoTime() - startNs;
+
+        log.info("Cluster node {} warmed up with {} requests in {} ms",
+                getClusterMemberId(), responses, TimeUnit.NANOSECONDS.toMillis(warmupDurationNs));
     }
 
     public void stop() {
-        serviceContainer.close();
-        clusteredMediaDriver.close();
+        CloseHelper.closeAll(metricsServer, serviceContainer, consensusModule, archive, clusteredMediaDriver);
     }
 
     private ErrorHandler errorHandler(final String context)
@@ -62,6 +113,24 @@ public class ReplicatedStateMachineClusterNode {
         return getService().getRole();
     }
 
+    /**
+     * Gets the server of the node's metrics.
+     *
+     * @return the metrics server, or null if the node shares its media driver.
+     */
+    public MetricsServer getMetricsServer() {
+        return metricsServer;
+    }
+
+    /**
+     * Gets how long the node took to warm up before launching its service container.
+     *
+     * @return the warm-up duration, or 0 if the node started cold.
+     */
+    public long getWarmupDurationNs() {
+        return warmupDurationNs;
+    }
+
     public File getClusterDir() {
         return clusterNodeConfig.consensusModuleContext().clusterDir();
     }
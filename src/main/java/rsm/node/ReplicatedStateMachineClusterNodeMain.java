@@ -5,24 +5,40 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rsm.common.ClusterNodeConfig;
 import rsm.common.ClusterTopologyConfiguration;
+import rsm.common.FlightRecording;
+import rsm.common.StartupTiming;
+
+import java.util.concurrent.TimeUnit;
 
 public class ReplicatedStateMachineClusterNodeMain {
 
     private static final Logger log = LoggerFactory.getLogger(ReplicatedStateMachineClusterNodeMain.class);
 
     public static void main(String[] args) {
+        FlightRecording.startIfConfigured();
+
         final int nodeId = Integer.parseInt(args[0]);
         final String topologyConfigFile = args[1];
 
         final ClusterTopologyConfiguration topologyConfig = ClusterTopologyConfiguration.fromYaml(topologyConfigFile);
-        final ClusterNodeConfig clusterNodeConfig = ClusterNodeConfig.create(nodeId, topologyConfig.getNodeHostnames(), new ReplicatedStateMachineClusteredService());
+        final ClusterNodeConfig clusterNodeConfig = ClusterNodeConfig.create(
+                nodeId,
+                topologyConfig.getNodeHostnames(),
+                new ReplicatedStateMachineClusteredService(),
+                topologyConfig.getDurabilityMode(),
+                topologyConfig.getDataDir())
+                .warmupIterations(Integer.getInteger(ServiceWarmup.ITERATIONS_PROP_NAME, ServiceWarmup.DEFAULT_ITERATIONS));
         final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(clusterNodeConfig);
 
-        log.info("Starting node {} using topology configuration {}", nodeId, topologyConfigFile);
+        log.info("Starting node {} using topology configuration {} in durability mode {}", nodeId, topologyConfigFile, topologyConfig.getDurabilityMode());
 
         clusterNode.start();
 
-        log.info("Cluster node started");
+        log.info("Cluster node {} ready {} ms after JVM start, warm-up took {} ms, class data sharing archive: {}",
+                nodeId,
+                StartupTiming.millisSinceJvmStart(),
+                TimeUnit.NANOSECONDS.toMillis(clusterNode.getWarmupDurationNs()),
+                StartupTiming.sharedArchiveFile());
 
         SigInt.register(clusterNode::stop);
     }
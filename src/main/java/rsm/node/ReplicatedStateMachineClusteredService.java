@@ -2,18 +2,22 @@ package rsm.node;
 
 import io.aeron.ExclusivePublication;
 import io.aeron.Image;
-import io.aeron.cluster.client.ClusterException;
+import io.aeron.cluster.client.AeronCluster;
 import io.aeron.cluster.codecs.CloseReason;
 import io.aeron.cluster.service.ClientSession;
 import io.aeron.cluster.service.Cluster;
 import io.aeron.cluster.service.ClusteredService;
+import io.aeron.driver.Configuration;
+import io.aeron.logbuffer.BufferClaim;
 import io.aeron.logbuffer.Header;
+import io.aeron.protocol.DataHeaderFlyweight;
 import org.agrona.BitUtil;
 import org.agrona.DirectBuffer;
 import org.agrona.ExpandableArrayBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import rsm.common.TraceClock;
 
 import java.util.concurrent.TimeUnit;
 
@@ -21,15 +25,106 @@ public class ReplicatedStateMachineClusteredService implements ClusteredService
 
     private static final Logger log = LoggerFactory.getLogger(ReplicatedStateMachineClusteredService.class);
     public static final int MESSAGE_TYPE_POSITION = BitUtil.SIZE_OF_LONG;
-    public static final int VALUE_POSITION = BitUtil.SIZE_OF_LONG * 2;
+    public static final int FLAGS_POSITION = MESSAGE_TYPE_POSITION + BitUtil.SIZE_OF_CHAR;
+    public static final int CLIENT_ID_POSITION = BitUtil.SIZE_OF_LONG * 2;
+    public static final int VALUE_POSITION = BitUtil.SIZE_OF_LONG * 3;
 
-    private final ReplicatedStateMachine replicatedStateMachine = new ReplicatedStateMachine();
+    /**
+     * {@link MessageType#SET_BYTES} requests without a key carry the int length of the value at {@link #VALUE_POSITION}
+     * followed by the value itself. See {@link BytesValueCodec} for requests with a key.
+     */
+    public static final int BYTES_VALUE_POSITION = VALUE_POSITION + BitUtil.SIZE_OF_INT;
+
+    /**
+     * Flag set on {@link MessageType#SET} requests that carry the number of milliseconds after which the value expires
+     * at {@link #SET_TTL_POSITION}.
+     */
+    public static final short TTL_FLAG = 0x2;
+    public static final int SET_TTL_POSITION = VALUE_POSITION + BitUtil.SIZE_OF_LONG;
+
+    public static final int RESPONSE_VALUE_POSITION = BitUtil.SIZE_OF_LONG;
+    public static final int RESPONSE_NODE_ID_POSITION = BitUtil.SIZE_OF_LONG * 2;
+    public static final int RESPONSE_STATUS_POSITION = RESPONSE_NODE_ID_POSITION + BitUtil.SIZE_OF_INT;
+    public static final int RESPONSE_FLAGS_POSITION = RESPONSE_STATUS_POSITION + BitUtil.SIZE_OF_SHORT;
+    public static final int RESPONSE_LENGTH = RESPONSE_FLAGS_POSITION + BitUtil.SIZE_OF_SHORT;
+
+    public static final short RESPONSE_STATUS_OK = 0;
+    public static final short RESPONSE_STATUS_RATE_LIMITED = 1;
+    public static final short RESPONSE_STATUS_INVALID = 2;
+    public static final short RESPONSE_STATUS_ABORTED = 3;
+    public static final short RESPONSE_STATUS_DUPLICATE = 4;
+
+    /**
+     * Flag set on responses to byte value requests. Their value field holds the length of the byte value, which is the
+     * last part of the response.
+     */
+    public static final short BYTES_VALUE_FLAG = 0x2;
+
+    /**
+     * Flag set on responses to transactions that carry a {@link TransactionCodec result} as their last part. Their value
+     * field holds the index of the precondition that aborted the transaction, or -1.
+     */
+    public static final short TRANSACTION_RESULT_FLAG = 0x4;
+
+    /**
+     * Flag set on responses to range requests that carry a {@link RangeCodec page} as their last part. Their value
+     * field holds the number of entries in the page.
+     */
+    public static final short RANGE_PAGE_FLAG = 0x8;
+
+    /**
+     * Flag set on requests that carry the client's send time, in epoch nanoseconds, as a trailer after their body.
+     * Responses to them append the send time, the log append time and the apply time, all in epoch nanoseconds.
+     */
+    public static final short TRACE_FLAG = 0x1;
+    public static final int TRACE_TRAILER_LENGTH = BitUtil.SIZE_OF_LONG;
+    public static final int RESPONSE_TRACE_SEND_TIME_POSITION = BitUtil.SIZE_OF_LONG * 3;
+    public static final int RESPONSE_TRACE_LOG_TIME_POSITION = BitUtil.SIZE_OF_LONG * 4;
+    public static final int RESPONSE_TRACE_APPLY_TIME_POSITION = BitUtil.SIZE_OF_LONG * 5;
+    public static final int TRACED_RESPONSE_LENGTH = BitUtil.SIZE_OF_LONG * 6;
+
+    public static final int DEFAULT_DEDUPLICATION_TABLE_CAPACITY = 64 * 1024;
+
+    /**
+     * Correlation ID of the single cluster timer that advances key expiries while keys have a TTL.
+     */
+    public static final long EXPIRY_TIMER_CORRELATION_ID = 1L;
+
+    /**
+     * Longest response that is written in place with {@link ClientSession#tryClaim}, which is limited to a single
+     * frame of the egress channel. Longer responses are fragmented by {@link ClientSession#offer}.
+     */
+    public static final int MAX_CLAIMED_RESPONSE_LENGTH =
+            Configuration.mtuLength() - DataHeaderFlyweight.HEADER_LENGTH - AeronCluster.SESSION_HEADER_LENGTH;
+
+    private final RequestApplier requestApplier;
     private final MutableDirectBuffer responseBuffer = new ExpandableArrayBuffer();
+    private final BufferClaim bufferClaim = new BufferClaim();
     private Cluster cluster;
+    private ServiceCounters counters;
+
+    public ReplicatedStateMachineClusteredService() {
+        this(DEFAULT_DEDUPLICATION_TABLE_CAPACITY);
+    }
+
+    public ReplicatedStateMachineClusteredService(final int deduplicationTableCapacity) {
+        this(RequestApplier.forCluster(deduplicationTableCapacity));
+    }
+
+    public ReplicatedStateMachineClusteredService(final RequestApplier requestApplier) {
+        this.requestApplier = requestApplier;
+    }
 
     @Override
     public void onStart(final Cluster cluster, final Image snapshotImage) {
         this.cluster = cluster;
+        this.counters = new ServiceCounters(cluster.aeron());
+
+        if (snapshotImage != null) {
+            new SnapshotLoader(requestApplier).load(snapshotImage, cluster.idleStrategy());
+            counters.onSlabUsage(requestApplier.replicatedStateMachine().slabAllocator());
+            log.info("Cluster node {} loaded snapshot with {} deduplication entries", cluster.memberId(), requestApplier.deduplicationTable().size());
+        }
     }
 
     @Override
@@ -40,6 +135,8 @@ public class ReplicatedStateMachineClusteredService implements ClusteredService
     @Override
     public void onSessionClose(final ClientSession session, final long timestamp, final CloseReason closeReason) {
         log.info("Session {} closed at {} of {}", session.id(), timestamp, closeReason);
+        requestApplier.onSessionClose(session.id());
+        counters.onSessionClose(session.id());
     }
 
     @Override
@@ -53,39 +150,241 @@ public class ReplicatedStateMachineClusteredService implements ClusteredService
         final long correlationId = buffer.getLong(offset);
         final MessageType messageType = MessageType.fromCode(buffer.getChar(offset + MESSAGE_TYPE_POSITION));
 
-        log.info("Cluster node {} received request with correlation ID: {} and type: {}", cluster.memberId(), correlationId, messageType);
+        if (log.isTraceEnabled()) {
+            log.trace("Cluster node {} received request with correlation ID: {} and type: {}", cluster.memberId(), correlationId, messageType);
+        }
+
+        final ApplyEvent applyEvent = ApplyEvent.isRecorded() ? new ApplyEvent() : null;
+        if (applyEvent != null) {
+            applyEvent.begin();
+        }
+        final long applyStartNs = System.nanoTime();
 
-        switch (messageType)
-        {
-            case GET -> {
+        final int result = requestApplier.apply(session.id(), cluster.timeUnit().toNanos(timestamp), buffer, offset, length);
+        if (applyEvent != null) {
+            applyEvent.end();
+            if (applyEvent.shouldCommit()) {
+                applyEvent.messageType = messageType.name();
+                applyEvent.result(result);
+                applyEvent.correlationId = correlationId;
+                applyEvent.clusterSessionId = session.id();
+                applyEvent.logPosition = header.position();
+                applyEvent.commit();
+            }
+        }
+        if (result == RequestApplier.DUPLICATE && log.isTraceEnabled()) {
+            log.trace("Cluster node {} ignored duplicate request with correlation ID: {}", cluster.memberId(), correlationId);
+        }
+
+        counters.onMessageApplied(messageType, System.nanoTime() - applyStartNs, header.position());
+        if (requestApplier.rateLimiter().isEnabled()) {
+            counters.onSessionMessage(session.id(), result == RequestApplier.RATE_LIMITED);
+        }
+        if (messageType == MessageType.SET_BYTES) {
+            counters.onSlabUsage(requestApplier.replicatedStateMachine().slabAllocator());
+        }
+        onExpiries(timestamp);
+
+        final boolean isTraced = (buffer.getShort(offset + FLAGS_POSITION) & TRACE_FLAG) != 0;
+        final int responseLength = (isTraced ? TRACED_RESPONSE_LENGTH : RESPONSE_LENGTH) +
+                responseTrailerLength(messageType, result, buffer, offset);
+
+        if (responseLength <= MAX_CLAIMED_RESPONSE_LENGTH) {
+            if (session.tryClaim(responseLength, bufferClaim) > 0) {
+                encodeResponse(bufferClaim.buffer(), bufferClaim.offset() + AeronCluster.SESSION_HEADER_LENGTH,
+                        messageType, result, isTraced, timestamp, buffer, offset, length);
+                bufferClaim.commit();
+            } else {
+                counters.onEgressOfferFailure();
             }
-            case SET -> {
-                final long valueToSet = buffer.getLong(offset + VALUE_POSITION);
-                replicatedStateMachine.setValue(valueToSet);
+        } else {
+            encodeResponse(responseBuffer, 0, messageType, result, isTraced, timestamp, buffer, offset, length);
+            if (session.offer(responseBuffer, 0, responseLength) < 0) {
+                counters.onEgressOfferFailure();
             }
-            default -> throw new IllegalArgumentException("Unexpected message type: " + messageType);
         }
+    }
+
+    private int responseTrailerLength(final MessageType messageType,
+                                      final int result,
+                                      final DirectBuffer request,
+                                      final int requestOffset) {
+        return switch (messageType)
+        {
+            case GET_BYTES, SET_BYTES -> result == RequestApplier.INVALID ? 0 :
+                    requestApplier.replicatedStateMachine().getBytesValueLength(BytesValueCodec.key(request, requestOffset));
+            case TRANSACTION -> result == RequestApplier.INVALID ? 0 : TransactionCodec.resultLength(
+                    TransactionCodec.preconditionCount(request, requestOffset), TransactionCodec.writeCount(request, requestOffset));
+            case RANGE -> result == RequestApplier.APPLIED ? RangeCodec.pageLength(requestApplier.rangeEntryCount()) : 0;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Encodes a response, copying a byte value straight from the state machine's slab into the destination and
+     * appending the result of a transaction or the page of a range.
+     */
+    private void encodeResponse(final MutableDirectBuffer dst,
+                                final int dstOffset,
+                                final MessageType messageType,
+                                final int result,
+                                final boolean isTraced,
+                                final long timestamp,
+                                final DirectBuffer request,
+                                final int requestOffset,
+                                final int requestLength) {
+        final ReplicatedStateMachine replicatedStateMachine = requestApplier.replicatedStateMachine();
+        final short status = switch (result)
+        {
+            case RequestApplier.RATE_LIMITED -> RESPONSE_STATUS_RATE_LIMITED;
+            case RequestApplier.INVALID -> RESPONSE_STATUS_INVALID;
+            case RequestApplier.ABORTED -> RESPONSE_STATUS_ABORTED;
+            case RequestApplier.DUPLICATE -> RESPONSE_STATUS_DUPLICATE;
+            default -> RESPONSE_STATUS_OK;
+        };
+        final boolean isBytesValue = (messageType == MessageType.GET_BYTES || messageType == MessageType.SET_BYTES) &&
+                result != RequestApplier.INVALID;
+        final long bytesKey = isBytesValue ? BytesValueCodec.key(request, requestOffset) : ReplicatedStateMachine.DEFAULT_KEY;
+        final boolean isTransactionResult = messageType == MessageType.TRANSACTION && result != RequestApplier.INVALID;
+        final boolean isRangePage = messageType == MessageType.RANGE && result == RequestApplier.APPLIED;
+        final long value;
+        if (isBytesValue) {
+            value = replicatedStateMachine.getBytesValueLength(bytesKey);
+        } else if (isRangePage) {
+            value = requestApplier.rangeEntryCount();
+        } else if (messageType == MessageType.TRANSACTION) {
+            value = result == RequestApplier.ABORTED ? requestApplier.failedPreconditionIndex() : RequestApplier.NULL_PRECONDITION_INDEX;
+        } else {
+            value = replicatedStateMachine.getValue();
+        }
+
+        dst.putLong(dstOffset, request.getLong(requestOffset));
+        dst.putLong(dstOffset + RESPONSE_VALUE_POSITION, value);
+        dst.putInt(dstOffset + RESPONSE_NODE_ID_POSITION, cluster.memberId());
+        dst.putShort(dstOffset + RESPONSE_STATUS_POSITION, status);
+        dst.putShort(dstOffset + RESPONSE_FLAGS_POSITION, (short) ((isTraced ? TRACE_FLAG : 0) |
+                (isBytesValue ? BYTES_VALUE_FLAG : 0) | (isTransactionResult ? TRANSACTION_RESULT_FLAG : 0) |
+                (isRangePage ? RANGE_PAGE_FLAG : 0)));
+
+        int fixedLength = RESPONSE_LENGTH;
+        if (isTraced) {
+            dst.putLong(dstOffset + RESPONSE_TRACE_SEND_TIME_POSITION, request.getLong(requestOffset + requestLength - TRACE_TRAILER_LENGTH));
+            dst.putLong(dstOffset + RESPONSE_TRACE_LOG_TIME_POSITION, cluster.timeUnit().toNanos(timestamp));
+            dst.putLong(dstOffset + RESPONSE_TRACE_APPLY_TIME_POSITION, TraceClock.epochNanos());
+            fixedLength = TRACED_RESPONSE_LENGTH;
+        }
+
+        if (isBytesValue) {
+            replicatedStateMachine.getBytesValue(bytesKey, dst, dstOffset + fixedLength);
+        } else if (isTransactionResult) {
+            encodeTransactionResult(dst, dstOffset + fixedLength, request, requestOffset);
+        } else if (isRangePage) {
+            encodeRangePage(dst, dstOffset + fixedLength);
+        }
+    }
+
+    private void encodeRangePage(final MutableDirectBuffer dst, final int pageOffset) {
+        final ReplicatedStateMachine replicatedStateMachine = requestApplier.replicatedStateMachine();
+        final int entryCount = requestApplier.rangeEntryCount();
+        final boolean hasMore = requestApplier.rangeHasMore();
+
+        dst.putInt(pageOffset + RangeCodec.PAGE_ENTRY_COUNT_OFFSET, entryCount);
+        dst.putInt(pageOffset + RangeCodec.PAGE_HAS_MORE_OFFSET, hasMore ? 1 : 0);
+        dst.putLong(pageOffset + RangeCodec.PAGE_NEXT_KEY_OFFSET, hasMore ? requestApplier.nextRangeKey() : 0L);
+        int entryOffset = pageOffset + RangeCodec.PAGE_ENTRIES_OFFSET;
+        for (int i = 0; i < entryCount; i++) {
+            final long key = requestApplier.rangeKey(i);
+            dst.putLong(entryOffset + RangeCodec.PAGE_ENTRY_KEY_OFFSET, key);
+            dst.putLong(entryOffset + RangeCodec.PAGE_ENTRY_VALUE_OFFSET, replicatedStateMachine.getValue(key));
+            dst.putLong(entryOffset + RangeCodec.PAGE_ENTRY_VERSION_OFFSET, replicatedStateMachine.getVersion(key));
+            entryOffset += RangeCodec.PAGE_ENTRY_LENGTH;
+        }
+    }
 
-        responseBuffer.putLong(0, correlationId);
-        responseBuffer.putLong(BitUtil.SIZE_OF_LONG, replicatedStateMachine.getValue());
-        responseBuffer.putInt(BitUtil.SIZE_OF_LONG * 2, cluster.memberId());
+    private void encodeTransactionResult(final MutableDirectBuffer dst,
+                                         final int resultOffset,
+                                         final DirectBuffer request,
+                                         final int requestOffset) {
+        final ReplicatedStateMachine replicatedStateMachine = requestApplier.replicatedStateMachine();
+        final int preconditionCount = TransactionCodec.preconditionCount(request, requestOffset);
+        final int writeCount = TransactionCodec.writeCount(request, requestOffset);
 
-        session.offer(responseBuffer, 0, responseBuffer.capacity());
+        dst.putInt(resultOffset + TransactionCodec.RESULT_ENTRY_COUNT_OFFSET, preconditionCount + writeCount);
+        int entryOffset = resultOffset + TransactionCodec.RESULT_ENTRIES_OFFSET;
+        for (int i = 0; i < preconditionCount + writeCount; i++) {
+            final long key = i < preconditionCount ?
+                    request.getLong(TransactionCodec.preconditionOffset(requestOffset, i) + TransactionCodec.PRECONDITION_KEY_OFFSET) :
+                    request.getLong(TransactionCodec.writeOffset(requestOffset, preconditionCount, i - preconditionCount) +
+                            TransactionCodec.WRITE_KEY_OFFSET);
+            dst.putLong(entryOffset + TransactionCodec.RESULT_ENTRY_VALUE_OFFSET, replicatedStateMachine.getValue(key));
+            dst.putLong(entryOffset + TransactionCodec.RESULT_ENTRY_VERSION_OFFSET, replicatedStateMachine.getVersion(key));
+            entryOffset += TransactionCodec.RESULT_ENTRY_LENGTH;
+        }
     }
 
     @Override
     public void onTimerEvent(final long correlationId, final long timestamp) {
+        if (correlationId == EXPIRY_TIMER_CORRELATION_ID) {
+            requestApplier.onTimerEvent(cluster.timeUnit().toNanos(timestamp));
+            onExpiries(timestamp);
+        }
+    }
+
+    /**
+     * Updates the expiry counters and schedules the expiry timer one tick ahead if keys are waiting to expire. Every
+     * node schedules it at the same log position, so the timer keeps firing whichever node becomes leader.
+     */
+    private void onExpiries(final long timestamp) {
+        counters.onExpiries(requestApplier.expiredKeyCount(), requestApplier.replicatedStateMachine().expiringKeyCount());
 
+        if (requestApplier.isExpiryTimerNeeded()) {
+            final long deadline = timestamp + cluster.timeUnit().convert(RequestApplier.EXPIRY_TICK_NS, TimeUnit.NANOSECONDS);
+            cluster.idleStrategy().reset();
+            while (!cluster.scheduleTimer(EXPIRY_TIMER_CORRELATION_ID, deadline)) {
+                cluster.idleStrategy().idle();
+            }
+            requestApplier.expiryTimerScheduled(true);
+        }
     }
 
     @Override
     public void onTakeSnapshot(final ExclusivePublication snapshotPublication) {
+        final SnapshotEvent snapshotEvent = new SnapshotEvent();
+        snapshotEvent.begin();
+        final SnapshotWriter snapshotWriter = new SnapshotWriter(snapshotPublication, cluster.idleStrategy());
 
+        snapshotWriter.writeKeyedValues(requestApplier.replicatedStateMachine());
+        snapshotWriter.writeBytesValues(requestApplier.replicatedStateMachine());
+        snapshotWriter.writeExpiries(requestApplier);
+        snapshotWriter.writeDeduplicationTable(requestApplier.deduplicationTable());
+        snapshotWriter.writeRateLimiter(requestApplier.rateLimiter());
+        snapshotWriter.writeEnd();
+
+        snapshotEvent.end();
+        if (snapshotEvent.shouldCommit()) {
+            snapshotEvent.memberId = cluster.memberId();
+            snapshotEvent.logPosition = cluster.logPosition();
+            snapshotEvent.keyCount = requestApplier.replicatedStateMachine().keyCount();
+            snapshotEvent.expiringKeyCount = requestApplier.replicatedStateMachine().expiringKeyCount();
+            snapshotEvent.deduplicationEntries = requestApplier.deduplicationTable().size();
+            snapshotEvent.commit();
+        }
+
+        log.info("Cluster node {} took snapshot with {} deduplication entries", cluster.memberId(), requestApplier.deduplicationTable().size());
     }
 
     @Override
     public void onRoleChange(final Cluster.Role newRole) {
         log.info("Cluster node {} has a new role: {}", cluster.memberId(), newRole);
+        counters.onRoleChange();
+
+        final RoleChangeEvent roleChangeEvent = new RoleChangeEvent();
+        if (roleChangeEvent.shouldCommit()) {
+            roleChangeEvent.memberId = cluster.memberId();
+            roleChangeEvent.role = newRole.name();
+            roleChangeEvent.logPosition = cluster.logPosition();
+            roleChangeEvent.commit();
+        }
     }
 
     @Override
@@ -101,4 +400,8 @@ public class ReplicatedStateMachineClusteredService implements ClusteredService
     public int getMemberId() {
         return cluster.memberId();
     }
+
+    public long getValue() {
+        return requestApplier.replicatedStateMachine().getValue();
+    }
 }
@@ -0,0 +1,356 @@
+package rsm.node;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import rsm.common.ClusterNodeConfig;
+
+import java.util.concurrent.TimeUnit;
+
+import static rsm.node.ReplicatedStateMachineClusteredService.CLIENT_ID_POSITION;
+import static rsm.node.ReplicatedStateMachineClusteredService.FLAGS_POSITION;
+import static rsm.node.ReplicatedStateMachineClusteredService.MESSAGE_TYPE_POSITION;
+import static rsm.node.ReplicatedStateMachineClusteredService.SET_TTL_POSITION;
+import static rsm.node.ReplicatedStateMachineClusteredService.TTL_FLAG;
+import static rsm.node.ReplicatedStateMachineClusteredService.VALUE_POSITION;
+
+/**
+ * Applies client requests taken from the cluster log to the replicated state. Every decision depends only on the log,
+ * so the clustered service and anything else that follows the log, such as read replicas and exporters, end up in the
+ * same state.
+ * <p>
+ * Keys written with a TTL expire on the first tick of {@link #EXPIRY_TICK_NS} at or after their deadline. Expiries are
+ * applied before every request and on every timer event, using the log time of either, so all followers of the log
+ * remove a key at the same point in it.
+ * <p>
+ * A {@link MessageType#RANGE} request changes nothing; the keys of the page it reads are collected when it is applied
+ * and held until the next request, for the response to be encoded from.
+ */
+public class RequestApplier {
+
+    /**
+     * The request was applied.
+     */
+    public static final int APPLIED = 0;
+
+    /**
+     * The request was a retry of one that had already been applied and was ignored.
+     */
+    public static final int DUPLICATE = 1;
+
+    /**
+     * The session exceeded its rate limit and the request was ignored.
+     */
+    public static final int RATE_LIMITED = 2;
+
+    /**
+     * The request was malformed, such as a byte value longer than the state machine holds, and was ignored.
+     */
+    public static final int INVALID = 3;
+
+    /**
+     * A precondition of the transaction did not hold and none of its writes were applied.
+     */
+    public static final int ABORTED = 4;
+
+    public static final int NULL_PRECONDITION_INDEX = -1;
+
+    /**
+     * Granularity of expiry deadlines, and the interval of the cluster timer that expires keys while requests are idle.
+     */
+    public static final long EXPIRY_TICK_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Longest TTL a key can be given.
+     */
+    public static final long MAX_TTL_MS = TimeUnit.DAYS.toMillis(3650);
+
+    private final ReplicatedStateMachine replicatedStateMachine;
+    private final DeduplicationTable deduplicationTable;
+    private final SessionRateLimiter rateLimiter;
+    private int failedPreconditionIndex = NULL_PRECONDITION_INDEX;
+    private long expiredKeyCount;
+    private boolean expiryTimerScheduled;
+    private final long[] rangeKeys = new long[RangeCodec.MAX_PAGE_ENTRIES + 1];
+    private int rangeEntryCount;
+    private boolean rangeHasMore;
+
+    public RequestApplier(final int deduplicationTableCapacity,
+                          final long rateLimitMessagesPerSecond,
+                          final long rateLimitBurst) {
+        this(deduplicationTableCapacity, rateLimitMessagesPerSecond, rateLimitBurst, true);
+    }
+
+    public RequestApplier(final int deduplicationTableCapacity,
+                          final long rateLimitMessagesPerSecond,
+                          final long rateLimitBurst,
+                          final boolean isOrderedKeyIndexEnabled) {
+        this.replicatedStateMachine = new ReplicatedStateMachine(isOrderedKeyIndexEnabled);
+        this.deduplicationTable = new DeduplicationTable(deduplicationTableCapacity);
+        this.rateLimiter = new SessionRateLimiter(rateLimitMessagesPerSecond, rateLimitBurst);
+    }
+
+    /**
+     * Creates an applier with the rate limit and the ordered key index shared by every node of the cluster and every
+     * follower of its log, as {@link ClusterNodeConfig} defines them.
+     *
+     * @param deduplicationTableCapacity number of clients whose window of applied request IDs is remembered.
+     * @return the request applier.
+     */
+    public static RequestApplier forCluster(final int deduplicationTableCapacity) {
+        return new RequestApplier(
+                deduplicationTableCapacity,
+                ClusterNodeConfig.RATE_LIMIT_MESSAGES_PER_SECOND,
+                ClusterNodeConfig.RATE_LIMIT_BURST,
+                ClusterNodeConfig.ORDERED_KEY_INDEX_ENABLED);
+    }
+
+    /**
+     * Applies a request.
+     *
+     * @param clusterSessionId of the session that sent the request.
+     * @param timeNs           at which the request was appended to the log, in nanoseconds.
+     * @param buffer           containing the request.
+     * @param offset           of the request.
+     * @param length           of the request.
+     * @return {@link #APPLIED}, {@link #DUPLICATE}, {@link #RATE_LIMITED}, {@link #INVALID} or {@link #ABORTED}.
+     */
+    public int apply(final long clusterSessionId,
+                     final long timeNs,
+                     final DirectBuffer buffer,
+                     final int offset,
+                     final int length) {
+        expire(timeNs);
+
+        if (!rateLimiter.tryAcquire(clusterSessionId, timeNs)) {
+            return RATE_LIMITED;
+        }
+
+        final MessageType messageType = MessageType.fromCode(buffer.getChar(offset + MESSAGE_TYPE_POSITION));
+        switch (messageType)
+        {
+            case GET -> {
+                return APPLIED;
+            }
+            case GET_BYTES -> {
+                return BytesValueCodec.isValid(messageType, buffer, offset, length) ? APPLIED : INVALID;
+            }
+            case SET -> {
+                final boolean hasTtl = (buffer.getShort(offset + FLAGS_POSITION) & TTL_FLAG) != 0;
+                final long ttlMs = hasTtl ? buffer.getLong(offset + SET_TTL_POSITION) : 0L;
+                if (hasTtl && (SET_TTL_POSITION + BitUtil.SIZE_OF_LONG > length || ttlMs <= 0 || ttlMs > MAX_TTL_MS)) {
+                    return INVALID;
+                }
+
+                final long correlationId = buffer.getLong(offset);
+                final long clientId = buffer.getLong(offset + CLIENT_ID_POSITION);
+                if (!deduplicationTable.tryRecord(clientId, correlationId)) {
+                    return DUPLICATE;
+                }
+
+                final long value = buffer.getLong(offset + VALUE_POSITION);
+                if (hasTtl) {
+                    replicatedStateMachine.setValue(ReplicatedStateMachine.DEFAULT_KEY, value, deadlineTick(timeNs, ttlMs));
+                } else {
+                    replicatedStateMachine.setValue(value);
+                }
+                return APPLIED;
+            }
+            case SET_BYTES -> {
+                if (!BytesValueCodec.isValid(messageType, buffer, offset, length)) {
+                    return INVALID;
+                }
+
+                final long correlationId = buffer.getLong(offset);
+                final long clientId = buffer.getLong(offset + CLIENT_ID_POSITION);
+                if (!deduplicationTable.tryRecord(clientId, correlationId)) {
+                    return DUPLICATE;
+                }
+
+                replicatedStateMachine.setBytesValue(
+                        BytesValueCodec.key(buffer, offset),
+                        buffer,
+                        offset + BytesValueCodec.BYTES_VALUE_POSITION,
+                        BytesValueCodec.valueLength(buffer, offset));
+                return APPLIED;
+            }
+            case TRANSACTION -> {
+                if (!TransactionCodec.isValid(buffer, offset, length)) {
+                    return INVALID;
+                }
+
+                final long correlationId = buffer.getLong(offset);
+                final long clientId = buffer.getLong(offset + CLIENT_ID_POSITION);
+                if (!deduplicationTable.tryRecord(clientId, correlationId)) {
+                    return DUPLICATE;
+                }
+
+                return applyTransaction(timeNs, buffer, offset);
+            }
+            case RANGE -> {
+                if (!replicatedStateMachine.isOrderedKeyIndexEnabled() || !RangeCodec.isValid(buffer, offset, length)) {
+                    return INVALID;
+                }
+
+                final int maxEntries = RangeCodec.maxEntries(buffer, offset);
+                final int keyCount = replicatedStateMachine.copyKeysInRange(
+                        RangeCodec.fromKey(buffer, offset), RangeCodec.toKey(buffer, offset), rangeKeys, maxEntries + 1);
+                rangeHasMore = keyCount > maxEntries;
+                rangeEntryCount = rangeHasMore ? maxEntries : keyCount;
+                return APPLIED;
+            }
+            default -> throw new IllegalArgumentException("Unexpected message type: " + messageType);
+        }
+    }
+
+    /**
+     * Gets the index of the precondition that aborted the last transaction.
+     *
+     * @return the precondition index, or {@link #NULL_PRECONDITION_INDEX} if the last transaction was not aborted.
+     */
+    public int failedPreconditionIndex() {
+        return failedPreconditionIndex;
+    }
+
+    /**
+     * Gets the number of entries in the page read by the last range request.
+     *
+     * @return the entry count.
+     */
+    public int rangeEntryCount() {
+        return rangeEntryCount;
+    }
+
+    /**
+     * Gets a key of the page read by the last range request.
+     *
+     * @param index of the entry, below {@link #rangeEntryCount()}.
+     * @return the key.
+     */
+    public long rangeKey(final int index) {
+        return rangeKeys[index];
+    }
+
+    /**
+     * Gets whether the range of the last range request holds keys beyond its page.
+     *
+     * @return true if there is a next page.
+     */
+    public boolean rangeHasMore() {
+        return rangeHasMore;
+    }
+
+    /**
+     * Gets the first key after the page read by the last range request, valid if {@link #rangeHasMore()}.
+     *
+     * @return the from key of the next page.
+     */
+    public long nextRangeKey() {
+        return rangeKeys[rangeEntryCount];
+    }
+
+    /**
+     * Evaluates every precondition of a transaction against the state before any of its writes, then applies all of
+     * its writes in order or none of them.
+     */
+    private int applyTransaction(final long timeNs, final DirectBuffer buffer, final int offset) {
+        final int preconditionCount = TransactionCodec.preconditionCount(buffer, offset);
+        for (int i = 0; i < preconditionCount; i++) {
+            final int preconditionOffset = TransactionCodec.preconditionOffset(offset, i);
+            final long key = buffer.getLong(preconditionOffset + TransactionCodec.PRECONDITION_KEY_OFFSET);
+            final long operand = buffer.getLong(preconditionOffset + TransactionCodec.PRECONDITION_OPERAND_OFFSET);
+            final boolean holds = switch (buffer.getInt(preconditionOffset + TransactionCodec.PRECONDITION_KIND_OFFSET))
+            {
+                case TransactionCodec.VALUE_EQUALS -> replicatedStateMachine.getValue(key) == operand;
+                case TransactionCodec.VERSION_EQUALS -> replicatedStateMachine.getVersion(key) == operand;
+                default -> true;
+            };
+
+            if (!holds) {
+                failedPreconditionIndex = i;
+                return ABORTED;
+            }
+        }
+
+        final int writeCount = TransactionCodec.writeCount(buffer, offset);
+        for (int i = 0; i < writeCount; i++) {
+            final int writeOffset = TransactionCodec.writeOffset(offset, preconditionCount, i);
+            final long key = buffer.getLong(writeOffset + TransactionCodec.WRITE_KEY_OFFSET);
+            final long value = buffer.getLong(writeOffset + TransactionCodec.WRITE_VALUE_OFFSET);
+            final long ttlMs = buffer.getLong(writeOffset + TransactionCodec.WRITE_TTL_OFFSET);
+            if (ttlMs > 0) {
+                replicatedStateMachine.setValue(key, value, deadlineTick(timeNs, ttlMs));
+            } else {
+                replicatedStateMachine.setValue(key, value);
+            }
+        }
+
+        failedPreconditionIndex = NULL_PRECONDITION_INDEX;
+        return APPLIED;
+    }
+
+    /**
+     * Expires keys on the firing of the expiry timer, which is no longer scheduled afterwards.
+     *
+     * @param timeNs at which the timer event was appended to the log, in nanoseconds.
+     */
+    public void onTimerEvent(final long timeNs) {
+        expiryTimerScheduled = false;
+        expire(timeNs);
+    }
+
+    /**
+     * Gets whether the cluster timer that advances expiries is pending. It is part of the replicated state so a node
+     * restored from a snapshot schedules the timer exactly when the others do.
+     *
+     * @return true if the expiry timer is scheduled.
+     */
+    public boolean isExpiryTimerScheduled() {
+        return expiryTimerScheduled;
+    }
+
+    public void expiryTimerScheduled(final boolean expiryTimerScheduled) {
+        this.expiryTimerScheduled = expiryTimerScheduled;
+    }
+
+    /**
+     * Gets whether the expiry timer should be scheduled because keys are waiting to expire and it is not pending.
+     *
+     * @return true if the expiry timer is needed.
+     */
+    public boolean isExpiryTimerNeeded() {
+        return !expiryTimerScheduled && replicatedStateMachine.expiringKeyCount() > 0;
+    }
+
+    /**
+     * Gets the number of keys expired since this applier was created.
+     *
+     * @return the expired key count.
+     */
+    public long expiredKeyCount() {
+        return expiredKeyCount;
+    }
+
+    private void expire(final long timeNs) {
+        expiredKeyCount += replicatedStateMachine.expire(timeNs / EXPIRY_TICK_NS);
+    }
+
+    private static long deadlineTick(final long timeNs, final long ttlMs) {
+        return (timeNs + TimeUnit.MILLISECONDS.toNanos(ttlMs) + EXPIRY_TICK_NS - 1) / EXPIRY_TICK_NS;
+    }
+
+    public void onSessionClose(final long clusterSessionId) {
+        rateLimiter.onSessionClose(clusterSessionId);
+    }
+
+    public ReplicatedStateMachine replicatedStateMachine() {
+        return replicatedStateMachine;
+    }
+
+    public DeduplicationTable deduplicationTable() {
+        return deduplicationTable;
+    }
+
+    public SessionRateLimiter rateLimiter() {
+        return rateLimiter;
+    }
+}
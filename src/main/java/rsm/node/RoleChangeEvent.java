@@ -0,0 +1,28 @@
+package rsm.node;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a change of the node's role in the cluster, such as when it wins or loses an election.
+ */
+@Name("rsm.node.RoleChange")
+@Label("Role Change")
+@Category({"Replicated State Machine", "Cluster Service"})
+@Description("Change of the node's role in the cluster")
+@StackTrace(false)
+final class RoleChangeEvent extends Event {
+
+    @Label("Member ID")
+    int memberId;
+
+    @Label("Role")
+    String role;
+
+    @Label("Log Position")
+    long logPosition;
+}
@@ -0,0 +1,278 @@
+package rsm.node;
+
+import io.aeron.Aeron;
+import io.aeron.Counter;
+import org.agrona.BitUtil;
+import org.agrona.CloseHelper;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aeron counters updated by the clustered service. They live in the media driver's CnC file, so they can be read by
+ * the {@link MetricsServer} or AeronStat without any involvement of the service thread.
+ * <p>
+ * Each counter stores an int discriminator in its key: the message type code for applied message counters and the
+ * bucket index for apply latency buckets and the kind of memory for value slab counters. Per-session counters, which only exist while rate limiting is enabled, store
+ * the long cluster session ID in their key and are freed when the session closes.
+ * <p>
+ * Per-session counters are registered and freed on a thread of their own, since registering a counter waits for the
+ * media driver, and only for the first {@link #MAX_SESSION_COUNTERS} sessions open at a time. A session's messages are
+ * counted on the service thread from its first message, and the counts are published from the first message after its
+ * counters are registered.
+ */
+public class ServiceCounters implements AutoCloseable {
+
+    public static final int MESSAGES_APPLIED_TYPE_ID = 1001;
+    public static final int APPLY_LATENCY_BUCKET_TYPE_ID = 1002;
+    public static final int APPLY_LATENCY_SUM_TYPE_ID = 1003;
+    public static final int EGRESS_OFFER_FAILURES_TYPE_ID = 1004;
+    public static final int ROLE_CHANGES_TYPE_ID = 1005;
+    public static final int APPLIED_POSITION_TYPE_ID = 1006;
+    public static final int SESSION_MESSAGES_ADMITTED_TYPE_ID = 1007;
+    public static final int SESSION_MESSAGES_RATE_LIMITED_TYPE_ID = 1008;
+    public static final int VALUE_SLAB_BYTES_TYPE_ID = 1009;
+    public static final int KEYS_EXPIRED_TYPE_ID = 1010;
+    public static final int EXPIRING_KEYS_TYPE_ID = 1011;
+
+    /**
+     * Keys of the {@link #VALUE_SLAB_BYTES_TYPE_ID} counters, see {@link SlabAllocator}.
+     */
+    public static final int SLAB_RESERVED_BYTES = 0;
+    public static final int SLAB_ALLOCATED_BYTES = 1;
+    public static final int SLAB_USED_BYTES = 2;
+
+    /**
+     * Apply latencies are bucketed by powers of two, the first bucket counting latencies below 2^7 ns and the last
+     * one everything from 2^(7 + 18) ns, about 33ms, upwards.
+     */
+    public static final int APPLY_LATENCY_MIN_SHIFT = 7;
+    public static final int APPLY_LATENCY_BUCKETS = 20;
+
+    /**
+     * Most sessions that have counters at a time. The messages of further sessions are not counted per session.
+     */
+    public static final int MAX_SESSION_COUNTERS = 1024;
+
+    private final Counter[] messagesApplied = new Counter[MessageType.values().length];
+    private final Counter[] applyLatencyBuckets = new Counter[APPLY_LATENCY_BUCKETS];
+    private final Counter applyLatencySum;
+    private final Counter egressOfferFailures;
+    private final Counter roleChanges;
+    private final Counter appliedPosition;
+    private final Counter slabReservedBytes;
+    private final Counter slabAllocatedBytes;
+    private final Counter slabUsedBytes;
+    private final Counter keysExpired;
+    private final Counter expiringKeys;
+    private final Aeron aeron;
+    private final MutableDirectBuffer keyBuffer = new ExpandableArrayBuffer(BitUtil.SIZE_OF_LONG);
+    private final Long2ObjectHashMap<SessionCounters> sessionCounters = new Long2ObjectHashMap<>();
+    private ExecutorService sessionCounterRegistrar;
+
+    public ServiceCounters(final Aeron aeron) {
+        this.aeron = aeron;
+
+        for (final MessageType messageType : MessageType.values()) {
+            messagesApplied[messageType.ordinal()] = addCounter(
+                    aeron, keyBuffer, MESSAGES_APPLIED_TYPE_ID, messageType.getCharCode(), "rsm messages applied: " + messageType);
+        }
+
+        for (int i = 0; i < APPLY_LATENCY_BUCKETS; i++) {
+            applyLatencyBuckets[i] = addCounter(
+                    aeron, keyBuffer, APPLY_LATENCY_BUCKET_TYPE_ID, i, "rsm apply latency bucket: " + applyLatencyBucketLabel(i));
+        }
+
+        applyLatencySum = aeron.addCounter(APPLY_LATENCY_SUM_TYPE_ID, "rsm apply latency sum ns");
+        egressOfferFailures = aeron.addCounter(EGRESS_OFFER_FAILURES_TYPE_ID, "rsm egress offer failures");
+        roleChanges = aeron.addCounter(ROLE_CHANGES_TYPE_ID, "rsm role changes");
+        appliedPosition = aeron.addCounter(APPLIED_POSITION_TYPE_ID, "rsm applied log position");
+        slabReservedBytes = addCounter(aeron, keyBuffer, VALUE_SLAB_BYTES_TYPE_ID, SLAB_RESERVED_BYTES, "rsm value slab bytes: reserved");
+        slabAllocatedBytes = addCounter(aeron, keyBuffer, VALUE_SLAB_BYTES_TYPE_ID, SLAB_ALLOCATED_BYTES, "rsm value slab bytes: allocated");
+        slabUsedBytes = addCounter(aeron, keyBuffer, VALUE_SLAB_BYTES_TYPE_ID, SLAB_USED_BYTES, "rsm value slab bytes: used");
+        keysExpired = aeron.addCounter(KEYS_EXPIRED_TYPE_ID, "rsm keys expired");
+        expiringKeys = aeron.addCounter(EXPIRING_KEYS_TYPE_ID, "rsm keys with a ttl");
+    }
+
+    public void onMessageApplied(final MessageType messageType, final long applyLatencyNs, final long logPosition) {
+        messagesApplied[messageType.ordinal()].incrementOrdered();
+        applyLatencyBuckets[applyLatencyBucket(applyLatencyNs)].incrementOrdered();
+        applyLatencySum.getAndAddOrdered(applyLatencyNs);
+        appliedPosition.setOrdered(logPosition);
+    }
+
+    public void onEgressOfferFailure() {
+        egressOfferFailures.incrementOrdered();
+    }
+
+    public void onSlabUsage(final SlabAllocator slabAllocator) {
+        slabReservedBytes.setOrdered(slabAllocator.reservedBytes());
+        slabAllocatedBytes.setOrdered(slabAllocator.allocatedBytes());
+        slabUsedBytes.setOrdered(slabAllocator.usedBytes());
+    }
+
+    public void onExpiries(final long expiredKeyCount, final int expiringKeyCount) {
+        keysExpired.setOrdered(expiredKeyCount);
+        expiringKeys.setOrdered(expiringKeyCount);
+    }
+
+    public void onRoleChange() {
+        roleChanges.incrementOrdered();
+    }
+
+    /**
+     * Counts a message of a session against the rate limit, requesting the session's counters on its first message.
+     *
+     * @param sessionId     of the session that sent the message.
+     * @param isRateLimited whether the message was rejected.
+     */
+    public void onSessionMessage(final long sessionId, final boolean isRateLimited) {
+        SessionCounters counters = sessionCounters.get(sessionId);
+        if (counters == null) {
+            if (sessionCounters.size() == MAX_SESSION_COUNTERS) {
+                return;
+            }
+
+            counters = new SessionCounters(sessionId);
+            sessionCounters.put(sessionId, counters);
+            sessionCounterRegistrar().execute(counters::register);
+        }
+
+        counters.onMessage(isRateLimited);
+    }
+
+    public void onSessionClose(final long sessionId) {
+        final SessionCounters counters = sessionCounters.remove(sessionId);
+        if (counters != null) {
+            sessionCounterRegistrar.execute(counters::close);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (final Counter counter : messagesApplied) {
+            counter.close();
+        }
+        for (final Counter counter : applyLatencyBuckets) {
+            counter.close();
+        }
+        applyLatencySum.close();
+        egressOfferFailures.close();
+        roleChanges.close();
+        appliedPosition.close();
+        slabReservedBytes.close();
+        slabAllocatedBytes.close();
+        slabUsedBytes.close();
+        keysExpired.close();
+        expiringKeys.close();
+        if (sessionCounterRegistrar != null) {
+            sessionCounterRegistrar.shutdown();
+            try {
+                sessionCounterRegistrar.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sessionCounters.values().forEach(SessionCounters::close);
+    }
+
+    public static int applyLatencyBucket(final long applyLatencyNs) {
+        final int bitLength = Long.SIZE - Long.numberOfLeadingZeros(applyLatencyNs);
+        return Math.min(APPLY_LATENCY_BUCKETS - 1, Math.max(0, bitLength - APPLY_LATENCY_MIN_SHIFT));
+    }
+
+    /**
+     * Gets the exclusive upper bound of a latency bucket.
+     *
+     * @param bucket index of the bucket.
+     * @return the upper bound in nanoseconds or {@link Long#MAX_VALUE} for the last bucket.
+     */
+    public static long applyLatencyBucketUpperBoundNs(final int bucket) {
+        return bucket == APPLY_LATENCY_BUCKETS - 1 ? Long.MAX_VALUE : 1L << (APPLY_LATENCY_MIN_SHIFT + bucket);
+    }
+
+    private static String applyLatencyBucketLabel(final int bucket) {
+        final long upperBoundNs = applyLatencyBucketUpperBoundNs(bucket);
+        return upperBoundNs == Long.MAX_VALUE ? "+Inf" : "<" + upperBoundNs + "ns";
+    }
+
+    private ExecutorService sessionCounterRegistrar() {
+        if (sessionCounterRegistrar == null) {
+            sessionCounterRegistrar = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "rsm-session-counters");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return sessionCounterRegistrar;
+    }
+
+    private static Counter addCounter(final Aeron aeron,
+                                      final MutableDirectBuffer keyBuffer,
+                                      final int typeId,
+                                      final int key,
+                                      final String label) {
+        final UnsafeBuffer labelBuffer = new UnsafeBuffer(label.getBytes(StandardCharsets.US_ASCII));
+        keyBuffer.putInt(0, key);
+
+        return aeron.addCounter(typeId, keyBuffer, 0, BitUtil.SIZE_OF_INT, labelBuffer, 0, labelBuffer.capacity());
+    }
+
+    /**
+     * Counts of one session, kept on the service thread and published to its counters once they are registered.
+     */
+    private final class SessionCounters {
+
+        private final long sessionId;
+        private long messagesAdmitted;
+        private long messagesRateLimited;
+        private volatile Counter messagesAdmittedCounter;
+        private volatile Counter messagesRateLimitedCounter;
+
+        SessionCounters(final long sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void onMessage(final boolean isRateLimited) {
+            if (isRateLimited) {
+                messagesRateLimited++;
+                final Counter counter = messagesRateLimitedCounter;
+                if (counter != null) {
+                    counter.setOrdered(messagesRateLimited);
+                }
+            } else {
+                messagesAdmitted++;
+                final Counter counter = messagesAdmittedCounter;
+                if (counter != null) {
+                    counter.setOrdered(messagesAdmitted);
+                }
+            }
+        }
+
+        void register() {
+            messagesRateLimitedCounter = addSessionCounter(
+                    SESSION_MESSAGES_RATE_LIMITED_TYPE_ID, "rsm session messages rate limited: " + sessionId);
+            messagesAdmittedCounter = addSessionCounter(
+                    SESSION_MESSAGES_ADMITTED_TYPE_ID, "rsm session messages admitted: " + sessionId);
+        }
+
+        void close() {
+            CloseHelper.closeAll(messagesAdmittedCounter, messagesRateLimitedCounter);
+        }
+
+        private Counter addSessionCounter(final int typeId, final String label) {
+            final UnsafeBuffer keyBuffer = new UnsafeBuffer(new byte[BitUtil.SIZE_OF_LONG]);
+            final UnsafeBuffer labelBuffer = new UnsafeBuffer(label.getBytes(StandardCharsets.US_ASCII));
+            keyBuffer.putLong(0, sessionId);
+
+            return aeron.addCounter(typeId, keyBuffer, 0, BitUtil.SIZE_OF_LONG, labelBuffer, 0, labelBuffer.capacity());
+        }
+    }
+}
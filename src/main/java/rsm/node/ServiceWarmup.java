@@ -0,0 +1,134 @@
+package rsm.node;
+
+import io.aeron.Aeron;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.logbuffer.Header;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.BitUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import rsm.common.TraceClock;
+
+import static rsm.node.ReplicatedStateMachineClusteredService.*;
+
+/**
+ * Drives a throwaway {@link ReplicatedStateMachineClusteredService} on a {@link StubCluster} with every type of
+ * request, so that the classes of the decode, apply and encode paths are loaded and those paths are compiled before a
+ * node takes part in the cluster. Without it the first thousands of requests after a deploy or a failover run
+ * interpreted on the service thread.
+ * <p>
+ * The requests cover plain, traced and expiring writes, keyed byte values, transactions and range pages over a
+ * bounded set of keys, with the log time advancing so keys expire and the expiry timer fires. Nothing is shared with
+ * the node's own service and the responses are dropped.
+ */
+public final class ServiceWarmup {
+
+    /**
+     * Number of iterations a node runs before launching its service container, 0 to start cold.
+     */
+    public static final String ITERATIONS_PROP_NAME = "rsm.warmup.iterations";
+    public static final int DEFAULT_ITERATIONS = 10_000;
+    public static final int REQUESTS_PER_ITERATION = 7;
+
+    private static final long CLIENT_ID = -1L;
+    private static final long CLUSTER_SESSION_ID = 1L;
+    private static final int KEY_COUNT = 1024;
+    private static final long TTL_MS = 50L;
+    private static final int TRANSACTION_PRECONDITIONS = 1;
+    private static final int TRANSACTION_WRITES = 2;
+
+    private final StubCluster stubCluster;
+    private final ReplicatedStateMachineClusteredService service = new ReplicatedStateMachineClusteredService();
+    private final ClientSession session;
+    private final Header header = new Header(0, 0);
+    private final UnsafeBuffer setRequest = new UnsafeBuffer(new byte[SET_TTL_POSITION + BitUtil.SIZE_OF_LONG]);
+    private final UnsafeBuffer getRequest = new UnsafeBuffer(new byte[VALUE_POSITION + TRACE_TRAILER_LENGTH]);
+    private final UnsafeBuffer bytesRequest = new UnsafeBuffer(new byte[BytesValueCodec.BYTES_VALUE_POSITION + 64]);
+    private final UnsafeBuffer transactionRequest = new UnsafeBuffer(
+            new byte[TransactionCodec.requestBodyLength(TRANSACTION_PRECONDITIONS, TRANSACTION_WRITES)]);
+    private final UnsafeBuffer rangeRequest = new UnsafeBuffer(new byte[RangeCodec.REQUEST_BODY_LENGTH]);
+    private long correlationId;
+
+    private ServiceWarmup(final Aeron aeron) {
+        this.stubCluster = new StubCluster(aeron, 0);
+        this.session = stubCluster.session(CLUSTER_SESSION_ID);
+        header.buffer(new UnsafeBuffer(new byte[DataHeaderFlyweight.HEADER_LENGTH]));
+    }
+
+    /**
+     * Warms up the service paths.
+     *
+     * @param aeron      client the throwaway service registers its counters with, which are freed when it closes.
+     * @param iterations to run, each sending {@link #REQUESTS_PER_ITERATION} requests.
+     * @return the number of responses the service produced.
+     */
+    public static long warmUp(final Aeron aeron, final int iterations) {
+        final ServiceWarmup warmup = new ServiceWarmup(aeron);
+        warmup.service.onStart(warmup.stubCluster.cluster(), null);
+        for (int i = 0; i < iterations; i++) {
+            warmup.iteration(i);
+        }
+
+        return warmup.stubCluster.offeredResponses();
+    }
+
+    private void iteration(final int iteration) {
+        final long timestamp = iteration;
+        final long key = iteration % KEY_COUNT;
+        stubCluster.time(timestamp);
+
+        encodeHeader(setRequest, MessageType.SET, (short) 0);
+        setRequest.putLong(VALUE_POSITION, iteration);
+        onSessionMessage(timestamp, setRequest, VALUE_POSITION + BitUtil.SIZE_OF_LONG);
+
+        encodeHeader(setRequest, MessageType.SET, TTL_FLAG);
+        setRequest.putLong(SET_TTL_POSITION, TTL_MS);
+        onSessionMessage(timestamp, setRequest, setRequest.capacity());
+
+        encodeHeader(getRequest, MessageType.GET, TRACE_FLAG);
+        getRequest.putLong(VALUE_POSITION, TraceClock.epochNanos());
+        onSessionMessage(timestamp, getRequest, getRequest.capacity());
+
+        final int bytesLength = iteration % (bytesRequest.capacity() - BytesValueCodec.BYTES_VALUE_POSITION);
+        encodeHeader(bytesRequest, MessageType.SET_BYTES, (short) 0);
+        bytesRequest.putLong(BytesValueCodec.KEY_POSITION, key);
+        bytesRequest.putInt(BytesValueCodec.LENGTH_POSITION, bytesLength);
+        onSessionMessage(timestamp, bytesRequest, BytesValueCodec.BYTES_VALUE_POSITION + bytesLength);
+
+        encodeHeader(bytesRequest, MessageType.GET_BYTES, (short) 0);
+        onSessionMessage(timestamp, bytesRequest, BytesValueCodec.LENGTH_POSITION);
+
+        encodeHeader(transactionRequest, MessageType.TRANSACTION, (short) 0);
+        transactionRequest.putInt(TransactionCodec.PRECONDITION_COUNT_POSITION, TRANSACTION_PRECONDITIONS);
+        transactionRequest.putInt(TransactionCodec.WRITE_COUNT_POSITION, TRANSACTION_WRITES);
+        final int preconditionOffset = TransactionCodec.preconditionOffset(0, 0);
+        transactionRequest.putInt(preconditionOffset + TransactionCodec.PRECONDITION_KIND_OFFSET, TransactionCodec.VERSION_EQUALS);
+        transactionRequest.putLong(preconditionOffset + TransactionCodec.PRECONDITION_KEY_OFFSET, key);
+        transactionRequest.putLong(preconditionOffset + TransactionCodec.PRECONDITION_OPERAND_OFFSET, iteration / KEY_COUNT);
+        for (int i = 0; i < TRANSACTION_WRITES; i++) {
+            final int writeOffset = TransactionCodec.writeOffset(0, TRANSACTION_PRECONDITIONS, i);
+            transactionRequest.putLong(writeOffset + TransactionCodec.WRITE_KEY_OFFSET, (key + i) % KEY_COUNT);
+            transactionRequest.putLong(writeOffset + TransactionCodec.WRITE_VALUE_OFFSET, iteration);
+            transactionRequest.putLong(writeOffset + TransactionCodec.WRITE_TTL_OFFSET, i == 0 ? 0L : TTL_MS);
+        }
+        onSessionMessage(timestamp, transactionRequest, transactionRequest.capacity());
+
+        encodeHeader(rangeRequest, MessageType.RANGE, (short) 0);
+        rangeRequest.putLong(RangeCodec.FROM_KEY_POSITION, key);
+        rangeRequest.putLong(RangeCodec.TO_KEY_POSITION, KEY_COUNT);
+        rangeRequest.putInt(RangeCodec.MAX_ENTRIES_POSITION, 1 + iteration % RangeCodec.MAX_PAGE_ENTRIES);
+        onSessionMessage(timestamp, rangeRequest, rangeRequest.capacity());
+
+        service.onTimerEvent(EXPIRY_TIMER_CORRELATION_ID, timestamp);
+    }
+
+    private void onSessionMessage(final long timestamp, final UnsafeBuffer request, final int length) {
+        request.putLong(0, ++correlationId);
+        service.onSessionMessage(session, timestamp, request, 0, length, header);
+    }
+
+    private static void encodeHeader(final UnsafeBuffer request, final MessageType messageType, final short flags) {
+        request.putChar(MESSAGE_TYPE_POSITION, messageType.getCharCode());
+        request.putShort(FLAGS_POSITION, flags);
+        request.putLong(CLIENT_ID_POSITION, CLIENT_ID);
+    }
+}
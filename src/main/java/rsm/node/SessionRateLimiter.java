@@ -0,0 +1,103 @@
+package rsm.node;
+
+import org.agrona.collections.Long2LongHashMap;
+
+/**
+ * Token bucket per cluster session that limits how many messages each session may have applied.
+ * <p>
+ * Buckets are refilled from the time of the log entries being applied rather than the local clock, and are only
+ * changed in log order, so every replica makes the same decisions. The buckets of open sessions are part of the
+ * snapshot for the same reason. Tokens are held in units of a billionth of a token so refills are exact at
+ * nanosecond resolution.
+ */
+public class SessionRateLimiter {
+
+    public static final long NULL_VALUE = -1L;
+    private static final long SCALE = 1_000_000_000L;
+
+    private final long messagesPerSecond;
+    private final long capacity;
+    private final Long2LongHashMap tokensBySessionId = new Long2LongHashMap(NULL_VALUE);
+    private final Long2LongHashMap lastRefillTimeNsBySessionId = new Long2LongHashMap(NULL_VALUE);
+
+    /**
+     * @param messagesPerSecond sustained rate each session is allowed, or 0 to disable rate limiting.
+     * @param burst             number of messages a session may send at once after being idle, or 0 for one second's
+     *                          worth of messages.
+     */
+    public SessionRateLimiter(final long messagesPerSecond, final long burst) {
+        if (messagesPerSecond < 0 || burst < 0) {
+            throw new IllegalArgumentException("Invalid rate limit: " + messagesPerSecond + "/s with burst " + burst);
+        }
+
+        this.messagesPerSecond = messagesPerSecond;
+        this.capacity = Math.multiplyExact(Math.max(burst > 0 ? burst : messagesPerSecond, 1L), SCALE);
+    }
+
+    public boolean isEnabled() {
+        return messagesPerSecond > 0;
+    }
+
+    /**
+     * Takes a token from the bucket of a session, refilling it for the time elapsed since it was last used.
+     *
+     * @param sessionId of the session that sent the message.
+     * @param timeNs    of the log entry, in nanoseconds.
+     * @return true if the message may be applied, false if the session exceeded its rate.
+     */
+    public boolean tryAcquire(final long sessionId, final long timeNs) {
+        if (!isEnabled()) {
+            return true;
+        }
+
+        long tokens = tokensBySessionId.get(sessionId);
+        if (tokens == NULL_VALUE) {
+            tokens = capacity;
+        } else {
+            final long elapsedNs = Math.max(0L, timeNs - lastRefillTimeNsBySessionId.get(sessionId));
+            final long refill = elapsedNs >= capacity / messagesPerSecond ? capacity : elapsedNs * messagesPerSecond;
+            tokens = Math.min(capacity, tokens + refill);
+        }
+        lastRefillTimeNsBySessionId.put(sessionId, timeNs);
+
+        final boolean isAcquired = tokens >= SCALE;
+        tokensBySessionId.put(sessionId, isAcquired ? tokens - SCALE : tokens);
+
+        return isAcquired;
+    }
+
+    public void onSessionClose(final long sessionId) {
+        tokensBySessionId.remove(sessionId);
+        lastRefillTimeNsBySessionId.remove(sessionId);
+    }
+
+    /**
+     * Restores the bucket of a session from a snapshot.
+     */
+    public void restore(final long sessionId, final long tokens, final long lastRefillTimeNs) {
+        tokensBySessionId.put(sessionId, tokens);
+        lastRefillTimeNsBySessionId.put(sessionId, lastRefillTimeNs);
+    }
+
+    public int size() {
+        return tokensBySessionId.size();
+    }
+
+    /**
+     * Visits the bucket of every session.
+     *
+     * @param consumer of session ID, tokens and last refill time triples.
+     */
+    public void forEach(final BucketConsumer consumer) {
+        final Long2LongHashMap.KeyIterator sessionIds = tokensBySessionId.keySet().iterator();
+        while (sessionIds.hasNext()) {
+            final long sessionId = sessionIds.nextValue();
+            consumer.accept(sessionId, tokensBySessionId.get(sessionId), lastRefillTimeNsBySessionId.get(sessionId));
+        }
+    }
+
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(long sessionId, long tokens, long lastRefillTimeNs);
+    }
+}
@@ -0,0 +1,192 @@
+package rsm.node;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allocates slots for variable-length values from off-heap slabs, so values can be replaced at any rate without
+ * producing garbage or fragmenting the heap.
+ * <p>
+ * Slot lengths are powers of two from {@link #MIN_SLOT_LENGTH} up to the maximum value length, one size class each. A
+ * size class carves fixed-length slabs of direct memory into equal slots and keeps freed slots on a stack for reuse,
+ * so memory is only wasted by rounding a value up to its slot length and by free slots in a class. Slabs are never
+ * returned, the memory reserved is the high-water mark of each class.
+ * <p>
+ * A slot is identified by a handle that encodes its size class and slot index. Not thread safe.
+ */
+public class SlabAllocator {
+
+    public static final long NULL_HANDLE = -1L;
+    public static final int MIN_SLOT_LENGTH = 16;
+    public static final int DEFAULT_SLAB_LENGTH = 64 * 1024;
+
+    private static final int SIZE_CLASS_SHIFT = 32;
+    private static final long SLOT_INDEX_MASK = 0xFFFF_FFFFL;
+
+    private final int slabLength;
+    private final SizeClass[] sizeClasses;
+    private long reservedBytes;
+    private long allocatedBytes;
+    private long usedBytes;
+
+    /**
+     * @param maxLength  longest value that can be allocated, rounded up to a power of two.
+     * @param slabLength of each slab of direct memory, a power of two no shorter than the longest slot.
+     */
+    public SlabAllocator(final int maxLength, final int slabLength) {
+        final int maxSlotLength = BitUtil.findNextPositivePowerOfTwo(Math.max(maxLength, MIN_SLOT_LENGTH));
+        if (!BitUtil.isPowerOfTwo(slabLength) || slabLength < maxSlotLength) {
+            throw new IllegalArgumentException("Slab length must be a power of two of at least " + maxSlotLength + ": " + slabLength);
+        }
+
+        this.slabLength = slabLength;
+        this.sizeClasses = new SizeClass[sizeClassIndex(maxSlotLength) + 1];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(MIN_SLOT_LENGTH << i);
+        }
+    }
+
+    /**
+     * Allocates a slot for a value.
+     *
+     * @param length of the value.
+     * @return the handle of the slot.
+     */
+    public long allocate(final int length) {
+        final int sizeClassIndex = sizeClassIndex(length);
+        if (length < 0 || sizeClassIndex >= sizeClasses.length) {
+            throw new IllegalArgumentException("Unsupported length: " + length);
+        }
+
+        final SizeClass sizeClass = sizeClasses[sizeClassIndex];
+        final int slotIndex;
+        if (!sizeClass.freeSlots.isEmpty()) {
+            slotIndex = sizeClass.freeSlots.popInt();
+        } else {
+            if (sizeClass.nextSlotIndex == sizeClass.slabs.size() * sizeClass.slotsPerSlab) {
+                sizeClass.slabs.add(new UnsafeBuffer(ByteBuffer.allocateDirect(slabLength)));
+                reservedBytes += slabLength;
+            }
+            slotIndex = sizeClass.nextSlotIndex++;
+        }
+
+        allocatedBytes += sizeClass.slotLength;
+        usedBytes += length;
+
+        return ((long) sizeClassIndex << SIZE_CLASS_SHIFT) | slotIndex;
+    }
+
+    /**
+     * Frees a slot so it can be reused by its size class.
+     *
+     * @param handle of the slot.
+     * @param length of the value it held.
+     */
+    public void free(final long handle, final int length) {
+        final SizeClass sizeClass = sizeClasses[(int) (handle >>> SIZE_CLASS_SHIFT)];
+        sizeClass.freeSlots.addInt((int) (handle & SLOT_INDEX_MASK));
+        allocatedBytes -= sizeClass.slotLength;
+        usedBytes -= length;
+    }
+
+    /**
+     * Checks whether a value of a new length can be written over the value in a slot.
+     *
+     * @param handle of the slot.
+     * @param length of the new value.
+     * @return true if the value belongs to the size class of the slot.
+     */
+    public boolean fits(final long handle, final int length) {
+        return length >= 0 && sizeClassIndex(length) == (int) (handle >>> SIZE_CLASS_SHIFT);
+    }
+
+    /**
+     * Records that the value in a slot was replaced by one of a different length in the same size class.
+     */
+    public void resize(final long handle, final int oldLength, final int newLength) {
+        usedBytes += newLength - oldLength;
+    }
+
+    public void copyIn(final long handle, final DirectBuffer srcBuffer, final int srcOffset, final int length) {
+        final SizeClass sizeClass = sizeClasses[(int) (handle >>> SIZE_CLASS_SHIFT)];
+        final int slotIndex = (int) (handle & SLOT_INDEX_MASK);
+        sizeClass.slab(slotIndex).putBytes(sizeClass.slotOffset(slotIndex), srcBuffer, srcOffset, length);
+    }
+
+    public void copyOut(final long handle, final MutableDirectBuffer dstBuffer, final int dstOffset, final int length) {
+        final SizeClass sizeClass = sizeClasses[(int) (handle >>> SIZE_CLASS_SHIFT)];
+        final int slotIndex = (int) (handle & SLOT_INDEX_MASK);
+        dstBuffer.putBytes(dstOffset, sizeClass.slab(slotIndex), sizeClass.slotOffset(slotIndex), length);
+    }
+
+    /**
+     * Gets the direct memory held by slabs, whether or not their slots are in use.
+     *
+     * @return the reserved bytes.
+     */
+    public long reservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * Gets the length of the slots in use, including the rounding of values up to their slot length.
+     *
+     * @return the allocated bytes.
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Gets the length of the values held in slots.
+     *
+     * @return the used bytes.
+     */
+    public long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Gets the share of the reserved memory that holds no value, either in free slots or past the end of values.
+     *
+     * @return the fragmentation between 0 and 1.
+     */
+    public double fragmentation() {
+        return reservedBytes == 0 ? 0.0d : 1.0d - (double) usedBytes / reservedBytes;
+    }
+
+    static int sizeClassIndex(final int length) {
+        final int slotLength = BitUtil.findNextPositivePowerOfTwo(Math.max(length, MIN_SLOT_LENGTH));
+        return Integer.numberOfTrailingZeros(slotLength) - Integer.numberOfTrailingZeros(MIN_SLOT_LENGTH);
+    }
+
+    private final class SizeClass {
+        private final int slotLength;
+        private final int slotsPerSlab;
+        private final int slotsPerSlabShift;
+        private final List<UnsafeBuffer> slabs = new ArrayList<>();
+        private final IntArrayList freeSlots = new IntArrayList();
+        private int nextSlotIndex;
+
+        private SizeClass(final int slotLength) {
+            this.slotLength = slotLength;
+            this.slotsPerSlab = slabLength / slotLength;
+            this.slotsPerSlabShift = Integer.numberOfTrailingZeros(slotsPerSlab);
+        }
+
+        private UnsafeBuffer slab(final int slotIndex) {
+            return slabs.get(slotIndex >>> slotsPerSlabShift);
+        }
+
+        private int slotOffset(final int slotIndex) {
+            return (slotIndex & (slotsPerSlab - 1)) * slotLength;
+        }
+    }
+}
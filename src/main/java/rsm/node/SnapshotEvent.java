@@ -0,0 +1,34 @@
+package rsm.node;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for writing a snapshot of the service's state, during which no session message is applied.
+ */
+@Name("rsm.node.Snapshot")
+@Label("Snapshot")
+@Category({"Replicated State Machine", "Cluster Service"})
+@Description("Snapshot of the service's state")
+@StackTrace(false)
+final class SnapshotEvent extends Event {
+
+    @Label("Member ID")
+    int memberId;
+
+    @Label("Log Position")
+    long logPosition;
+
+    @Label("Keys")
+    int keyCount;
+
+    @Label("Expiring Keys")
+    int expiringKeyCount;
+
+    @Label("Deduplication Entries")
+    int deduplicationEntries;
+}
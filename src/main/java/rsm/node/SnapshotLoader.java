@@ -0,0 +1,120 @@
+package rsm.node;
+
+import io.aeron.FragmentAssembler;
+import io.aeron.Image;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.IdleStrategy;
+
+import static rsm.node.SnapshotWriter.*;
+
+/**
+ * Restores the service state from the records written by {@link SnapshotWriter}.
+ */
+public class SnapshotLoader implements FragmentHandler {
+
+    private static final int FRAGMENT_LIMIT = 10;
+
+    private final RequestApplier requestApplier;
+    private final ReplicatedStateMachine replicatedStateMachine;
+    private final DeduplicationTable deduplicationTable;
+    private final SessionRateLimiter rateLimiter;
+    private boolean isComplete;
+
+    public SnapshotLoader(final RequestApplier requestApplier) {
+        this.requestApplier = requestApplier;
+        this.replicatedStateMachine = requestApplier.replicatedStateMachine();
+        this.deduplicationTable = requestApplier.deduplicationTable();
+        this.rateLimiter = requestApplier.rateLimiter();
+    }
+
+    public void load(final Image snapshotImage, final IdleStrategy idleStrategy) {
+        final FragmentAssembler fragmentAssembler = new FragmentAssembler(this);
+        idleStrategy.reset();
+        while (!isComplete) {
+            final int fragments = snapshotImage.poll(fragmentAssembler, FRAGMENT_LIMIT);
+            if (fragments == 0 && snapshotImage.isEndOfStream()) {
+                throw new IllegalStateException("Snapshot ended before its end record");
+            }
+
+            idleStrategy.idle(fragments);
+        }
+    }
+
+    @Override
+    public void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header) {
+        final int recordType = buffer.getInt(offset + RECORD_TYPE_POSITION);
+        final int bodyOffset = offset + RECORD_BODY_POSITION;
+
+        switch (recordType)
+        {
+            case KEYED_VALUE_RECORD -> {
+                final int count = buffer.getInt(bodyOffset);
+                int entryOffset = bodyOffset + BitUtil.SIZE_OF_INT;
+                for (int i = 0; i < count; i++) {
+                    replicatedStateMachine.restore(
+                            buffer.getLong(entryOffset),
+                            buffer.getLong(entryOffset + BitUtil.SIZE_OF_LONG),
+                            buffer.getLong(entryOffset + BitUtil.SIZE_OF_LONG * 2));
+                    entryOffset += KEYED_VALUE_ENTRY_LENGTH;
+                }
+            }
+            case EXPIRY_WHEEL_RECORD -> {
+                replicatedStateMachine.expiryTick(buffer.getLong(bodyOffset));
+                requestApplier.expiryTimerScheduled(buffer.getInt(bodyOffset + BitUtil.SIZE_OF_LONG) != 0);
+            }
+            case EXPIRY_RECORD -> {
+                final int count = buffer.getInt(bodyOffset);
+                int entryOffset = bodyOffset + BitUtil.SIZE_OF_INT;
+                for (int i = 0; i < count; i++) {
+                    replicatedStateMachine.restoreExpiry(buffer.getLong(entryOffset), buffer.getLong(entryOffset + BitUtil.SIZE_OF_LONG));
+                    entryOffset += EXPIRY_ENTRY_LENGTH;
+                }
+            }
+            case KEYED_BYTES_VALUE_RECORD -> replicatedStateMachine.restoreBytesValue(
+                    buffer.getLong(bodyOffset),
+                    buffer,
+                    bodyOffset + KEYED_BYTES_VALUE_HEADER_LENGTH,
+                    buffer.getInt(bodyOffset + BitUtil.SIZE_OF_LONG));
+            case DEDUPLICATION_WINDOW_RECORD -> {
+                final int count = buffer.getInt(bodyOffset);
+                int entryOffset = bodyOffset + BitUtil.SIZE_OF_INT;
+                for (int i = 0; i < count; i++) {
+                    deduplicationTable.restore(
+                            buffer.getLong(entryOffset),
+                            buffer.getLong(entryOffset + BitUtil.SIZE_OF_LONG),
+                            buffer,
+                            entryOffset + BitUtil.SIZE_OF_LONG * 2);
+                    entryOffset += DEDUPLICATION_WINDOW_ENTRY_LENGTH;
+                }
+            }
+            case EVICTED_CLIENT_RECORD -> {
+                final int count = buffer.getInt(bodyOffset);
+                int entryOffset = bodyOffset + BitUtil.SIZE_OF_INT;
+                for (int i = 0; i < count; i++) {
+                    deduplicationTable.restoreEvicted(buffer.getLong(entryOffset), buffer.getLong(entryOffset + BitUtil.SIZE_OF_LONG));
+                    entryOffset += EVICTED_CLIENT_ENTRY_LENGTH;
+                }
+            }
+            case RATE_LIMIT_RECORD -> {
+                final int count = buffer.getInt(bodyOffset);
+                int entryOffset = bodyOffset + BitUtil.SIZE_OF_INT;
+                for (int i = 0; i < count; i++) {
+                    rateLimiter.restore(
+                            buffer.getLong(entryOffset),
+                            buffer.getLong(entryOffset + BitUtil.SIZE_OF_LONG),
+                            buffer.getLong(entryOffset + BitUtil.SIZE_OF_LONG * 2));
+                    entryOffset += RATE_LIMIT_ENTRY_LENGTH;
+                }
+            }
+            case END_RECORD -> isComplete = true;
+            default -> throw new IllegalStateException("Unexpected snapshot record type: " + recordType);
+        }
+    }
+
+    public boolean isComplete() {
+        return isComplete;
+    }
+}
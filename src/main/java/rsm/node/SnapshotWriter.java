@@ -0,0 +1,197 @@
+package rsm.node;
+
+import io.aeron.ExclusivePublication;
+import org.agrona.BitUtil;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.IdleStrategy;
+
+/**
+ * Writes the service state to a snapshot publication as a sequence of typed records terminated by an end record.
+ * Collections are written in batches so each record stays well below the maximum message length.
+ */
+public class SnapshotWriter {
+
+    public static final int RECORD_TYPE_POSITION = 0;
+    public static final int RECORD_BODY_POSITION = BitUtil.SIZE_OF_INT;
+
+    public static final int END_RECORD = 3;
+    public static final int RATE_LIMIT_RECORD = 4;
+
+    public static final int KEYED_VALUE_RECORD = 6;
+
+    /**
+     * Tick of the expiry wheel and whether the expiry timer is scheduled, written before the deadlines of keys.
+     */
+    public static final int EXPIRY_WHEEL_RECORD = 7;
+    public static final int EXPIRY_RECORD = 8;
+
+    /**
+     * Highest applied request ID and window of applied request IDs per client.
+     */
+    public static final int DEDUPLICATION_WINDOW_RECORD = 9;
+
+    /**
+     * Key and byte value of one key, written after the keyed values.
+     */
+    public static final int KEYED_BYTES_VALUE_RECORD = 10;
+
+    /**
+     * Highest applied request ID per client evicted from the deduplication table, written after the table.
+     */
+    public static final int EVICTED_CLIENT_RECORD = 11;
+
+    static final int ENTRIES_PER_BATCH = 256;
+    static final int DEDUPLICATION_ENTRIES_PER_BATCH = 32;
+    static final int DEDUPLICATION_WINDOW_ENTRY_LENGTH =
+            BitUtil.SIZE_OF_LONG * 2 + DeduplicationTable.WINDOW_WORDS * BitUtil.SIZE_OF_LONG;
+    static final int EVICTED_CLIENT_ENTRY_LENGTH = BitUtil.SIZE_OF_LONG * 2;
+    static final int RATE_LIMIT_ENTRY_LENGTH = BitUtil.SIZE_OF_LONG * 3;
+    static final int KEYED_VALUE_ENTRY_LENGTH = BitUtil.SIZE_OF_LONG * 3;
+    static final int EXPIRY_ENTRY_LENGTH = BitUtil.SIZE_OF_LONG * 2;
+    static final int KEYED_BYTES_VALUE_HEADER_LENGTH = BitUtil.SIZE_OF_LONG + BitUtil.SIZE_OF_INT;
+
+    private final ExclusivePublication publication;
+    private final IdleStrategy idleStrategy;
+    private final MutableDirectBuffer buffer = new ExpandableArrayBuffer(
+            RECORD_BODY_POSITION + BitUtil.SIZE_OF_INT + ENTRIES_PER_BATCH * RATE_LIMIT_ENTRY_LENGTH);
+
+    private int batchCount;
+
+    public SnapshotWriter(final ExclusivePublication publication, final IdleStrategy idleStrategy) {
+        this.publication = publication;
+        this.idleStrategy = idleStrategy;
+    }
+
+    public void writeKeyedValues(final ReplicatedStateMachine replicatedStateMachine) {
+        batchCount = 0;
+        replicatedStateMachine.forEachKey(this::appendKeyedValueEntry);
+        flushBatch(KEYED_VALUE_RECORD, KEYED_VALUE_ENTRY_LENGTH);
+    }
+
+    /**
+     * Writes the expiry wheel and the deadline of every key that has one. Must follow the keyed values.
+     */
+    public void writeExpiries(final RequestApplier requestApplier) {
+        final ReplicatedStateMachine replicatedStateMachine = requestApplier.replicatedStateMachine();
+        buffer.putInt(RECORD_TYPE_POSITION, EXPIRY_WHEEL_RECORD);
+        buffer.putLong(RECORD_BODY_POSITION, replicatedStateMachine.expiryTick());
+        buffer.putInt(RECORD_BODY_POSITION + BitUtil.SIZE_OF_LONG, requestApplier.isExpiryTimerScheduled() ? 1 : 0);
+        offer(RECORD_BODY_POSITION + BitUtil.SIZE_OF_LONG + BitUtil.SIZE_OF_INT);
+
+        batchCount = 0;
+        replicatedStateMachine.forEachExpiry(this::appendExpiryEntry);
+        flushBatch(EXPIRY_RECORD, EXPIRY_ENTRY_LENGTH);
+    }
+
+    /**
+     * Writes the byte value of every key that has one, a record each. Must follow the keyed values.
+     */
+    public void writeBytesValues(final ReplicatedStateMachine replicatedStateMachine) {
+        replicatedStateMachine.forEachBytesValue((key, length) -> {
+            buffer.putInt(RECORD_TYPE_POSITION, KEYED_BYTES_VALUE_RECORD);
+            buffer.putLong(RECORD_BODY_POSITION, key);
+            buffer.putInt(RECORD_BODY_POSITION + BitUtil.SIZE_OF_LONG, length);
+            replicatedStateMachine.getBytesValue(key, buffer, RECORD_BODY_POSITION + KEYED_BYTES_VALUE_HEADER_LENGTH);
+            offer(RECORD_BODY_POSITION + KEYED_BYTES_VALUE_HEADER_LENGTH + length);
+        });
+    }
+
+    public void writeDeduplicationTable(final DeduplicationTable deduplicationTable) {
+        batchCount = 0;
+        deduplicationTable.forEach((clientId, highestRequestId) ->
+                appendDeduplicationEntry(deduplicationTable, clientId, highestRequestId));
+        flushDeduplicationBatch();
+
+        deduplicationTable.forEachEvicted(this::appendEvictedClientEntry);
+        flushBatch(EVICTED_CLIENT_RECORD, EVICTED_CLIENT_ENTRY_LENGTH);
+    }
+
+    public void writeRateLimiter(final SessionRateLimiter rateLimiter) {
+        batchCount = 0;
+        rateLimiter.forEach(this::appendRateLimitEntry);
+        flushBatch(RATE_LIMIT_RECORD, RATE_LIMIT_ENTRY_LENGTH);
+    }
+
+    public void writeEnd() {
+        buffer.putInt(RECORD_TYPE_POSITION, END_RECORD);
+        offer(RECORD_BODY_POSITION);
+    }
+
+    private void appendDeduplicationEntry(final DeduplicationTable deduplicationTable,
+                                          final long clientId,
+                                          final long highestRequestId) {
+        final int entryOffset = RECORD_BODY_POSITION + BitUtil.SIZE_OF_INT + batchCount * DEDUPLICATION_WINDOW_ENTRY_LENGTH;
+        buffer.putLong(entryOffset, clientId);
+        buffer.putLong(entryOffset + BitUtil.SIZE_OF_LONG, highestRequestId);
+        deduplicationTable.copyWindow(clientId, buffer, entryOffset + BitUtil.SIZE_OF_LONG * 2);
+
+        if (++batchCount == DEDUPLICATION_ENTRIES_PER_BATCH) {
+            flushDeduplicationBatch();
+        }
+    }
+
+    private void appendEvictedClientEntry(final long clientId, final long highestRequestId) {
+        final int entryOffset = RECORD_BODY_POSITION + BitUtil.SIZE_OF_INT + batchCount * EVICTED_CLIENT_ENTRY_LENGTH;
+        buffer.putLong(entryOffset, clientId);
+        buffer.putLong(entryOffset + BitUtil.SIZE_OF_LONG, highestRequestId);
+
+        if (++batchCount == ENTRIES_PER_BATCH) {
+            flushBatch(EVICTED_CLIENT_RECORD, EVICTED_CLIENT_ENTRY_LENGTH);
+        }
+    }
+
+    private void appendRateLimitEntry(final long sessionId, final long tokens, final long lastRefillTimeNs) {
+        final int entryOffset = RECORD_BODY_POSITION + BitUtil.SIZE_OF_INT + batchCount * RATE_LIMIT_ENTRY_LENGTH;
+        buffer.putLong(entryOffset, sessionId);
+        buffer.putLong(entryOffset + BitUtil.SIZE_OF_LONG, tokens);
+        buffer.putLong(entryOffset + BitUtil.SIZE_OF_LONG * 2, lastRefillTimeNs);
+
+        if (++batchCount == ENTRIES_PER_BATCH) {
+            flushBatch(RATE_LIMIT_RECORD, RATE_LIMIT_ENTRY_LENGTH);
+        }
+    }
+
+    private void appendKeyedValueEntry(final long key, final long value, final long version) {
+        final int entryOffset = RECORD_BODY_POSITION + BitUtil.SIZE_OF_INT + batchCount * KEYED_VALUE_ENTRY_LENGTH;
+        buffer.putLong(entryOffset, key);
+        buffer.putLong(entryOffset + BitUtil.SIZE_OF_LONG, value);
+        buffer.putLong(entryOffset + BitUtil.SIZE_OF_LONG * 2, version);
+
+        if (++batchCount == ENTRIES_PER_BATCH) {
+            flushBatch(KEYED_VALUE_RECORD, KEYED_VALUE_ENTRY_LENGTH);
+        }
+    }
+
+    private void appendExpiryEntry(final long key, final long deadlineTick) {
+        final int entryOffset = RECORD_BODY_POSITION + BitUtil.SIZE_OF_INT + batchCount * EXPIRY_ENTRY_LENGTH;
+        buffer.putLong(entryOffset, key);
+        buffer.putLong(entryOffset + BitUtil.SIZE_OF_LONG, deadlineTick);
+
+        if (++batchCount == ENTRIES_PER_BATCH) {
+            flushBatch(EXPIRY_RECORD, EXPIRY_ENTRY_LENGTH);
+        }
+    }
+
+    private void flushDeduplicationBatch() {
+        flushBatch(DEDUPLICATION_WINDOW_RECORD, DEDUPLICATION_WINDOW_ENTRY_LENGTH);
+    }
+
+    private void flushBatch(final int recordType, final int entryLength) {
+        if (batchCount == 0) {
+            return;
+        }
+
+        buffer.putInt(RECORD_TYPE_POSITION, recordType);
+        buffer.putInt(RECORD_BODY_POSITION, batchCount);
+        offer(RECORD_BODY_POSITION + BitUtil.SIZE_OF_INT + batchCount * entryLength);
+        batchCount = 0;
+    }
+
+    private void offer(final int length) {
+        idleStrategy.reset();
+        while (publication.offer(buffer, 0, length) < 0) {
+            idleStrategy.idle();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package rsm.node;
+
+import io.aeron.Aeron;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.DirectBuffer;
+import org.agrona.DirectBufferVector;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.NoOpIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import rsm.common.ClusterNodeConfig;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Stands in for the {@link Cluster} and {@link ClientSession}s of a clustered service that is driven outside a cluster,
+ * such as by replaying a recorded log or by {@link ServiceWarmup}. The log position and time the service sees are set
+ * by the driver before each entry, responses offered or claimed by sessions are counted and dropped, and timers are
+ * accepted but never fire.
+ * <p>
+ * The cluster is a dynamic proxy so that methods a service does not use need no stubbing; methods without a stub return
+ * the default value of their return type. Sessions are plain classes, as the proxy would allocate the arguments of
+ * every response a service claims or offers, and so sessions can be driven in steady state without allocating.
+ */
+public class StubCluster {
+
+    private final Aeron aeron;
+    private final int memberId;
+    private final IdleStrategy idleStrategy = NoOpIdleStrategy.INSTANCE;
+    private final Long2ObjectHashMap<ClientSession> sessionsById = new Long2ObjectHashMap<>();
+    private final Cluster cluster;
+    private final UnsafeBuffer claimBuffer = new UnsafeBuffer(new byte[0]);
+    private long logPosition;
+    private long time;
+    private long offeredResponses;
+
+    /**
+     * @param aeron    client handed to the service, e.g. to register its counters.
+     * @param memberId reported to the service.
+     */
+    public StubCluster(final Aeron aeron, final int memberId) {
+        this.aeron = aeron;
+        this.memberId = memberId;
+        this.cluster = proxy(Cluster.class, this::invokeCluster);
+    }
+
+    public Cluster cluster() {
+        return cluster;
+    }
+
+    /**
+     * Gets the session with an ID, creating it on first use.
+     *
+     * @param clusterSessionId of the session.
+     * @return the stub session.
+     */
+    public ClientSession session(final long clusterSessionId) {
+        ClientSession session = sessionsById.get(clusterSessionId);
+        if (session == null) {
+            session = new StubClientSession(clusterSessionId);
+            sessionsById.put(clusterSessionId, session);
+        }
+
+        return session;
+    }
+
+    public void logPosition(final long logPosition) {
+        this.logPosition = logPosition;
+    }
+
+    public void time(final long time) {
+        this.time = time;
+    }
+
+    /**
+     * Gets the number of responses the service offered to any session.
+     *
+     * @return the offered response count.
+     */
+    public long offeredResponses() {
+        return offeredResponses;
+    }
+
+    private Object invokeCluster(final Method method, final Object[] args) {
+        return switch (method.getName())
+        {
+            case "memberId" -> memberId;
+            case "role" -> Cluster.Role.LEADER;
+            case "aeron" -> aeron;
+            case "idleStrategy" -> idleStrategy;
+            case "timeUnit" -> ClusterNodeConfig.CLUSTER_TIME_UNIT;
+            case "time" -> time;
+            case "logPosition" -> logPosition;
+            case "getClientSession" -> sessionsById.get((long) args[0]);
+            case "clientSessions" -> sessionsById.values();
+            case "scheduleTimer", "cancelTimer", "closeClientSession" -> true;
+            default -> defaultValue(method.getReturnType());
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(final Class<T> type, final Invocation invocation) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName())
+                {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + " stub";
+                };
+            }
+
+            return invocation.invoke(method, args);
+        });
+    }
+
+    private static Object defaultValue(final Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == char.class) {
+            return (char) 0;
+        } else if (type == double.class) {
+            return 0.0d;
+        } else if (type == float.class) {
+            return 0.0f;
+        }
+
+        return null;
+    }
+
+    private final class StubClientSession implements ClientSession {
+
+        private final long id;
+
+        private StubClientSession(final long id) {
+            this.id = id;
+        }
+
+        @Override
+        public long id() {
+            return id;
+        }
+
+        @Override
+        public int responseStreamId() {
+            return 0;
+        }
+
+        @Override
+        public String responseChannel() {
+            return null;
+        }
+
+        @Override
+        public byte[] encodedPrincipal() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isClosing() {
+            return false;
+        }
+
+        @Override
+        public long offer(final DirectBuffer buffer, final int offset, final int length) {
+            return ++offeredResponses;
+        }
+
+        @Override
+        public long offer(final DirectBufferVector[] vectors) {
+            return ++offeredResponses;
+        }
+
+        @Override
+        public long tryClaim(final int length, final BufferClaim bufferClaim) {
+            final int frameLength = DataHeaderFlyweight.HEADER_LENGTH + AeronCluster.SESSION_HEADER_LENGTH + length;
+            if (claimBuffer.capacity() < frameLength) {
+                claimBuffer.wrap(new byte[frameLength]);
+            }
+            bufferClaim.wrap(claimBuffer, 0, frameLength);
+            return ++offeredResponses;
+        }
+
+        @Override
+        public String toString() {
+            return "ClientSession stub " + id;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+        Object invoke(Method method, Object[] args);
+    }
+}
@@ -0,0 +1,253 @@
+package rsm.node;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel of deadlines for entries identified by small int IDs, such as the slots of keys.
+ * <p>
+ * There are {@link #LEVELS} wheels of {@link #WHEEL_SIZE} buckets. A bucket of level {@code L} spans
+ * {@code WHEEL_SIZE^L} ticks, so the wheels cover {@code WHEEL_SIZE^LEVELS} ticks ahead; later deadlines are parked in
+ * the top wheel and placed again when their bucket comes round. As time advances the bucket of a higher wheel whose
+ * span begins is cascaded into the lower wheels, and the entries in the current bucket of the lowest wheel expire.
+ * Scheduling and cancelling are O(1), and every entry is moved at most {@link #LEVELS} times before it expires. Ticks
+ * in which no bucket can cascade or expire are skipped, so advancing over a long gap costs no more than the entries.
+ * <p>
+ * Buckets are intrusive doubly linked lists threaded through int arrays indexed by entry ID, so the wheel does not
+ * allocate once it has grown to the number of entries. Time is counted in ticks chosen by the caller. Not thread safe.
+ */
+public class TimingWheel {
+
+    public static final long NULL_DEADLINE = Long.MIN_VALUE;
+    public static final int WHEEL_BITS = 6;
+    public static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    public static final int LEVELS = 4;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int NULL_ENTRY = -1;
+
+    private final int[] bucketHeads = new int[LEVELS * WHEEL_SIZE];
+    private final int[] levelSizes = new int[LEVELS];
+    private int[] nextEntries;
+    private int[] previousEntries;
+    private int[] entryBuckets;
+    private long[] deadlines;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(final int initialCapacity) {
+        Arrays.fill(bucketHeads, NULL_ENTRY);
+        nextEntries = new int[0];
+        previousEntries = new int[0];
+        entryBuckets = new int[0];
+        deadlines = new long[0];
+        ensureCapacity(initialCapacity);
+    }
+
+    /**
+     * Makes room for entry IDs below a capacity.
+     */
+    public void ensureCapacity(final int capacity) {
+        final int oldCapacity = deadlines.length;
+        if (capacity <= oldCapacity) {
+            return;
+        }
+
+        nextEntries = Arrays.copyOf(nextEntries, capacity);
+        previousEntries = Arrays.copyOf(previousEntries, capacity);
+        entryBuckets = Arrays.copyOf(entryBuckets, capacity);
+        deadlines = Arrays.copyOf(deadlines, capacity);
+        Arrays.fill(entryBuckets, oldCapacity, capacity, NULL_ENTRY);
+        Arrays.fill(deadlines, oldCapacity, capacity, NULL_DEADLINE);
+    }
+
+    /**
+     * Schedules an entry to expire at a tick, replacing any deadline it had. A deadline that has already passed
+     * expires on the next tick.
+     *
+     * @param entry        to schedule.
+     * @param deadlineTick at which the entry expires.
+     */
+    public void schedule(final int entry, final long deadlineTick) {
+        cancel(entry);
+        deadlines[entry] = deadlineTick;
+        size++;
+        place(entry, currentTick + 1);
+    }
+
+    public void cancel(final int entry) {
+        if (deadlines[entry] == NULL_DEADLINE) {
+            return;
+        }
+
+        unlink(entry);
+        deadlines[entry] = NULL_DEADLINE;
+        size--;
+    }
+
+    public boolean isScheduled(final int entry) {
+        return deadlines[entry] != NULL_DEADLINE;
+    }
+
+    public long deadline(final int entry) {
+        return deadlines[entry];
+    }
+
+    /**
+     * Advances the wheel, expiring every entry whose deadline is reached.
+     *
+     * @param nowTick to advance to.
+     * @param handler notified of each expired entry, which is no longer scheduled when it is called.
+     * @return the number of entries expired.
+     */
+    public int advance(final long nowTick, final ExpiryHandler handler) {
+        int expired = 0;
+        while (currentTick < nowTick) {
+            if (size == 0) {
+                currentTick = nowTick;
+                break;
+            }
+
+            int lowestLevel = 0;
+            while (levelSizes[lowestLevel] == 0) {
+                lowestLevel++;
+            }
+            if (lowestLevel > 0) {
+                final int shift = WHEEL_BITS * lowestLevel;
+                final long nextCascadeTick = ((currentTick >> shift) + 1) << shift;
+                if (nextCascadeTick > nowTick) {
+                    currentTick = nowTick;
+                    break;
+                }
+                currentTick = nextCascadeTick - 1;
+            }
+
+            final long tick = ++currentTick;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                final int shift = WHEEL_BITS * level;
+                if ((tick & ((1L << shift) - 1)) == 0) {
+                    cascade(level, (int) ((tick >> shift) & WHEEL_MASK), tick);
+                }
+            }
+
+            int entry = detach(bucketIndex(0, (int) (tick & WHEEL_MASK)));
+            while (entry != NULL_ENTRY) {
+                final int nextEntry = nextEntries[entry];
+                if (deadlines[entry] <= tick) {
+                    deadlines[entry] = NULL_DEADLINE;
+                    size--;
+                    expired++;
+                    handler.onExpiry(entry);
+                } else {
+                    place(entry, tick + 1);
+                }
+                entry = nextEntry;
+            }
+        }
+
+        return expired;
+    }
+
+    /**
+     * Gets the last tick the wheel was advanced to.
+     *
+     * @return the current tick.
+     */
+    public long currentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Sets the current tick, e.g. when restoring from a snapshot before scheduling any entry.
+     */
+    public void currentTick(final long currentTick) {
+        this.currentTick = currentTick;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void cascade(final int level, final int bucket, final long tick) {
+        int entry = detach(bucketIndex(level, bucket));
+        while (entry != NULL_ENTRY) {
+            final int nextEntry = nextEntries[entry];
+            place(entry, tick);
+            entry = nextEntry;
+        }
+    }
+
+    /**
+     * Links an entry into the bucket of the lowest wheel whose span covers its deadline as seen from a tick that has
+     * not been processed yet. Entries due at that tick go into its own bucket, and entries beyond the reach of the top
+     * wheel into the top wheel bucket spanning it, to be placed again when that bucket next cascades.
+     */
+    private void place(final int entry, final long fromTick) {
+        final long delta = Math.max(0L, deadlines[entry] - fromTick);
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+
+        final int shift = WHEEL_BITS * level;
+        final long bucketTick = delta == 0 || delta >= 1L << (WHEEL_BITS * LEVELS) ? fromTick : deadlines[entry];
+
+        link(entry, bucketIndex(level, (int) ((bucketTick >> shift) & WHEEL_MASK)));
+    }
+
+    private void link(final int entry, final int bucketIndex) {
+        final int head = bucketHeads[bucketIndex];
+        nextEntries[entry] = head;
+        previousEntries[entry] = NULL_ENTRY;
+        if (head != NULL_ENTRY) {
+            previousEntries[head] = entry;
+        }
+        bucketHeads[bucketIndex] = entry;
+        entryBuckets[entry] = bucketIndex;
+        levelSizes[bucketIndex / WHEEL_SIZE]++;
+    }
+
+    private void unlink(final int entry) {
+        final int bucketIndex = entryBuckets[entry];
+        if (bucketIndex == NULL_ENTRY) {
+            return;
+        }
+
+        final int next = nextEntries[entry];
+        final int previous = previousEntries[entry];
+        if (previous == NULL_ENTRY) {
+            bucketHeads[bucketIndex] = next;
+        } else {
+            nextEntries[previous] = next;
+        }
+        if (next != NULL_ENTRY) {
+            previousEntries[next] = previous;
+        }
+        entryBuckets[entry] = NULL_ENTRY;
+        levelSizes[bucketIndex / WHEEL_SIZE]--;
+    }
+
+    /**
+     * Empties a bucket, leaving its entries chained through their next links but no longer in any bucket.
+     *
+     * @return the first entry of the former bucket.
+     */
+    private int detach(final int bucketIndex) {
+        final int head = bucketHeads[bucketIndex];
+        bucketHeads[bucketIndex] = NULL_ENTRY;
+        for (int entry = head; entry != NULL_ENTRY; entry = nextEntries[entry]) {
+            entryBuckets[entry] = NULL_ENTRY;
+            levelSizes[bucketIndex / WHEEL_SIZE]--;
+        }
+
+        return head;
+    }
+
+    private static int bucketIndex(final int level, final int bucket) {
+        return level * WHEEL_SIZE + bucket;
+    }
+
+    @FunctionalInterface
+    public interface ExpiryHandler {
+        void onExpiry(int entry);
+    }
+}
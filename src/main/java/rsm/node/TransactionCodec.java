@@ -0,0 +1,124 @@
+package rsm.node;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+
+import static rsm.node.ReplicatedStateMachineClusteredService.VALUE_POSITION;
+
+/**
+ * Layout of the body of {@link MessageType#TRANSACTION} requests and of the result trailer of their responses.
+ * <pre>
+ * request body := preconditionCount:int32 writeCount:int32 precondition* write*
+ * precondition := kind:int32 pad:int32 key:int64 operand:int64
+ * write        := key:int64 value:int64 ttlMs:int64
+ * result       := entryCount:int32 pad:int32 (value:int64 version:int64)*
+ * </pre>
+ * The body starts at {@link ReplicatedStateMachineClusteredService#VALUE_POSITION}. The result holds the value and
+ * version of the key of every precondition followed by the key of every write, as they are after the transaction was
+ * applied or aborted. A write with a positive TTL makes its key expire that many milliseconds after the transaction was
+ * appended to the log, a TTL of 0 clears any expiry the key had.
+ */
+public final class TransactionCodec {
+
+    /**
+     * The key is read into the result without constraining the transaction.
+     */
+    public static final int READ = 0;
+
+    /**
+     * The value of the key must equal the operand.
+     */
+    public static final int VALUE_EQUALS = 1;
+
+    /**
+     * The version of the key must equal the operand, 0 meaning the key was never written.
+     */
+    public static final int VERSION_EQUALS = 2;
+
+    public static final int MAX_PRECONDITIONS = 256;
+    public static final int MAX_WRITES = 256;
+
+    public static final int PRECONDITION_COUNT_POSITION = VALUE_POSITION;
+    public static final int WRITE_COUNT_POSITION = PRECONDITION_COUNT_POSITION + BitUtil.SIZE_OF_INT;
+    public static final int PRECONDITIONS_POSITION = WRITE_COUNT_POSITION + BitUtil.SIZE_OF_INT;
+
+    public static final int PRECONDITION_KIND_OFFSET = 0;
+    public static final int PRECONDITION_KEY_OFFSET = BitUtil.SIZE_OF_LONG;
+    public static final int PRECONDITION_OPERAND_OFFSET = BitUtil.SIZE_OF_LONG * 2;
+    public static final int PRECONDITION_LENGTH = BitUtil.SIZE_OF_LONG * 3;
+
+    public static final int WRITE_KEY_OFFSET = 0;
+    public static final int WRITE_VALUE_OFFSET = BitUtil.SIZE_OF_LONG;
+    public static final int WRITE_TTL_OFFSET = BitUtil.SIZE_OF_LONG * 2;
+    public static final int WRITE_LENGTH = BitUtil.SIZE_OF_LONG * 3;
+
+    public static final int RESULT_ENTRY_COUNT_OFFSET = 0;
+    public static final int RESULT_ENTRIES_OFFSET = BitUtil.SIZE_OF_LONG;
+    public static final int RESULT_ENTRY_VALUE_OFFSET = 0;
+    public static final int RESULT_ENTRY_VERSION_OFFSET = BitUtil.SIZE_OF_LONG;
+    public static final int RESULT_ENTRY_LENGTH = BitUtil.SIZE_OF_LONG * 2;
+
+    private TransactionCodec() {
+    }
+
+    public static int preconditionCount(final DirectBuffer buffer, final int offset) {
+        return buffer.getInt(offset + PRECONDITION_COUNT_POSITION);
+    }
+
+    public static int writeCount(final DirectBuffer buffer, final int offset) {
+        return buffer.getInt(offset + WRITE_COUNT_POSITION);
+    }
+
+    public static int preconditionOffset(final int offset, final int index) {
+        return offset + PRECONDITIONS_POSITION + index * PRECONDITION_LENGTH;
+    }
+
+    public static int writeOffset(final int offset, final int preconditionCount, final int index) {
+        return offset + PRECONDITIONS_POSITION + preconditionCount * PRECONDITION_LENGTH + index * WRITE_LENGTH;
+    }
+
+    public static int requestBodyLength(final int preconditionCount, final int writeCount) {
+        return PRECONDITIONS_POSITION + preconditionCount * PRECONDITION_LENGTH + writeCount * WRITE_LENGTH;
+    }
+
+    public static int resultLength(final int preconditionCount, final int writeCount) {
+        return RESULT_ENTRIES_OFFSET + (preconditionCount + writeCount) * RESULT_ENTRY_LENGTH;
+    }
+
+    /**
+     * Checks the counts, the length, the precondition kinds and the write TTLs of a transaction request.
+     *
+     * @param buffer containing the request.
+     * @param offset of the request.
+     * @param length of the request, which may include a trace trailer.
+     * @return true if the transaction is well formed.
+     */
+    public static boolean isValid(final DirectBuffer buffer, final int offset, final int length) {
+        if (length < PRECONDITIONS_POSITION) {
+            return false;
+        }
+
+        final int preconditionCount = preconditionCount(buffer, offset);
+        final int writeCount = writeCount(buffer, offset);
+        if (preconditionCount < 0 || preconditionCount > MAX_PRECONDITIONS || writeCount < 0 || writeCount > MAX_WRITES ||
+                requestBodyLength(preconditionCount, writeCount) > length) {
+            return false;
+        }
+
+        for (int i = 0; i < preconditionCount; i++) {
+            final int kind = buffer.getInt(preconditionOffset(offset, i) + PRECONDITION_KIND_OFFSET);
+            if (kind != READ && kind != VALUE_EQUALS && kind != VERSION_EQUALS) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < writeCount; i++) {
+            final long ttlMs = buffer.getLong(writeOffset(offset, preconditionCount, i) + WRITE_TTL_OFFSET);
+            if (ttlMs < 0 || ttlMs > RequestApplier.MAX_TTL_MS) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,487 @@
+package rsm.replica;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.aeron.Aeron;
+import io.aeron.ChannelUri;
+import io.aeron.ChannelUriStringBuilder;
+import io.aeron.Counter;
+import io.aeron.FragmentAssembler;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.cluster.ConsensusModule;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rsm.common.ClusterNodeConfig;
+import rsm.node.ClusterLogDecoder;
+import rsm.node.ClusterLogListener;
+import rsm.node.ClusterLogRecording;
+import rsm.node.MetricsServer;
+import rsm.node.ReplicatedStateMachine;
+import rsm.node.ReplicatedStateMachineClusteredService;
+import rsm.node.RequestApplier;
+import rsm.node.ServiceCounters;
+import rsm.replica.dto.ReplicaValueResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.aeron.CommonContext.UDP_MEDIA;
+
+/**
+ * A non-voting node that follows the cluster log by replaying a member's archived log recording and applies it to its
+ * own {@link ReplicatedStateMachine}, so reads can be served without loading the Raft members.
+ * <p>
+ * Reads are served over HTTP on {@code GET /value} and report the log position the value reflects and how far it lags
+ * the followed member's recording. Callers choose their consistency with the optional query parameters
+ * {@code minPosition}, the log position the value must reflect, waiting up to {@code timeoutMs} for it, and
+ * {@code maxLagBytes}, the largest acceptable lag. Reads that cannot meet them are answered with 503, and malformed
+ * parameters with 400. A read waiting for its position does not hold an HTTP thread: it is parked and the follower
+ * thread hands it back to the HTTP executor once the position is applied or the timeout expires.
+ * <p>
+ * The applied position is also published as an Aeron counter of the replica's media driver and served in Prometheus
+ * format on the replica's metrics port.
+ * <p>
+ * The replay is bounded by the followed member's commit position counter, so the replica only applies entries once
+ * they are committed and never serves a value an election could roll back. The archive of the member enforces the
+ * bound, which it reads from the counters of the member's media driver; the replica finds the ID of that counter
+ * through the member's metrics endpoint when it starts a replay. Should the applied position still fall outside the
+ * member's recording, such as after the log was rebuilt, the replica rebuilds its state from the start of the log.
+ */
+public class ReadReplica implements ClusterLogListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplica.class);
+
+    public static final int PORT_BASE = 9500;
+    public static final int PORTS_PER_REPLICA = 100;
+    public static final int HTTP_PORT_OFFSET = 0;
+    public static final int ARCHIVE_CONTROL_RESPONSE_PORT_OFFSET = 1;
+    public static final int REPLAY_PORT_OFFSET = 2;
+    public static final int REPLAY_STREAM_ID = 1101;
+    public static final long LAG_REFRESH_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(100);
+    public static final long REPLAY_CONNECT_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(5);
+    private static final int FRAGMENT_LIMIT = 100;
+    private static final int HTTP_THREADS = 4;
+    private static final Duration METRICS_TIMEOUT = Duration.ofSeconds(5);
+    private static final Pattern COMMIT_POSITION_COUNTER_PATTERN = Pattern.compile(
+            "rsm_aeron_counter\\{id=\"(\\d+)\",type_id=\"" + ConsensusModule.Configuration.COMMIT_POSITION_TYPE_ID + "\"");
+
+    private final int replicaId;
+    private final String hostname;
+    private final List<String> clusterHostnames;
+    private final ExecutorService followerExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService httpExecutor = Executors.newFixedThreadPool(HTTP_THREADS);
+    private final Queue<PendingRead> pendingReads = new ConcurrentLinkedQueue<>();
+    private final IdleStrategy idleStrategy = new SleepingMillisIdleStrategy();
+    private final ClusterLogDecoder clusterLogDecoder = new ClusterLogDecoder(this, ClusterNodeConfig.CLUSTER_TIME_UNIT);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient metricsClient = HttpClient.newHttpClient();
+    private final Object stateLock = new Object();
+    private RequestApplier requestApplier = newRequestApplier();
+    private MediaDriver mediaDriver;
+    private Aeron aeron;
+    private Counter appliedPositionCounter;
+    private MetricsServer metricsServer;
+    private HttpServer httpServer;
+    private AeronArchive archive;
+    private Subscription replaySubscription;
+    private FragmentAssembler fragmentAssembler;
+    private long replayStartNs;
+    private boolean isReplayConnected;
+    private long recordingId;
+    private int followedMemberId;
+    private long lastLagRefreshNs;
+    private volatile boolean running;
+    private volatile long appliedPosition;
+    private volatile long recordedPosition;
+
+    /**
+     * @param replicaId        of the replica, which determines its ports.
+     * @param hostname         the replica binds to.
+     * @param clusterHostnames of the cluster members.
+     * @param followedMemberId member whose archive the log is replayed from first. Other members are tried in turn if
+     *                         it becomes unavailable.
+     */
+    public ReadReplica(final int replicaId,
+                       final String hostname,
+                       final List<String> clusterHostnames,
+                       final int followedMemberId) {
+        this.replicaId = replicaId;
+        this.hostname = hostname;
+        this.clusterHostnames = clusterHostnames;
+        this.followedMemberId = followedMemberId;
+    }
+
+    public static int calculatePort(final int replicaId, final int offset) {
+        return PORT_BASE + (replicaId * PORTS_PER_REPLICA) + offset;
+    }
+
+    public void start() {
+        this.mediaDriver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+                .aeronDirectoryName(ClusterNodeConfig.shmDirForName("rsm-read-replica-" + replicaId))
+                .errorHandler(Throwable::printStackTrace)
+                .threadingMode(ThreadingMode.SHARED)
+                .dirDeleteOnStart(true)
+                .dirDeleteOnShutdown(true));
+        this.aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(mediaDriver.aeronDirectoryName()));
+        this.appliedPositionCounter = aeron.addCounter(
+                ServiceCounters.APPLIED_POSITION_TYPE_ID, "rsm read replica applied log position");
+
+        this.metricsServer = new MetricsServer(
+                hostname,
+                calculatePort(replicaId, ClusterNodeConfig.METRICS_PORT_OFFSET),
+                mediaDriver.context().countersManager());
+        this.metricsServer.start();
+
+        try {
+            this.httpServer = HttpServer.create(new InetSocketAddress(hostname, calculatePort(replicaId, HTTP_PORT_OFFSET)), 0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.httpServer.createContext("/value", this::handleGetValue);
+        this.httpServer.setExecutor(httpExecutor);
+        this.httpServer.start();
+
+        this.running = true;
+        this.followerExecutor.execute(this::follow);
+
+        log.info("Read replica {} serving reads on {}", replicaId, httpServer.getAddress());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        followerExecutor.shutdown();
+        try {
+            followerExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        completePendingReads(true);
+        httpExecutor.shutdown();
+        try {
+            httpExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        httpServer.stop(0);
+        metricsServer.close();
+        closeReplay();
+        CloseHelper.closeAll(appliedPositionCounter, aeron, mediaDriver);
+    }
+
+    /**
+     * Gets the log position up to which entries have been applied.
+     *
+     * @return the applied position.
+     */
+    public long getAppliedPosition() {
+        return appliedPosition;
+    }
+
+    /**
+     * Gets the position of the followed member's log recording when it was last checked.
+     *
+     * @return the recorded position.
+     */
+    public long getRecordedPosition() {
+        return recordedPosition;
+    }
+
+    public long getValue() {
+        synchronized (stateLock) {
+            return requestApplier.replicatedStateMachine().getValue();
+        }
+    }
+
+    private void follow() {
+        while (running) {
+            try {
+                if (replaySubscription == null) {
+                    startReplay();
+                }
+
+                int workCount = replaySubscription.poll(fragmentAssembler, FRAGMENT_LIMIT);
+                if (replaySubscription.imageCount() > 0) {
+                    isReplayConnected = true;
+                } else if (isReplayConnected) {
+                    log.info("Replay from member {} ended at position {}, restarting", followedMemberId, appliedPosition);
+                    closeReplay();
+                    continue;
+                } else if (System.nanoTime() - replayStartNs > REPLAY_CONNECT_TIMEOUT_NS) {
+                    throw new IllegalStateException("Replay from member " + followedMemberId + " did not connect");
+                }
+
+                workCount += refreshLag();
+                workCount += completePendingReads(false);
+                idleStrategy.idle(workCount);
+            } catch (final Exception ex) {
+                log.warn("Read replica {} lost the log of member {}, trying the next member", replicaId, followedMemberId, ex);
+                closeReplay();
+                completePendingReads(true);
+                followedMemberId = (followedMemberId + 1) % clusterHostnames.size();
+                sleepBeforeRetry();
+            }
+        }
+    }
+
+    private void startReplay() throws IOException, InterruptedException {
+        final String memberHostname = clusterHostnames.get(followedMemberId);
+        archive = AeronArchive.connect(new AeronArchive.Context()
+                .aeron(aeron)
+                .controlRequestChannel(ClusterNodeConfig.udpChannel(
+                        followedMemberId, memberHostname, ClusterNodeConfig.ARCHIVE_CONTROL_PORT_OFFSET))
+                .controlResponseChannel(udpChannel(calculatePort(replicaId, ARCHIVE_CONTROL_RESPONSE_PORT_OFFSET))));
+
+        final ClusterLogRecording recording = ClusterLogRecording.findLatest(archive);
+        if (recording == null) {
+            throw new IllegalStateException("No cluster log recording in the archive of member " + followedMemberId);
+        }
+
+        final int commitPositionCounterId = commitPositionCounterId(memberHostname);
+        final long recordingPosition = currentRecordingPosition(recording.recordingId());
+        if (appliedPosition < recording.startPosition() || appliedPosition > recordingPosition) {
+            log.warn("Applied position {} is outside the log of member {}, rebuilding from position {}",
+                    appliedPosition, followedMemberId, recording.startPosition());
+            synchronized (stateLock) {
+                requestApplier = newRequestApplier();
+                appliedPosition = recording.startPosition();
+            }
+        }
+
+        final String replayChannel = udpChannel(calculatePort(replicaId, REPLAY_PORT_OFFSET));
+        final long replaySessionId = archive.startBoundedReplay(
+                recording.recordingId(),
+                appliedPosition,
+                AeronArchive.NULL_LENGTH,
+                commitPositionCounterId,
+                replayChannel,
+                REPLAY_STREAM_ID);
+
+        recordingId = recording.recordingId();
+        replaySubscription = aeron.addSubscription(
+                ChannelUri.addSessionId(replayChannel, (int) replaySessionId), REPLAY_STREAM_ID);
+        fragmentAssembler = new FragmentAssembler(clusterLogDecoder);
+        replayStartNs = System.nanoTime();
+        isReplayConnected = false;
+
+        log.info("Read replica {} replaying log recording {} of member {} from position {}",
+                replicaId, recordingId, followedMemberId, appliedPosition);
+    }
+
+    /**
+     * Finds the ID of the commit position counter in the media driver of the followed member, which its archive can
+     * bound a replay by.
+     */
+    private int commitPositionCounterId(final String memberHostname) throws IOException, InterruptedException {
+        final URI metricsUri = URI.create("http://" + memberHostname + ":" +
+                ClusterNodeConfig.calculatePort(followedMemberId, ClusterNodeConfig.METRICS_PORT_OFFSET) + "/metrics");
+        final HttpResponse<String> response = metricsClient.send(
+                HttpRequest.newBuilder(metricsUri).timeout(METRICS_TIMEOUT).build(), HttpResponse.BodyHandlers.ofString());
+        final Matcher matcher = COMMIT_POSITION_COUNTER_PATTERN.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("No commit position counter in the metrics of member " + followedMemberId);
+        }
+
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private int refreshLag() {
+        final long nowNs = System.nanoTime();
+        if (nowNs - lastLagRefreshNs < LAG_REFRESH_INTERVAL_NS) {
+            return 0;
+        }
+
+        lastLagRefreshNs = nowNs;
+        recordedPosition = currentRecordingPosition(recordingId);
+        return 1;
+    }
+
+    private long currentRecordingPosition(final long recordingId) {
+        final long recordingPosition = archive.getRecordingPosition(recordingId);
+        return recordingPosition != AeronArchive.NULL_POSITION ? recordingPosition : archive.getStopPosition(recordingId);
+    }
+
+    private void closeReplay() {
+        CloseHelper.quietCloseAll(replaySubscription, archive);
+        replaySubscription = null;
+        archive = null;
+    }
+
+    private void sleepBeforeRetry() {
+        try {
+            Thread.sleep(1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void onSessionMessage(final long logPosition,
+                                 final long clusterSessionId,
+                                 final long timestamp,
+                                 final DirectBuffer buffer,
+                                 final int offset,
+                                 final int length,
+                                 final Header header) {
+        synchronized (stateLock) {
+            requestApplier.apply(
+                    clusterSessionId, clusterLogDecoder.timeUnit().toNanos(timestamp), buffer, offset, length);
+            appliedPosition = logPosition;
+        }
+
+        appliedPositionCounter.setOrdered(logPosition);
+    }
+
+    @Override
+    public void onTimerEvent(final long logPosition, final long correlationId, final long timestamp) {
+        synchronized (stateLock) {
+            requestApplier.onTimerEvent(clusterLogDecoder.timeUnit().toNanos(timestamp));
+            appliedPosition = logPosition;
+        }
+
+        appliedPositionCounter.setOrdered(logPosition);
+    }
+
+    private static RequestApplier newRequestApplier() {
+        return RequestApplier.forCluster(ReplicatedStateMachineClusteredService.DEFAULT_DEDUPLICATION_TABLE_CAPACITY);
+    }
+
+    private void handleGetValue(final HttpExchange exchange) throws IOException {
+        final Map<String, String> parameters = queryParameters(exchange.getRequestURI());
+        final PendingRead read;
+        try {
+            final long minPosition = Long.parseLong(parameters.getOrDefault("minPosition", "0"));
+            final long timeoutMs = Long.parseLong(parameters.getOrDefault("timeoutMs", "1000"));
+            final long maxLagBytes = Long.parseLong(parameters.getOrDefault("maxLagBytes", Long.toString(Long.MAX_VALUE)));
+            read = new PendingRead(exchange, minPosition, maxLagBytes, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+        } catch (final NumberFormatException ex) {
+            final byte[] body = ("Invalid query parameter: " + ex.getMessage()).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(400, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+            return;
+        }
+
+        if (appliedPosition >= read.minPosition || System.nanoTime() - read.deadlineNs >= 0) {
+            respond(read);
+        } else {
+            pendingReads.add(read);
+        }
+    }
+
+    /**
+     * Hands the parked reads whose position has been applied or whose timeout has expired to the HTTP executor.
+     *
+     * @param isAll true to complete every parked read regardless, such as when the replay was lost or on close.
+     * @return the number of reads completed.
+     */
+    private int completePendingReads(final boolean isAll) {
+        if (pendingReads.isEmpty()) {
+            return 0;
+        }
+
+        int completed = 0;
+        final long nowNs = System.nanoTime();
+        final Iterator<PendingRead> iterator = pendingReads.iterator();
+        while (iterator.hasNext()) {
+            final PendingRead read = iterator.next();
+            if (isAll || appliedPosition >= read.minPosition || nowNs - read.deadlineNs >= 0) {
+                iterator.remove();
+                completed++;
+                httpExecutor.execute(() -> respond(read));
+            }
+        }
+
+        return completed;
+    }
+
+    private void respond(final PendingRead read) {
+        final ReplicaValueResponse valueResponse = new ReplicaValueResponse();
+        synchronized (stateLock) {
+            valueResponse.setValue(requestApplier.replicatedStateMachine().getValue());
+            valueResponse.setAppliedPosition(appliedPosition);
+        }
+        valueResponse.setLagBytes(Math.max(0L, recordedPosition - valueResponse.getAppliedPosition()));
+        valueResponse.setReplicaId(replicaId);
+
+        final boolean isFreshEnough =
+                valueResponse.getAppliedPosition() >= read.minPosition && valueResponse.getLagBytes() <= read.maxLagBytes;
+        try {
+            final byte[] body = objectMapper.writeValueAsBytes(valueResponse);
+            read.exchange.getResponseHeaders().set("Content-Type", "application/json");
+            read.exchange.sendResponseHeaders(isFreshEnough ? 200 : 503, body.length);
+            try (OutputStream outputStream = read.exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (final IOException ex) {
+            log.warn("Read replica {} failed to respond to a read", replicaId, ex);
+            read.exchange.close();
+        }
+    }
+
+    private static Map<String, String> queryParameters(final URI uri) {
+        final Map<String, String> parameters = new HashMap<>();
+        final String query = uri.getRawQuery();
+        if (query != null) {
+            for (final String parameter : query.split("&")) {
+                final int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(parameter.substring(0, separator), parameter.substring(separator + 1));
+                }
+            }
+        }
+
+        return parameters;
+    }
+
+    private static final class PendingRead {
+        private final HttpExchange exchange;
+        private final long minPosition;
+        private final long maxLagBytes;
+        private final long deadlineNs;
+
+        private PendingRead(final HttpExchange exchange, final long minPosition, final long maxLagBytes, final long deadlineNs) {
+            this.exchange = exchange;
+            this.minPosition = minPosition;
+            this.maxLagBytes = maxLagBytes;
+            this.deadlineNs = deadlineNs;
+        }
+    }
+
+    private String udpChannel(final int port) {
+        return new ChannelUriStringBuilder()
+                .media(UDP_MEDIA)
+                .endpoint(hostname + ":" + port)
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package rsm.replica;
+
+import org.agrona.concurrent.SigInt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rsm.common.ClusterTopologyConfiguration;
+
+public class ReadReplicaMain {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaMain.class);
+
+    public static void main(String[] args) {
+        final int replicaId = Integer.parseInt(args[0]);
+        final String hostname = args[1];
+        final String topologyConfigFile = args[2];
+        final int followedMemberId = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        final ClusterTopologyConfiguration topologyConfig = ClusterTopologyConfiguration.fromYaml(topologyConfigFile);
+        final ReadReplica readReplica = new ReadReplica(replicaId, hostname, topologyConfig.getNodeHostnames(), followedMemberId);
+
+        log.info("Starting read replica {} following member {} using topology configuration {}", replicaId, followedMemberId, topologyConfigFile);
+
+        readReplica.start();
+
+        SigInt.register(readReplica::close);
+    }
+}
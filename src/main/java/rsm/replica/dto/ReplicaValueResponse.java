@@ -0,0 +1,11 @@
+package rsm.replica.dto;
+
+import lombok.Data;
+
+@Data
+public class ReplicaValueResponse {
+    private long value;
+    private long appliedPosition;
+    private long lagBytes;
+    private int replicaId;
+}
@@ -0,0 +1,100 @@
+package rsm.tools;
+
+import io.aeron.cluster.service.Cluster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.client.Transaction;
+import rsm.common.ClusterNodeConfig;
+import rsm.gateway.HttpGateway;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+import rsm.node.ServiceWarmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Training run for application class data sharing archives. It starts a single node cluster on localhost, warms it up,
+ * sends it every type of request through a client and, in {@code client} mode, through an {@link HttpGateway} as well,
+ * then stops everything and exits. Run with {@code -XX:ArchiveClassesAtExit=<archive>} against a jar, the JVM archives
+ * every class the run loaded, and processes started from the same jar with {@code -XX:SharedArchiveFile=<archive>} map
+ * those classes instead of loading, verifying and linking them.
+ * <p>
+ * The node uses the ports of node 0 and the gateway port 8080, which must be free.
+ * <p>
+ * Usage: {@code ClassDataSharingTraining <node | client>}
+ */
+public class ClassDataSharingTraining {
+
+    private static final Logger log = LoggerFactory.getLogger(ClassDataSharingTraining.class);
+
+    public static final String LOCALHOST = "localhost";
+    private static final int REQUESTS = 1000;
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final boolean isClient = args.length > 0 && args[0].equals("client");
+        final long startNs = System.nanoTime();
+
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(ClusterNodeConfig
+                .create(0, List.of(LOCALHOST), new ReplicatedStateMachineClusteredService())
+                .warmupIterations(ServiceWarmup.DEFAULT_ITERATIONS));
+        clusterNode.start();
+        await().timeout(30, TimeUnit.SECONDS).until(() -> clusterNode.getRole() == Cluster.Role.LEADER);
+
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST));
+        final HttpGateway httpGateway = isClient ? new HttpGateway(client) : null;
+        if (httpGateway != null) {
+            httpGateway.start();
+        } else {
+            client.start();
+        }
+
+        for (int i = 0; i < REQUESTS; i++) {
+            client.setValue(i);
+            client.getValue();
+            client.setValue(i, TimeUnit.SECONDS.toMillis(1));
+            client.setBytesValue(i % 16, new byte[i % 64]);
+            client.getBytesValue(i % 16);
+            client.transact(new Transaction().read(i).write(i, i).write(i + 1, i, 1));
+            client.rangePage(0, i, 16);
+        }
+
+        if (httpGateway != null) {
+            sendHttpRequests();
+            httpGateway.close();
+        } else {
+            client.stop();
+        }
+        clusterNode.stop();
+
+        log.info("Class data sharing training in {} mode took {} ms",
+                isClient ? "client" : "node", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs));
+        System.exit(0);
+    }
+
+    private static void sendHttpRequests() throws IOException, InterruptedException {
+        final HttpClient httpClient = HttpClient.newHttpClient();
+        final URI valueUri = URI.create("http://localhost:8080/value");
+        final URI bulkUri = URI.create("http://localhost:8080/values/bulk");
+
+        for (int i = 0; i < REQUESTS; i++) {
+            httpClient.send(HttpRequest.newBuilder(valueUri)
+                    .PUT(HttpRequest.BodyPublishers.ofString("{\"value\":" + i + "}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            httpClient.send(HttpRequest.newBuilder(valueUri)
+                    .method("GET", HttpRequest.BodyPublishers.ofString("{}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+        }
+        httpClient.send(HttpRequest.newBuilder(bulkUri)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"op\":\"set\",\"value\":1}\n{\"op\":\"get\"}\n"))
+                .build(), HttpResponse.BodyHandlers.ofLines()).body().count();
+    }
+}
@@ -0,0 +1,195 @@
+package rsm.tools;
+
+import ch.qos.logback.classic.Level;
+import io.aeron.Aeron;
+import io.aeron.ChannelUri;
+import io.aeron.FragmentAssembler;
+import io.aeron.Image;
+import io.aeron.Subscription;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.archive.ArchivingMediaDriver;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rsm.common.ClusterNodeConfig;
+import rsm.common.DurabilityMode;
+import rsm.node.ClusterLogDecoder;
+import rsm.node.ClusterLogListener;
+import rsm.node.ClusterLogRecording;
+import rsm.node.ReplicatedStateMachineClusteredService;
+import rsm.node.StubCluster;
+
+import java.io.File;
+
+/**
+ * Replays the cluster log recorded in a node's archive directory, at full speed and outside any cluster, into a fresh
+ * {@link ReplicatedStateMachineClusteredService} driven through a {@link StubCluster}. Reports the apply throughput and
+ * the state the service ends up in, which makes it possible to benchmark the service on a real log and to reproduce
+ * state bugs deterministically.
+ * <p>
+ * The archive is opened by an embedded archive of its own and the log is replayed over IPC, so the node that recorded
+ * it must be stopped. Only client session messages are applied; if the node had taken snapshots from which its log
+ * was later truncated, the replayed state does not include them.
+ * <p>
+ * Usage: {@code LogReplayTool <node id [durabilityMode [dataDir]] | archive dir>}. A node ID is resolved to the
+ * archive directory the node uses with the given {@link DurabilityMode}, {@link DurabilityMode#MEMORY} by default,
+ * and data directory, {@link ClusterNodeConfig#DEFAULT_DATA_DIR} by default.
+ */
+public class LogReplayTool implements ClusterLogListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LogReplayTool.class);
+
+    public static final int REPLAY_STREAM_ID = 1201;
+    private static final int FRAGMENT_LIMIT = 1024;
+
+    private final File archiveDir;
+    private final ReplicatedStateMachineClusteredService service = new ReplicatedStateMachineClusteredService();
+    private final IdleStrategy idleStrategy = new BusySpinIdleStrategy();
+    private ArchivingMediaDriver archivingMediaDriver;
+    private Aeron aeron;
+    private AeronArchive archive;
+    private StubCluster stubCluster;
+    private long entries;
+
+    public LogReplayTool(final File archiveDir) {
+        this.archiveDir = archiveDir;
+    }
+
+    public static void main(final String[] args) {
+        final File archiveDir = args[0].chars().allMatch(Character::isDigit) ?
+                ClusterNodeConfig.archiveDir(
+                        Integer.parseInt(args[0]),
+                        args.length > 1 ? DurabilityMode.valueOf(args[1]) : DurabilityMode.MEMORY,
+                        args.length > 2 ? args[2] : ClusterNodeConfig.DEFAULT_DATA_DIR) :
+                new File(args[0]);
+
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(ReplicatedStateMachineClusteredService.class)).setLevel(Level.WARN);
+
+        try (LogReplayTool logReplayTool = new LogReplayTool(archiveDir)) {
+            final Result result = logReplayTool.replay();
+            System.out.printf("Replayed %,d entries (%,d bytes) in %.3f s: %,.0f entries/s%n",
+                    result.entries(), result.bytes(), result.durationNs() / 1e9, result.entries() / (result.durationNs() / 1e9));
+            System.out.printf("Final value: %d, responses offered: %,d%n", result.finalValue(), result.offeredResponses());
+        }
+    }
+
+    /**
+     * Replays the whole log recording.
+     *
+     * @return the outcome of the replay.
+     */
+    public Result replay() {
+        if (!archiveDir.isDirectory()) {
+            throw new IllegalArgumentException("No archive directory at " + archiveDir);
+        }
+
+        final String aeronDirectoryName = ClusterNodeConfig.shmDirForName("rsm-log-replay");
+        final Archive.Context archiveContext = new Archive.Context()
+                .aeronDirectoryName(aeronDirectoryName)
+                .archiveDir(archiveDir)
+                .deleteArchiveOnStart(false)
+                .recordingEventsEnabled(false)
+                .threadingMode(ArchiveThreadingMode.SHARED);
+        archivingMediaDriver = ArchivingMediaDriver.launch(
+                new MediaDriver.Context()
+                        .aeronDirectoryName(aeronDirectoryName)
+                        .threadingMode(ThreadingMode.SHARED)
+                        .dirDeleteOnStart(true)
+                        .dirDeleteOnShutdown(true),
+                archiveContext);
+
+        aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(aeronDirectoryName));
+        archive = AeronArchive.connect(new AeronArchive.Context()
+                .aeron(aeron)
+                .controlRequestChannel(archiveContext.localControlChannel())
+                .controlRequestStreamId(archiveContext.localControlStreamId())
+                .controlResponseChannel("aeron:ipc"));
+
+        final ClusterLogRecording recording = ClusterLogRecording.findLatest(archive);
+        if (recording == null) {
+            throw new IllegalStateException("No cluster log recording in " + archiveDir);
+        }
+        if (recording.stopPosition() == AeronArchive.NULL_POSITION) {
+            throw new IllegalStateException("Log recording " + recording.recordingId() +
+                    " has no stop position, run ArchiveTool verify on " + archiveDir + " first");
+        }
+
+        stubCluster = new StubCluster(aeron, 0);
+        service.onStart(stubCluster.cluster(), null);
+
+        final long length = recording.stopPosition() - recording.startPosition();
+        log.info("Replaying log recording {} from position {} to {}",
+                recording.recordingId(), recording.startPosition(), recording.stopPosition());
+
+        final long startNs = System.nanoTime();
+        final long replaySessionId = archive.startReplay(
+                recording.recordingId(), recording.startPosition(), length, "aeron:ipc", REPLAY_STREAM_ID);
+        try (Subscription subscription = aeron.addSubscription(
+                ChannelUri.addSessionId("aeron:ipc", (int) replaySessionId), REPLAY_STREAM_ID)) {
+            final FragmentAssembler fragmentAssembler = new FragmentAssembler(new ClusterLogDecoder(this, ClusterNodeConfig.CLUSTER_TIME_UNIT));
+
+            Image image;
+            while ((image = subscription.imageBySessionId((int) replaySessionId)) == null) {
+                idleStrategy.idle();
+            }
+
+            while (image.position() < recording.stopPosition()) {
+                final int fragments = image.poll(fragmentAssembler, FRAGMENT_LIMIT);
+                if (fragments == 0 && image.isClosed()) {
+                    throw new IllegalStateException("Replay ended at position " + image.position());
+                }
+
+                idleStrategy.idle(fragments);
+            }
+        }
+        final long durationNs = System.nanoTime() - startNs;
+
+        return new Result(entries, length, durationNs, service.getValue(), stubCluster.offeredResponses());
+    }
+
+    @Override
+    public void onSessionMessage(final long logPosition,
+                                 final long clusterSessionId,
+                                 final long timestamp,
+                                 final DirectBuffer buffer,
+                                 final int offset,
+                                 final int length,
+                                 final Header header) {
+        stubCluster.logPosition(logPosition);
+        stubCluster.time(timestamp);
+        service.onSessionMessage(stubCluster.session(clusterSessionId), timestamp, buffer, offset, length, header);
+        entries++;
+    }
+
+    @Override
+    public void onTimerEvent(final long logPosition, final long correlationId, final long timestamp) {
+        stubCluster.logPosition(logPosition);
+        stubCluster.time(timestamp);
+        service.onTimerEvent(correlationId, timestamp);
+    }
+
+    @Override
+    public void close() {
+        CloseHelper.closeAll(archive, aeron, archivingMediaDriver);
+    }
+
+    /**
+     * Outcome of a replay.
+     *
+     * @param entries          number of session messages applied.
+     * @param bytes            length of the replayed log.
+     * @param durationNs       time the replay took.
+     * @param finalValue       of the state machine after the replay.
+     * @param offeredResponses number of responses the service offered.
+     */
+    public record Result(long entries, long bytes, long durationNs, long finalValue, long offeredResponses) {
+    }
+}
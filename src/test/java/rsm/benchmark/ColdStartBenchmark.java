@@ -0,0 +1,117 @@
+package rsm.benchmark;
+
+import org.HdrHistogram.Histogram;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.common.ClusterNodeConfig;
+import rsm.common.StartupTiming;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+import rsm.node.ServiceWarmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a freshly started localhost cluster and client take to become ready and then to reach steady state
+ * latency, which is what a deploy or a failover puts on the critical path. It is only meaningful in a fresh JVM, so
+ * each run measures one configuration.
+ * <p>
+ * Time to ready runs from JVM start to the first response. After that, back to back synchronous SETs are timed in
+ * windows; the p99 of the last quarter of them is taken as the steady state, and time to steady state is the time from
+ * ready to the end of the first window after which no window's p99 exceeds the steady state p99 by more than the
+ * tolerance.
+ * <p>
+ * Configured with system properties:
+ * <ul>
+ *     <li>{@code rsm.benchmark.nodes} - cluster size, default 3</li>
+ *     <li>{@code rsm.benchmark.warmupIterations} - {@link ServiceWarmup} iterations each node runs before it is
+ *     ready, default {@link ServiceWarmup#DEFAULT_ITERATIONS}, 0 to start cold</li>
+ *     <li>{@code rsm.benchmark.requests} - SETs timed after ready, default 50000</li>
+ *     <li>{@code rsm.benchmark.windowRequests} - SETs per window, default 1000</li>
+ *     <li>{@code rsm.benchmark.tolerance} - ratio of a window's p99 to the steady state p99 still counted as steady,
+ *     default 1.5</li>
+ * </ul>
+ */
+public class ColdStartBenchmark {
+
+    public static final String LOCALHOST = "localhost";
+    private static final long HIGHEST_TRACKABLE_VALUE_NS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int nodeCount = Integer.getInteger("rsm.benchmark.nodes", 3);
+    private final int warmupIterations = Integer.getInteger("rsm.benchmark.warmupIterations", ServiceWarmup.DEFAULT_ITERATIONS);
+    private final int requests = Integer.getInteger("rsm.benchmark.requests", 50_000);
+    private final int windowRequests = Integer.getInteger("rsm.benchmark.windowRequests", 1000);
+    private final double tolerance = Double.parseDouble(System.getProperty("rsm.benchmark.tolerance", "1.5"));
+
+    public static void main(final String[] args) throws InterruptedException {
+        new ColdStartBenchmark().run();
+        System.exit(0);
+    }
+
+    private void run() throws InterruptedException {
+        final List<String> hostnames = Collections.nCopies(nodeCount, LOCALHOST);
+        final List<ReplicatedStateMachineClusterNode> nodes = new ArrayList<>();
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            nodes.add(new ReplicatedStateMachineClusterNode(ClusterNodeConfig
+                    .create(nodeId, hostnames, new ReplicatedStateMachineClusteredService())
+                    .warmupIterations(warmupIterations)));
+        }
+        nodes.forEach(ReplicatedStateMachineClusterNode::start);
+        FailoverBenchmark.awaitLeader(nodes);
+
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(LOCALHOST, hostnames);
+        client.start();
+        client.getValue();
+        final long readyMs = StartupTiming.millisSinceJvmStart();
+        final long readyNs = System.nanoTime();
+
+        final int windowCount = requests / windowRequests;
+        final long[] windowP99Ns = new long[windowCount];
+        final long[] windowEndMs = new long[windowCount];
+        final Histogram windowHistogram = new Histogram(HIGHEST_TRACKABLE_VALUE_NS, 3);
+        final Histogram steadyStateHistogram = new Histogram(HIGHEST_TRACKABLE_VALUE_NS, 3);
+        final Histogram firstWindowHistogram = new Histogram(HIGHEST_TRACKABLE_VALUE_NS, 3);
+        for (int window = 0; window < windowCount; window++) {
+            windowHistogram.reset();
+            for (int i = 0; i < windowRequests; i++) {
+                final long startNs = System.nanoTime();
+                client.setValue(window * (long) windowRequests + i);
+                final long latencyNs = Math.min(System.nanoTime() - startNs, HIGHEST_TRACKABLE_VALUE_NS);
+                windowHistogram.recordValue(latencyNs);
+                if (window >= windowCount - windowCount / 4) {
+                    steadyStateHistogram.recordValue(latencyNs);
+                }
+            }
+            if (window == 0) {
+                firstWindowHistogram.add(windowHistogram);
+            }
+            windowP99Ns[window] = windowHistogram.getValueAtPercentile(99);
+            windowEndMs[window] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - readyNs);
+        }
+
+        client.stop();
+        nodes.forEach(ReplicatedStateMachineClusterNode::stop);
+
+        final long steadyStateP99Ns = steadyStateHistogram.getValueAtPercentile(99);
+        int steadyWindow = windowCount - 1;
+        while (steadyWindow > 0 && windowP99Ns[steadyWindow - 1] <= steadyStateP99Ns * tolerance) {
+            steadyWindow--;
+        }
+
+        for (int window = 0; window < windowCount; window++) {
+            System.out.printf("window %3d ends %6d ms after ready: p99=%.3fms%n",
+                    window, windowEndMs[window], windowP99Ns[window] / 1e6);
+        }
+        System.out.println("Nodes: " + nodeCount + ", node warm-up iterations: " + warmupIterations
+                + ", class data sharing archive: " + StartupTiming.sharedArchiveFile());
+        System.out.printf("time to ready=%dms, time to steady state=%dms, first window p99=%.3fms max=%.3fms, " +
+                        "steady state p99=%.3fms%n",
+                readyMs,
+                steadyWindow == 0 ? 0 : windowEndMs[steadyWindow - 1],
+                firstWindowHistogram.getValueAtPercentile(99) / 1e6,
+                firstWindowHistogram.getMaxValue() / 1e6,
+                steadyStateP99Ns / 1e6);
+    }
+}
@@ -0,0 +1,143 @@
+package rsm.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.agrona.IoUtil;
+import rsm.client.ClientConfig;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.client.ResponseListener;
+import rsm.common.ClusterNodeConfig;
+import rsm.common.DurabilityMode;
+import rsm.node.EmbeddedCluster;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the cost of each {@link DurabilityMode} on a fresh localhost cluster whose persistent directories are on
+ * local disk.
+ * <p>
+ * For every mode it records the latency of back to back synchronous SETs, then the throughput of SETs pipelined up to
+ * the client's in-flight window. Both phases are preceded by warm-up SETs that are not measured.
+ * <p>
+ * Configured with system properties:
+ * <ul>
+ *     <li>{@code rsm.benchmark.modes} - comma separated modes to measure, default all of them</li>
+ *     <li>{@code rsm.benchmark.nodes} - cluster size, default 3</li>
+ *     <li>{@code rsm.benchmark.dataDir} - directory for the persistent modes, wiped before each run, default
+ *     build/durability-benchmark</li>
+ *     <li>{@code rsm.benchmark.warmupRequests} - unmeasured SETs before each phase, default 5000</li>
+ *     <li>{@code rsm.benchmark.latencyRequests} - synchronous SETs timed for latency, default 10000</li>
+ *     <li>{@code rsm.benchmark.requests} - pipelined SETs timed for throughput, default 100000</li>
+ *     <li>{@code rsm.benchmark.window} - maximum SETs in flight for throughput, default 64</li>
+ *     <li>{@code rsm.benchmark.embedded} - whether to run the nodes as an {@link EmbeddedCluster} sharing one media
+ *     driver rather than with a driver each, default false</li>
+ * </ul>
+ */
+public class DurabilityBenchmark {
+
+    public static final String LOCALHOST = "localhost";
+    private static final long HIGHEST_TRACKABLE_VALUE_NS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int nodeCount = Integer.getInteger("rsm.benchmark.nodes", 3);
+    private final String dataDir = System.getProperty("rsm.benchmark.dataDir", "build/durability-benchmark");
+    private final int warmupRequests = Integer.getInteger("rsm.benchmark.warmupRequests", 5_000);
+    private final int latencyRequests = Integer.getInteger("rsm.benchmark.latencyRequests", 10_000);
+    private final int requests = Integer.getInteger("rsm.benchmark.requests", 100_000);
+    private final int window = Integer.getInteger("rsm.benchmark.window", 64);
+    private final boolean embedded = Boolean.getBoolean("rsm.benchmark.embedded");
+
+    public static void main(final String[] args) throws InterruptedException {
+        final DurabilityBenchmark benchmark = new DurabilityBenchmark();
+        final String modes = System.getProperty("rsm.benchmark.modes");
+        final List<DurabilityMode> durabilityModes = modes == null ?
+                Arrays.asList(DurabilityMode.values()) :
+                Arrays.stream(modes.split(",")).map(String::trim).map(DurabilityMode::valueOf).toList();
+
+        final List<String> results = new ArrayList<>();
+        for (final DurabilityMode durabilityMode : durabilityModes) {
+            System.out.println("Measuring durability mode " + durabilityMode);
+            results.add(benchmark.run(durabilityMode));
+        }
+
+        System.out.println("Nodes: " + benchmark.nodeCount + ", data dir: " + new File(benchmark.dataDir).getAbsolutePath()
+                + ", window: " + benchmark.window + ", embedded: " + benchmark.embedded);
+        results.forEach(System.out::println);
+        System.exit(0);
+    }
+
+    private String run(final DurabilityMode durabilityMode) throws InterruptedException {
+        IoUtil.delete(new File(dataDir), true);
+
+        final List<String> hostnames = Collections.nCopies(nodeCount, LOCALHOST);
+        final EmbeddedCluster embeddedCluster = embedded ? EmbeddedCluster.launch(nodeCount, durabilityMode, dataDir) : null;
+        final List<ReplicatedStateMachineClusterNode> nodes = new ArrayList<>();
+        if (embeddedCluster != null) {
+            nodes.addAll(embeddedCluster.nodes());
+        } else {
+            for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+                nodes.add(new ReplicatedStateMachineClusterNode(ClusterNodeConfig.create(
+                        nodeId, hostnames, new ReplicatedStateMachineClusteredService(), durabilityMode, dataDir)));
+            }
+            nodes.forEach(ReplicatedStateMachineClusterNode::start);
+        }
+        FailoverBenchmark.awaitLeader(nodes);
+
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(
+                LOCALHOST, hostnames, new ClientConfig().maxInFlightRequests(window));
+        client.start();
+
+        long value = 0;
+        for (int i = 0; i < warmupRequests; i++) {
+            client.setValue(++value);
+        }
+        final Histogram latencyHistogram = new Histogram(HIGHEST_TRACKABLE_VALUE_NS, 3);
+        for (int i = 0; i < latencyRequests; i++) {
+            final long startNs = System.nanoTime();
+            client.setValue(++value);
+            latencyHistogram.recordValue(Math.min(System.nanoTime() - startNs, HIGHEST_TRACKABLE_VALUE_NS));
+        }
+
+        runPipelined(client, value, warmupRequests);
+        final long startNs = System.nanoTime();
+        runPipelined(client, value + warmupRequests, requests);
+        final double throughput = requests / ((System.nanoTime() - startNs) / 1e9);
+
+        client.stop();
+        if (embeddedCluster != null) {
+            embeddedCluster.close();
+        } else {
+            nodes.forEach(ReplicatedStateMachineClusterNode::stop);
+        }
+
+        return String.format("%-6s throughput=%,.0f SET/s latency p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms",
+                durabilityMode,
+                throughput,
+                latencyHistogram.getValueAtPercentile(50) / 1e6,
+                latencyHistogram.getValueAtPercentile(99) / 1e6,
+                latencyHistogram.getValueAtPercentile(99.9) / 1e6,
+                latencyHistogram.getMaxValue() / 1e6);
+    }
+
+    /**
+     * Sends SETs asynchronously, the client blocking whenever its in-flight window is full, and waits for all of them.
+     */
+    private static void runPipelined(final ReplicatedStateMachineClient client, final long firstValue, final int count)
+            throws InterruptedException {
+        final AtomicLong responses = new AtomicLong();
+        final ResponseListener listener = (context, value, nodeId) -> responses.incrementAndGet();
+        for (int i = 1; i <= count; i++) {
+            client.setValueAsync(firstValue + i, listener, i);
+        }
+
+        while (responses.get() < count) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+    }
+}
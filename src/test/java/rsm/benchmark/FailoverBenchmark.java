@@ -0,0 +1,171 @@
+package rsm.benchmark;
+
+import io.aeron.cluster.service.Cluster;
+import org.HdrHistogram.Histogram;
+import rsm.client.BackPressureException;
+import rsm.client.ClientConfig;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.common.ClusterNodeConfig;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how long the cluster is unavailable to a client under steady load when the leader is killed.
+ * <p>
+ * Each iteration starts a fresh localhost cluster, runs a client issuing back to back SETs, stops the leader and
+ * records:
+ * <ul>
+ *     <li>unavailability - from the leader being killed to the client's first successful SET afterwards; SETs the
+ *     client rejects with a {@link BackPressureException} in between count as unavailable time</li>
+ *     <li>election - from the leader being killed to one of the remaining nodes becoming leader</li>
+ *     <li>reconnect - from the leader being killed to the client being directed to the new leader</li>
+ * </ul>
+ * Configured with system properties:
+ * <ul>
+ *     <li>{@code rsm.benchmark.iterations} - number of failovers to measure, default 5</li>
+ *     <li>{@code rsm.benchmark.nodes} - cluster size, default 3</li>
+ *     <li>{@code rsm.benchmark.fastReconnect} - use the fast-reconnect client mode, default true</li>
+ *     <li>{@code rsm.benchmark.leaderHeartbeatTimeoutMs} - consensus leader heartbeat timeout, default 2000</li>
+ *     <li>{@code rsm.benchmark.electionTimeoutMs} - consensus election timeout, default 1000</li>
+ * </ul>
+ */
+public class FailoverBenchmark {
+
+    public static final String LOCALHOST = "localhost";
+    private static final long HIGHEST_TRACKABLE_VALUE_NS = TimeUnit.MINUTES.toNanos(5);
+    private static final long LEADER_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(60);
+
+    private final int nodeCount = Integer.getInteger("rsm.benchmark.nodes", 3);
+    private final boolean fastReconnect = Boolean.parseBoolean(System.getProperty("rsm.benchmark.fastReconnect", "true"));
+    private final long leaderHeartbeatTimeoutNs = TimeUnit.MILLISECONDS.toNanos(Long.getLong("rsm.benchmark.leaderHeartbeatTimeoutMs", 2000));
+    private final long electionTimeoutNs = TimeUnit.MILLISECONDS.toNanos(Long.getLong("rsm.benchmark.electionTimeoutMs", 1000));
+
+    private final Histogram unavailabilityHistogram = new Histogram(HIGHEST_TRACKABLE_VALUE_NS, 3);
+    private final Histogram electionHistogram = new Histogram(HIGHEST_TRACKABLE_VALUE_NS, 3);
+    private final Histogram reconnectHistogram = new Histogram(HIGHEST_TRACKABLE_VALUE_NS, 3);
+    private final AtomicLong rejectedRequests = new AtomicLong();
+
+    public static void main(final String[] args) throws InterruptedException {
+        final FailoverBenchmark benchmark = new FailoverBenchmark();
+        final int iterations = Integer.getInteger("rsm.benchmark.iterations", 5);
+
+        for (int i = 0; i < iterations; i++) {
+            System.out.println("Failover iteration " + (i + 1) + " of " + iterations);
+            benchmark.runIteration();
+        }
+
+        benchmark.report();
+    }
+
+    private void runIteration() throws InterruptedException {
+        final List<String> hostnames = Collections.nCopies(nodeCount, LOCALHOST);
+        final List<ReplicatedStateMachineClusterNode> nodes = new ArrayList<>();
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+            final ClusterNodeConfig config = ClusterNodeConfig.create(nodeId, hostnames, new ReplicatedStateMachineClusteredService());
+            config.consensusModuleContext()
+                    .leaderHeartbeatTimeoutNs(leaderHeartbeatTimeoutNs)
+                    .electionTimeoutNs(electionTimeoutNs);
+            nodes.add(new ReplicatedStateMachineClusterNode(config));
+        }
+
+        nodes.forEach(ReplicatedStateMachineClusterNode::start);
+        final ReplicatedStateMachineClusterNode leader = awaitLeader(nodes);
+
+        final ClientConfig clientConfig = fastReconnect ? ClientConfig.fastReconnectConfig() : new ClientConfig();
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(LOCALHOST, hostnames, clientConfig);
+        client.start();
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong killTimeNs = new AtomicLong(Long.MAX_VALUE);
+        final AtomicLong firstSuccessAfterKillNs = new AtomicLong();
+        final Thread loadThread = new Thread(() -> {
+            long value = 0;
+            while (running.get()) {
+                try {
+                    client.setValue(++value);
+                } catch (final BackPressureException ex) {
+                    rejectedRequests.incrementAndGet();
+                    continue;
+                }
+
+                final long nowNs = System.nanoTime();
+                if (nowNs > killTimeNs.get()) {
+                    firstSuccessAfterKillNs.compareAndSet(0L, nowNs);
+                }
+            }
+        }, "failover-load");
+        loadThread.start();
+
+        TimeUnit.SECONDS.sleep(1);
+
+        final long killedAtNs = System.nanoTime();
+        killTimeNs.set(killedAtNs);
+        leader.stop();
+
+        final List<ReplicatedStateMachineClusterNode> survivors = new ArrayList<>(nodes);
+        survivors.remove(leader);
+        awaitLeader(survivors);
+        electionHistogram.recordValue(System.nanoTime() - killedAtNs);
+
+        while (firstSuccessAfterKillNs.get() == 0L) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        unavailabilityHistogram.recordValue(firstSuccessAfterKillNs.get() - killedAtNs);
+
+        final long redirectedAtNs = Math.max(client.getLastNewLeaderTimeNs(), client.getLastReconnectTimeNs());
+        if (redirectedAtNs > killedAtNs) {
+            reconnectHistogram.recordValue(redirectedAtNs - killedAtNs);
+        }
+
+        running.set(false);
+        loadThread.join();
+        client.stop();
+        survivors.forEach(ReplicatedStateMachineClusterNode::stop);
+    }
+
+    static ReplicatedStateMachineClusterNode awaitLeader(final List<ReplicatedStateMachineClusterNode> nodes)
+            throws InterruptedException {
+        final long deadlineNs = System.nanoTime() + LEADER_TIMEOUT_NS;
+        while (System.nanoTime() < deadlineNs) {
+            final Optional<ReplicatedStateMachineClusterNode> leader = nodes.stream()
+                    .filter(node -> node.getRole() == Cluster.Role.LEADER)
+                    .findFirst();
+
+            if (leader.isPresent()) {
+                return leader.get();
+            }
+
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+
+        throw new IllegalStateException("No leader elected within " + TimeUnit.NANOSECONDS.toSeconds(LEADER_TIMEOUT_NS) + "s");
+    }
+
+    private void report() {
+        System.out.println("Nodes: " + nodeCount + ", fast reconnect: " + fastReconnect
+                + ", leader heartbeat timeout: " + TimeUnit.NANOSECONDS.toMillis(leaderHeartbeatTimeoutNs) + "ms"
+                + ", election timeout: " + TimeUnit.NANOSECONDS.toMillis(electionTimeoutNs) + "ms"
+                + ", rejected requests: " + rejectedRequests.get());
+        printHistogram("Unavailability", unavailabilityHistogram);
+        printHistogram("Election", electionHistogram);
+        printHistogram("Client reconnect", reconnectHistogram);
+    }
+
+    static void printHistogram(final String name, final Histogram histogram) {
+        System.out.printf("%-18s count=%d min=%.3fms p50=%.3fms p99=%.3fms max=%.3fms%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getMinValue() / 1e6,
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getMaxValue() / 1e6);
+    }
+}
@@ -0,0 +1,120 @@
+package rsm.benchmark;
+
+import rsm.client.ClientConfig;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.client.ReplicatedStateMachineClientPool;
+import rsm.common.ClusterNodeConfig;
+import rsm.gateway.BinaryGateway;
+import rsm.gateway.BinaryGatewayClient;
+import rsm.gateway.HttpGateway;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares SET throughput through the HTTP/JSON gateway with the binary TCP gateway against a single local node.
+ * <p>
+ * Configured with system properties:
+ * <ul>
+ *     <li>{@code rsm.benchmark.requests} - number of SETs per gateway, default 20000</li>
+ *     <li>{@code rsm.benchmark.window} - requests pipelined on the binary connection, default 64</li>
+ *     <li>{@code rsm.benchmark.httpConcurrency} - concurrent HTTP requests, default 64</li>
+ *     <li>{@code rsm.benchmark.httpSessions} - cluster sessions in the HTTP gateway's pool, default 1</li>
+ * </ul>
+ */
+public class GatewayThroughputBenchmark {
+
+    public static final String LOCALHOST = "localhost";
+
+    private static final int REQUESTS = Integer.getInteger("rsm.benchmark.requests", 20_000);
+    private static final int WINDOW = Integer.getInteger("rsm.benchmark.window", 64);
+    private static final int HTTP_CONCURRENCY = Integer.getInteger("rsm.benchmark.httpConcurrency", 64);
+    private static final int HTTP_SESSIONS = Integer.getInteger("rsm.benchmark.httpSessions", 1);
+
+    public static void main(final String[] args) throws Exception {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(ClusterNodeConfig.create(
+                0,
+                Collections.singletonList(LOCALHOST),
+                new ReplicatedStateMachineClusteredService()));
+        clusterNode.start();
+
+        final double binaryThroughput = runBinary();
+        final double httpThroughput = runHttp();
+
+        System.out.printf("Binary gateway: %,.0f SET/s (window %d)%n", binaryThroughput, WINDOW);
+        System.out.printf("HTTP gateway:   %,.0f SET/s (concurrency %d, sessions %d)%n", httpThroughput, HTTP_CONCURRENCY, HTTP_SESSIONS);
+        System.out.printf("Binary/HTTP:    %.1fx%n", binaryThroughput / httpThroughput);
+
+        clusterNode.stop();
+        System.exit(0);
+    }
+
+    private static double runBinary() throws Exception {
+        final BinaryGateway binaryGateway = new BinaryGateway(
+                new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST), BinaryGateway.clientConfig()));
+        binaryGateway.start();
+
+        final double throughput;
+        try (BinaryGatewayClient client = new BinaryGatewayClient(LOCALHOST, BinaryGateway.DEFAULT_PORT)) {
+            final long[] received = new long[1];
+            int sent = 0;
+            final long startNs = System.nanoTime();
+            while (received[0] < REQUESTS) {
+                while (sent < REQUESTS && sent - received[0] < WINDOW) {
+                    client.sendSet(++sent);
+                }
+                client.flush();
+                client.receive((requestId, status, value, nodeId) -> received[0]++);
+            }
+            throughput = REQUESTS / ((System.nanoTime() - startNs) / 1e9);
+        }
+
+        binaryGateway.close();
+        return throughput;
+    }
+
+    private static double runHttp() throws Exception {
+        final HttpGateway httpGateway = new HttpGateway(ReplicatedStateMachineClientPool.create(
+                LOCALHOST, List.of(LOCALHOST), HTTP_SESSIONS, new ClientConfig()));
+        httpGateway.start();
+
+        final HttpClient httpClient = HttpClient.newHttpClient();
+        final ExecutorService executor = Executors.newFixedThreadPool(HTTP_CONCURRENCY);
+        final AtomicLong nextValue = new AtomicLong();
+        final List<Future<?>> workers = new ArrayList<>();
+
+        final long startNs = System.nanoTime();
+        for (int i = 0; i < HTTP_CONCURRENCY; i++) {
+            workers.add(executor.submit(() -> {
+                long value;
+                while ((value = nextValue.incrementAndGet()) <= REQUESTS) {
+                    final HttpRequest request = HttpRequest.newBuilder()
+                            .uri(URI.create("http://localhost:8080/value"))
+                            .PUT(HttpRequest.BodyPublishers.ofString("{\"value\":" + value + "}"))
+                            .build();
+                    httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                }
+                return null;
+            }));
+        }
+        for (final Future<?> worker : workers) {
+            worker.get();
+        }
+        final double throughput = REQUESTS / ((System.nanoTime() - startNs) / 1e9);
+
+        executor.shutdown();
+        httpGateway.close();
+        return throughput;
+    }
+}
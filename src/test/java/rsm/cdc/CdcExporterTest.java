@@ -0,0 +1,120 @@
+package rsm.cdc;
+
+import io.aeron.cluster.service.Cluster;
+import org.agrona.IoUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.common.ClusterNodeConfig;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CdcExporterTest {
+
+    public static final String LOCALHOST = "localhost";
+    public static final List<String> CLUSTER_NODE_HOSTNAMES = List.of(LOCALHOST, LOCALHOST, LOCALHOST);
+
+    private final List<ReplicatedStateMachineClusterNode> nodes = new ArrayList<>();
+    private final File outputDir = new File(IoUtil.tmpDirName(), "rsm-cdc-test");
+    private ReplicatedStateMachineClient client;
+
+    @BeforeEach
+    void setUp() {
+        IoUtil.delete(outputDir, true);
+        for (int nodeId = 0; nodeId < CLUSTER_NODE_HOSTNAMES.size(); nodeId++) {
+            final ReplicatedStateMachineClusterNode node = new ReplicatedStateMachineClusterNode(ClusterNodeConfig.create(
+                    nodeId, CLUSTER_NODE_HOSTNAMES, new ReplicatedStateMachineClusteredService()));
+            node.start();
+            nodes.add(node);
+        }
+
+        await().timeout(20, TimeUnit.SECONDS)
+                .until(() -> nodes.stream().anyMatch(node -> node.getRole() == Cluster.Role.LEADER));
+
+        client = new ReplicatedStateMachineClient(LOCALHOST, CLUSTER_NODE_HOSTNAMES);
+        client.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.stop();
+        nodes.forEach(ReplicatedStateMachineClusterNode::stop);
+        IoUtil.delete(outputDir, true);
+    }
+
+    @Test
+    void shouldExportCommittedSetsOnceAcrossRestarts() {
+        final int followerId = nodes.stream()
+                .filter(node -> node.getRole() == Cluster.Role.FOLLOWER)
+                .findFirst()
+                .orElseThrow()
+                .getClusterMemberId();
+
+        for (int i = 1; i <= 50; i++) {
+            client.setValue(i);
+        }
+        client.getValue();
+        exportUntil(followerId, 50);
+
+        for (int i = 51; i <= 60; i++) {
+            client.setValue(i);
+        }
+        exportUntil(followerId, 60);
+
+        final List<Long> values = readValues();
+        assertEquals(60, values.size());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(i + 1, values.get(i));
+        }
+    }
+
+    @Test
+    void shouldExportExpiriesAsDeleteRecords() {
+        final int followerId = nodes.stream()
+                .filter(node -> node.getRole() == Cluster.Role.FOLLOWER)
+                .findFirst()
+                .orElseThrow()
+                .getClusterMemberId();
+
+        client.setValue(7, 200);
+        await().timeout(20, TimeUnit.SECONDS).until(() -> client.getValue() == 0L);
+        exportUntil(followerId, 2);
+
+        assertEquals(List.of(CdcSegments.WRITE_RECORD, CdcSegments.EXPIRY_RECORD), readTypes());
+        assertEquals(List.of(7L, 0L), readValues());
+    }
+
+    private void exportUntil(final int nodeId, final int expectedRecords) {
+        try (CdcExporter cdcExporter = new CdcExporter(nodeId, outputDir, 16 * CdcSegments.RECORD_LENGTH)) {
+            cdcExporter.start();
+            await().timeout(20, TimeUnit.SECONDS).until(() -> readValues().size() == expectedRecords);
+        }
+    }
+
+    private List<Long> readValues() {
+        final List<Long> values = new ArrayList<>();
+        try (CdcSegmentReader reader = new CdcSegmentReader(outputDir)) {
+            while (reader.poll((logPosition, timestamp, type, key, value) -> values.add(value), 100) > 0) {
+            }
+        }
+        return values;
+    }
+
+    private List<Integer> readTypes() {
+        final List<Integer> types = new ArrayList<>();
+        try (CdcSegmentReader reader = new CdcSegmentReader(outputDir)) {
+            while (reader.poll((logPosition, timestamp, type, key, value) -> types.add(type), 100) > 0) {
+            }
+        }
+        return types;
+    }
+}
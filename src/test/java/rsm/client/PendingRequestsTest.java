@@ -0,0 +1,73 @@
+package rsm.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PendingRequestsTest {
+
+    @Test
+    void shouldLimitTheNumberOfRequestsInFlight() {
+        final PendingRequests pendingRequests = new PendingRequests(3);
+
+        assertEquals(1L, pendingRequests.tryClaimNext(null, 0L));
+        assertEquals(2L, pendingRequests.tryClaimNext(null, 0L));
+        assertEquals(3L, pendingRequests.tryClaimNext(null, 0L));
+        assertEquals(PendingRequests.NULL_REQUEST_ID, pendingRequests.tryClaimNext(null, 0L));
+
+        pendingRequests.release(1L);
+
+        assertEquals(4L, pendingRequests.tryClaimNext(null, 0L));
+        assertEquals(3, pendingRequests.inFlightCount());
+    }
+
+    @Test
+    void shouldTakeTheNextRequestIdOnlyWhenTheSlotIsClaimed() {
+        final PendingRequests pendingRequests = new PendingRequests(2);
+
+        assertEquals(1L, pendingRequests.tryClaimNext(null, 0L));
+        assertEquals(2L, pendingRequests.tryClaimNext(null, 0L));
+        assertEquals(PendingRequests.NULL_REQUEST_ID, pendingRequests.tryClaimNext(null, 0L));
+
+        pendingRequests.release(2L);
+        assertEquals(PendingRequests.NULL_REQUEST_ID, pendingRequests.tryClaimNext(null, 0L));
+
+        pendingRequests.release(1L);
+        assertEquals(3L, pendingRequests.tryClaimNext(null, 0L));
+        assertNotNull(pendingRequests.encodedRequest(3L));
+    }
+
+    @Test
+    void shouldCompleteOnlyPendingRequests() {
+        final PendingRequests pendingRequests = new PendingRequests(4);
+        pendingRequests.tryClaimNext(null, 0L);
+
+        assertTrue(pendingRequests.complete(1L, 10L, 2));
+        assertFalse(pendingRequests.complete(1L, 11L, 2));
+        assertFalse(pendingRequests.complete(5L, 12L, 2));
+
+        assertTrue(pendingRequests.isCompleted(1L));
+        assertEquals(10L, pendingRequests.responseValue(1L));
+        assertEquals(2, pendingRequests.responseNodeId(1L));
+    }
+
+    @Test
+    void shouldVisitCommittedPendingRequestsInOrder() {
+        final PendingRequests pendingRequests = new PendingRequests(4);
+        for (long requestId = 1; requestId <= 4; requestId++) {
+            pendingRequests.tryClaimNext(null, 0L);
+        }
+        pendingRequests.commit(4L, 8);
+        pendingRequests.commit(2L, 8);
+        pendingRequests.commit(3L, 8);
+        pendingRequests.complete(3L, 0L, 0);
+
+        final List<Long> requestIds = new ArrayList<>();
+        pendingRequests.forEachPending((requestId, encodedRequest, length) -> requestIds.add(requestId));
+
+        assertEquals(List.of(2L, 4L), requestIds);
+    }
+}
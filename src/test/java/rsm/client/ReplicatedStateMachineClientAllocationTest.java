@@ -0,0 +1,60 @@
+package rsm.client;
+
+import org.junit.jupiter.api.Test;
+import rsm.common.AllocationMeter;
+import rsm.common.ClusterNodeConfig;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicatedStateMachineClientAllocationTest {
+
+    public static final String LOCALHOST = "localhost";
+
+    /**
+     * Bytes the calling thread may allocate over a measured window. With a live cluster the calling thread can run
+     * rare session maintenance, such as a keep alive, while it offers, so an exact zero would be flaky. The tolerance is
+     * well below one allocation per request in either window, so an allocation on the request path still fails.
+     */
+    private static final long TOLERATED_ALLOCATED_BYTES = 1024L;
+
+    /**
+     * Sends requests from the calling thread, which encodes them into the in-flight window and decodes whatever
+     * responses it polls while offering them.
+     */
+    @Test
+    void shouldSendRequestsAndReceiveResponsesWithoutAllocating() {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(ClusterNodeConfig.create(
+                0,
+                Collections.singletonList(LOCALHOST),
+                new ReplicatedStateMachineClusteredService()));
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST));
+        final AtomicLong responses = new AtomicLong();
+        final ResponseListener listener = (context, value, nodeId) -> responses.incrementAndGet();
+
+        clusterNode.start();
+        client.start();
+
+        final long asyncAllocatedBytes = AllocationMeter.allocatedBytes(20_000, 10_000, iteration -> {
+            client.setValueAsync(iteration, listener, iteration);
+            client.getValueAsync(listener, iteration);
+        });
+        await().until(() -> responses.get() == 60_000L);
+
+        final long syncAllocatedBytes = AllocationMeter.allocatedBytes(2_000, 2_000, iteration -> client.getValue());
+
+        assertTrue(asyncAllocatedBytes <= TOLERATED_ALLOCATED_BYTES, "Async requests allocated " + asyncAllocatedBytes);
+        assertTrue(syncAllocatedBytes <= TOLERATED_ALLOCATED_BYTES, "Sync requests allocated " + syncAllocatedBytes);
+        assertEquals(29_999L, client.getValue());
+
+        client.stop();
+        clusterNode.stop();
+    }
+}
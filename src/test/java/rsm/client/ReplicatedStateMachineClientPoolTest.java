@@ -0,0 +1,54 @@
+package rsm.client;
+
+import org.junit.jupiter.api.Test;
+import rsm.common.ClusterNodeConfig;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplicatedStateMachineClientPoolTest {
+
+    private static final Supplier<ClusterNodeConfig> SINGLE_NODE_CONFIG = () -> ClusterNodeConfig.create(
+            0,
+            Collections.singletonList("localhost"),
+            new ReplicatedStateMachineClusteredService());
+
+    public static final String LOCALHOST = "localhost";
+
+    @Test
+    void shouldSpreadRequestsAcrossSessions() throws InterruptedException {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(SINGLE_NODE_CONFIG.get());
+        final ReplicatedStateMachineClientPool clientPool = ReplicatedStateMachineClientPool.create(
+                LOCALHOST, List.of(LOCALHOST), 3, new ClientConfig());
+
+        clusterNode.start();
+        clientPool.start();
+
+        final int requests = 300;
+        final CountDownLatch responses = new CountDownLatch(requests);
+        final Set<Long> clientIds = new HashSet<>();
+        for (int i = 0; i < requests; i++) {
+            final ReplicatedStateMachineClient client = clientPool.next();
+            clientIds.add(client.getClientId());
+            client.setValueAsync(i, (context, value, nodeId) -> responses.countDown(), i);
+        }
+
+        assertTrue(responses.await(30, TimeUnit.SECONDS));
+        assertEquals(3, clientIds.size());
+        final long value = clientPool.next().getValue();
+        assertTrue(value >= 0 && value < requests);
+
+        clientPool.stop();
+        clusterNode.stop();
+    }
+}
@@ -1,15 +1,21 @@
 package rsm.client;
 
+import org.agrona.collections.LongArrayList;
 import org.junit.jupiter.api.Test;
 import rsm.common.ClusterNodeConfig;
+import rsm.node.ReplicatedStateMachine;
 import rsm.node.ReplicatedStateMachineClusterNode;
 import rsm.node.ReplicatedStateMachineClusteredService;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ReplicatedStateMachineClientTest {
 
@@ -65,4 +71,188 @@ public class ReplicatedStateMachineClientTest {
         clusterNode.stop();
         client.stop();
     }
+
+    @Test
+    void shouldReturnTheReplyingNodeWithTheValue() {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(SINGLE_NODE_CONFIG.get());
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST));
+
+        clusterNode.start();
+        client.start();
+
+        final ValueResult setResult = client.setValueResult(7L);
+        final ValueResult getResult = client.getValueResult();
+
+        assertEquals(7L, setResult.value());
+        assertEquals(7L, getResult.value());
+        assertEquals(0, setResult.nodeId());
+        assertEquals(0, getResult.nodeId());
+
+        clusterNode.stop();
+        client.stop();
+    }
+
+    @Test
+    void shouldSetAndGetBytesValue() {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(SINGLE_NODE_CONFIG.get());
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(
+                LOCALHOST, List.of(LOCALHOST), new ClientConfig().tracing(true));
+
+        clusterNode.start();
+        client.start();
+
+        assertArrayEquals(new byte[0], client.getBytesValue(1L));
+
+        final byte[] smallValue = "session-token".getBytes();
+        assertArrayEquals(smallValue, client.setBytesValue(1L, smallValue));
+        assertArrayEquals(smallValue, client.getBytesValue(1L));
+
+        final byte[] largeValue = new byte[4000];
+        for (int i = 0; i < largeValue.length; i++) {
+            largeValue[i] = (byte) i;
+        }
+        assertArrayEquals(largeValue, client.setBytesValue(1L, largeValue));
+        assertArrayEquals(largeValue, client.getBytesValue(1L));
+        assertEquals(0L, client.getValue());
+
+        final byte[] keyedValue = "profile".getBytes();
+        assertArrayEquals(keyedValue, client.setBytesValue(17L, keyedValue));
+        assertArrayEquals(keyedValue, client.getBytesValue(17L));
+        assertArrayEquals(new byte[0], client.getBytesValue(18L));
+        assertArrayEquals(largeValue, client.getBytesValue(1L));
+
+        clusterNode.stop();
+        client.stop();
+    }
+
+    @Test
+    void shouldCommitTransactionsWhosePreconditionsHoldAndAbortTheRest() {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(SINGLE_NODE_CONFIG.get());
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST));
+
+        clusterNode.start();
+        client.start();
+
+        final TransactionResult transfer = client.transact(new Transaction()
+                .expectVersion(1L, 0L)
+                .expectVersion(2L, 0L)
+                .write(1L, 60L)
+                .write(2L, 40L));
+        assertTrue(transfer.isCommitted());
+        assertEquals(4, transfer.entryCount());
+        assertEquals(60L, transfer.value(2));
+        assertEquals(1L, transfer.version(3));
+
+        final TransactionResult staleTransfer = client.transact(new Transaction()
+                .expectValue(1L, 60L)
+                .expectVersion(2L, 0L)
+                .write(1L, 50L)
+                .write(2L, 50L));
+        assertEquals(TransactionResult.Outcome.ABORTED, staleTransfer.outcome());
+        assertEquals(1, staleTransfer.failedPreconditionIndex());
+        assertEquals(60L, staleTransfer.value(2));
+
+        final TransactionResult read = client.transact(new Transaction().read(1L).read(2L).read(ReplicatedStateMachine.DEFAULT_KEY));
+        assertTrue(read.isCommitted());
+        assertEquals(100L, read.value(0) + read.value(1));
+        assertEquals(0L, read.version(2));
+
+        client.setValue(9L);
+        assertTrue(client.transact(new Transaction().expectValue(ReplicatedStateMachine.DEFAULT_KEY, 9L).write(3L, 1L)).isCommitted());
+
+        clusterNode.stop();
+        client.stop();
+    }
+
+    @Test
+    void shouldScanKeysInRangeAPageAtATime() {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(SINGLE_NODE_CONFIG.get());
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST));
+
+        clusterNode.start();
+        client.start();
+
+        for (int i = 0; i < 3; i++) {
+            final Transaction transaction = new Transaction();
+            for (long key = 1000L + i * 200; key < 1200L + i * 200; key++) {
+                transaction.write(key, key * 2);
+            }
+            assertTrue(client.transact(transaction).isCommitted());
+        }
+
+        final RangePage page = client.rangePage(1100L, 1500L, 10);
+        assertEquals(10, page.entryCount());
+        assertEquals(1100L, page.key(0));
+        assertEquals(2218L, page.value(9));
+        assertEquals(1L, page.version(9));
+        assertTrue(page.hasMore());
+        assertEquals(1110L, page.nextKey());
+
+        final LongArrayList keys = new LongArrayList();
+        assertEquals(550L, client.range(1050L, 1600L, (key, value, version) -> keys.addLong(key)));
+        assertEquals(1050L, keys.getLong(0));
+        assertEquals(1599L, keys.getLong(keys.size() - 1));
+
+        assertFalse(client.rangePage(2000L, 3000L, 10).hasMore());
+        assertEquals(0, client.rangePage(2000L, 3000L, 10).entryCount());
+
+        clusterNode.stop();
+        client.stop();
+    }
+
+    @Test
+    void shouldApplyEveryWriteOfThreadsSharingTheClient() throws InterruptedException {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(SINGLE_NODE_CONFIG.get());
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST));
+        final int threadCount = 8;
+        final int writesPerThread = 500;
+
+        clusterNode.start();
+        client.start();
+
+        final AtomicInteger committed = new AtomicInteger();
+        final Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final long firstKey = (long) t * writesPerThread;
+            threads[t] = new Thread(() -> {
+                for (long key = firstKey; key < firstKey + writesPerThread; key++) {
+                    if (client.transact(new Transaction().write(key, key)).isCommitted()) {
+                        committed.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(threadCount * writesPerThread, committed.get());
+        assertEquals(threadCount * writesPerThread, client.range(0L, (long) threadCount * writesPerThread,
+                (key, value, version) -> assertEquals(key, value)));
+
+        clusterNode.stop();
+        client.stop();
+    }
+
+    @Test
+    void shouldRecordPerHopLatenciesOfTracedRequests() {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(SINGLE_NODE_CONFIG.get());
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(
+                LOCALHOST, List.of(LOCALHOST), new ClientConfig().tracing(true));
+
+        clusterNode.start();
+        client.start();
+
+        client.setValue(7L);
+        final long actualValue = client.getValue();
+
+        assertEquals(7L, actualValue);
+        assertEquals(2L, client.getTraceHistograms().ingressToLog().getTotalCount());
+        assertEquals(2L, client.getTraceHistograms().logToApply().getTotalCount());
+        assertEquals(2L, client.getTraceHistograms().applyToEgressReceipt().getTotalCount());
+
+        clusterNode.stop();
+        client.stop();
+    }
 }
@@ -0,0 +1,55 @@
+package rsm.common;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes the calling thread allocates on the heap while it runs an operation repeatedly, after running it
+ * enough times to initialise lazily created state, load classes and link call sites.
+ * <p>
+ * The measuring loop is itself run once with an empty operation when the class is initialised, as the first
+ * compilation of the loop allocates a few bytes that would otherwise be attributed to the first measurement.
+ */
+public final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final int CALIBRATION_ITERATIONS = 100_000;
+
+    static {
+        if (!THREAD_MX_BEAN.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("Thread allocated memory measurement is not supported by this JVM");
+        }
+        THREAD_MX_BEAN.setThreadAllocatedMemoryEnabled(true);
+        allocatedBytes(CALIBRATION_ITERATIONS, CALIBRATION_ITERATIONS, iteration -> {});
+    }
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * Runs an operation for a number of warm-up iterations and then for a number of measured iterations.
+     *
+     * @param warmupIterations   run before measuring.
+     * @param measuredIterations run while measuring.
+     * @param operation          to run, passed the index of each iteration counting warm-up iterations.
+     * @return the bytes allocated by the calling thread during the measured iterations.
+     */
+    public static long allocatedBytes(final int warmupIterations, final int measuredIterations, final Operation operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.run(i);
+        }
+
+        final long startBytes = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < measuredIterations; i++) {
+            operation.run(warmupIterations + i);
+        }
+
+        return THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - startBytes;
+    }
+
+    @FunctionalInterface
+    public interface Operation {
+        void run(int iteration);
+    }
+}
@@ -0,0 +1,35 @@
+package rsm.gateway;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+import rsm.common.AllocationMeter;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static rsm.gateway.BinaryGatewayCodec.*;
+
+class BinaryGatewayCodecAllocationTest {
+
+    private final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+    private long checksum;
+
+    @Test
+    void shouldEncodeAndFrameMessagesWithoutAllocating() {
+        final long allocatedBytes = AllocationMeter.allocatedBytes(100_000, 100_000, iteration -> {
+            int offset = encodeGetRequest(buffer, 0, iteration);
+            offset += encodeSetRequest(buffer, offset, iteration, -iteration);
+            offset += encodeResponse(buffer, offset, iteration, STATUS_OK, iteration, 1);
+
+            int frameOffset = 0;
+            int frameLength;
+            while ((frameLength = completeFrameLength(buffer, frameOffset, offset - frameOffset)) > 0) {
+                checksum += buffer.getLong(frameOffset + LENGTH_FIELD_LENGTH + REQUEST_ID_OFFSET, BYTE_ORDER);
+                frameOffset += frameLength;
+            }
+        });
+
+        assertEquals(0L, allocatedBytes);
+        assertEquals(3L * (200_000L * 199_999L / 2), checksum);
+    }
+}
@@ -0,0 +1,133 @@
+package rsm.gateway;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.common.ClusterNodeConfig;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryGatewayTest {
+
+    public static final String LOCALHOST = "localhost";
+    private static final int RESPONSE_FRAME_LENGTH = BinaryGatewayCodec.LENGTH_FIELD_LENGTH + BinaryGatewayCodec.RESPONSE_LENGTH;
+
+    private ReplicatedStateMachineClusterNode clusterNode;
+    private BinaryGateway binaryGateway;
+    private BinaryGatewayClient binaryGatewayClient;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        clusterNode = new ReplicatedStateMachineClusterNode(ClusterNodeConfig.create(
+                0,
+                Collections.singletonList(LOCALHOST),
+                new ReplicatedStateMachineClusteredService()));
+        clusterNode.start();
+
+        binaryGateway = new BinaryGateway(
+                new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST), BinaryGateway.clientConfig()));
+        binaryGateway.start();
+
+        binaryGatewayClient = new BinaryGatewayClient(LOCALHOST, BinaryGateway.DEFAULT_PORT);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        binaryGatewayClient.close();
+        binaryGateway.close();
+        clusterNode.stop();
+    }
+
+    @Test
+    public void shouldRetrieveTheInitialValue() throws IOException {
+        assertEquals(0L, binaryGatewayClient.getValue());
+    }
+
+    @Test
+    public void shouldSetAndRetrieveUpdatedValue() throws IOException {
+        assertEquals(10101L, binaryGatewayClient.setValue(10101L));
+        assertEquals(10101L, binaryGatewayClient.getValue());
+    }
+
+    @Test
+    public void shouldAnswerPipelinedRequests() throws IOException {
+        final int requestCount = 100;
+        final Set<Long> requestIds = new HashSet<>();
+        for (int i = 1; i <= requestCount; i++) {
+            binaryGatewayClient.sendSet(i);
+        }
+        binaryGatewayClient.flush();
+
+        while (requestIds.size() < requestCount) {
+            binaryGatewayClient.receive((requestId, status, value, nodeId) -> {
+                assertEquals(BinaryGatewayCodec.STATUS_OK, status);
+                requestIds.add(requestId);
+            });
+        }
+
+        assertEquals(requestCount, binaryGatewayClient.getValue());
+    }
+
+    @Test
+    public void shouldCloseTheConnectionOnAFrameOfInvalidLength() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(LOCALHOST, BinaryGateway.DEFAULT_PORT))) {
+            final ByteBuffer frame = ByteBuffer.allocate(BinaryGatewayCodec.LENGTH_FIELD_LENGTH)
+                    .order(BinaryGatewayCodec.BYTE_ORDER)
+                    .putInt(0, -1);
+            channel.write(frame);
+
+            assertEquals(-1, channel.read(ByteBuffer.allocate(BinaryGatewayCodec.LENGTH_FIELD_LENGTH)));
+        }
+    }
+
+    @Test
+    public void shouldStopReadingAConnectionWhosePeerDoesNotReadItsResponses() throws Exception {
+        final int requestCount = 3 * BinaryGateway.MAX_OUTBOUND_CAPACITY / RESPONSE_FRAME_LENGTH;
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(LOCALHOST, BinaryGateway.DEFAULT_PORT))) {
+            final Thread writer = new Thread(() -> {
+                final int requestFrameLength = BinaryGatewayCodec.LENGTH_FIELD_LENGTH + BinaryGatewayCodec.GET_REQUEST_LENGTH;
+                final ByteBuffer requests = ByteBuffer.allocate(requestCount * requestFrameLength)
+                        .order(BinaryGatewayCodec.BYTE_ORDER);
+                for (int i = 0; i < requestCount; i++) {
+                    requests.putInt(BinaryGatewayCodec.GET_REQUEST_LENGTH).putLong(i).put((byte) 'X');
+                }
+                requests.flip();
+                try {
+                    while (requests.hasRemaining()) {
+                        channel.write(requests);
+                    }
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.start();
+            Thread.sleep(500);
+
+            final ByteBuffer responses = ByteBuffer.allocate(requestCount * RESPONSE_FRAME_LENGTH)
+                    .order(BinaryGatewayCodec.BYTE_ORDER);
+            while (responses.hasRemaining()) {
+                assertTrue(channel.read(responses) >= 0, "Connection closed");
+            }
+            writer.join();
+
+            for (int i = 0; i < requestCount; i++) {
+                assertEquals(BinaryGatewayCodec.STATUS_BAD_REQUEST, responses.get(i * RESPONSE_FRAME_LENGTH +
+                        BinaryGatewayCodec.LENGTH_FIELD_LENGTH + BinaryGatewayCodec.RESPONSE_STATUS_OFFSET));
+            }
+        }
+    }
+}
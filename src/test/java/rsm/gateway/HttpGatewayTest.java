@@ -16,12 +16,15 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 public class HttpGatewayTest {
 
@@ -73,6 +76,56 @@ public class HttpGatewayTest {
         assertEquals(newValue, valueResponse.getValue());
     }
 
+    @Test
+    public void shouldStreamBulkResultsInRequestOrder() throws IOException, InterruptedException {
+        final String body = "{\"op\":\"set\",\"value\":5}\n{\"op\":\"get\"}\n{\"op\":\"delete\"}\n{\"op\":\"set\",\"value\":7}\n";
+
+        final List<Map<?, ?>> results = bulk(body);
+
+        assertEquals(4, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, ((Number) results.get(i).get("index")).intValue());
+        }
+        assertEquals(5, ((Number) results.get(0).get("value")).longValue());
+        assertEquals(5, ((Number) results.get(1).get("value")).longValue());
+        assertEquals("BAD_REQUEST", results.get(2).get("error"));
+        assertEquals(7, ((Number) results.get(3).get("value")).longValue());
+    }
+
+    @Test
+    public void shouldAcceptBulkOperationsAsJsonArray() throws IOException, InterruptedException {
+        final StringBuilder body = new StringBuilder("[");
+        for (int i = 1; i <= 1000; i++) {
+            body.append(i > 1 ? "," : "").append("{\"op\":\"set\",\"value\":").append(i).append('}');
+        }
+        body.append(']');
+
+        final List<Map<?, ?>> results = bulk(body.toString());
+
+        assertEquals(1000, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertFalse(results.get(i).containsKey("error"));
+            assertEquals(i + 1, ((Number) results.get(i).get("value")).longValue());
+        }
+        assertEquals(1000L, getValue().getValue());
+    }
+
+    private List<Map<?, ?>> bulk(final String body) throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/values/bulk"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        final HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+
+        final List<Map<?, ?>> results = new ArrayList<>();
+        for (final String line : (Iterable<String>) response.body()::iterator) {
+            results.add(objectMapper.readValue(line, Map.class));
+        }
+        return results;
+    }
+
     private ValueResponse setValue(long newValue) throws IOException, InterruptedException {
         final SetValueRequest setValueRequest = new SetValueRequest();
         setValueRequest.setValue(newValue);
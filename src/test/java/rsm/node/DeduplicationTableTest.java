@@ -0,0 +1,146 @@
+package rsm.node;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeduplicationTableTest {
+
+    @Test
+    void shouldRejectRequestsAlreadyApplied() {
+        final DeduplicationTable deduplicationTable = new DeduplicationTable(4);
+
+        assertTrue(deduplicationTable.tryRecord(1L, 1L));
+        assertTrue(deduplicationTable.tryRecord(1L, 2L));
+        assertFalse(deduplicationTable.tryRecord(1L, 2L));
+        assertFalse(deduplicationTable.tryRecord(1L, 1L));
+        assertTrue(deduplicationTable.tryRecord(2L, 1L));
+        assertEquals(2L, deduplicationTable.highestRequestId(1L));
+    }
+
+    @Test
+    void shouldApplyRequestsArrivingOutOfOrderWithinTheWindow() {
+        final DeduplicationTable deduplicationTable = new DeduplicationTable(4);
+
+        assertTrue(deduplicationTable.tryRecord(1L, 5L));
+        assertTrue(deduplicationTable.tryRecord(1L, 3L));
+        assertTrue(deduplicationTable.tryRecord(1L, 4L));
+        assertFalse(deduplicationTable.tryRecord(1L, 3L));
+        assertTrue(deduplicationTable.tryRecord(1L, 5L + DeduplicationTable.WINDOW - 1));
+        assertTrue(deduplicationTable.tryRecord(1L, 6L));
+        assertFalse(deduplicationTable.tryRecord(1L, 6L));
+        assertEquals(5L + DeduplicationTable.WINDOW - 1, deduplicationTable.highestRequestId(1L));
+    }
+
+    @Test
+    void shouldRejectRequestsOlderThanTheWindow() {
+        final DeduplicationTable deduplicationTable = new DeduplicationTable(4);
+
+        assertTrue(deduplicationTable.tryRecord(1L, DeduplicationTable.WINDOW + 10L));
+        assertFalse(deduplicationTable.tryRecord(1L, 10L));
+        assertTrue(deduplicationTable.tryRecord(1L, 11L));
+    }
+
+    @Test
+    void shouldClearTheIdsTheWindowSlidesOver() {
+        final DeduplicationTable deduplicationTable = new DeduplicationTable(4);
+
+        assertTrue(deduplicationTable.tryRecord(1L, 10L));
+        assertTrue(deduplicationTable.tryRecord(1L, 10L + DeduplicationTable.WINDOW - 1));
+        assertTrue(deduplicationTable.tryRecord(1L, 10L + DeduplicationTable.WINDOW + 1));
+        assertTrue(deduplicationTable.tryRecord(1L, 10L + DeduplicationTable.WINDOW));
+
+        assertTrue(deduplicationTable.tryRecord(2L, 10L));
+        assertTrue(deduplicationTable.tryRecord(2L, 10L + DeduplicationTable.WINDOW * 3L));
+        assertTrue(deduplicationTable.tryRecord(2L, 10L + DeduplicationTable.WINDOW * 2L + 1));
+    }
+
+    @Test
+    void shouldRestoreWindowsCopiedFromAnotherTable() {
+        final DeduplicationTable deduplicationTable = new DeduplicationTable(4);
+        deduplicationTable.tryRecord(1L, 10L);
+        deduplicationTable.tryRecord(1L, 8L);
+
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[DeduplicationTable.WINDOW_WORDS * Long.BYTES]);
+        deduplicationTable.copyWindow(1L, buffer, 0);
+        final DeduplicationTable restored = new DeduplicationTable(4);
+        restored.restore(1L, deduplicationTable.highestRequestId(1L), buffer, 0);
+
+        assertFalse(restored.tryRecord(1L, 8L));
+        assertFalse(restored.tryRecord(1L, 10L));
+        assertTrue(restored.tryRecord(1L, 9L));
+        assertEquals(1, restored.size());
+    }
+
+    @Test
+    void shouldEvictTheClientThatAppliedTheLeastRecentlyWhenFull() {
+        final DeduplicationTable deduplicationTable = new DeduplicationTable(2);
+
+        deduplicationTable.tryRecord(1L, 5L);
+        deduplicationTable.tryRecord(2L, 5L);
+        deduplicationTable.tryRecord(1L, 6L);
+        deduplicationTable.tryRecord(3L, 5L);
+
+        assertEquals(2, deduplicationTable.size());
+        assertEquals(1, deduplicationTable.evictedSize());
+        assertEquals(6L, deduplicationTable.highestRequestId(1L));
+        assertEquals(5L, deduplicationTable.highestRequestId(3L));
+        assertFalse(deduplicationTable.tryRecord(1L, 5L));
+        assertTrue(deduplicationTable.tryRecord(3L, 4L));
+    }
+
+    @Test
+    void shouldTreatEveryIdUpToTheHighestAsAppliedWhenAnEvictedClientComesBack() {
+        final DeduplicationTable deduplicationTable = new DeduplicationTable(1);
+
+        deduplicationTable.tryRecord(1L, 5L);
+        deduplicationTable.tryRecord(1L, 3L);
+        deduplicationTable.tryRecord(2L, 1L);
+
+        assertFalse(deduplicationTable.tryRecord(1L, 5L));
+        assertFalse(deduplicationTable.tryRecord(1L, 4L));
+        assertEquals(5L, deduplicationTable.highestRequestId(1L));
+        assertTrue(deduplicationTable.tryRecord(1L, 6L));
+        assertFalse(deduplicationTable.tryRecord(1L, 4L));
+        assertFalse(deduplicationTable.tryRecord(1L, 6L));
+        assertEquals(1, deduplicationTable.size());
+        assertEquals(1, deduplicationTable.evictedSize());
+        assertEquals(1L, deduplicationTable.highestRequestId(2L));
+    }
+
+    @Test
+    void shouldForgetTheFirstEvictedClientsWhenTooManyAreEvicted() {
+        final DeduplicationTable deduplicationTable = new DeduplicationTable(1);
+        final int evictedCapacity = DeduplicationTable.EVICTED_CAPACITY_FACTOR;
+
+        for (long clientId = 1; clientId <= evictedCapacity + 2; clientId++) {
+            deduplicationTable.tryRecord(clientId, 5L);
+        }
+
+        assertEquals(evictedCapacity, deduplicationTable.evictedSize());
+        assertEquals(DeduplicationTable.NULL_REQUEST_ID, deduplicationTable.highestRequestId(1L));
+        assertEquals(5L, deduplicationTable.highestRequestId(2L));
+        assertTrue(deduplicationTable.tryRecord(1L, 5L));
+    }
+
+    @Test
+    void shouldVisitEntriesFromTheLeastToTheMostRecentlyApplied() {
+        final DeduplicationTable deduplicationTable = new DeduplicationTable(2);
+        deduplicationTable.tryRecord(1L, 1L);
+        deduplicationTable.tryRecord(2L, 2L);
+        deduplicationTable.tryRecord(3L, 3L);
+        deduplicationTable.tryRecord(2L, 3L);
+
+        final List<Long> clientIds = new ArrayList<>();
+        deduplicationTable.forEach((clientId, highestRequestId) -> clientIds.add(clientId));
+        final List<Long> evictedClientIds = new ArrayList<>();
+        deduplicationTable.forEachEvicted((clientId, highestRequestId) -> evictedClientIds.add(clientId));
+
+        assertEquals(List.of(3L, 2L), clientIds);
+        assertEquals(List.of(1L), evictedClientIds);
+    }
+}
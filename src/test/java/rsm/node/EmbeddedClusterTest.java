@@ -0,0 +1,46 @@
+package rsm.node;
+
+import org.junit.jupiter.api.Test;
+import rsm.client.ReplicatedStateMachineClient;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EmbeddedClusterTest {
+
+    @Test
+    void shouldReplicateAndFailOverOnASharedMediaDriver() {
+        try (EmbeddedCluster embeddedCluster = EmbeddedCluster.launch(3)) {
+            final ReplicatedStateMachineClusterNode leader = awaitLeader(embeddedCluster);
+            assertNull(leader.getMetricsServer());
+
+            final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(
+                    EmbeddedCluster.LOCALHOST, embeddedCluster.hostnames());
+            client.start();
+
+            client.setValue(101L);
+            assertEquals(101L, client.getValue());
+
+            embeddedCluster.stop(leader.getClusterMemberId());
+            final ReplicatedStateMachineClusterNode newLeader = awaitLeader(embeddedCluster);
+            assertNotEquals(leader.getClusterMemberId(), newLeader.getClusterMemberId());
+
+            client.setValue(102L);
+            assertEquals(102L, client.getValue());
+
+            client.stop();
+        }
+    }
+
+    private static ReplicatedStateMachineClusterNode awaitLeader(final EmbeddedCluster embeddedCluster) {
+        await().timeout(20, TimeUnit.SECONDS)
+                .pollDelay(1, TimeUnit.SECONDS)
+                .until(() -> embeddedCluster.leader() != null);
+
+        return embeddedCluster.leader();
+    }
+}
@@ -0,0 +1,79 @@
+package rsm.node;
+
+import io.aeron.Aeron;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import io.aeron.protocol.DataHeaderFlyweight;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.agrona.BitUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static rsm.node.ReplicatedStateMachineClusteredService.*;
+
+class FlightRecorderEventsTest {
+
+    @Test
+    void shouldRecordApplyAndRoleChangeEvents() throws IOException {
+        final Path recordingFile = Files.createTempFile("rsm-events", ".jfr");
+        try (MediaDriver mediaDriver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+                .threadingMode(ThreadingMode.SHARED)
+                .dirDeleteOnShutdown(true));
+             Aeron aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(mediaDriver.aeronDirectoryName()));
+             Recording recording = new Recording()) {
+
+            recording.enable("rsm.node.Apply").withThreshold(Duration.ZERO);
+            recording.enable("rsm.node.RoleChange");
+            recording.start();
+
+            final StubCluster stubCluster = new StubCluster(aeron, 2);
+            final ReplicatedStateMachineClusteredService service = new ReplicatedStateMachineClusteredService();
+            service.onStart(stubCluster.cluster(), null);
+
+            final UnsafeBuffer request = new UnsafeBuffer(new byte[VALUE_POSITION + BitUtil.SIZE_OF_LONG]);
+            final Header header = new Header(0, 0);
+            header.buffer(new UnsafeBuffer(new byte[DataHeaderFlyweight.HEADER_LENGTH]));
+            request.putChar(MESSAGE_TYPE_POSITION, MessageType.SET.getCharCode());
+            request.putLong(CLIENT_ID_POSITION, 7L);
+            for (long correlationId = 1; correlationId <= 10; correlationId++) {
+                request.putLong(0, correlationId);
+                request.putLong(VALUE_POSITION, correlationId * 100);
+                service.onSessionMessage(stubCluster.session(3L), correlationId, request, 0, request.capacity(), header);
+            }
+            service.onRoleChange(Cluster.Role.LEADER);
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        Files.delete(recordingFile);
+
+        final List<RecordedEvent> applyEvents = events.stream()
+                .filter(event -> event.getEventType().getName().equals("rsm.node.Apply"))
+                .toList();
+        assertEquals(10, applyEvents.size());
+        assertEquals("SET", applyEvents.get(0).getString("messageType"));
+        assertEquals("APPLIED", applyEvents.get(0).getString("result"));
+        assertEquals(3L, applyEvents.get(0).getLong("clusterSessionId"));
+        assertEquals(55L, applyEvents.stream().mapToLong(event -> event.getLong("correlationId")).sum());
+
+        final List<RecordedEvent> roleChangeEvents = events.stream()
+                .filter(event -> event.getEventType().getName().equals("rsm.node.RoleChange"))
+                .toList();
+        assertEquals(1, roleChangeEvents.size());
+        assertEquals("LEADER", roleChangeEvents.get(0).getString("role"));
+        assertEquals(2, roleChangeEvents.get(0).getInt("memberId"));
+    }
+}
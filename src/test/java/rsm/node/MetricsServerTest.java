@@ -0,0 +1,63 @@
+package rsm.node;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.common.ClusterNodeConfig;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsServerTest {
+
+    public static final String LOCALHOST = "localhost";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private ReplicatedStateMachineClusterNode clusterNode;
+    private ReplicatedStateMachineClient client;
+
+    @BeforeEach
+    void setUp() {
+        clusterNode = new ReplicatedStateMachineClusterNode(ClusterNodeConfig.create(
+                0,
+                Collections.singletonList(LOCALHOST),
+                new ReplicatedStateMachineClusteredService()));
+        clusterNode.start();
+
+        client = new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST));
+        client.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.stop();
+        clusterNode.stop();
+    }
+
+    @Test
+    void shouldServeServiceAndConsensusCounters() throws IOException, InterruptedException {
+        client.setValue(5L);
+        client.getValue();
+
+        final HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + ClusterNodeConfig.calculatePort(0, ClusterNodeConfig.METRICS_PORT_OFFSET) + "/metrics"))
+                .GET()
+                .build();
+        final HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("rsm_messages_applied_total{type=\"SET\"} 1"));
+        assertTrue(response.body().contains("rsm_messages_applied_total{type=\"GET\"} 1"));
+        assertTrue(response.body().contains("rsm_apply_latency_seconds_count 2"));
+        assertTrue(response.body().contains("rsm_commit_position "));
+    }
+}
@@ -0,0 +1,81 @@
+package rsm.node;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderedKeyIndexTest {
+
+    @Test
+    void shouldCopyKeysInRangeInAscendingOrder() {
+        final OrderedKeyIndex index = new OrderedKeyIndex();
+        final long[] keys = new long[16];
+        assertEquals(0, index.copyRange(Long.MIN_VALUE, Long.MAX_VALUE, keys, keys.length));
+
+        for (final long key : new long[]{50L, -3L, 7L, 1000L, 0L, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            assertTrue(index.add(key));
+        }
+        assertFalse(index.add(7L));
+        assertEquals(7, index.size());
+
+        assertEquals(3, index.copyRange(-3L, 51L, keys, keys.length));
+        assertArrayEquals(new long[]{-3L, 0L, 7L}, Arrays.copyOf(keys, 3));
+        assertEquals(2, index.copyRange(Long.MIN_VALUE, Long.MAX_VALUE, keys, 2));
+        assertArrayEquals(new long[]{Long.MIN_VALUE, -3L}, Arrays.copyOf(keys, 2));
+        assertEquals(0, index.copyRange(8L, 50L, keys, keys.length));
+        assertEquals(0, index.copyRange(50L, 50L, keys, keys.length));
+
+        assertTrue(index.remove(0L));
+        assertFalse(index.remove(0L));
+        assertFalse(index.contains(0L));
+        assertEquals(5, index.copyRange(Long.MIN_VALUE + 1, Long.MAX_VALUE, keys, keys.length));
+        assertArrayEquals(new long[]{-3L, 7L, 50L, 1000L}, Arrays.copyOf(keys, 4));
+    }
+
+    @Test
+    void shouldMatchASortedSetAcrossSplitsAndMerges() {
+        final OrderedKeyIndex index = new OrderedKeyIndex();
+        final TreeSet<Long> expected = new TreeSet<>();
+        final Random random = new Random(42L);
+        final long[] keys = new long[OrderedKeyIndex.LEAF_CAPACITY * 3];
+
+        for (int i = 0; i < 200_000; i++) {
+            final long key = random.nextInt(20_000) - 10_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), index.remove(key));
+            } else {
+                assertEquals(expected.add(key), index.add(key));
+            }
+
+            if (i % 1000 == 0) {
+                final long fromKey = random.nextInt(20_000) - 10_000;
+                final long toKey = fromKey + random.nextInt(2_000);
+                final int count = index.copyRange(fromKey, toKey, keys, keys.length);
+                final long[] expectedKeys = expected.subSet(fromKey, toKey).stream()
+                        .mapToLong(Long::longValue)
+                        .limit(keys.length)
+                        .toArray();
+                assertArrayEquals(expectedKeys, Arrays.copyOf(keys, count));
+            }
+        }
+        assertEquals(expected.size(), index.size());
+
+        for (final long key : expected) {
+            assertTrue(index.contains(key));
+            assertTrue(index.remove(key));
+        }
+        assertEquals(0, index.size());
+        assertEquals(0, index.copyRange(Long.MIN_VALUE, Long.MAX_VALUE, keys, keys.length));
+
+        for (long key = 0; key < 10_000; key++) {
+            assertTrue(index.add(key));
+        }
+        index.clear();
+        assertEquals(0, index.size());
+        assertFalse(index.contains(1L));
+    }
+}
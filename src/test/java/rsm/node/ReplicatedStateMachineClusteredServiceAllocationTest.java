@@ -0,0 +1,82 @@
+package rsm.node;
+
+import io.aeron.Aeron;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.logbuffer.Header;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.BitUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+import rsm.common.AllocationMeter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static rsm.node.ReplicatedStateMachineClusteredService.*;
+
+class ReplicatedStateMachineClusteredServiceAllocationTest {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 10_000;
+    private static final long CLIENT_ID = 42L;
+
+    private final UnsafeBuffer getRequest = new UnsafeBuffer(new byte[VALUE_POSITION]);
+    private final UnsafeBuffer setRequest = new UnsafeBuffer(new byte[VALUE_POSITION + BitUtil.SIZE_OF_LONG]);
+    private final UnsafeBuffer transactionRequest = new UnsafeBuffer(new byte[TransactionCodec.requestBodyLength(1, 2)]);
+    private final Header header = new Header(0, 0);
+    private long correlationId;
+
+    @Test
+    void shouldApplyRequestsWithoutAllocating() {
+        try (MediaDriver mediaDriver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+                .threadingMode(ThreadingMode.SHARED)
+                .dirDeleteOnShutdown(true));
+             Aeron aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(mediaDriver.aeronDirectoryName()))) {
+
+            final StubCluster stubCluster = new StubCluster(aeron, 0);
+            final ReplicatedStateMachineClusteredService service = new ReplicatedStateMachineClusteredService();
+            service.onStart(stubCluster.cluster(), null);
+            final ClientSession session = stubCluster.session(1L);
+
+            encodeHeader(getRequest, MessageType.GET);
+            encodeHeader(setRequest, MessageType.SET);
+            encodeHeader(transactionRequest, MessageType.TRANSACTION);
+            transactionRequest.putInt(TransactionCodec.PRECONDITION_COUNT_POSITION, 1);
+            transactionRequest.putInt(TransactionCodec.WRITE_COUNT_POSITION, 2);
+            final int preconditionOffset = TransactionCodec.preconditionOffset(0, 0);
+            transactionRequest.putInt(preconditionOffset + TransactionCodec.PRECONDITION_KIND_OFFSET, TransactionCodec.READ);
+            transactionRequest.putLong(preconditionOffset + TransactionCodec.PRECONDITION_KEY_OFFSET, 1L);
+            for (int i = 0; i < 2; i++) {
+                transactionRequest.putLong(TransactionCodec.writeOffset(0, 1, i) + TransactionCodec.WRITE_KEY_OFFSET, i + 2L);
+            }
+            header.buffer(new UnsafeBuffer(new byte[DataHeaderFlyweight.HEADER_LENGTH]));
+
+            final long allocatedBytes = AllocationMeter.allocatedBytes(WARMUP_ITERATIONS, MEASURED_ITERATIONS, iteration -> {
+                setRequest.putLong(VALUE_POSITION, iteration);
+                onSessionMessage(service, session, iteration, setRequest);
+                onSessionMessage(service, session, iteration, getRequest);
+
+                transactionRequest.putLong(TransactionCodec.writeOffset(0, 1, 0) + TransactionCodec.WRITE_VALUE_OFFSET, iteration);
+                onSessionMessage(service, session, iteration, transactionRequest);
+            });
+
+            assertEquals(0L, allocatedBytes);
+            assertEquals(WARMUP_ITERATIONS + MEASURED_ITERATIONS - 1L, service.getValue());
+            assertEquals(3L * (WARMUP_ITERATIONS + MEASURED_ITERATIONS), stubCluster.offeredResponses());
+        }
+    }
+
+    private void onSessionMessage(final ReplicatedStateMachineClusteredService service,
+                                  final ClientSession session,
+                                  final long timestamp,
+                                  final UnsafeBuffer request) {
+        request.putLong(0, ++correlationId);
+        service.onSessionMessage(session, timestamp, request, 0, request.capacity(), header);
+    }
+
+    private static void encodeHeader(final UnsafeBuffer request, final MessageType messageType) {
+        request.putChar(MESSAGE_TYPE_POSITION, messageType.getCharCode());
+        request.putShort(FLAGS_POSITION, (short) 0);
+        request.putLong(CLIENT_ID_POSITION, CLIENT_ID);
+    }
+}
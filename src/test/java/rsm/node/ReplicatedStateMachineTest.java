@@ -1,7 +1,12 @@
 package rsm.node;
 
+import org.agrona.concurrent.UnsafeBuffer;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ReplicatedStateMachineTest {
@@ -13,4 +18,133 @@ class ReplicatedStateMachineTest {
         final long actualValue = replicatedStateMachine.getValue();
         assertEquals(10L, actualValue);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldVersionEveryWriteOfAKey() {
+        final ReplicatedStateMachine replicatedStateMachine = new ReplicatedStateMachine();
+        assertEquals(0L, replicatedStateMachine.getVersion(5L));
+
+        for (long key = 0; key < 100; key++) {
+            replicatedStateMachine.setValue(key, key * 10);
+        }
+        replicatedStateMachine.setValue(5L, 7L);
+        replicatedStateMachine.setValue(12L);
+
+        assertEquals(7L, replicatedStateMachine.getValue(5L));
+        assertEquals(2L, replicatedStateMachine.getVersion(5L));
+        assertEquals(990L, replicatedStateMachine.getValue(99L));
+        assertEquals(12L, replicatedStateMachine.getValue(ReplicatedStateMachine.DEFAULT_KEY));
+        assertEquals(2L, replicatedStateMachine.getVersion(ReplicatedStateMachine.DEFAULT_KEY));
+        assertEquals(100, replicatedStateMachine.keyCount());
+    }
+
+    @Test
+    void shouldExpireKeysAtTheirDeadlineUnlessOverwritten() {
+        final ReplicatedStateMachine replicatedStateMachine = new ReplicatedStateMachine();
+        replicatedStateMachine.expire(100L);
+
+        for (long key = 1; key <= 20; key++) {
+            replicatedStateMachine.setValue(key, key, 100L + key);
+        }
+        replicatedStateMachine.setValue(3L, 33L);
+        replicatedStateMachine.setValue(4L, 44L, 1000L);
+        assertEquals(19, replicatedStateMachine.expiringKeyCount());
+
+        assertEquals(8, replicatedStateMachine.expire(110L));
+        assertEquals(0L, replicatedStateMachine.getValue(1L));
+        assertEquals(0L, replicatedStateMachine.getVersion(1L));
+        assertEquals(33L, replicatedStateMachine.getValue(3L));
+        assertEquals(44L, replicatedStateMachine.getValue(4L));
+        assertEquals(11L, replicatedStateMachine.getValue(11L));
+        assertEquals(12, replicatedStateMachine.keyCount());
+
+        final ReplicatedStateMachine restored = new ReplicatedStateMachine();
+        replicatedStateMachine.forEachKey(restored::restore);
+        restored.expiryTick(replicatedStateMachine.expiryTick());
+        replicatedStateMachine.forEachExpiry(restored::restoreExpiry);
+
+        for (final ReplicatedStateMachine stateMachine : new ReplicatedStateMachine[]{replicatedStateMachine, restored}) {
+            stateMachine.setValue(100L, 1L);
+            assertEquals(10, stateMachine.expire(999L));
+            assertEquals(44L, stateMachine.getValue(4L));
+            assertEquals(1, stateMachine.expire(1000L));
+            assertEquals(0, stateMachine.expiringKeyCount());
+            assertEquals(2, stateMachine.keyCount());
+        }
+    }
+
+    @Test
+    void shouldScanKeysInRangeExceptExpiredOnes() {
+        final ReplicatedStateMachine replicatedStateMachine = new ReplicatedStateMachine();
+        final long[] keys = new long[8];
+
+        for (long key = 10; key > 0; key--) {
+            replicatedStateMachine.setValue(key, key * 10, key % 2 == 0 ? 5L : 500L);
+        }
+        replicatedStateMachine.setValue(4L, 4L);
+        assertEquals(4, replicatedStateMachine.copyKeysInRange(3L, 7L, keys, keys.length));
+        assertArrayEquals(new long[]{3L, 4L, 5L, 6L}, Arrays.copyOf(keys, 4));
+
+        replicatedStateMachine.expire(5L);
+        assertEquals(3, replicatedStateMachine.copyKeysInRange(3L, 7L, keys, keys.length));
+        assertArrayEquals(new long[]{3L, 4L, 5L}, Arrays.copyOf(keys, 3));
+
+        final ReplicatedStateMachine hashOnly = new ReplicatedStateMachine(false);
+        assertFalse(hashOnly.isOrderedKeyIndexEnabled());
+        assertThrows(IllegalStateException.class, () -> hashOnly.copyKeysInRange(0L, 1L, keys, keys.length));
+    }
+
+    @Test
+    void shouldReplaceBytesValueAcrossSizeClasses() {
+        final ReplicatedStateMachine replicatedStateMachine = new ReplicatedStateMachine();
+
+        replicatedStateMachine.setBytesValue(1L, new UnsafeBuffer(new byte[]{1, 2, 3}), 0, 3);
+        replicatedStateMachine.setBytesValue(1L, new UnsafeBuffer(new byte[]{4, 5}), 0, 2);
+        assertArrayEquals(new byte[]{4, 5}, getBytesValue(replicatedStateMachine, 1L));
+
+        final byte[] largeValue = new byte[1000];
+        largeValue[999] = 7;
+        replicatedStateMachine.setBytesValue(1L, new UnsafeBuffer(largeValue), 0, largeValue.length);
+        assertArrayEquals(largeValue, getBytesValue(replicatedStateMachine, 1L));
+        assertEquals(1024, replicatedStateMachine.slabAllocator().allocatedBytes());
+
+        replicatedStateMachine.setBytesValue(1L, new UnsafeBuffer(new byte[0]), 0, 0);
+        assertEquals(0, replicatedStateMachine.getBytesValueLength(1L));
+        assertEquals(0, replicatedStateMachine.slabAllocator().allocatedBytes());
+    }
+
+    @Test
+    void shouldKeepAByteValuePerKeyAndFreeItWhenTheKeyExpires() {
+        final ReplicatedStateMachine replicatedStateMachine = new ReplicatedStateMachine();
+
+        replicatedStateMachine.setBytesValue(1L, new UnsafeBuffer(new byte[]{1, 2, 3}), 0, 3);
+        replicatedStateMachine.setBytesValue(2L, new UnsafeBuffer(new byte[]{4}), 0, 1);
+        replicatedStateMachine.setValue(2L, 9L, 10L);
+
+        assertArrayEquals(new byte[]{1, 2, 3}, getBytesValue(replicatedStateMachine, 1L));
+        assertArrayEquals(new byte[]{4}, getBytesValue(replicatedStateMachine, 2L));
+        assertEquals(0, replicatedStateMachine.getBytesValueLength(ReplicatedStateMachine.DEFAULT_KEY));
+        assertEquals(1L, replicatedStateMachine.getVersion(1L));
+        assertEquals(2, replicatedStateMachine.bytesValueCount());
+
+        final List<Long> keys = new ArrayList<>();
+        replicatedStateMachine.forEachBytesValue((key, length) -> keys.add(key));
+        keys.sort(null);
+        assertEquals(List.of(1L, 2L), keys);
+
+        replicatedStateMachine.expire(10L);
+        assertEquals(0, replicatedStateMachine.getBytesValueLength(2L));
+        assertEquals(1, replicatedStateMachine.bytesValueCount());
+        assertEquals(16, replicatedStateMachine.slabAllocator().allocatedBytes());
+
+        replicatedStateMachine.restoreBytesValue(3L, new UnsafeBuffer(new byte[]{5, 6}), 0, 2);
+        assertArrayEquals(new byte[]{5, 6}, getBytesValue(replicatedStateMachine, 3L));
+        assertEquals(0L, replicatedStateMachine.getVersion(3L));
+    }
+
+    private static byte[] getBytesValue(final ReplicatedStateMachine replicatedStateMachine, final long key) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[replicatedStateMachine.getBytesValueLength(key)]);
+        replicatedStateMachine.getBytesValue(key, buffer, 0);
+        return buffer.byteArray();
+    }
+}
@@ -0,0 +1,44 @@
+package rsm.node;
+
+import io.aeron.Aeron;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import org.junit.jupiter.api.Test;
+import rsm.common.ClusterNodeConfig;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceWarmupTest {
+
+    @Test
+    void shouldRespondToEveryWarmupRequest() {
+        try (MediaDriver mediaDriver = MediaDriver.launchEmbedded(new MediaDriver.Context()
+                .threadingMode(ThreadingMode.SHARED)
+                .dirDeleteOnShutdown(true));
+             Aeron aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(mediaDriver.aeronDirectoryName()))) {
+
+            assertEquals(2000L * ServiceWarmup.REQUESTS_PER_ITERATION, ServiceWarmup.warmUp(aeron, 2000));
+        }
+    }
+
+    @Test
+    void shouldWarmUpBeforeJoiningTheCluster() {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(ClusterNodeConfig
+                .create(0, List.of("localhost"), new ReplicatedStateMachineClusteredService())
+                .warmupIterations(1000));
+        clusterNode.start();
+
+        try {
+            assertTrue(clusterNode.getWarmupDurationNs() > 0);
+            await().timeout(20, TimeUnit.SECONDS).until(() -> clusterNode.getRole() == Cluster.Role.LEADER);
+        } finally {
+            clusterNode.stop();
+        }
+    }
+}
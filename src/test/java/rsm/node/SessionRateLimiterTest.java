@@ -0,0 +1,69 @@
+package rsm.node;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRateLimiterTest {
+
+    private static final long SECOND_NS = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void shouldAdmitEverythingWhenDisabled() {
+        final SessionRateLimiter rateLimiter = new SessionRateLimiter(0, 0);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(rateLimiter.tryAcquire(1L, 0L));
+        }
+        assertEquals(0, rateLimiter.size());
+    }
+
+    @Test
+    void shouldAdmitBurstThenRefillAtTheSustainedRate() {
+        final SessionRateLimiter rateLimiter = new SessionRateLimiter(10, 3);
+
+        assertTrue(rateLimiter.tryAcquire(1L, 0L));
+        assertTrue(rateLimiter.tryAcquire(1L, 0L));
+        assertTrue(rateLimiter.tryAcquire(1L, 0L));
+        assertFalse(rateLimiter.tryAcquire(1L, 0L));
+
+        assertFalse(rateLimiter.tryAcquire(1L, SECOND_NS / 20));
+        assertTrue(rateLimiter.tryAcquire(1L, SECOND_NS / 10));
+        assertFalse(rateLimiter.tryAcquire(1L, SECOND_NS / 10));
+
+        assertTrue(rateLimiter.tryAcquire(1L, 100 * SECOND_NS));
+        assertTrue(rateLimiter.tryAcquire(1L, 100 * SECOND_NS));
+        assertTrue(rateLimiter.tryAcquire(1L, 100 * SECOND_NS));
+        assertFalse(rateLimiter.tryAcquire(1L, 100 * SECOND_NS));
+    }
+
+    @Test
+    void shouldLimitSessionsIndependently() {
+        final SessionRateLimiter rateLimiter = new SessionRateLimiter(1, 1);
+
+        assertTrue(rateLimiter.tryAcquire(1L, 0L));
+        assertFalse(rateLimiter.tryAcquire(1L, 0L));
+        assertTrue(rateLimiter.tryAcquire(2L, 0L));
+
+        rateLimiter.onSessionClose(1L);
+        assertEquals(1, rateLimiter.size());
+    }
+
+    @Test
+    void shouldMakeTheSameDecisionsAfterRestoringItsBuckets() {
+        final SessionRateLimiter rateLimiter = new SessionRateLimiter(5, 2);
+        rateLimiter.tryAcquire(1L, 0L);
+        rateLimiter.tryAcquire(1L, 0L);
+        rateLimiter.tryAcquire(2L, 0L);
+
+        final SessionRateLimiter restored = new SessionRateLimiter(5, 2);
+        rateLimiter.forEach(restored::restore);
+
+        for (long timeNs = 0; timeNs < SECOND_NS; timeNs += SECOND_NS / 50) {
+            assertEquals(rateLimiter.tryAcquire(1L, timeNs), restored.tryAcquire(1L, timeNs));
+            assertEquals(rateLimiter.tryAcquire(2L, timeNs), restored.tryAcquire(2L, timeNs));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package rsm.node;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlabAllocatorTest {
+
+    @Test
+    void shouldRoundLengthsUpToTheirSizeClass() {
+        assertEquals(0, SlabAllocator.sizeClassIndex(1));
+        assertEquals(0, SlabAllocator.sizeClassIndex(16));
+        assertEquals(1, SlabAllocator.sizeClassIndex(17));
+        assertEquals(8, SlabAllocator.sizeClassIndex(4096));
+    }
+
+    @Test
+    void shouldCopyValuesInAndOutOfSlots() {
+        final SlabAllocator slabAllocator = new SlabAllocator(4096, 64 * 1024);
+        final UnsafeBuffer src = new UnsafeBuffer(new byte[]{1, 2, 3, 4, 5});
+        final UnsafeBuffer dst = new UnsafeBuffer(new byte[5]);
+
+        final long handle = slabAllocator.allocate(5);
+        slabAllocator.copyIn(handle, src, 0, 5);
+        slabAllocator.copyOut(handle, dst, 0, 5);
+
+        assertArrayEquals(src.byteArray(), dst.byteArray());
+        assertEquals(64 * 1024, slabAllocator.reservedBytes());
+        assertEquals(16, slabAllocator.allocatedBytes());
+        assertEquals(5, slabAllocator.usedBytes());
+    }
+
+    @Test
+    void shouldReuseFreedSlotsWithoutReservingMoreMemory() {
+        final SlabAllocator slabAllocator = new SlabAllocator(4096, 4096);
+
+        for (int i = 0; i < 10_000; i++) {
+            final long small = slabAllocator.allocate(100);
+            final long large = slabAllocator.allocate(3000);
+            slabAllocator.free(small, 100);
+            slabAllocator.free(large, 3000);
+        }
+
+        assertEquals(2 * 4096, slabAllocator.reservedBytes());
+        assertEquals(0, slabAllocator.allocatedBytes());
+        assertEquals(0, slabAllocator.usedBytes());
+        assertEquals(1.0d, slabAllocator.fragmentation());
+    }
+
+    @Test
+    void shouldAddSlabsAsASizeClassFills() {
+        final SlabAllocator slabAllocator = new SlabAllocator(64, 1024);
+
+        final long first = slabAllocator.allocate(64);
+        for (int i = 1; i < 17; i++) {
+            assertNotEquals(first, slabAllocator.allocate(64));
+        }
+
+        assertEquals(2 * 1024, slabAllocator.reservedBytes());
+        assertEquals(17 * 64, slabAllocator.allocatedBytes());
+    }
+
+    @Test
+    void shouldRejectValuesLongerThanTheLargestSizeClass() {
+        final SlabAllocator slabAllocator = new SlabAllocator(4096, 64 * 1024);
+
+        assertThrows(IllegalArgumentException.class, () -> slabAllocator.allocate(4097));
+    }
+}
@@ -0,0 +1,86 @@
+package rsm.node;
+
+import org.agrona.collections.IntArrayList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void shouldExpireEntriesAtTheirDeadline() {
+        final TimingWheel timingWheel = new TimingWheel(4);
+        final IntArrayList expired = new IntArrayList();
+        timingWheel.advance(1000L, expired::addInt);
+
+        timingWheel.schedule(0, 1001L);
+        timingWheel.schedule(1, 1070L);
+        timingWheel.schedule(2, 1000L + 5000L);
+        timingWheel.schedule(3, 1000L + (1L << 30));
+        assertEquals(4, timingWheel.size());
+
+        assertEquals(1, timingWheel.advance(1001L, expired::addInt));
+        assertEquals(0, timingWheel.advance(1069L, expired::addInt));
+        assertEquals(1, timingWheel.advance(1070L, expired::addInt));
+        assertEquals(0, timingWheel.advance(5999L, expired::addInt));
+        assertEquals(1, timingWheel.advance(6000L, expired::addInt));
+        assertEquals(3, expired.size());
+        assertEquals(0, expired.getInt(0));
+        assertEquals(1, expired.getInt(1));
+        assertEquals(2, expired.getInt(2));
+
+        assertEquals(0, timingWheel.advance(1000L + (1L << 30) - 1, expired::addInt));
+        assertTrue(timingWheel.isScheduled(3));
+        assertEquals(1, timingWheel.advance(1000L + (1L << 30), expired::addInt));
+        assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    void shouldRescheduleAndCancelEntries() {
+        final TimingWheel timingWheel = new TimingWheel(2);
+        final IntArrayList expired = new IntArrayList();
+
+        timingWheel.schedule(0, 10L);
+        timingWheel.schedule(1, 10L);
+        timingWheel.schedule(0, 300L);
+        timingWheel.cancel(1);
+        timingWheel.cancel(1);
+        assertEquals(1, timingWheel.size());
+        assertFalse(timingWheel.isScheduled(1));
+
+        assertEquals(0, timingWheel.advance(299L, expired::addInt));
+        assertEquals(1, timingWheel.advance(300L, expired::addInt));
+        assertEquals(0, expired.getInt(0));
+        assertEquals(TimingWheel.NULL_DEADLINE, timingWheel.deadline(0));
+    }
+
+    @Test
+    void shouldExpirePastDeadlinesOnTheNextTick() {
+        final TimingWheel timingWheel = new TimingWheel(1);
+        final IntArrayList expired = new IntArrayList();
+        timingWheel.advance(500L, expired::addInt);
+
+        timingWheel.schedule(0, 100L);
+        assertEquals(0, timingWheel.advance(500L, expired::addInt));
+        assertEquals(1, timingWheel.advance(501L, expired::addInt));
+    }
+
+    @Test
+    void shouldExpireEverythingDueWhenAdvancedOverALongGap() {
+        final TimingWheel timingWheel = new TimingWheel(16);
+        final IntArrayList expired = new IntArrayList();
+        timingWheel.ensureCapacity(1000);
+
+        for (int entry = 0; entry < 1000; entry++) {
+            timingWheel.schedule(entry, 1L + entry * 997L);
+        }
+
+        assertEquals(500, timingWheel.advance(499L * 997L + 1L, expired::addInt));
+        assertEquals(500, timingWheel.size());
+        assertEquals(500, timingWheel.advance(Long.MAX_VALUE / 2, expired::addInt));
+        assertEquals(0, timingWheel.size());
+        for (int i = 0; i < expired.size(); i++) {
+            assertEquals(i, expired.getInt(i));
+        }
+    }
+}
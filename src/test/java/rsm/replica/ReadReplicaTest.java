@@ -0,0 +1,101 @@
+package rsm.replica;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.common.ClusterNodeConfig;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+import rsm.replica.dto.ReplicaValueResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadReplicaTest {
+
+    public static final String LOCALHOST = "localhost";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ReplicatedStateMachineClusterNode clusterNode;
+    private ReplicatedStateMachineClient client;
+    private ReadReplica readReplica;
+
+    @BeforeEach
+    void setUp() {
+        clusterNode = new ReplicatedStateMachineClusterNode(ClusterNodeConfig.create(
+                0,
+                Collections.singletonList(LOCALHOST),
+                new ReplicatedStateMachineClusteredService()));
+        clusterNode.start();
+
+        client = new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST));
+        client.start();
+
+        readReplica = new ReadReplica(0, LOCALHOST, List.of(LOCALHOST), 0);
+        readReplica.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        readReplica.close();
+        client.stop();
+        clusterNode.stop();
+    }
+
+    @Test
+    void shouldApplyCommittedUpdates() {
+        client.setValue(7L);
+        client.setValue(42L);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> readReplica.getValue() == 42L);
+        assertTrue(readReplica.getAppliedPosition() > 0);
+    }
+
+    @Test
+    void shouldWaitForMinimumPosition() throws IOException, InterruptedException {
+        client.setValue(11L);
+        await().atMost(Duration.ofSeconds(10)).until(() -> readReplica.getValue() == 11L);
+        final long position = readReplica.getAppliedPosition();
+
+        client.setValue(12L);
+        final HttpResponse<String> response = getValue("?minPosition=" + (position + 1) + "&timeoutMs=10000");
+        assertEquals(200, response.statusCode());
+
+        final ReplicaValueResponse valueResponse = objectMapper.readValue(response.body(), ReplicaValueResponse.class);
+        assertEquals(12L, valueResponse.getValue());
+        assertTrue(valueResponse.getAppliedPosition() > position);
+    }
+
+    @Test
+    void shouldRejectReadsBehindMinimumPosition() throws IOException, InterruptedException {
+        final HttpResponse<String> response = getValue("?minPosition=" + Long.MAX_VALUE + "&timeoutMs=0");
+        assertEquals(503, response.statusCode());
+    }
+
+    @Test
+    void shouldRejectMalformedParameters() throws IOException, InterruptedException {
+        assertEquals(400, getValue("?minPosition=abc").statusCode());
+        assertEquals(400, getValue("?timeoutMs=").statusCode());
+    }
+
+    private HttpResponse<String> getValue(final String query) throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + ReadReplica.calculatePort(0, ReadReplica.HTTP_PORT_OFFSET) + "/value" + query))
+                .GET()
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
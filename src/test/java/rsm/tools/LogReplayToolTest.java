@@ -0,0 +1,65 @@
+package rsm.tools;
+
+import org.agrona.IoUtil;
+import org.junit.jupiter.api.Test;
+import rsm.client.ReplicatedStateMachineClient;
+import rsm.common.ClusterNodeConfig;
+import rsm.common.DurabilityMode;
+import rsm.node.ReplicatedStateMachineClusterNode;
+import rsm.node.ReplicatedStateMachineClusteredService;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogReplayToolTest {
+
+    public static final String LOCALHOST = "localhost";
+
+    @Test
+    void shouldReplayRecordedLogIntoFreshService() {
+        recordAndReplay(DurabilityMode.MEMORY, ClusterNodeConfig.DEFAULT_DATA_DIR);
+    }
+
+    @Test
+    void shouldReplayTheLogOfAPersistentNode() {
+        final File dataDir = new File(IoUtil.tmpDirName(), "rsm-log-replay-test");
+        IoUtil.delete(dataDir, true);
+        try {
+            recordAndReplay(DurabilityMode.ASYNC, dataDir.getPath());
+        } finally {
+            IoUtil.delete(dataDir, true);
+        }
+    }
+
+    private static void recordAndReplay(final DurabilityMode durabilityMode, final String dataDir) {
+        final ReplicatedStateMachineClusterNode clusterNode = new ReplicatedStateMachineClusterNode(ClusterNodeConfig.create(
+                0,
+                Collections.singletonList(LOCALHOST),
+                new ReplicatedStateMachineClusteredService(),
+                durabilityMode,
+                dataDir));
+        final ReplicatedStateMachineClient client = new ReplicatedStateMachineClient(LOCALHOST, List.of(LOCALHOST));
+
+        clusterNode.start();
+        client.start();
+
+        for (int i = 1; i <= 100; i++) {
+            client.setValue(i);
+        }
+        client.getValue();
+
+        client.stop();
+        clusterNode.stop();
+
+        try (LogReplayTool logReplayTool = new LogReplayTool(ClusterNodeConfig.archiveDir(0, durabilityMode, dataDir))) {
+            final LogReplayTool.Result result = logReplayTool.replay();
+
+            assertEquals(101, result.entries());
+            assertEquals(100L, result.finalValue());
+            assertEquals(101, result.offeredResponses());
+        }
+    }
+}